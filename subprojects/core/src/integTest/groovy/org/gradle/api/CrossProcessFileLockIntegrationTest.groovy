@@ -22,12 +22,57 @@ import static org.gradle.test.fixtures.ConcurrentTestUtil.poll
 public class CrossProcessFileLockIntegrationTest extends AbstractIntegrationSpec {
 
     def "the task history lock can be acquired when the initial owner is busy executing tasks"() {
+        when:
+        buildWhereProjectAWaitsForProjectB()
+
+        then:
+        def handle1 = executer.withArguments(':a:build', '-i').start()
+        poll(120) {
+            assert handle1.standardOutput.contains('waiting for file...')
+        }
+        //first build is waiting for file, so the lock should be releasable now (for example: the task history lock)
+
+        and:
+        def handle2 = executer.withArguments('b:build', '-is').start()
+        handle2.waitForFinish()
+        handle1.waitForFinish()
+
+        and:
+        file("a/build/libs/a.jar").assertExists()
+        file("b/build/libs/b.jar").assertExists()
+    }
+
+    def "the owner of a contended lock notifies the waiting process when it releases the lock"() {
+        when:
+        buildWhereProjectAWaitsForProjectB()
+
+        then:
+        def handle1 = executer.withArguments(':a:build', '-d').start()
+        poll(120) {
+            assert handle1.standardOutput.contains('waiting for file...')
+        }
+
+        and:
+        def handle2 = executer.withArguments('b:build', '-d').start()
+        handle2.waitForFinish()
+        handle1.waitForFinish()
+
+        and:
+        handle1.standardOutput.contains('waiting process(es) of the release of lock')
+        def waitTimes = (handle2.standardOutput =~ /Waited (\d+) ms to acquire lock on/).collect { it[1] as long }
+        !waitTimes.empty
+        println "Lock handoff wait times (ms): $waitTimes"
+        // The waiting process is notified on release rather than polling the lock, so the handoff only takes as long as the owner needs to get to a point where it can release the lock
+        waitTimes.every { it < 2000 }
+        handle2.standardOutput.contains('ms in total for other processes to release the lock on')
+    }
+
+    private void buildWhereProjectAWaitsForProjectB() {
         settingsFile << "include 'a', 'b'"
 
         file("a/src/main/java/A.java") << "public class A {}"
         file("b/src/main/java/B.java") << "public class B {}"
 
-        when:
         buildFile << """
             def waitForStop() {
               def sanityWaitUntil = System.currentTimeMillis() + 120000
@@ -51,21 +96,5 @@ public class CrossProcessFileLockIntegrationTest extends AbstractIntegrationSpec
                 compileJava.doFirst { stopNow() }
             }
         """
-
-        then:
-        def handle1 = executer.withArguments(':a:build', '-i').start()
-        poll(120) {
-            assert handle1.standardOutput.contains('waiting for file...')
-        }
-        //first build is waiting for file, so the lock should be releasable now (for example: the task history lock)
-
-        and:
-        def handle2 = executer.withArguments('b:build', '-is').start()
-        handle2.waitForFinish()
-        handle1.waitForFinish()
-
-        and:
-        file("a/build/libs/a.jar").assertExists()
-        file("b/build/libs/b.jar").assertExists()
     }
 }
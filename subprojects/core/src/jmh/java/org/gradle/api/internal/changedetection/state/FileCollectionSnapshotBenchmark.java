@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.util.ChangeListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the up-to-date check of a large file collection: hashing a new snapshot, comparing it with an unchanged previous snapshot,
+ * and listing the changes when a single file has changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FileCollectionSnapshotBenchmark {
+    private static final int FILES_PER_DIRECTORY = 20;
+
+    @Param({"10000", "100000"})
+    int fileCount;
+
+    private Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> current;
+    private DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl unchanged;
+    private DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl changed;
+
+    @Setup
+    public void setup() {
+        current = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
+        String root = File.separator + "project" + File.separator + "src";
+        current.put(root, DefaultFileCollectionSnapshotter.DirSnapshot.getInstance());
+        for (int i = 0; i < fileCount; i++) {
+            String directory = root + File.separator + "pkg" + (i / 1000) + File.separator + "sub" + (i / FILES_PER_DIRECTORY);
+            current.put(directory.substring(0, directory.lastIndexOf(File.separatorChar)), DefaultFileCollectionSnapshotter.DirSnapshot.getInstance());
+            current.put(directory, DefaultFileCollectionSnapshotter.DirSnapshot.getInstance());
+            current.put(directory + File.separator + "File" + i + ".java", new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash(i)));
+        }
+
+        // The previous snapshots already have their hash, as they do when they are read from the task history
+        unchanged = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>(current));
+        unchanged.getHash();
+        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> changedEntries = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>(current);
+        changedEntries.put(root + File.separator + "pkg0" + File.separator + "sub0" + File.separator + "File0.java", new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash(-1)));
+        changed = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(changedEntries);
+        changed.getHash();
+    }
+
+    private static byte[] hash(int value) {
+        byte[] hash = new byte[16];
+        for (int i = 0; i < 4; i++) {
+            hash[i] = (byte) (value >>> (8 * i));
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public void hashSnapshot(Blackhole blackhole) {
+        blackhole.consume(new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(current).getHash());
+    }
+
+    @Benchmark
+    public void checkUnchangedSnapshot(Blackhole blackhole) {
+        iterateChanges(unchanged, blackhole);
+    }
+
+    @Benchmark
+    public void checkChangedSnapshot(Blackhole blackhole) {
+        iterateChanges(changed, blackhole);
+    }
+
+    private void iterateChanges(DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl previous, final Blackhole blackhole) {
+        FileCollectionSnapshot.ChangeIterator<String> changes = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(current).iterateChangesSince(previous);
+        ChangeListener<String> listener = new ChangeListener<String>() {
+            public void added(String fileName) {
+                blackhole.consume(fileName);
+            }
+
+            public void removed(String fileName) {
+                blackhole.consume(fileName);
+            }
+
+            public void changed(String fileName) {
+                blackhole.consume(fileName);
+            }
+        };
+        while (changes.next(listener)) {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.logstore.LogStructuredPersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures get and put throughput of the persistent indexed cache implementations on a store of several hundred MB, with random keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PersistentIndexedCacheBenchmark {
+    /**
+     * The BTree with the {@code FileBackedBlockStore} or the {@code MappedFileBlockStore}, or the log-structured cache.
+     */
+    @Param({"btree", "btree-mapped", "log"})
+    String store;
+
+    @Param({"100000"})
+    int entryCount;
+
+    @Param({"4096"})
+    int valueSize;
+
+    private File cacheDir;
+    private FileBackedPersistentIndexedCache<String, byte[]> cache;
+    private final Random random = new Random(42L);
+    private byte[] value;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        System.setProperty(BTreePersistentIndexedCache.MEMORY_MAPPED_PROPERTY, String.valueOf(store.equals("btree-mapped")));
+        cacheDir = File.createTempFile("cache", "benchmark");
+        if (!cacheDir.delete() || !cacheDir.mkdirs()) {
+            throw new IOException("Could not create " + cacheDir);
+        }
+        value = new byte[valueSize];
+        random.nextBytes(value);
+        FileBackedPersistentIndexedCache<String, byte[]> cache = createCache(new File(cacheDir, "cache.bin"));
+        for (int i = 0; i < entryCount; i++) {
+            cache.put(key(i), value);
+        }
+        cache.close();
+    }
+
+    /**
+     * Opens the cache for each iteration and closes it afterwards, as the cache is when the cross-process lock is acquired and released.
+     * Any compaction done on close is included in the measurement.
+     */
+    @Setup(Level.Iteration)
+    public void openCache() {
+        cache = createCache(new File(cacheDir, "cache.bin"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeCache() {
+        cache.close();
+    }
+
+    private FileBackedPersistentIndexedCache<String, byte[]> createCache(File cacheFile) {
+        if (store.equals("log")) {
+            return new LogStructuredPersistentIndexedCache<String, byte[]>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        }
+        return new BTreePersistentIndexedCache<String, byte[]>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+    }
+
+    private static String key(int i) {
+        return "key-" + i;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCache() {
+        for (File file : cacheDir.listFiles()) {
+            file.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return cache.get(key(random.nextInt(entryCount)));
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(key(random.nextInt(entryCount)), value);
+    }
+}
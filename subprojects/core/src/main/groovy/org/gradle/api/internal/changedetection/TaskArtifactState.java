@@ -15,7 +15,9 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.TaskExecutionHistory;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 
 import java.util.Collection;
@@ -48,6 +50,12 @@ public interface TaskArtifactState {
      */
     void finished();
 
+    /**
+     * Returns the key under which the outputs of the task can be stored in and loaded from the task output cache, or null if the outputs of the task cannot be cached.
+     */
+    @Nullable
+    String calculateCacheKey(TaskCacheKeyCalculator calculator);
+
     /**
      * Returns the history for this task.
      */
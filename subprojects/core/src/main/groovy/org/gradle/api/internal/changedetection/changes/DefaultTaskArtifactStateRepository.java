@@ -28,11 +28,16 @@ import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.api.internal.project.taskfactory.AnnotationProcessingTaskFactory;
+import org.gradle.api.internal.tasks.ContextAwareTaskAction;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.reflect.Instantiator;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepository {
@@ -103,6 +108,21 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return messages.isEmpty();
         }
 
+        public String calculateCacheKey(TaskCacheKeyCalculator calculator) {
+            for (ContextAwareTaskAction action : task.getTaskActions()) {
+                if (action instanceof AnnotationProcessingTaskFactory.IncrementalTaskAction) {
+                    // Incremental tasks may discover further inputs while executing
+                    return null;
+                }
+            }
+            List<File> outputFiles = new ArrayList<File>(task.getOutputs().getFiles().getFiles());
+            if (outputFiles.isEmpty()) {
+                return null;
+            }
+            Collections.sort(outputFiles);
+            return calculator.calculate(task, task.getInputs().getProperties(), getStates().getInputFiles(), outputFiles);
+        }
+
         public FileCollection getOutputFiles() {
             TaskExecution lastExecution = history.getPreviousExecution();
             return lastExecution != null && lastExecution.getOutputFilesSnapshot() != null ? lastExecution.getOutputFilesSnapshot().getFiles() : new SimpleFileCollection();
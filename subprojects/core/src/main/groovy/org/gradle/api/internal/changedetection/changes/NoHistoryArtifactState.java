@@ -19,6 +19,7 @@ package org.gradle.api.internal.changedetection.changes;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 
 import java.util.Collection;
@@ -33,6 +34,10 @@ class NoHistoryArtifactState implements TaskArtifactState, TaskExecutionHistory
         throw new UnsupportedOperationException();
     }
 
+    public String calculateCacheKey(TaskCacheKeyCalculator calculator) {
+        return null;
+    }
+
     public TaskExecutionHistory getExecutionHistory() {
         return this;
     }
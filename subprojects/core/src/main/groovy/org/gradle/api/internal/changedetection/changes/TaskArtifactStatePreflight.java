@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.changes;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.execution.taskgraph.TaskPreflight;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Checks whether ready tasks are up-to-date on a bounded thread pool while the workers execute other tasks,
+ * so that snapshotting the files of a task is not on the critical path when a worker picks it.
+ */
+public class TaskArtifactStatePreflight implements TaskPreflight, Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.tasks.preflight";
+    private static final Logger LOGGER = Logging.getLogger(TaskArtifactStatePreflight.class);
+
+    private final TaskArtifactStateRepository repository;
+    private final ExecutorFactory executorFactory;
+    private final int maxConcurrency;
+    private final ConcurrentMap<TaskInternal, TaskArtifactState> preparedStates = new ConcurrentHashMap<TaskInternal, TaskArtifactState>();
+    private StoppableExecutor executor;
+
+    public TaskArtifactStatePreflight(TaskArtifactStateRepository repository, ExecutorFactory executorFactory, int maxConcurrency) {
+        this.repository = repository;
+        this.executorFactory = executorFactory;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Returns a repository that hands out the states prepared for a task, and falls back to the wrapped repository for tasks that have not been prepared.
+     */
+    public TaskArtifactStateRepository getRepository() {
+        return new TaskArtifactStateRepository() {
+            public TaskArtifactState getStateFor(TaskInternal task) {
+                TaskArtifactState state = preparedStates.remove(task);
+                return state != null ? state : repository.getStateFor(task);
+            }
+        };
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void prepare(final TaskInternal task, final Runnable whenDone) {
+        Runnable preparation = new Runnable() {
+            public void run() {
+                try {
+                    TaskArtifactState state = repository.getStateFor(task);
+                    // Snapshots the files of the task
+                    state.isUpToDate(new ArrayList<String>());
+                    preparedStates.put(task, state);
+                } catch (Throwable t) {
+                    // Checked again, and reported, when the task is executed
+                    LOGGER.debug("Could not check whether {} is up-to-date ahead of its execution.", task, t);
+                } finally {
+                    whenDone.run();
+                }
+            }
+        };
+        try {
+            getExecutor().execute(preparation);
+        } catch (RejectedExecutionException e) {
+            whenDone.run();
+        }
+    }
+
+    public void discard(TaskInternal task) {
+        preparedStates.remove(task);
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Task up-to-date preflight", maxConcurrency);
+        }
+        return executor;
+    }
+
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+        preparedStates.clear();
+    }
+}
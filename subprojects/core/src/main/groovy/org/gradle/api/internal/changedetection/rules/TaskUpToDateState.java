@@ -25,7 +25,7 @@ import org.gradle.api.internal.changedetection.state.*;
  */
 public class TaskUpToDateState {
     private static final int MAX_OUT_OF_DATE_MESSAGES = 3;
-    private final FilesSnapshotSet inputFilesSnapshot;
+    private final FileCollectionSnapshot inputFilesSnapshot;
 
     private TaskStateChanges noHistoryState;
     private TaskStateChanges inputFilesState;
@@ -54,7 +54,7 @@ public class TaskUpToDateState {
         // Capture inputs state
         try {
             FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
-            this.inputFilesSnapshot = inputFilesSnapshot.getSnapshot();
+            this.inputFilesSnapshot = inputFilesSnapshot;
             inputFilesState = caching(InputFilesStateChangeRule.create(lastExecution, thisExecution, inputFilesSnapshot));
         } catch (UncheckedIOException e) {
             throw new UncheckedIOException(String.format("Failed to capture snapshot of input files for task '%s' during up-to-date check.", task.getName()), e);
@@ -88,6 +88,10 @@ public class TaskUpToDateState {
     }
 
     public FilesSnapshotSet getInputFilesSnapshot() {
+        return inputFilesSnapshot.getSnapshot();
+    }
+
+    public FileCollectionSnapshot getInputFiles() {
         return inputFilesSnapshot;
     }
 
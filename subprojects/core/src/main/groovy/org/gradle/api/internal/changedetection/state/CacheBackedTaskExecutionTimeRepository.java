@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CacheBackedTaskExecutionTimeRepository implements TaskExecutionTimeRepository {
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final PersistentIndexedCache<String, Long> cache;
+
+    public CacheBackedTaskExecutionTimeRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        this.cacheAccess = cacheAccess;
+        cache = cacheAccess.createCache("taskExecutionTimes", String.class, BaseSerializerFactory.LONG_SERIALIZER);
+    }
+
+    public Map<String, Long> getExecutionTimes(final Collection<String> taskPaths) {
+        return cacheAccess.useCache("Load task execution times", new Factory<Map<String, Long>>() {
+            public Map<String, Long> create() {
+                Map<String, Long> executionTimes = new HashMap<String, Long>();
+                for (String taskPath : taskPaths) {
+                    Long executionTime = cache.get(taskPath);
+                    if (executionTime != null) {
+                        executionTimes.put(taskPath, executionTime);
+                    }
+                }
+                return executionTimes;
+            }
+        });
+    }
+
+    public void setExecutionTime(final String taskPath, final long executionTime) {
+        cacheAccess.useCache("Update task execution time", new Runnable() {
+            public void run() {
+                cache.put(taskPath, executionTime);
+            }
+        });
+    }
+}
@@ -145,7 +145,8 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
 
     private static class TaskHistorySerializer implements Serializer<TaskHistory> {
 
-        private ClassLoader classLoader;
+        // Task history is loaded by several threads at the same time, each for a task from a different class loader
+        private final ThreadLocal<ClassLoader> classLoader = new ThreadLocal<ClassLoader>();
         private final StringInterner stringInterner;
 
         public TaskHistorySerializer(StringInterner stringInterner) {
@@ -155,7 +156,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public TaskHistory read(Decoder decoder) throws Exception {
             byte executions = decoder.readByte();
             TaskHistory history = new TaskHistory();
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader, stringInterner);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get(), stringInterner);
             for (int i = 0; i < executions; i++) {
                 LazyTaskExecution exec = executionSerializer.read(decoder);
                 history.configurations.add(exec);
@@ -166,18 +167,18 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         public void write(Encoder encoder, TaskHistory value) throws Exception {
             int size = value.configurations.size();
             encoder.writeByte((byte) size);
-            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader, stringInterner);
+            LazyTaskExecution.TaskHistorySerializer executionSerializer = new LazyTaskExecution.TaskHistorySerializer(classLoader.get(), stringInterner);
             for (LazyTaskExecution execution : value.configurations) {
                 executionSerializer.write(encoder, execution);
             }
         }
 
         public ClassLoader getClassLoader() {
-            return classLoader;
+            return classLoader.get();
         }
 
         public void setClassLoader(ClassLoader classLoader) {
-            this.classLoader = classLoader;
+            this.classLoader.set(classLoader);
         }
     }
 
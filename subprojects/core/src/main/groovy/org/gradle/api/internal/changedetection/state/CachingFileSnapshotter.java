@@ -46,16 +46,37 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         return snapshot(file.getFile(), file.getSize(), file.getLastModified());
     }
 
+    public FileInfo findSnapshot(FileTreeElement file) {
+        return findSnapshot(file.getFile().getAbsolutePath(), file.getSize(), file.getLastModified());
+    }
+
+    public byte[] hash(FileTreeElement file) {
+        return hasher.hash(file.getFile());
+    }
+
+    public FileInfo snapshot(FileTreeElement file, byte[] hash) {
+        return store(file.getFile().getAbsolutePath(), hash, file.getSize(), file.getLastModified());
+    }
+
     private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
-        FileInfo info = cache.get(absolutePath);
+        FileInfo info = findSnapshot(absolutePath, length, timestamp);
+        if (info != null) {
+            return info;
+        }
+        return store(absolutePath, hasher.hash(file), length, timestamp);
+    }
 
+    private FileInfo findSnapshot(String absolutePath, long length, long timestamp) {
+        FileInfo info = cache.get(absolutePath);
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info;
         }
+        return null;
+    }
 
-        byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+    private FileInfo store(String absolutePath, byte[] hash, long length, long timestamp) {
+        FileInfo info = new FileInfo(hash, length, timestamp);
         cache.put(stringInterner.intern(absolutePath), info);
         return info;
     }
@@ -74,6 +95,14 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         public byte[] getHash() {
             return hash;
         }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
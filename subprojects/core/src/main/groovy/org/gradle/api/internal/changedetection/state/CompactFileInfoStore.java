@@ -0,0 +1,305 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.base.Charsets;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory store of {@link CachingFileSnapshotter.FileInfo} by absolute path, which uses considerably less memory than a general purpose cache.
+ *
+ * <p>Each parent directory path is stored once and referenced by id, and only the file name is kept per entry, as UTF-8 bytes. Entries are kept densely
+ * in parallel arrays, with the 128-bit hash, length and timestamp of each file packed into a {@code long} array. An open addressing table of {@code int}s
+ * maps paths to entries. The arrays grow until the maximum size is reached, after which entries are evicted using the CLOCK approximation of least
+ * recently used. Hashes which are not 128 bits long are not stored.</p>
+ */
+class CompactFileInfoStore {
+    /**
+     * Returned by {@link #get(String)} when the file is known to have no entry in the backing cache.
+     */
+    static final CachingFileSnapshotter.FileInfo MISSING = new CachingFileSnapshotter.FileInfo(new byte[0], -1, -1);
+
+    private static final int HASH_LENGTH = 16;
+    private static final int LONGS_PER_ENTRY = 4;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int EMPTY = -1;
+
+    private final int maxSize;
+    private final Map<String, Integer> directoryIds = new HashMap<String, Integer>();
+    private final List<String> directories = new ArrayList<String>();
+
+    // Entries, indexed from 0 to size - 1
+    private byte[][] names;
+    private int[] entryDirectoryIds;
+    private int[] hashCodes;
+    private long[] data;
+    private boolean[] referenced;
+    private int size;
+    private int clockHand;
+
+    // Open addressing table holding the index of the entry for each path
+    private int[] table;
+    private int mask;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    CompactFileInfoStore(int maxSize) {
+        this.maxSize = maxSize;
+        allocate(Math.min(INITIAL_CAPACITY, Math.max(maxSize, 1)));
+    }
+
+    synchronized CachingFileSnapshotter.FileInfo get(String absolutePath) {
+        int entry = find(absolutePath);
+        if (entry < 0) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        referenced[entry] = true;
+        int offset = entry * LONGS_PER_ENTRY;
+        long length = data[offset + 2];
+        if (length < 0) {
+            return MISSING;
+        }
+        byte[] hash = new byte[HASH_LENGTH];
+        putLong(hash, 0, data[offset]);
+        putLong(hash, 8, data[offset + 1]);
+        return new CachingFileSnapshotter.FileInfo(hash, length, data[offset + 3]);
+    }
+
+    synchronized void put(String absolutePath, CachingFileSnapshotter.FileInfo fileInfo) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (fileInfo != MISSING && fileInfo.getHash().length != HASH_LENGTH) {
+            remove(absolutePath);
+            return;
+        }
+        int entry = find(absolutePath);
+        if (entry < 0) {
+            entry = insert(absolutePath);
+        }
+        referenced[entry] = true;
+        int offset = entry * LONGS_PER_ENTRY;
+        if (fileInfo == MISSING) {
+            data[offset] = 0;
+            data[offset + 1] = 0;
+            data[offset + 2] = -1;
+            data[offset + 3] = -1;
+        } else {
+            byte[] hash = fileInfo.getHash();
+            data[offset] = getLong(hash, 0);
+            data[offset + 1] = getLong(hash, 8);
+            data[offset + 2] = fileInfo.getLength();
+            data[offset + 3] = fileInfo.getTimestamp();
+        }
+    }
+
+    synchronized void remove(String absolutePath) {
+        int entry = find(absolutePath);
+        if (entry >= 0) {
+            removeEntry(entry);
+        }
+    }
+
+    synchronized void clear() {
+        directoryIds.clear();
+        directories.clear();
+        allocate(Math.min(INITIAL_CAPACITY, Math.max(maxSize, 1)));
+        size = 0;
+        clockHand = 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Size{%d} MaxSize{%d} Directories{%d} Hits{%d} Misses{%d} Evictions{%d}", size, maxSize, directories.size(), hitCount, missCount, evictionCount);
+    }
+
+    private int find(String absolutePath) {
+        int separator = absolutePath.lastIndexOf(File.separatorChar);
+        Integer directoryId = directoryIds.get(absolutePath.substring(0, separator + 1));
+        if (directoryId == null) {
+            return -1;
+        }
+        byte[] name = absolutePath.substring(separator + 1).getBytes(Charsets.UTF_8);
+        int hashCode = hashCode(directoryId, name);
+        for (int slot = hashCode & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (hashCodes[entry] == hashCode && entryDirectoryIds[entry] == directoryId && Arrays.equals(names[entry], name)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int insert(String absolutePath) {
+        if (directories.size() >= maxSize) {
+            // Directories are never released individually, so start over when too many have accumulated
+            clear();
+        }
+        if (size >= maxSize) {
+            evict();
+        } else if (size == names.length) {
+            grow();
+        }
+
+        int separator = absolutePath.lastIndexOf(File.separatorChar);
+        String directory = absolutePath.substring(0, separator + 1);
+        Integer directoryId = directoryIds.get(directory);
+        if (directoryId == null) {
+            directoryId = directories.size();
+            directories.add(directory);
+            directoryIds.put(directory, directoryId);
+        }
+        byte[] name = absolutePath.substring(separator + 1).getBytes(Charsets.UTF_8);
+        int entry = size++;
+        names[entry] = name;
+        entryDirectoryIds[entry] = directoryId;
+        hashCodes[entry] = hashCode(directoryId, name);
+        addToTable(entry);
+        return entry;
+    }
+
+    private void evict() {
+        while (true) {
+            clockHand = clockHand + 1 < size ? clockHand + 1 : 0;
+            if (referenced[clockHand]) {
+                referenced[clockHand] = false;
+                continue;
+            }
+            removeEntry(clockHand);
+            evictionCount++;
+            return;
+        }
+    }
+
+    private void removeEntry(int entry) {
+        removeFromTable(entry);
+        int last = size - 1;
+        if (entry != last) {
+            // Keep the entries dense by moving the last entry into the gap
+            int slot = slotOf(last);
+            names[entry] = names[last];
+            entryDirectoryIds[entry] = entryDirectoryIds[last];
+            hashCodes[entry] = hashCodes[last];
+            referenced[entry] = referenced[last];
+            System.arraycopy(data, last * LONGS_PER_ENTRY, data, entry * LONGS_PER_ENTRY, LONGS_PER_ENTRY);
+            table[slot] = entry;
+        }
+        names[last] = null;
+        referenced[last] = false;
+        size = last;
+    }
+
+    private int slotOf(int entry) {
+        int slot = hashCodes[entry] & mask;
+        while (table[slot] != entry) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void addToTable(int entry) {
+        int slot = hashCodes[entry] & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    private void removeFromTable(int entry) {
+        // Shift back the entries which follow in the same probe sequence, so that lookups do not stop at the hole
+        int hole = slotOf(entry);
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == EMPTY) {
+                break;
+            }
+            int home = hashCodes[table[next]] & mask;
+            boolean canMove = hole <= next ? home <= hole || home > next : home <= hole && home > next;
+            if (canMove) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) names.length * 2, maxSize);
+        names = Arrays.copyOf(names, capacity);
+        entryDirectoryIds = Arrays.copyOf(entryDirectoryIds, capacity);
+        hashCodes = Arrays.copyOf(hashCodes, capacity);
+        data = Arrays.copyOf(data, capacity * LONGS_PER_ENTRY);
+        referenced = Arrays.copyOf(referenced, capacity);
+        allocateTable(capacity);
+        for (int entry = 0; entry < size; entry++) {
+            addToTable(entry);
+        }
+    }
+
+    private void allocate(int capacity) {
+        names = new byte[capacity][];
+        entryDirectoryIds = new int[capacity];
+        hashCodes = new int[capacity];
+        data = new long[capacity * LONGS_PER_ENTRY];
+        referenced = new boolean[capacity];
+        allocateTable(capacity);
+    }
+
+    private void allocateTable(int capacity) {
+        // Keep the table at most half full
+        int tableSize = Integer.highestOneBit(capacity) * 4;
+        table = new int[tableSize];
+        Arrays.fill(table, EMPTY);
+        mask = tableSize - 1;
+    }
+
+    private static int hashCode(int directoryId, byte[] name) {
+        int hashCode = 31 * directoryId + Arrays.hashCode(name);
+        // Spread the bits, as only the low bits are used to find the slot
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
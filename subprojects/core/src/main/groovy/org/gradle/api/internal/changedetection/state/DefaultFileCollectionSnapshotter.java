@@ -17,6 +17,11 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -24,23 +29,34 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.file.FileTreeInternal;
 import org.gradle.api.internal.file.collections.DefaultFileCollectionResolveContext;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
     private final FileSnapshotter snapshotter;
     private TaskArtifactStateCacheAccess cacheAccess;
     private final StringInterner stringInterner;
+    private final ParallelFileHasher fileHasher;
 
     public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+        this(snapshotter, cacheAccess, stringInterner, null);
+    }
+
+    /**
+     * @param fileHasher used to hash the files whose hash is not cached in parallel, outside of the cache lock. When null, files are hashed one at a time while holding the lock.
+     */
+    public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, @Nullable ParallelFileHasher fileHasher) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
         this.stringInterner = stringInterner;
+        this.fileHasher = fileHasher;
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
@@ -62,6 +78,7 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
 
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        final List<FileVisitDetails> filesToHash = Lists.newArrayList();
 
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
@@ -70,8 +87,17 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
                     if (!snapshots.containsKey(absolutePath)) {
                         if (fileDetails.isDirectory()) {
                             snapshots.put(absolutePath, DirSnapshot.getInstance());
-                        } else {
+                        } else if (fileHasher == null) {
                             snapshots.put(absolutePath, new FileHashSnapshot(snapshotter.snapshot(fileDetails).getHash()));
+                        } else {
+                            FileSnapshot snapshot = snapshotter.findSnapshot(fileDetails);
+                            if (snapshot != null) {
+                                snapshots.put(absolutePath, new FileHashSnapshot(snapshot.getHash()));
+                            } else {
+                                // Reserve the entry, the snapshot is added once the file has been hashed
+                                snapshots.put(absolutePath, null);
+                                filesToHash.add(fileDetails);
+                            }
                         }
                     }
                 }
@@ -84,6 +110,19 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
             }
         });
 
+        if (!filesToHash.isEmpty()) {
+            final byte[][] hashes = fileHasher.hash(filesToHash);
+            cacheAccess.useCache("Store file hashes", new Runnable() {
+                public void run() {
+                    for (int i = 0; i < hashes.length; i++) {
+                        FileVisitDetails fileDetails = filesToHash.get(i);
+                        FileSnapshot snapshot = snapshotter.snapshot(fileDetails, hashes[i]);
+                        snapshots.put(stringInterner.intern(fileDetails.getFile().getAbsolutePath()), new FileHashSnapshot(snapshot.getHash()));
+                    }
+                }
+            });
+        }
+
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
@@ -167,15 +206,84 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, IncrementalFileSnapshot> snapshots;
+        private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+        private static final ChangeIterator<String> NO_CHANGES = new ChangeIterator<String>() {
+            public boolean next(ChangeListener<String> listener) {
+                return false;
+            }
+        };
+
+        private volatile Map<String, IncrementalFileSnapshot> snapshots;
+        private Factory<Map<String, IncrementalFileSnapshot>> snapshotsFactory;
+        private volatile HashCode hash;
 
         public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
             this.snapshots = snapshots;
         }
 
+        /**
+         * Creates a snapshot with the given hash, whose entries are only created when they are first needed.
+         */
+        FileCollectionSnapshotImpl(HashCode hash, Factory<Map<String, IncrementalFileSnapshot>> snapshotsFactory) {
+            this.hash = hash;
+            this.snapshotsFactory = snapshotsFactory;
+        }
+
+        Map<String, IncrementalFileSnapshot> getSnapshots() {
+            Map<String, IncrementalFileSnapshot> result = snapshots;
+            if (result == null) {
+                synchronized (this) {
+                    if (snapshots == null) {
+                        snapshots = snapshotsFactory.create();
+                        snapshotsFactory = null;
+                    }
+                    result = snapshots;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns a hash of the entries of this snapshot. Snapshots with the same hash contain the same entries, so they can be compared without looking at their entries.
+         *
+         * <p>This is a single hash of the whole collection rather than a hash per directory. The entries are held in a flat map, so a directory tree would first have to be
+         * built from the paths, which costs more than comparing every entry when the hashes differ. See {@code FileCollectionSnapshotBenchmark}.</p>
+         */
+        HashCode getHash() {
+            HashCode result = hash;
+            if (result == null) {
+                result = hash(getSnapshots());
+                hash = result;
+            }
+            return result;
+        }
+
+        private static HashCode hash(Map<String, IncrementalFileSnapshot> snapshots) {
+            // Combine the hashes of the entries so that the result does not depend on the iteration order of the map
+            long sum1 = 0;
+            long sum2 = 0;
+            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
+                Hasher hasher = HASH_FUNCTION.newHasher();
+                hasher.putUnencodedChars(entry.getKey());
+                IncrementalFileSnapshot snapshot = entry.getValue();
+                if (snapshot instanceof DirSnapshot) {
+                    hasher.putByte((byte) 1);
+                } else if (snapshot instanceof MissingFileSnapshot) {
+                    hasher.putByte((byte) 2);
+                } else {
+                    hasher.putByte((byte) 3);
+                    hasher.putBytes(((FileHashSnapshot) snapshot).hash);
+                }
+                ByteBuffer entryHash = ByteBuffer.wrap(hasher.hash().asBytes());
+                sum1 += entryHash.getLong();
+                sum2 += entryHash.getLong();
+            }
+            return HASH_FUNCTION.newHasher().putInt(snapshots.size()).putLong(sum1).putLong(sum2).hash();
+        }
+
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
+            for (Map.Entry<String, IncrementalFileSnapshot> entry : getSnapshots().entrySet()) {
                 if (entry.getValue() instanceof FileHashSnapshot) {
                     files.add(new File(entry.getKey()));
                 }
@@ -185,7 +293,7 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
         public FileCollection getAllFiles() {
             List<File> files = Lists.newArrayList();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
+            for (Map.Entry<String, IncrementalFileSnapshot> entry : getSnapshots().entrySet()) {
                 if (!(entry.getValue() instanceof DirSnapshot)) {
                     files.add(new File(entry.getKey()));
                 }
@@ -196,7 +304,7 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         public FilesSnapshotSet getSnapshot() {
             return new FilesSnapshotSet() {
                 public FileSnapshot findSnapshot(File file) {
-                    IncrementalFileSnapshot s = snapshots.get(file.getAbsolutePath());
+                    IncrementalFileSnapshot s = getSnapshots().get(file.getAbsolutePath());
                     if (s instanceof FileSnapshot) {
                         return (FileSnapshot) s;
                     }
@@ -207,34 +315,42 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
             FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
+            if (getHash().equals(other.getHash())) {
+                return NO_CHANGES;
+            }
+
+            final Map<String, IncrementalFileSnapshot> currentSnapshots = getSnapshots();
+            final Map<String, IncrementalFileSnapshot> otherSnapshots = other.getSnapshots();
+            final Iterator<Map.Entry<String, IncrementalFileSnapshot>> currentFiles = currentSnapshots.entrySet().iterator();
 
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
+                private Iterator<String> otherFiles;
 
                 public boolean next(ChangeListener<String> listener) {
                     while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        IncrementalFileSnapshot otherFile = otherSnapshots.remove(currentFile);
+                        Map.Entry<String, IncrementalFileSnapshot> currentFile = currentFiles.next();
+                        IncrementalFileSnapshot otherFile = otherSnapshots.get(currentFile.getKey());
 
                         if (otherFile == null) {
-                            listener.added(currentFile);
+                            listener.added(currentFile.getKey());
                             return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
+                        } else if (!currentFile.getValue().isUpToDate(otherFile)) {
+                            listener.changed(currentFile.getKey());
                             return true;
                         }
                     }
 
                     // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
+                    if (otherFiles == null) {
+                        otherFiles = otherSnapshots.keySet().iterator();
                     }
 
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
+                    while (otherFiles.hasNext()) {
+                        String otherFile = otherFiles.next();
+                        if (!currentSnapshots.containsKey(otherFile)) {
+                            listener.removed(otherFile);
+                            return true;
+                        }
                     }
 
                     return false;
@@ -251,8 +367,12 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
+                    if (getHash().equals(other.getHash())) {
+                        // Nothing to apply
+                        return target;
+                    }
+                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.getSnapshots());
+                    diff(getSnapshots(), other.getSnapshots(), new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
                     return new FileCollectionSnapshotImpl(newSnapshots);
                 }
             };
@@ -260,17 +380,18 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
         private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots,
                           ChangeListener<Map.Entry<String, IncrementalFileSnapshot>> listener) {
-            Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshots);
             for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                IncrementalFileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
+                IncrementalFileSnapshot otherFile = oldSnapshots.get(entry.getKey());
                 if (otherFile == null) {
                     listener.added(entry);
                 } else if (!entry.getValue().isUpToDate(otherFile)) {
                     listener.changed(entry);
                 }
             }
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+            for (Map.Entry<String, IncrementalFileSnapshot> entry : oldSnapshots.entrySet()) {
+                if (!snapshots.containsKey(entry.getKey())) {
+                    listener.removed(entry);
+                }
             }
         }
 
@@ -16,11 +16,18 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.hash.HashCode;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,8 +39,22 @@ class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollecti
     }
 
     public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
+        HashCode hash = HashCode.fromBytes(decoder.readBinary());
+        final byte[] encodedSnapshots = decoder.readBinary();
+        // The entries are only decoded when the snapshot is compared with a snapshot that has different contents
+        return new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(hash, new Factory<Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>>() {
+            public Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> create() {
+                try {
+                    return readSnapshots(new KryoBackedDecoder(new ByteArrayInputStream(encodedSnapshots)));
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        });
+    }
+
+    private Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> readSnapshots(Decoder decoder) throws Exception {
         Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
         int snapshotsCount = decoder.readSmallInt();
         for (int i = 0; i < snapshotsCount; i++) {
             String key = stringInterner.intern(decoder.readString());
@@ -51,14 +72,23 @@ class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollecti
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
         }
-        return snapshot;
+        return snapshots;
     }
 
     public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
-            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
+        encoder.writeBinary(value.getHash().asBytes());
+        ByteArrayOutputStream encodedSnapshots = new ByteArrayOutputStream();
+        KryoBackedEncoder snapshotsEncoder = new KryoBackedEncoder(encodedSnapshots);
+        writeSnapshots(snapshotsEncoder, value.getSnapshots());
+        snapshotsEncoder.flush();
+        encoder.writeBinary(encodedSnapshots.toByteArray());
+    }
+
+    private void writeSnapshots(Encoder encoder, Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots) throws Exception {
+        encoder.writeSmallInt(snapshots.size());
+        for (Map.Entry<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> entry : snapshots.entrySet()) {
+            encoder.writeString(entry.getKey());
+            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = entry.getValue();
             if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
                 encoder.writeByte((byte) 1);
             } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
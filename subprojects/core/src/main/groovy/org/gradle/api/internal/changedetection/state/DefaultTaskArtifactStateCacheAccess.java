@@ -30,6 +30,11 @@ import java.io.Closeable;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    /**
+     * Stores the task history caches as append-only logs instead of BTrees when set to true.
+     */
+    public static final String LOG_STRUCTURED_PROPERTY = "org.gradle.tasks.history.log";
+
     private final CacheDecorator inMemoryDecorator;
     private final PersistentCache cache;
 
@@ -38,7 +43,7 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
         cache = cacheRepository
                 .cache(gradle, "taskArtifacts")
                 .withDisplayName("task history cache")
-                .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+                .withLockOptions(mode(FileLockManager.LockMode.None).allowConcurrentAccess()) // Lock on demand, shared by the parallel workers
                 .open();
     }
 
@@ -48,7 +53,8 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Serializer<V> valueSerializer) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryDecorator);
+                .cacheDecorator(inMemoryDecorator)
+                .logStructured(Boolean.getBoolean(LOG_STRUCTURED_PROPERTY));
         return cache.createCache(parameters);
     }
 
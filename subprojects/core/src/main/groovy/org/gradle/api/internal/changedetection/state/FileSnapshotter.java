@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 
 import java.io.File;
@@ -29,4 +30,21 @@ public interface FileSnapshotter {
 
     FileSnapshot snapshot(FileTreeElement fileDetails);
 
+    /**
+     * Returns the snapshot of the given file if it has not changed since it was last hashed, or null when the file needs to be hashed.
+     */
+    @Nullable
+    FileSnapshot findSnapshot(FileTreeElement fileDetails);
+
+    /**
+     * Calculates the hash of the given file, without looking at or updating the cache. Unlike the other methods, this can be called from any thread,
+     * without holding the cache lock. The result should be recorded using {@link #snapshot(FileTreeElement, byte[])}.
+     */
+    byte[] hash(FileTreeElement fileDetails);
+
+    /**
+     * Records the hash of the given file calculated by {@link #hash(FileTreeElement)}.
+     */
+    FileSnapshot snapshot(FileTreeElement fileDetails, byte[] hash);
+
 }
@@ -40,9 +40,11 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
         static {
             DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
             DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
+            DEFAULT_CAP_SIZES.put("taskExecutionTimes", 10000);
             DEFAULT_CAP_SIZES.put("outputFileStates", 3000);
             DEFAULT_CAP_SIZES.put("fileHashes", 400000);
             DEFAULT_CAP_SIZES.put("compilationState", 1000);
+            DEFAULT_CAP_SIZES.put("testClassDetection", 50000);
         }
 
         final HeapProportionalSizer sizer;
@@ -65,21 +67,55 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
     }
 
 
+    private static final String FILE_HASHES_CACHE_NAME = "fileHashes";
+
     private final Object lock = new Object();
     private final Cache<String, Cache<Object, Object>> cache = CacheBuilder.newBuilder()
             .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
             .build();
+    private final Cache<String, CompactFileInfoStore> fileInfoStores = CacheBuilder.newBuilder()
+            .maximumSize(2)
+            .build();
 
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
-        final Cache<Object, Object> data = loadData(cacheId, cacheName);
+        if (cacheName.equals(FILE_HASHES_CACHE_NAME)) {
+            final CompactFileInfoStore store = loadFileInfoStore(cacheId, cacheName);
+            return new InMemoryDecoratedCache<K, V>(cacheId, original) {
+                public V get(K key) {
+                    String path = (String) key;
+                    CachingFileSnapshotter.FileInfo value = store.get(path);
+                    if (value == CompactFileInfoStore.MISSING) {
+                        return null;
+                    }
+                    if (value != null) {
+                        return (V) value;
+                    }
+                    V out = original.get(key);
+                    store.put(path, out == null ? CompactFileInfoStore.MISSING : (CachingFileSnapshotter.FileInfo) out);
+                    return out;
+                }
 
-        return new MultiProcessSafePersistentIndexedCache<K, V>() {
-            public void close() {
-                original.close();
-            }
+                public void put(K key, V value) {
+                    original.put(key, value);
+                    store.put((String) key, (CachingFileSnapshotter.FileInfo) value);
+                }
+
+                public void remove(K key) {
+                    store.put((String) key, CompactFileInfoStore.MISSING);
+                    original.remove(key);
+                }
+
+                protected void invalidate() {
+                    store.clear();
+                }
+            };
+        }
 
+        final Cache<Object, Object> data = loadData(cacheId, cacheName);
+
+        return new InMemoryDecoratedCache<K, V>(cacheId, original) {
             public V get(K key) {
                 assert key instanceof String || key instanceof Long || key instanceof File : "Unsupported key type: " + key;
                 Object value = data.getIfPresent(key);
@@ -104,25 +140,65 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
                 original.remove(key);
             }
 
-            public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
-                boolean outOfDate;
-                synchronized (lock) {
-                    FileLock.State previousState = states.get(cacheId);
-                    outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
-                }
+            protected void invalidate() {
+                data.invalidateAll();
+            }
+        };
+    }
 
-                if (outOfDate) {
-                    LOG.info("Invalidating in-memory cache of {}", cacheId);
-                    data.invalidateAll();
-                }
+    private abstract class InMemoryDecoratedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+        private final String cacheId;
+        private final MultiProcessSafePersistentIndexedCache<K, V> original;
+
+        InMemoryDecoratedCache(String cacheId, MultiProcessSafePersistentIndexedCache<K, V> original) {
+            this.cacheId = cacheId;
+            this.original = original;
+        }
+
+        /**
+         * Discards all in-memory entries, because the backing cache has been changed by another process.
+         */
+        protected abstract void invalidate();
+
+        public void close() {
+            original.close();
+        }
+
+        public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+            boolean outOfDate;
+            synchronized (lock) {
+                FileLock.State previousState = states.get(cacheId);
+                outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
             }
 
-            public void onEndWork(FileLock.State currentCacheState) {
-                synchronized (lock) {
-                    states.put(cacheId, currentCacheState);
-                }
+            if (outOfDate) {
+                LOG.info("Invalidating in-memory cache of {}", cacheId);
+                invalidate();
             }
-        };
+        }
+
+        public void onEndWork(FileLock.State currentCacheState) {
+            synchronized (lock) {
+                states.put(cacheId, currentCacheState);
+            }
+        }
+    }
+
+    private CompactFileInfoStore loadFileInfoStore(String cacheId, String cacheName) {
+        CompactFileInfoStore store;
+        synchronized (lock) {
+            store = fileInfoStores.getIfPresent(cacheId);
+            if (store != null) {
+                LOG.info("In-memory cache of {}: {}", cacheId, store);
+            } else {
+                Integer maxSize = CACHE_CAPS.get(cacheName);
+                assert maxSize != null : "Unknown cache.";
+                LOG.info("Creating In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
+                store = new CompactFileInfoStore(maxSize);
+                fileInfoStores.put(cacheId, store);
+            }
+        }
+        return store;
     }
 
     private Cache<Object, Object> loadData(String cacheId, String cacheName) {
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Hashes files on a pool of threads dedicated to hashing. The files are split into a few batches, one of which is hashed by the calling thread.
+ *
+ * <p>The pool is not shared with other build operations, and hashing never waits on other work, so callers running on any thread, including a build
+ * operation thread, cannot starve the pool.</p>
+ */
+public class ParallelFileHasher implements Stoppable {
+    static final int MIN_FILES_PER_BATCH = 8;
+
+    private final FileSnapshotter snapshotter;
+    private final int maxWorkerCount;
+    private final StoppableExecutor executor;
+
+    public ParallelFileHasher(FileSnapshotter snapshotter, ExecutorFactory executorFactory, int maxWorkerCount) {
+        this.snapshotter = snapshotter;
+        this.maxWorkerCount = maxWorkerCount;
+        this.executor = executorFactory.create("file hasher", maxWorkerCount);
+    }
+
+    /**
+     * Hashes the given files using {@link FileSnapshotter#hash(FileTreeElement)}, returning the hashes in the same order as the files.
+     */
+    public byte[][] hash(List<? extends FileTreeElement> files) {
+        byte[][] hashes = new byte[files.size()][];
+        int batches = Math.min(maxWorkerCount + 1, (files.size() + MIN_FILES_PER_BATCH - 1) / MIN_FILES_PER_BATCH);
+        if (batches <= 1) {
+            new HashBatch(files, hashes, 0, files.size()).run();
+            return hashes;
+        }
+
+        int batchSize = (files.size() + batches - 1) / batches;
+        List<Future<?>> futures = new ArrayList<Future<?>>(batches - 1);
+        for (int start = batchSize; start < files.size(); start += batchSize) {
+            futures.add(executor.submit(new HashBatch(files, hashes, start, Math.min(start + batchSize, files.size()))));
+        }
+
+        Throwable failure = null;
+        try {
+            new HashBatch(files, hashes, 0, batchSize).run();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+        return hashes;
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+
+    private class HashBatch implements Runnable {
+        private final List<? extends FileTreeElement> files;
+        private final byte[][] hashes;
+        private final int start;
+        private final int end;
+
+        HashBatch(List<? extends FileTreeElement> files, byte[][] hashes, int start, int end) {
+            this.files = files;
+            this.hashes = hashes;
+            this.start = start;
+            this.end = end;
+        }
+
+        public void run() {
+            for (int i = start; i < end; i++) {
+                hashes[i] = snapshotter.hash(files.get(i));
+            }
+        }
+    }
+}
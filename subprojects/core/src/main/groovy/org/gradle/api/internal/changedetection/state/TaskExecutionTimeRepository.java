@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Keeps track of how long the actions of each task took to execute the last time they were run.
+ */
+public interface TaskExecutionTimeRepository {
+    /**
+     * Returns the last known execution time in milliseconds for each of the given task paths. Tasks that have never been executed are not included.
+     */
+    Map<String, Long> getExecutionTimes(Collection<String> taskPaths);
+
+    void setExecutionTime(String taskPath, long executionTime);
+}
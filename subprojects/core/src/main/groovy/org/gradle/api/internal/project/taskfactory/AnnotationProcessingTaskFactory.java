@@ -206,13 +206,20 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
                 && method.getParameterTypes().length == 0 && !Modifier.isStatic(method.getModifiers());
     }
 
-    private static class StandardTaskAction implements Action<Task> {
+    private static class StandardTaskAction implements ContextAwareTaskAction {
         private final Method method;
 
         public StandardTaskAction(Method method) {
             this.method = method;
         }
 
+        public void contextualise(TaskExecutionContext context) {
+        }
+
+        public Class<?> getActionClass() {
+            return method.getDeclaringClass();
+        }
+
         public void execute(Task task) {
             ClassLoader original = Thread.currentThread().getContextClassLoader();
             Thread.currentThread().setContextClassLoader(method.getDeclaringClass().getClassLoader());
@@ -83,6 +83,10 @@ public class TaskMutator {
             public void contextualise(TaskExecutionContext context) {
                 action.contextualise(context);
             }
+
+            public Class<?> getActionClass() {
+                return action.getActionClass();
+            }
         };
     }
 
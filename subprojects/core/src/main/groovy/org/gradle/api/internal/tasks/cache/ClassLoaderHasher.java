@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.internal.classloader.ClassLoaderVisitor;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Hashes the class path of a class loader and of its parents, so that the cache key of a task changes when the implementation of the task or of one of its actions
+ * changes. The class loaders of the Gradle runtime are left out, as they only change together with the Gradle version. Only the content of the class path is
+ * hashed, not its location, and a hash is kept for as long as its class loader is alive, as the classes loaded by it do not change either.
+ */
+public class ClassLoaderHasher {
+    private static final String GRADLE_RUNTIME = "gradle";
+    private static final int MISSING = 0;
+    private static final int FILE = 1;
+    private static final int DIRECTORY = 2;
+
+    private final Set<ClassLoader> runtimeClassLoaders = Sets.newIdentityHashSet();
+    private final Hasher hasher;
+    private final Map<ClassLoader, String> hashes = new WeakHashMap<ClassLoader, String>();
+
+    /**
+     * @param runtimeClassLoaders the class loaders of the Gradle runtime. These, and their parents, are not hashed.
+     */
+    public ClassLoaderHasher(Iterable<? extends ClassLoader> runtimeClassLoaders, Hasher hasher) {
+        this.hasher = hasher;
+        for (ClassLoader classLoader : runtimeClassLoaders) {
+            for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+                this.runtimeClassLoaders.add(current);
+            }
+        }
+    }
+
+    public synchronized String getHash(@Nullable ClassLoader classLoader) {
+        if (classLoader == null || runtimeClassLoaders.contains(classLoader)) {
+            return GRADLE_RUNTIME;
+        }
+        String hash = hashes.get(classLoader);
+        if (hash == null) {
+            HashingVisitor visitor = new HashingVisitor();
+            visitor.visit(classLoader);
+            hash = visitor.builder.build();
+            hashes.put(classLoader, hash);
+        }
+        return hash;
+    }
+
+    private class HashingVisitor extends ClassLoaderVisitor {
+        private final TaskCacheKeyBuilder builder = new TaskCacheKeyBuilder();
+        private final Set<ClassLoader> visited = Sets.newIdentityHashSet();
+
+        @Override
+        public void visit(ClassLoader classLoader) {
+            if (runtimeClassLoaders.contains(classLoader)) {
+                builder.putString(GRADLE_RUNTIME);
+                return;
+            }
+            if (visited.add(classLoader)) {
+                super.visit(classLoader);
+            }
+        }
+
+        @Override
+        public void visitClassPath(URL[] classPath) {
+            builder.putInt(classPath.length);
+            for (URL url : classPath) {
+                File file = toFile(url);
+                if (file == null) {
+                    builder.putString(url.toString());
+                } else {
+                    putFile(file);
+                }
+            }
+        }
+
+        private void putFile(File file) {
+            if (file.isFile()) {
+                builder.putInt(FILE);
+                builder.putBytes(hasher.hash(file));
+            } else if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) {
+                    throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", file));
+                }
+                Arrays.sort(children);
+                builder.putInt(DIRECTORY);
+                builder.putInt(children.length);
+                for (File child : children) {
+                    builder.putString(child.getName());
+                    putFile(child);
+                }
+            } else {
+                builder.putInt(MISSING);
+            }
+        }
+
+        @Nullable
+        private File toFile(URL url) {
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
+    }
+}
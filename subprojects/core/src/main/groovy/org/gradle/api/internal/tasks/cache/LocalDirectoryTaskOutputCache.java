@@ -0,0 +1,316 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A {@link TaskOutputCache} which stores the outputs of each task as a zip archive in a local directory.
+ *
+ * <p>The entries of an archive are named after the index of the output file they belong to, followed by the path relative to that output file when the output is a directory.
+ * Archives are written to a temporary file and then renamed, so that other builds never see a partially written archive. When the total size of the archives
+ * exceeds the maximum size, the least recently used archives are removed. The total size is counted once and then kept up to date as archives are stored, so the
+ * directory is only listed again when archives have to be removed.</p>
+ */
+public class LocalDirectoryTaskOutputCache implements TaskOutputCache, Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDirectoryTaskOutputCache.class);
+    private static final String ARCHIVE_EXTENSION = ".zip";
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.cache.tasks.maxSize";
+    public static final long DEFAULT_MAX_SIZE_IN_MEGABYTES = 1024;
+
+    private final File directory;
+    private final long maxSizeInBytes;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger stores = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+    private long totalSize = -1;
+
+    public LocalDirectoryTaskOutputCache(File directory, long maxSizeInBytes) {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    public boolean load(String key, List<File> outputFiles) {
+        File archive = archiveFor(key);
+        if (!archive.isFile()) {
+            misses.incrementAndGet();
+            return false;
+        }
+        // Open the archive before touching the outputs, as another build may evict it at any time. An open archive can still be read once it has been deleted.
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(archive);
+        } catch (FileNotFoundException e) {
+            LOGGER.debug("Cached task outputs {} have been removed, ignoring.", archive, e);
+            misses.incrementAndGet();
+            return false;
+        } catch (IOException e) {
+            LOGGER.warn("Could not load cached task outputs from {}, ignoring.", archive, e);
+            GFileUtils.deleteQuietly(archive);
+            misses.incrementAndGet();
+            return false;
+        }
+        try {
+            deleteOutputs(outputFiles);
+            unpack(zipFile, outputFiles);
+        } catch (Exception e) {
+            LOGGER.warn("Could not load cached task outputs from {}, ignoring.", archive, e);
+            // Leave no partially unpacked outputs behind, the task will create them again
+            deleteOutputs(outputFiles);
+            GFileUtils.deleteQuietly(archive);
+            misses.incrementAndGet();
+            return false;
+        } finally {
+            closeQuietly(zipFile);
+        }
+        // Used to find the least recently used archives during eviction
+        archive.setLastModified(System.currentTimeMillis());
+        hits.incrementAndGet();
+        return true;
+    }
+
+    public void store(String key, List<File> outputFiles) {
+        File archive = archiveFor(key);
+        File tempFile = null;
+        try {
+            GFileUtils.mkdirs(directory);
+            tempFile = File.createTempFile("task-output-" + key, ".tmp", directory);
+            pack(outputFiles, tempFile);
+            if (!tempFile.renameTo(archive)) {
+                // Another build stored the same outputs in the meantime
+                GFileUtils.deleteQuietly(tempFile);
+                return;
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not store task outputs in {}, ignoring.", archive, e);
+            if (tempFile != null) {
+                GFileUtils.deleteQuietly(tempFile);
+            }
+            return;
+        }
+        stores.incrementAndGet();
+        evictIfNecessary(archive.length());
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getStores() {
+        return stores.get();
+    }
+
+    public int getEvictions() {
+        return evictions.get();
+    }
+
+    public void close() {
+        if (hits.get() + misses.get() > 0) {
+            LOGGER.info("Task output cache: {} hits, {} misses, {} stores, {} evictions.", hits.get(), misses.get(), stores.get(), evictions.get());
+        }
+    }
+
+    private File archiveFor(String key) {
+        return new File(directory, key + ARCHIVE_EXTENSION);
+    }
+
+    private synchronized void evictIfNecessary(long storedSize) {
+        if (totalSize < 0) {
+            totalSize = listArchivesSize();
+        } else {
+            totalSize += storedSize;
+        }
+        if (totalSize <= maxSizeInBytes) {
+            return;
+        }
+        File[] archives = listArchives();
+        totalSize = 0;
+        for (File archive : archives) {
+            totalSize += archive.length();
+        }
+        Arrays.sort(archives, new Comparator<File>() {
+            public int compare(File o1, File o2) {
+                long lastModified1 = o1.lastModified();
+                long lastModified2 = o2.lastModified();
+                return lastModified1 < lastModified2 ? -1 : lastModified1 == lastModified2 ? 0 : 1;
+            }
+        });
+        for (File archive : archives) {
+            if (totalSize <= maxSizeInBytes) {
+                break;
+            }
+            long length = archive.length();
+            // Builds that are loading the archive keep reading it once it is deleted, or prevent it from being deleted on some platforms
+            if (archive.delete()) {
+                totalSize -= length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private long listArchivesSize() {
+        long size = 0;
+        for (File archive : listArchives()) {
+            size += archive.length();
+        }
+        return size;
+    }
+
+    private File[] listArchives() {
+        File[] archives = directory.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.getName().endsWith(ARCHIVE_EXTENSION);
+            }
+        });
+        return archives == null ? new File[0] : archives;
+    }
+
+    private static void pack(List<File> outputFiles, File archive) throws IOException {
+        ZipOutputStream outputStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+        try {
+            for (int i = 0; i < outputFiles.size(); i++) {
+                File outputFile = outputFiles.get(i);
+                String name = String.valueOf(i);
+                if (outputFile.isFile()) {
+                    putFile(outputStream, name, outputFile);
+                } else if (outputFile.isDirectory()) {
+                    putDirectory(outputStream, name, outputFile);
+                }
+            }
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static void putDirectory(ZipOutputStream outputStream, String name, File directory) throws IOException {
+        outputStream.putNextEntry(new ZipEntry(name + "/"));
+        outputStream.closeEntry();
+        File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IOException(String.format("Could not list contents of directory '%s'.", directory));
+        }
+        for (File child : children) {
+            String childName = name + "/" + child.getName();
+            if (child.isDirectory()) {
+                putDirectory(outputStream, childName, child);
+            } else {
+                putFile(outputStream, childName, child);
+            }
+        }
+    }
+
+    private static void putFile(ZipOutputStream outputStream, String name, File file) throws IOException {
+        outputStream.putNextEntry(new ZipEntry(name));
+        Files.copy(file, outputStream);
+        outputStream.closeEntry();
+    }
+
+    private static void deleteOutputs(List<File> outputFiles) {
+        for (File outputFile : outputFiles) {
+            GFileUtils.deleteQuietly(outputFile);
+        }
+    }
+
+    private static void closeQuietly(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close {}.", zipFile.getName(), e);
+        }
+    }
+
+    private static void unpack(ZipFile zipFile, List<File> outputFiles) throws IOException {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            int separator = name.indexOf('/');
+            File target;
+            try {
+                int index = Integer.parseInt(separator < 0 ? name : name.substring(0, separator));
+                target = separator < 0 ? outputFiles.get(index) : new File(outputFiles.get(index), name.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IOException(String.format("Unexpected entry '%s' in archive.", name), e);
+            }
+            if (separator >= 0 && !isNestedPath(name.substring(separator + 1))) {
+                throw new IOException(String.format("Entry '%s' in archive points outside of its output directory.", name));
+            }
+            if (entry.isDirectory()) {
+                GFileUtils.mkdirs(target);
+            } else {
+                GFileUtils.parentMkdirs(target);
+                InputStream inputStream = zipFile.getInputStream(entry);
+                try {
+                    copy(inputStream, target);
+                } finally {
+                    inputStream.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a path stays below the directory it is relative to, so that a tampered archive cannot write to arbitrary locations.
+     */
+    private static boolean isNestedPath(String path) {
+        if (path.startsWith("/") || path.startsWith("\\") || new File(path).isAbsolute()) {
+            return false;
+        }
+        for (String segment : path.split("[/\\\\]")) {
+            if (segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(InputStream inputStream, File target) throws IOException {
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(target));
+        try {
+            ByteStreams.copy(inputStream, outputStream);
+        } finally {
+            outputStream.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.base.Charsets;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashValue;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Builds a key identifying the inputs of a task. Each value is prefixed with its length, so that different sequences of values produce different keys.
+ */
+public class TaskCacheKeyBuilder {
+    private final MessageDigest messageDigest;
+
+    public TaskCacheKeyBuilder() {
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    public TaskCacheKeyBuilder putString(String value) {
+        return putBytes(value.getBytes(Charsets.UTF_8));
+    }
+
+    public TaskCacheKeyBuilder putBytes(byte[] value) {
+        putInt(value.length);
+        messageDigest.update(value);
+        return this;
+    }
+
+    public TaskCacheKeyBuilder putInt(int value) {
+        messageDigest.update((byte) (value >>> 24));
+        messageDigest.update((byte) (value >>> 16));
+        messageDigest.update((byte) (value >>> 8));
+        messageDigest.update((byte) value);
+        return this;
+    }
+
+    public String build() {
+        return new HashValue(messageDigest.digest()).asCompactString();
+    }
+}
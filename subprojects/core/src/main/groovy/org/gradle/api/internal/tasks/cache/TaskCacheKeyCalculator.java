@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.primitives.UnsignedBytes;
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
+import org.gradle.api.internal.changedetection.state.FileSnapshot;
+import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
+import org.gradle.api.internal.tasks.ContextAwareTaskAction;
+import org.gradle.util.GradleVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Calculates the cache key of a task from its implementation, its actions, its input properties, the content of its input files and the locations of its outputs.
+ * Paths inside the root project directory are used relative to it, so that the key does not change when the build is checked out to a different location.
+ *
+ * <p>Input property values are encoded in a canonical form: sets and maps are encoded in the order of their encoded elements rather than in their iteration order,
+ * and files are encoded like the paths above. Values of other types are encoded using Java serialization, which may only cause cache misses when it is not
+ * deterministic.</p>
+ */
+public class TaskCacheKeyCalculator {
+    private static final Comparator<byte[]> ENCODED_VALUE_ORDER = UnsignedBytes.lexicographicalComparator();
+
+    private final ClassLoaderHasher classLoaderHasher;
+
+    public TaskCacheKeyCalculator(ClassLoaderHasher classLoaderHasher) {
+        this.classLoaderHasher = classLoaderHasher;
+    }
+
+    /**
+     * Returns the cache key, or null when an input property value cannot be encoded.
+     */
+    @Nullable
+    public String calculate(TaskInternal task, Map<String, Object> inputProperties, FileCollectionSnapshot inputFiles, List<File> outputFiles) {
+        File rootDir = task.getProject().getRootDir();
+        TaskCacheKeyBuilder builder = new TaskCacheKeyBuilder();
+        builder.putString(GradleVersion.current().getVersion());
+        putImplementation(builder, task.getClass());
+        List<ContextAwareTaskAction> actions = task.getTaskActions();
+        builder.putInt(actions.size());
+        for (ContextAwareTaskAction action : actions) {
+            putImplementation(builder, action.getActionClass());
+        }
+
+        SortedMap<String, Object> sortedProperties = new TreeMap<String, Object>(inputProperties);
+        builder.putInt(sortedProperties.size());
+        for (Map.Entry<String, Object> entry : sortedProperties.entrySet()) {
+            byte[] value = encode(rootDir, entry.getValue());
+            if (value == null) {
+                return null;
+            }
+            builder.putString(entry.getKey());
+            builder.putBytes(value);
+        }
+
+        FilesSnapshotSet snapshots = inputFiles.getSnapshot();
+        SortedMap<String, byte[]> sortedHashes = new TreeMap<String, byte[]>();
+        for (File file : inputFiles.getFiles()) {
+            FileSnapshot snapshot = snapshots.findSnapshot(file);
+            if (snapshot != null) {
+                sortedHashes.put(relativePath(rootDir, file), snapshot.getHash());
+            }
+        }
+        builder.putInt(sortedHashes.size());
+        for (Map.Entry<String, byte[]> entry : sortedHashes.entrySet()) {
+            builder.putString(entry.getKey());
+            builder.putBytes(entry.getValue());
+        }
+
+        builder.putInt(outputFiles.size());
+        for (File outputFile : outputFiles) {
+            builder.putString(relativePath(rootDir, outputFile));
+        }
+        return builder.build();
+    }
+
+    private void putImplementation(TaskCacheKeyBuilder builder, Class<?> type) {
+        builder.putString(type.getName());
+        builder.putString(classLoaderHasher.getHash(type.getClassLoader()));
+    }
+
+    @Nullable
+    private static byte[] encode(File rootDir, @Nullable Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream outputStream = new DataOutputStream(bytes);
+            if (!new ValueEncoder(rootDir, outputStream).write(value)) {
+                return null;
+            }
+            outputStream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String relativePath(File rootDir, File file) {
+        String rootPath = rootDir.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        if (path.startsWith(rootPath)) {
+            return path.substring(rootPath.length()).replace(File.separatorChar, '/');
+        }
+        return path;
+    }
+
+    private static class ValueEncoder {
+        private final File rootDir;
+        private final DataOutputStream outputStream;
+
+        private ValueEncoder(File rootDir, DataOutputStream outputStream) {
+            this.rootDir = rootDir;
+            this.outputStream = outputStream;
+        }
+
+        /**
+         * Returns false when the value cannot be encoded.
+         */
+        boolean write(@Nullable Object value) throws IOException {
+            if (value == null) {
+                outputStream.writeByte('N');
+            } else if (value instanceof CharSequence) {
+                outputStream.writeByte('S');
+                writeString(value.toString());
+            } else if (value instanceof Boolean || value instanceof Number || value instanceof Character) {
+                outputStream.writeByte('P');
+                writeString(value.getClass().getName());
+                writeString(value.toString());
+            } else if (value instanceof Enum) {
+                outputStream.writeByte('E');
+                writeString(((Enum) value).getDeclaringClass().getName());
+                writeString(((Enum) value).name());
+            } else if (value instanceof File) {
+                outputStream.writeByte('F');
+                writeString(relativePath(rootDir, (File) value));
+            } else if (value instanceof Map) {
+                outputStream.writeByte('M');
+                List<byte[]> entries = new ArrayList<byte[]>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    byte[] key = encode(rootDir, entry.getKey());
+                    byte[] entryValue = encode(rootDir, entry.getValue());
+                    if (key == null || entryValue == null) {
+                        return false;
+                    }
+                    byte[] encodedEntry = new byte[key.length + entryValue.length];
+                    System.arraycopy(key, 0, encodedEntry, 0, key.length);
+                    System.arraycopy(entryValue, 0, encodedEntry, key.length, entryValue.length);
+                    entries.add(encodedEntry);
+                }
+                writeSorted(entries);
+            } else if (value instanceof Set) {
+                outputStream.writeByte('T');
+                List<byte[]> elements = new ArrayList<byte[]>();
+                for (Object element : (Set<?>) value) {
+                    byte[] encodedElement = encode(rootDir, element);
+                    if (encodedElement == null) {
+                        return false;
+                    }
+                    elements.add(encodedElement);
+                }
+                writeSorted(elements);
+            } else if (value instanceof Iterable) {
+                outputStream.writeByte('L');
+                List<Object> elements = new ArrayList<Object>();
+                for (Object element : (Iterable<?>) value) {
+                    elements.add(element);
+                }
+                return writeElements(elements);
+            } else if (value.getClass().isArray()) {
+                outputStream.writeByte('A');
+                writeString(value.getClass().getComponentType().getName());
+                int length = Array.getLength(value);
+                List<Object> elements = new ArrayList<Object>(length);
+                for (int i = 0; i < length; i++) {
+                    elements.add(Array.get(value, i));
+                }
+                return writeElements(elements);
+            } else if (value instanceof Serializable) {
+                outputStream.writeByte('O');
+                writeString(value.getClass().getName());
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes);
+                try {
+                    objectOutputStream.writeObject(value);
+                    objectOutputStream.close();
+                } catch (NotSerializableException e) {
+                    return false;
+                }
+                writeBytes(bytes.toByteArray());
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean writeElements(List<Object> elements) throws IOException {
+            outputStream.writeInt(elements.size());
+            for (Object element : elements) {
+                if (!write(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void writeSorted(List<byte[]> encodedValues) throws IOException {
+            Collections.sort(encodedValues, ENCODED_VALUE_ORDER);
+            outputStream.writeInt(encodedValues.size());
+            for (byte[] encodedValue : encodedValues) {
+                writeBytes(encodedValue);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            writeBytes(value.getBytes(Charsets.UTF_8));
+        }
+
+        private void writeBytes(byte[] value) throws IOException {
+            outputStream.writeInt(value.length);
+            outputStream.write(value);
+        }
+    }
+}
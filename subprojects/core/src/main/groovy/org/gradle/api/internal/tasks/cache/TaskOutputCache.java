@@ -0,0 +1,37 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Stores the outputs of tasks, keyed by a hash of their inputs, so that they can be reused by later builds.
+ */
+public interface TaskOutputCache {
+    /**
+     * Replaces the given output files with the outputs stored for the given key.
+     *
+     * @return true if outputs were stored for the key, false otherwise.
+     */
+    boolean load(String key, List<File> outputFiles);
+
+    /**
+     * Stores the given output files for the given key.
+     */
+    void store(String key, List<File> outputFiles);
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskExecutionTimeRepository;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.util.Clock;
+
+/**
+ * A {@link TaskExecuter} which records how long the actions of successfully executed tasks took.
+ */
+public class RecordExecutionTimeTaskExecuter implements TaskExecuter {
+    private final TaskExecutionTimeRepository repository;
+    private final TaskExecuter executer;
+
+    public RecordExecutionTimeTaskExecuter(TaskExecutionTimeRepository repository, TaskExecuter executer) {
+        this.repository = repository;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        Clock clock = new Clock();
+        executer.execute(task, state, context);
+        if (state.getFailure() == null && state.getDidWork()) {
+            repository.setExecutionTime(task.getPath(), clock.getTimeInMs());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.TaskArtifactState;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskExecutionContext;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link TaskExecuter} which loads the outputs of out-of-date tasks from the task output cache when they are available, and stores the outputs of executed tasks in the cache.
+ */
+public class SkipCachedTaskExecuter implements TaskExecuter {
+    public static final String ENABLED_PROPERTY = "org.gradle.cache.tasks";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SkipCachedTaskExecuter.class);
+    private final TaskOutputCache taskOutputCache;
+    private final TaskCacheKeyCalculator keyCalculator;
+    private final TaskExecuter executer;
+
+    public SkipCachedTaskExecuter(TaskOutputCache taskOutputCache, TaskCacheKeyCalculator keyCalculator, TaskExecuter executer) {
+        this.taskOutputCache = taskOutputCache;
+        this.keyCalculator = keyCalculator;
+        this.executer = executer;
+    }
+
+    public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
+        TaskArtifactState taskArtifactState = context.getTaskArtifactState();
+        String cacheKey = taskArtifactState == null ? null : taskArtifactState.calculateCacheKey(keyCalculator);
+        if (cacheKey == null) {
+            executer.execute(task, state, context);
+            return;
+        }
+
+        List<File> outputFiles = new ArrayList<File>(task.getOutputs().getFiles().getFiles());
+        Collections.sort(outputFiles);
+        Clock clock = new Clock();
+        if (taskOutputCache.load(cacheKey, outputFiles)) {
+            LOGGER.info("Loaded outputs of {} from cache (took {}).", task, clock.getTime());
+            state.skipped("FROM-CACHE");
+            return;
+        }
+
+        executer.execute(task, state, context);
+        if (state.getFailure() == null && state.getDidWork()) {
+            taskOutputCache.store(cacheKey, outputFiles);
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private boolean logStructured;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,16 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Whether the cache is stored as an append-only log rather than as a BTree.
+     */
+    public boolean isLogStructured() {
+        return logStructured;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> logStructured(boolean logStructured) {
+        this.logStructured = logStructured;
+        return this;
+    }
+}
@@ -23,11 +23,11 @@ import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.cache.internal.logstore.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
-import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
 import java.util.HashSet;
@@ -53,7 +53,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final Set<MultiProcessSafePersistentIndexedCache> caches = new HashSet<MultiProcessSafePersistentIndexedCache>();
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
-    private Thread owner;
+    private final Set<Thread> owners = new HashSet<Thread>();
     private LockOptions lockOptions;
     private FileLock fileLock;
     private FileLock.State stateAtOpen;
@@ -76,6 +76,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
             if (this.lockOptions != null) {
                 throw new IllegalStateException(String.format("Cannot open the %s, as it has already been opened.", cacheDisplayName));
             }
+            if (lockOptions.isAllowConcurrentAccess() && lockOptions.getMode() != FileLockManager.LockMode.None) {
+                throw new UnsupportedOperationException(String.format("Concurrent access to the %s requires on demand locking.", cacheDisplayName));
+            }
             this.lockOptions = lockOptions;
             if (lockOptions.getMode() == FileLockManager.LockMode.None) {
                 return;
@@ -152,9 +155,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
         lock.lock();
         try {
             // Take ownership
-            if (owner == null) {
-                owner = Thread.currentThread();
-            } else if (lockOptions.getMode() != Shared && owner != Thread.currentThread()) {
+            if (owners.isEmpty()) {
+                owners.add(Thread.currentThread());
+            } else if (lockOptions.getMode() != Shared && !isSoleOwner()) {
                 // TODO:ADAM - The check for shared mode is a work around. Owner should release the lock
                 throw new IllegalStateException(String.format("Cannot close %s as it is currently being used by another thread.", cacheDisplayName));
             }
@@ -166,7 +169,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             }
         } finally {
             lockOptions = null;
-            owner = null;
+            owners.clear();
             lock.unlock();
         }
     }
@@ -181,8 +184,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
 
         boolean wasStarted = false;
+        boolean outermost;
         lock.lock();
         try {
+            outermost = !operations.isInCacheAction();
             takeOwnership(operationDisplayName);
             wasStarted = onStartWork();
         } finally {
@@ -194,7 +199,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
             lock.lock();
             try {
                 try {
-                    if (wasStarted) {
+                    // With concurrent access, the unit of work ends when the last thread using the cache is done with it
+                    if (isConcurrentAccess() ? outermost && isSoleOwner() : wasStarted) {
                         onEndWork();
                     }
                 } finally {
@@ -206,17 +212,33 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
+    private boolean isConcurrentAccess() {
+        return lockOptions != null && lockOptions.isAllowConcurrentAccess();
+    }
+
+    private boolean isSoleOwner() {
+        return owners.size() == 1 && owners.contains(Thread.currentThread());
+    }
+
+    private boolean canTakeOwnership() {
+        if (owners.isEmpty() || owners.contains(Thread.currentThread())) {
+            return true;
+        }
+        // Once another process has asked for the lock, no more threads join so that the current owners drain and the lock is released
+        return isConcurrentAccess() && !contended;
+    }
+
     private void takeOwnership(String operationDisplayName) {
         lock.lock();
         try {
-            while (owner != null && owner != Thread.currentThread()) {
+            while (!canTakeOwnership()) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
             }
-            owner = Thread.currentThread();
+            owners.add(Thread.currentThread());
             operations.pushCacheAction(operationDisplayName);
         } finally {
             lock.unlock();
@@ -228,7 +250,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
         try {
             operations.popCacheAction();
             if (!operations.isInCacheAction()) {
-                owner = null;
+                owners.remove(Thread.currentThread());
                 condition.signalAll();
             }
         } finally {
@@ -254,8 +276,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
             }
             if (operations.isInCacheAction()) {
                 checkThreadIsOwner();
-                wasEnded = onEndWork();
-                owner = null;
+                // Other threads may still be using the cache, in which case the file lock is reacquired if required when the operation finishes
+                wasEnded = isSoleOwner() ? onEndWork() : true;
+                owners.remove(Thread.currentThread());
                 condition.signalAll();
             } else {
                 wasEnded = false;
@@ -285,7 +308,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private void checkThreadIsOwner() {
         lock.lock();
         try {
-            if (owner != Thread.currentThread()) {
+            if (!owners.contains(Thread.currentThread())) {
                 throw new IllegalStateException(String.format("Cannot start long running operation, as the %s has not been locked.", cacheDisplayName));
             }
         } finally {
@@ -296,14 +319,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private void restoreOwner() {
         lock.lock();
         try {
-            while (owner != null) {
+            while (!canTakeOwnership()) {
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
             }
-            owner = Thread.currentThread();
+            owners.add(Thread.currentThread());
         } finally {
             lock.unlock();
         }
@@ -314,10 +337,20 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
-                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        final File cacheFile = new File(baseDir, parameters.getCacheName() + (parameters.isLogStructured() ? ".log" : ".bin"));
+        Factory<FileBackedPersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<FileBackedPersistentIndexedCache<K, V>>() {
+            private FileBackedPersistentIndexedCache<K, V> reusableCache;
+
+            public FileBackedPersistentIndexedCache<K, V> create() {
+                if (reusableCache != null) {
+                    return reusableCache;
+                }
+                FileBackedPersistentIndexedCache<K, V> cache = doCreateCache(cacheFile, parameters);
+                if (parameters.isLogStructured()) {
+                    // Reopens itself when used after being closed, reusing its index when no other process has changed the file
+                    reusableCache = cache;
+                }
+                return cache;
             }
         };
 
@@ -338,8 +371,11 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return indexedCache;
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    <K, V> FileBackedPersistentIndexedCache<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
+        if (parameters.isLogStructured()) {
+            return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        }
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
     }
 
     private boolean onStartWork() {
@@ -377,8 +413,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private FileLock getLock() {
         lock.lock();
         try {
-            if (Thread.currentThread() != owner) {
-                throw new IllegalStateException(String.format("The %s has not been locked for this thread. File lock: %s, owner: %s", cacheDisplayName, fileLock != null, owner));
+            if (!owners.contains(Thread.currentThread())) {
+                throw new IllegalStateException(String.format("The %s has not been locked for this thread. File lock: %s, owners: %s", cacheDisplayName, fileLock != null, owners));
             }
         } finally {
             lock.unlock();
@@ -397,11 +433,18 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
 
         public void updateFile(Runnable action) throws LockTimeoutException {
-            getLock().updateFile(action);
+            FileLock fileLock = getLock();
+            // The file lock tracks the state of the lock file, so updates from concurrent owners are applied one at a time
+            synchronized (this) {
+                fileLock.updateFile(action);
+            }
         }
 
         public void writeFile(Runnable action) throws LockTimeoutException {
-            getLock().writeFile(action);
+            FileLock fileLock = getLock();
+            synchronized (this) {
+                fileLock.writeFile(action);
+            }
         }
     }
 
@@ -410,12 +453,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
             public void run() {
                 lock.lock();
                 try {
-                    LOG.debug("Detected file lock contention of {} (fileLock={}, contended={}, owner={})", cacheDisplayName, fileLock != null, contended, owner);
+                    LOG.debug("Detected file lock contention of {} (fileLock={}, contended={}, owners={})", cacheDisplayName, fileLock != null, contended, owners);
                     if (fileLock == null) {
                         //the lock may have been closed
                         return;
                     }
-                    if (owner != null) {
+                    if (!owners.isEmpty()) {
                         contended = true;
                         return;
                     }
@@ -433,8 +476,16 @@ public class DefaultCacheAccess implements CacheCoordinator {
         };
     }
 
+    /**
+     * Returns the thread that owns this cache, or null when no thread or more than one thread owns it.
+     */
     Thread getOwner() {
-        return owner;
+        lock.lock();
+        try {
+            return owners.size() == 1 ? owners.iterator().next() : null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     FileAccess getFileAccess() {
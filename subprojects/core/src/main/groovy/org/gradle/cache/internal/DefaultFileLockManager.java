@@ -28,8 +28,13 @@ import org.gradle.util.GFileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
@@ -39,6 +44,9 @@ import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 public class DefaultFileLockManager implements FileLockManager {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockManager.class);
     public static final int DEFAULT_LOCK_TIMEOUT = 60000;
+    private static final long MIN_RETRY_DELAY_MS = 10;
+    private static final long MAX_RETRY_DELAY_MS = 200;
+    private static final long PING_INTERVAL_MS = 200;
 
     private final Set<File> lockedFiles = new CopyOnWriteArraySet<File>();
     private final ProcessMetaDataProvider metaDataProvider;
@@ -46,6 +54,7 @@ public class DefaultFileLockManager implements FileLockManager {
     private final IdGenerator<Long> generator;
     private final FileLockContentionHandler fileLockContentionHandler;
     private final long shortTimeoutMs = 10000;
+    private final ConcurrentMap<File, AtomicLong> lockWaitTimes = new ConcurrentHashMap<File, AtomicLong>();
 
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler) {
         this(metaDataProvider, DEFAULT_LOCK_TIMEOUT, fileLockContentionHandler);
@@ -89,6 +98,26 @@ public class DefaultFileLockManager implements FileLockManager {
         fileLockContentionHandler.start(internalLock.lockId, whenContended);
     }
 
+    /**
+     * Returns the total time in milliseconds spent waiting for each lock file held by another process.
+     */
+    public Map<File, Long> getLockWaitTimes() {
+        Map<File, Long> waitTimes = new HashMap<File, Long>();
+        for (Map.Entry<File, AtomicLong> entry : lockWaitTimes.entrySet()) {
+            waitTimes.put(entry.getKey(), entry.getValue().get());
+        }
+        return waitTimes;
+    }
+
+    private void recordWaitTime(File lockFile, long waitTimeMs) {
+        AtomicLong total = lockWaitTimes.get(lockFile);
+        if (total == null) {
+            lockWaitTimes.putIfAbsent(lockFile, new AtomicLong());
+            total = lockWaitTimes.get(lockFile);
+        }
+        total.addAndGet(waitTimeMs);
+    }
+
     private class DefaultFileLock extends AbstractFileAccess implements FileLock {
         private final File lockFile;
         private final File target;
@@ -208,6 +237,10 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                     try {
                         LOGGER.debug("Releasing lock on {}.", displayName);
+                        AtomicLong waitTime = lockWaitTimes.get(lockFile);
+                        if (waitTime != null) {
+                            LOGGER.debug("Waited {} ms in total for other processes to release the lock on {}.", waitTime.get(), displayName);
+                        }
                         try {
                             if (lock != null && !lock.isShared()) {
                                 // Discard information region
@@ -233,6 +266,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    // Hand the lock over to the processes that asked for it without waiting for them to poll
+                    fileLockContentionHandler.released(lockId);
+                }
+            });
             stoppable.add(new Stoppable() {
                 public void stop() {
                     lock = null;
@@ -308,33 +347,60 @@ public class DefaultFileLockManager implements FileLockManager {
         }
 
         private java.nio.channels.FileLock lockStateRegion(LockMode lockMode, final long waitUntil) throws IOException, InterruptedException {
+            long startedAt = System.currentTimeMillis();
+            long retryDelay = MIN_RETRY_DELAY_MS;
+            boolean contended = false;
+            long lastPingedLockId = 0;
+            long lastPingAt = 0;
+            long lastReleasedLockId = 0;
             do {
                 java.nio.channels.FileLock fileLock = lockFileAccess.tryLockState(lockMode == LockMode.Shared);
                 if (fileLock != null) {
+                    if (contended) {
+                        long waitTime = System.currentTimeMillis() - startedAt;
+                        recordWaitTime(lockFile, waitTime);
+                        LOGGER.debug("Waited {} ms to acquire lock on {}.", waitTime, displayName);
+                    }
                     return fileLock;
                 }
+                contended = true;
+                long ownerLockId = 0;
                 if (port != -1) { //we don't like the assumption about the port very much
                     LockInfo lockInfo = readInformationRegion(System.currentTimeMillis()); //no need for timeout here, as we're already looping with timeout
-                    if (lockInfo.port != -1) {
-                        LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
-                        fileLockContentionHandler.pingOwner(lockInfo.port, lockInfo.lockId, displayName);
-                    } else {
+                    ownerLockId = lockInfo.lockId;
+                    long now = System.currentTimeMillis();
+                    if (lockInfo.port == -1) {
                         LOGGER.debug("The file lock is held by a different Gradle process. I was unable to read on which port the owner listens for lock access requests.");
+                    } else if (ownerLockId != lastPingedLockId || now - lastPingAt >= PING_INTERVAL_MS) {
+                        LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
+                        fileLockContentionHandler.pingOwner(lockInfo.port, ownerLockId, displayName);
+                        lastPingedLockId = ownerLockId;
+                        lastPingAt = now;
                     }
                 }
                 //TODO SF we should inform on the progress/status bar that we're waiting
-                Thread.sleep(200L);
+                // Wake up as soon as the owner announces the release, otherwise back off gradually
+                long awaitedLockId = ownerLockId == lastReleasedLockId ? 0 : ownerLockId;
+                if (fileLockContentionHandler.awaitRelease(awaitedLockId, retryDelay)) {
+                    lastReleasedLockId = ownerLockId;
+                    retryDelay = MIN_RETRY_DELAY_MS;
+                } else {
+                    retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+                }
             } while (System.currentTimeMillis() < waitUntil);
+            recordWaitTime(lockFile, System.currentTimeMillis() - startedAt);
             return null;
         }
 
         private java.nio.channels.FileLock lockInformationRegion(LockMode lockMode, long waitUntil) throws IOException, InterruptedException {
+            long retryDelay = MIN_RETRY_DELAY_MS;
             do {
                 java.nio.channels.FileLock fileLock = lockFileAccess.tryLockInfo(lockMode == LockMode.Shared);
                 if (fileLock != null) {
                     return fileLock;
                 }
-                Thread.sleep(200L);
+                Thread.sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
             }
             while (System.currentTimeMillis() < waitUntil);
             return null;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,16 @@
  * limitations under the License.
  */
 
-package org.gradle.api.internal.tasks.testing.detection;
+package org.gradle.cache.internal;
 
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
+import org.gradle.cache.PersistentIndexedCache;
+
+/**
+ * A {@link PersistentIndexedCache} that keeps its entries in a single file, which stays open until the cache is closed.
+ */
+public interface FileBackedPersistentIndexedCache<K, V> extends PersistentIndexedCache<K, V> {
+    /**
+     * Writes any pending changes to the backing file and closes it.
+     */
+    void close();
 }
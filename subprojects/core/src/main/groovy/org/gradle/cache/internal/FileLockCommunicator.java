@@ -16,18 +16,29 @@
 
 package org.gradle.cache.internal;
 
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
 import java.io.*;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
+import java.util.Collection;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 public class FileLockCommunicator {
+    private static final Logger LOGGER = Logging.getLogger(FileLockCommunicator.class);
     private static final byte PROTOCOL_VERSION = 1;
+    // The message type is appended after the lock id. Older versions only read the first 9 bytes, so they take any message for a ping.
+    // A release notification sent to an older version would ask it to give up a lock it may just have taken, so these are only sent
+    // to processes that announced they understand them by sending a typed ping.
+    private static final byte PING = 0;
+    private static final byte LOCK_RELEASED = 1;
+    private static final int PING_LENGTH = 9;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -43,7 +54,7 @@ public class FileLockCommunicator {
 
     public void pingOwner(int ownerPort, long lockId, String displayName) {
         try {
-            byte[] bytesToSend = encode(lockId);
+            byte[] bytesToSend = encode(lockId, PING);
             // Ping the owner via all available local addresses
             for (InetAddress address : addressFactory.findLocalAddresses()) {
                 socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, address, ownerPort));
@@ -53,12 +64,32 @@ public class FileLockCommunicator {
         }
     }
 
-    public long receive() throws GracefullyStoppedException {
+    /**
+     * Notifies the given processes that the lock with the given id has been released. Failures are ignored, as the receivers fall back to polling.
+     * Only send this to processes that sent a typed ping, see {@link #isTypedPing(DatagramPacket)}.
+     */
+    public void notifyReleased(Collection<SocketAddress> waiters, long lockId) {
+        byte[] bytesToSend;
         try {
-            byte[] bytes = new byte[9];
+            bytesToSend = encode(lockId, LOCK_RELEASED);
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+        for (SocketAddress waiter : waiters) {
+            try {
+                socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, waiter));
+            } catch (IOException e) {
+                LOGGER.debug("Failed to notify {} of the release of lock {}.", waiter, lockId);
+            }
+        }
+    }
+
+    public DatagramPacket receive() throws GracefullyStoppedException {
+        try {
+            byte[] bytes = new byte[PING_LENGTH + 1];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
-            return decode(bytes);
+            return packet;
         } catch (IOException e) {
             if (!stopped) {
                 throw new RuntimeException(e);
@@ -72,11 +103,31 @@ public class FileLockCommunicator {
         socket.close();
     }
 
-    private static byte[] encode(long lockId) throws IOException {
+    public static long decodeLockId(DatagramPacket packet) {
+        try {
+            return decode(packet.getData());
+        } catch (IOException e) {
+            throw throwAsUncheckedException(e);
+        }
+    }
+
+    public static boolean isReleaseNotification(DatagramPacket packet) {
+        return packet.getLength() > PING_LENGTH && packet.getData()[PING_LENGTH] == LOCK_RELEASED;
+    }
+
+    /**
+     * Returns true when the given ping was sent by a process that understands release notifications. Pings from older versions have no message type.
+     */
+    public static boolean isTypedPing(DatagramPacket packet) {
+        return packet.getLength() > PING_LENGTH && packet.getData()[PING_LENGTH] == PING;
+    }
+
+    private static byte[] encode(long lockId, byte type) throws IOException {
         ByteArrayOutputStream packet = new ByteArrayOutputStream();
         DataOutputStream dataOutput = new DataOutputStream(packet);
         dataOutput.writeByte(PROTOCOL_VERSION);
         dataOutput.writeLong(lockId);
+        dataOutput.writeByte(type);
         dataOutput.flush();
         return packet.toByteArray();
     }
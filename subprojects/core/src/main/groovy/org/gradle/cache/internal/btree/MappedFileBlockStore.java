@@ -0,0 +1,445 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory-mapped segments of the backing file, using the same block format as {@link FileBackedBlockStore}.
+ *
+ * <p>Segments are mapped on demand with a fixed size, which grows the file in segment sized steps. The file starts with a header that holds the length of the
+ * blocks that follow it, so that the zero-filled rest of the last segment is not mistaken for blocks when the process stops without closing the store. The
+ * segments are unmapped before the file is truncated to the end of the last block, when the store is cleared or closed. Because of the header, a file written
+ * by one kind of store is discarded by the other. Mapped files cannot be truncated or deleted on Windows, so this store should not be used there.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileBlockStore.class);
+    private static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final int MAGIC = 0x4d424c4b;
+    private static final int VERSION = 1;
+    private static final int LENGTH_OFFSET = 8;
+    private static final int STORE_HEADER_SIZE = 16;
+    private final File cacheFile;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long nextBlock;
+    private Factory factory;
+    // The length of the blocks, which start after the header
+    private long currentFileSize;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int segmentSize) {
+        this.cacheFile = cacheFile;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = readLength();
+            if (currentFileSize < 0) {
+                if (file.length() > 0) {
+                    LOGGER.debug("{} has an unknown header. Discarding.", this);
+                }
+                writeEmptyHeader();
+                currentFileSize = 0;
+            }
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the length of the blocks recorded in the header, or -1 when the file does not start with a valid header.
+     */
+    private long readLength() throws IOException {
+        long fileLength = file.length();
+        if (fileLength < STORE_HEADER_SIZE) {
+            return -1;
+        }
+        file.seek(0);
+        if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+            return -1;
+        }
+        long length = file.readLong();
+        return length < 0 || length > fileLength - STORE_HEADER_SIZE ? -1 : length;
+    }
+
+    private void writeEmptyHeader() throws IOException {
+        file.setLength(0);
+        file.writeInt(MAGIC);
+        file.writeInt(VERSION);
+        file.writeLong(0);
+    }
+
+    public void close() {
+        try {
+            try {
+                unmapSegments();
+                // Drop the unused part of the last mapped segment
+                if (file.length() > STORE_HEADER_SIZE + currentFileSize) {
+                    file.setLength(STORE_HEADER_SIZE + currentFileSize);
+                }
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        unmapSegments();
+        try {
+            writeEmptyHeader();
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    /**
+     * Releases the mapped segments straight away rather than when they are garbage collected, as the file cannot be safely truncated while they are mapped.
+     * No buffer handed out for a segment may be used afterwards.
+     */
+    private void unmapSegments() {
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                unmap(segment);
+            }
+        }
+        segments.clear();
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Exception e) {
+            // Fall through
+        }
+        try {
+            // Java 8 and earlier
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not unmap segment, it is released when garbage collected.", e);
+        }
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns a buffer positioned at the given offset of the blocks, and limited to the end of the segment containing it.
+     */
+    private ByteBuffer bufferAt(long blockPos) throws IOException {
+        long pos = STORE_HEADER_SIZE + blockPos;
+        int index = (int) (pos / segmentSize);
+        ByteBuffer buffer = segment(index).duplicate();
+        buffer.position((int) (pos - (long) index * segmentSize));
+        return buffer;
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            segments.add(null);
+        }
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * segmentSize, segmentSize);
+            segments.set(index, segment);
+        }
+        return segment;
+    }
+
+    private class SegmentInputStream extends InputStream {
+        private long pos;
+        private ByteBuffer buffer;
+
+        SegmentInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer buffer = currentBuffer();
+            pos++;
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = currentBuffer();
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+
+        private ByteBuffer currentBuffer() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = bufferAt(pos);
+            }
+            return buffer;
+        }
+    }
+
+    private class SegmentOutputStream extends OutputStream {
+        private long pos;
+        private ByteBuffer buffer;
+
+        SegmentOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            currentBuffer().put((byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                ByteBuffer buffer = currentBuffer();
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private ByteBuffer currentBuffer() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = bufferAt(pos);
+            }
+            return buffer;
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            CountingOutputStream countingOutputStream = new CountingOutputStream(new SegmentOutputStream(pos));
+            DataOutputStream outputStream = new DataOutputStream(countingOutputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            outputStream.writeLong(countingOutputStream.getCount());
+            outputStream.close();
+
+            if (currentFileSize < finalSize) {
+                currentFileSize = finalSize;
+                // Written after the block, so that the header never covers a block that is incomplete
+                segment(0).putLong(LENGTH_OFFSET, currentFileSize);
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            CountingInputStream countingInputStream = new CountingInputStream(new SegmentInputStream(pos));
+            DataInputStream inputStream = new DataInputStream(countingInputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = inputStream.readByte();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = countingInputStream.getCount();
+            long count = inputStream.readLong();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+            inputStream.close();
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
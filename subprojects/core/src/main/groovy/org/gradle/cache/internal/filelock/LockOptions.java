@@ -23,6 +23,11 @@ public interface LockOptions {
 
     boolean isUseCrossVersionImplementation();
 
+    /**
+     * Whether several threads may use the cache at the same time. Only supported for on demand locking, with mode {@link FileLockManager.LockMode#None}.
+     */
+    boolean isAllowConcurrentAccess();
+
     /**
      * Creates a copy of these options with the given mode.
      */
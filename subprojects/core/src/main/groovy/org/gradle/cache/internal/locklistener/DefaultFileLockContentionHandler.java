@@ -25,15 +25,24 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultFileLockContentionHandler implements FileLockContentionHandler, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockContentionHandler.class);
+    private static final int MAX_RELEASED_LOCKS = 100;
     private final Lock lock = new ReentrantLock();
+    private final Condition lockReleased = lock.newCondition();
     private final Map<Long, Runnable> contendedActions = new HashMap<Long, Runnable>();
+    // Processes waiting for our locks that understand release notifications, notified on release
+    private final Map<Long, Set<SocketAddress>> waiters = new HashMap<Long, Set<SocketAddress>>();
+    // Locks of other processes we were notified about. Lock ids are not reused, so only the most recent ones are of interest.
+    private final Set<Long> releasedLocks = new LinkedHashSet<Long>();
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
 
@@ -62,16 +71,32 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
             private void doRun() {
                 while (true) {
-                    long lockId;
+                    DatagramPacket packet;
                     try {
-                        lockId = communicator.receive();
+                        packet = communicator.receive();
                     } catch (GracefullyStoppedException e) {
                         return;
                     }
+                    long lockId = FileLockCommunicator.decodeLockId(packet);
                     lock.lock();
                     Runnable action;
                     try {
+                        if (FileLockCommunicator.isReleaseNotification(packet)) {
+                            markReleased(lockId);
+                            continue;
+                        }
                         action = contendedActions.get(lockId);
+                        // Older versions would take a release notification for a request to give up their own lock, so only remember typed pings
+                        if (FileLockCommunicator.isTypedPing(packet)) {
+                            Set<SocketAddress> waitingProcesses = waiters.get(lockId);
+                            if (action != null && waitingProcesses == null) {
+                                waitingProcesses = new HashSet<SocketAddress>();
+                                waiters.put(lockId, waitingProcesses);
+                            }
+                            if (waitingProcesses != null) {
+                                waitingProcesses.add(packet.getSocketAddress());
+                            }
+                        }
                         if (action == null) {
                             //received access request for lock that is already closed
                             continue;
@@ -92,10 +117,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (executor == null) {
-                executor = executorFactory.create("File lock request listener");
-                executor.execute(listener());
-            }
+            startListener();
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
             }
@@ -105,10 +127,64 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         }
     }
 
+    private void startListener() {
+        if (executor == null) {
+            executor = executorFactory.create("File lock request listener");
+            executor.execute(listener());
+        }
+    }
+
+    private void markReleased(long lockId) {
+        if (releasedLocks.size() >= MAX_RELEASED_LOCKS) {
+            Iterator<Long> oldest = releasedLocks.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        releasedLocks.add(lockId);
+        lockReleased.signalAll();
+    }
+
     public void pingOwner(int port, long lockId, String displayName) {
         getCommunicator().pingOwner(port, lockId, displayName);
     }
 
+    public void released(long lockId) {
+        Set<SocketAddress> waitingProcesses;
+        FileLockCommunicator communicator;
+        lock.lock();
+        try {
+            waitingProcesses = waiters.remove(lockId);
+            communicator = this.communicator;
+            if (waitingProcesses == null || communicator == null || stopped) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.debug("Notifying {} waiting process(es) of the release of lock {}.", waitingProcesses.size(), lockId);
+        communicator.notifyReleased(waitingProcesses, lockId);
+    }
+
+    public boolean awaitRelease(long lockId, long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            if (communicator != null && !stopped) {
+                // Release notifications arrive on the listener thread
+                startListener();
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (!releasedLocks.contains(lockId)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = lockReleased.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void assertNotStopped() {
         if (stopped) {
             throw new IllegalStateException(
@@ -130,6 +206,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         try {
             stopped = true;
             contendedActions.clear();
+            waiters.clear();
             if (communicator != null) {
                 communicator.stop();
             }
@@ -24,4 +24,16 @@ public interface FileLockContentionHandler {
     int reservePort();
 
     void pingOwner(int port, long lockId, String displayName);
+
+    /**
+     * Notifies the processes that have pinged the owner of the given lock that the lock has been released.
+     */
+    void released(long lockId);
+
+    /**
+     * Waits until the owner of the given lock, held by another process, notifies that it has released the lock, or until the given timeout expires.
+     *
+     * @return true if the release notification was received.
+     */
+    boolean awaitRelease(long lockId, long timeoutMs) throws InterruptedException;
 }
@@ -0,0 +1,659 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstore;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.FileBackedPersistentIndexedCache;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link org.gradle.cache.PersistentIndexedCache} that appends every change to a log file and keeps an in-memory index from key to the latest record for the key.
+ *
+ * <p>Each record holds a CRC32 checksum, the length of the serialized key, the length of the serialized value (or -1 for a removed key), the key and the value.
+ * The index is built by scanning the file when the cache is first opened. A record that fails its checksum, usually the tail of a write that was interrupted, is
+ * discarded along with everything after it. When the cache is closed and most of the file is taken up by stale records, the live records are copied to a new
+ * file that replaces the log.</p>
+ *
+ * <p>Compaction runs while the cross-process lock is held, so each close only copies the records from a bounded part of the log: a fixed amount, or twice
+ * what was appended since the cache was opened when that is more, so that compaction keeps ahead of the appends. The progress is kept in a
+ * separate file, along with the id of the log being compacted, so that the next close, in this or any other process, carries on where it stopped.
+ * Records appended after the compaction started are copied once it gets to them. Records that are replaced after being copied stay in the new file as stale
+ * records, and removal records are always copied.</p>
+ *
+ * <p>The index is kept when the cache is closed, and the cache reopens itself when it is used again. The header of the file holds a random id that changes
+ * whenever the file is created or compacted, and other processes only ever append to the file, so the index is reused without scanning the file when both
+ * the id and the length of the file are unchanged.</p>
+ *
+ * <p>Keys are identified by their serialized form, which is also compared when reading a record. This class is not thread-safe.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements FileBackedPersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final int MAGIC = 0x474c4f47;
+    private static final int VERSION = 2;
+    private static final int FILE_ID_OFFSET = 8;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final int REMOVED = -1;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final long MAX_COMPACTION_STEP = 32 * 1024 * 1024;
+
+    private final File cacheFile;
+    private final File compactedFile;
+    private final File compactionProgressFile;
+    private final long maxCompactionStep;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Map<Key, Record> index = new HashMap<Key, Record>();
+    private final ByteArrayOutputStream writeBuffer = new ByteArrayOutputStream();
+    private final CRC32 crc = new CRC32();
+    private final Random random = new Random();
+    private RandomAccessFile file;
+    // The id and length of the file the index was built from, or 0 when the index has to be rebuilt
+    private long fileId;
+    private long fileLength;
+    private long staleBytes;
+    private long appendedBytes;
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, MAX_COMPACTION_STEP);
+    }
+
+    /**
+     * @param maxCompactionStep the number of bytes of the log that are compacted each time the cache is closed, unless more than half of that was appended since the cache was opened.
+     */
+    LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, long maxCompactionStep) {
+        this.cacheFile = cacheFile;
+        this.compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        this.compactionProgressFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact-progress");
+        this.maxCompactionStep = maxCompactionStep;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
+    }
+
+    public V get(K key) {
+        try {
+            ensureOpen();
+            byte[] keyBytes = serialize(keySerializer, key);
+            Record record = index.get(new Key(keyBytes));
+            if (record == null) {
+                return null;
+            }
+            byte[] bytes = readRecord(record);
+            if (bytes == null) {
+                LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
+                discardContent();
+                return null;
+            }
+            int keyLength = keyLength(bytes);
+            if (!matches(bytes, keyBytes)) {
+                return null;
+            }
+            int valueOffset = RECORD_HEADER_SIZE + keyLength;
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(bytes, valueOffset, bytes.length - valueOffset));
+            return valueSerializer.read(decoder);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            ensureOpen();
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            Record record = append(keyBytes, valueBytes, valueBytes.length);
+            replace(new Key(keyBytes), record);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    public void remove(K key) {
+        try {
+            ensureOpen();
+            byte[] keyBytes = serialize(keySerializer, key);
+            Key indexKey = new Key(keyBytes);
+            if (!index.containsKey(indexKey)) {
+                return;
+            }
+            Record record = append(keyBytes, new byte[0], REMOVED);
+            replace(indexKey, null);
+            staleBytes += record.size;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void reset() {
+        close();
+        discardIndex();
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        if (file == null) {
+            return;
+        }
+        try {
+            flushWrites();
+            compactIfRequired();
+        } catch (Exception e) {
+            discardIndex();
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        } finally {
+            closeFile();
+        }
+    }
+
+    public boolean isOpen() {
+        return file != null;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (file == null) {
+            open();
+        }
+    }
+
+    private void open() throws IOException {
+        appendedBytes = 0;
+        if (fileId != 0 && cacheFile.length() == fileLength && readFileId() == fileId) {
+            LOGGER.debug("Reopening {}", this);
+            file = new RandomAccessFile(cacheFile, "rw");
+            return;
+        }
+        LOGGER.debug("Opening {}", this);
+        discardIndex();
+        long validLength = cacheFile.isFile() ? scan() : 0;
+        file = new RandomAccessFile(cacheFile, "rw");
+        if (validLength < FILE_HEADER_SIZE) {
+            fileId = newFileId();
+            file.setLength(0);
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            file.writeLong(fileId);
+            validLength = FILE_HEADER_SIZE;
+        } else if (file.length() != validLength) {
+            LOGGER.warn(String.format("%s has an incomplete or corrupt record at offset %s. Discarding the rest of the file.", this, validLength));
+            file.setLength(validLength);
+            // Other processes may have indexed the discarded records
+            fileId = newFileId();
+            file.seek(FILE_ID_OFFSET);
+            file.writeLong(fileId);
+        }
+        fileLength = validLength;
+    }
+
+    private void discardIndex() {
+        index.clear();
+        writeBuffer.reset();
+        fileId = 0;
+        fileLength = 0;
+        staleBytes = 0;
+    }
+
+    private long readFileId() throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(cacheFile));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return 0;
+            }
+            return input.readLong();
+        } catch (EOFException e) {
+            return 0;
+        } finally {
+            input.close();
+        }
+    }
+
+    private long newFileId() {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * Builds the index from the records in the file and returns the length of the valid part of the file, or 0 when the file has to be discarded.
+     */
+    private long scan() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            long available = cacheFile.length();
+            if (available < FILE_HEADER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return 0;
+            }
+            fileId = input.readLong();
+            long offset = FILE_HEADER_SIZE;
+            while (available - offset >= RECORD_HEADER_SIZE) {
+                int checksum = input.readInt();
+                int keyLength = input.readInt();
+                int valueLength = input.readInt();
+                int storedValueLength = valueLength == REMOVED ? 0 : valueLength;
+                if (keyLength < 0 || storedValueLength < 0 || (long) keyLength + storedValueLength > available - offset - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                byte[] keyBytes = new byte[keyLength];
+                input.readFully(keyBytes);
+                byte[] valueBytes = new byte[storedValueLength];
+                input.readFully(valueBytes);
+                if (checksum(keyLength, valueLength, keyBytes, valueBytes) != checksum) {
+                    break;
+                }
+                Record record = new Record(offset, RECORD_HEADER_SIZE + keyLength + storedValueLength);
+                offset += record.size;
+                Key key = new Key(keyBytes);
+                if (valueLength == REMOVED) {
+                    replace(key, null);
+                    staleBytes += record.size;
+                } else {
+                    replace(key, record);
+                }
+            }
+            return offset;
+        } finally {
+            input.close();
+        }
+    }
+
+    private void replace(Key key, Record record) {
+        Record previous = record == null ? index.remove(key) : index.put(key, record);
+        if (previous != null) {
+            staleBytes += previous.size;
+        }
+    }
+
+    private Record append(byte[] keyBytes, byte[] valueBytes, int valueLength) throws IOException {
+        Record record = new Record(fileLength + writeBuffer.size(), RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length);
+        appendedBytes += record.size;
+        DataOutputStream output = new DataOutputStream(writeBuffer);
+        output.writeInt(checksum(keyBytes.length, valueLength, keyBytes, valueBytes));
+        output.writeInt(keyBytes.length);
+        output.writeInt(valueLength);
+        output.write(keyBytes);
+        output.write(valueBytes);
+        if (writeBuffer.size() >= WRITE_BUFFER_SIZE) {
+            flushWrites();
+        }
+        return record;
+    }
+
+    private void flushWrites() throws IOException {
+        if (writeBuffer.size() == 0) {
+            return;
+        }
+        file.seek(fileLength);
+        writeBuffer.writeTo(new RandomAccessFileOutputStream(file));
+        fileLength += writeBuffer.size();
+        writeBuffer.reset();
+    }
+
+    /**
+     * Reads the given record, or returns null when its checksum does not match.
+     */
+    private byte[] readRecord(Record record) throws IOException {
+        if (record.offset + record.size > fileLength) {
+            flushWrites();
+        }
+        byte[] bytes = new byte[record.size];
+        file.seek(record.offset);
+        file.readFully(bytes);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int checksum = input.readInt();
+        int keyLength = input.readInt();
+        int valueLength = input.readInt();
+        if (keyLength < 0 || RECORD_HEADER_SIZE + keyLength > bytes.length) {
+            return null;
+        }
+        crc.reset();
+        crc.update(bytes, 4, bytes.length - 4);
+        if ((int) crc.getValue() != checksum || valueLength == REMOVED) {
+            return null;
+        }
+        return bytes;
+    }
+
+    private void compactIfRequired() throws IOException {
+        CompactionProgress progress = readCompactionProgress();
+        if (progress == null) {
+            if (fileLength < MIN_COMPACTION_SIZE || staleBytes <= fileLength / 2) {
+                return;
+            }
+            progress = startCompaction();
+        }
+        try {
+            compact(progress);
+        } catch (IOException e) {
+            deleteCompactionFiles();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the progress of the compaction of the current log, or null when it is not being compacted.
+     */
+    private CompactionProgress readCompactionProgress() throws IOException {
+        if (!compactionProgressFile.isFile()) {
+            return null;
+        }
+        CompactionProgress progress = null;
+        DataInputStream input = new DataInputStream(new FileInputStream(compactionProgressFile));
+        try {
+            progress = new CompactionProgress(input.readLong(), input.readLong(), input.readLong(), input.readLong());
+        } catch (EOFException e) {
+            // Discard
+        } finally {
+            input.close();
+        }
+        if (progress != null && progress.sourceFileId == fileId && progress.sourceOffset <= fileLength && compactedFile.length() >= progress.compactedLength) {
+            return progress;
+        }
+        // The log was compacted, discarded or truncated since, or the compaction did not get to write its progress
+        LOGGER.debug("Discarding compaction of {}", this);
+        deleteCompactionFiles();
+        return null;
+    }
+
+    private CompactionProgress startCompaction() throws IOException {
+        LOGGER.debug("Starting compaction of {}", this);
+        long compactedFileId = newFileId();
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(compactedFile));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(compactedFileId);
+        } finally {
+            output.close();
+        }
+        CompactionProgress progress = new CompactionProgress(fileId, FILE_HEADER_SIZE, compactedFileId, FILE_HEADER_SIZE);
+        writeCompactionProgress(progress);
+        return progress;
+    }
+
+    private void writeCompactionProgress(CompactionProgress progress) throws IOException {
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(compactionProgressFile));
+        try {
+            output.writeLong(progress.sourceFileId);
+            output.writeLong(progress.sourceOffset);
+            output.writeLong(progress.compactedFileId);
+            output.writeLong(progress.compactedLength);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Copies the live records and the removal records from the next part of the log to the compacted file, and replaces the log once the end is reached.
+     */
+    private void compact(CompactionProgress progress) throws IOException {
+        LOGGER.debug("Compacting {} from offset {}", this, progress.sourceOffset);
+        long sourceOffset = progress.sourceOffset;
+        long compactedLength = progress.compactedLength;
+        long stepEnd = Math.min(fileLength, sourceOffset + Math.max(maxCompactionStep, 2 * appendedBytes));
+        RandomAccessFile compacted = new RandomAccessFile(compactedFile, "rw");
+        try {
+            // Drop anything written after the progress was last recorded
+            compacted.setLength(compactedLength);
+            compacted.seek(compactedLength);
+            OutputStream output = new BufferedOutputStream(new RandomAccessFileOutputStream(compacted));
+            file.seek(sourceOffset);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new RandomAccessFileInputStream(file)));
+            while (sourceOffset < stepEnd) {
+                byte[] header = new byte[RECORD_HEADER_SIZE];
+                input.readFully(header);
+                int keyLength = keyLength(header);
+                int valueLength = valueLength(header);
+                int storedValueLength = valueLength == REMOVED ? 0 : valueLength;
+                if (keyLength < 0 || storedValueLength < 0 || (long) keyLength + storedValueLength > fileLength - sourceOffset - RECORD_HEADER_SIZE) {
+                    throw new IOException(String.format("Found an invalid record at offset %s of %s.", sourceOffset, cacheFile));
+                }
+                byte[] keyBytes = new byte[keyLength];
+                input.readFully(keyBytes);
+                byte[] valueBytes = new byte[storedValueLength];
+                input.readFully(valueBytes);
+                int size = RECORD_HEADER_SIZE + keyLength + storedValueLength;
+                Record record = valueLength == REMOVED ? null : index.get(new Key(keyBytes));
+                if (valueLength == REMOVED || record != null && record.offset == sourceOffset) {
+                    if (record != null) {
+                        record.compactedFileId = progress.compactedFileId;
+                        record.compactedOffset = compactedLength;
+                    }
+                    output.write(header);
+                    output.write(keyBytes);
+                    output.write(valueBytes);
+                    compactedLength += size;
+                }
+                sourceOffset += size;
+            }
+            output.flush();
+        } finally {
+            compacted.close();
+        }
+
+        if (sourceOffset < fileLength) {
+            writeCompactionProgress(new CompactionProgress(progress.sourceFileId, sourceOffset, progress.compactedFileId, compactedLength));
+            return;
+        }
+
+        closeFile();
+        if (!cacheFile.delete() || !compactedFile.renameTo(cacheFile)) {
+            discardIndex();
+            deleteCompactionFiles();
+            throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile, compactedFile));
+        }
+        deleteCompactionFiles();
+
+        // Keep the index, moving the records to where they are in the compacted file. Records copied by another process are only found by scanning the file
+        long liveBytes = 0;
+        for (Record record : index.values()) {
+            if (record.compactedFileId != progress.compactedFileId) {
+                LOGGER.debug("Rebuilding the index of {} after compaction", this);
+                discardIndex();
+                return;
+            }
+            record.offset = record.compactedOffset;
+            liveBytes += record.size;
+        }
+        fileId = progress.compactedFileId;
+        fileLength = compactedLength;
+        staleBytes = compactedLength - FILE_HEADER_SIZE - liveBytes;
+    }
+
+    private void deleteCompactionFiles() throws IOException {
+        if (compactionProgressFile.exists() && !compactionProgressFile.delete()) {
+            throw new IOException(String.format("Could not delete %s.", compactionProgressFile));
+        }
+        if (compactedFile.exists() && !compactedFile.delete()) {
+            throw new IOException(String.format("Could not delete %s.", compactedFile));
+        }
+    }
+
+    private void discardContent() throws IOException {
+        closeFile();
+        discardIndex();
+        if (!cacheFile.delete()) {
+            throw new IOException(String.format("Could not delete %s.", cacheFile));
+        }
+        open();
+    }
+
+    private void closeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            file = null;
+        }
+    }
+
+    private int checksum(int keyLength, int valueLength, byte[] keyBytes, byte[] valueBytes) {
+        crc.reset();
+        updateInt(keyLength);
+        updateInt(valueLength);
+        crc.update(keyBytes);
+        crc.update(valueBytes);
+        return (int) crc.getValue();
+    }
+
+    private void updateInt(int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    private static int keyLength(byte[] record) {
+        return ((record[4] & 0xff) << 24) | ((record[5] & 0xff) << 16) | ((record[6] & 0xff) << 8) | (record[7] & 0xff);
+    }
+
+    private static int valueLength(byte[] record) {
+        return ((record[8] & 0xff) << 24) | ((record[9] & 0xff) << 16) | ((record[10] & 0xff) << 8) | (record[11] & 0xff);
+    }
+
+    private static boolean matches(byte[] record, byte[] keyBytes) {
+        if (keyLength(record) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (record[RECORD_HEADER_SIZE + i] != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return outputStream.toByteArray();
+    }
+
+    private static class Key {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(bytes, ((Key) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Record {
+        long offset;
+        final int size;
+        // Where the record was copied to by the compaction that is in progress
+        long compactedFileId;
+        long compactedOffset;
+
+        Record(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private static class CompactionProgress {
+        // The id of the log being compacted and the offset of the next record to copy
+        final long sourceFileId;
+        final long sourceOffset;
+        final long compactedFileId;
+        final long compactedLength;
+
+        CompactionProgress(long sourceFileId, long sourceOffset, long compactedFileId, long compactedLength) {
+            this.sourceFileId = sourceFileId;
+            this.sourceOffset = sourceOffset;
+            this.compactedFileId = compactedFileId;
+            this.compactedLength = compactedLength;
+        }
+    }
+
+    private static class RandomAccessFileOutputStream extends OutputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessFileOutputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            file.write(b, off, len);
+        }
+    }
+
+    private static class RandomAccessFileInputStream extends InputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessFileInputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return file.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return file.read(b, off, len);
+        }
+    }
+}
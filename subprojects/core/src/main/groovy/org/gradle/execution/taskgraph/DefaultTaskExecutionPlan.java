@@ -20,12 +20,17 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
+import com.google.common.primitives.Longs;
 import org.gradle.api.*;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.internal.tasks.TaskContainerInternal;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.AndSpec;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.ParallelizableTask;
@@ -57,16 +62,29 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalpath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition noTasksRunning = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Set<TaskInfo> executionQueue = new LinkedHashSet<TaskInfo>();
+    private final Map<TaskInfo, Integer> executionOrder = new HashMap<TaskInfo, Integer>();
+    private final Map<TaskInfo, Long> remainingCriticalPath = new HashMap<TaskInfo, Long>();
+    private final NavigableSet<TaskInfo> readyQueue = new TreeSet<TaskInfo>(new Comparator<TaskInfo>() {
+        public int compare(TaskInfo left, TaskInfo right) {
+            int result = Longs.compare(criticalPathOf(right), criticalPathOf(left));
+            if (result != 0) {
+                return result;
+            }
+            return executionOrder.get(left).compareTo(executionOrder.get(right));
+        }
+    });
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -75,23 +93,42 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
+    // Tasks being prepared, with the tasks that were running or have started since their preparation started
+    private final Map<TaskInternal, Set<TaskInternal>> preparingTasks = Maps.newIdentityHashMap();
+    // Prepared tasks, with the canonical paths of the roots of their inputs
+    private final Map<TaskInternal, Set<String>> preparedTasks = Maps.newIdentityHashMap();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
+    private int idleWorkers;
+    private TaskPreflight preflight;
 
     private final boolean intraProjectParallelization;
+    private final TaskExecutionTimeEstimator executionTimeEstimator;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, @Nullable TaskExecutionTimeEstimator executionTimeEstimator) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.executionTimeEstimator = executionTimeEstimator;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (executionTimeEstimator != null) {
+            LOGGER.info("critical path task prioritization is enabled");
+        }
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, null);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, @Nullable TaskExecutionTimeEstimator executionTimeEstimator) {
+        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), executionTimeEstimator);
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
-        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE));
+        this(cancellationToken, null);
     }
 
     public void addToTaskGraph(Collection<? extends Task> tasks) {
@@ -307,6 +344,56 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        readyQueue.clear();
+        executionOrder.clear();
+        for (TaskInfo taskInfo : executionQueue) {
+            executionOrder.put(taskInfo, executionOrder.size());
+        }
+        remainingCriticalPath.clear();
+        if (executionTimeEstimator != null) {
+            determineCriticalPath();
+        }
+        for (TaskInfo taskInfo : executionQueue) {
+            taskInfo.countIncompleteDependencies();
+        }
+        for (TaskInfo taskInfo : executionQueue) {
+            maybeReady(taskInfo);
+        }
+    }
+
+    /**
+     * Calculates for each task the expected time from its start until all tasks that depend on it have completed. Ready tasks with the longest remaining path are started first.
+     * Tasks that have not been executed before are assumed to take as long as the average known task, or one unit of time when nothing is known.
+     */
+    private void determineCriticalPath() {
+        Map<Task, Long> executionTimes = executionTimeEstimator.getExpectedExecutionTimes(executionPlan.keySet());
+        long defaultExecutionTime = 1;
+        if (!executionTimes.isEmpty()) {
+            long total = 0;
+            for (Long executionTime : executionTimes.values()) {
+                total += executionTime;
+            }
+            defaultExecutionTime = Math.max(1, total / executionTimes.size());
+        }
+
+        List<TaskInfo> tasks = new ArrayList<TaskInfo>(executionPlan.values());
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            TaskInfo taskInfo = tasks.get(i);
+            long longestDependentPath = 0;
+            for (TaskInfo dependent : Iterables.concat(taskInfo.getDependencyPredecessors(), taskInfo.getMustPredecessors())) {
+                Long dependentPath = remainingCriticalPath.get(dependent);
+                if (dependentPath != null) {
+                    longestDependentPath = Math.max(longestDependentPath, dependentPath);
+                }
+            }
+            Long executionTime = executionTimes.get(taskInfo.getTask());
+            remainingCriticalPath.put(taskInfo, (executionTime == null ? defaultExecutionTime : executionTime) + longestDependentPath);
+        }
+    }
+
+    private long criticalPathOf(TaskInfo taskInfo) {
+        Long criticalPath = remainingCriticalPath.get(taskInfo);
+        return criticalPath == null ? 0 : criticalPath;
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -428,12 +515,20 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             entryTasks.clear();
             executionPlan.clear();
             executionQueue.clear();
+            readyQueue.clear();
+            executionOrder.clear();
+            remainingCriticalPath.clear();
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            for (TaskInternal task : preparedTasks.keySet()) {
+                preflight.discard(task);
+            }
+            preparedTasks.clear();
+            preparingTasks.clear();
         } finally {
             lock.unlock();
         }
@@ -451,6 +546,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
+    /**
+     * Uses the given preflight to prepare ready tasks in the background while workers are busy with other tasks.
+     */
+    public void usePreflight(@Nullable TaskPreflight preflight) {
+        this.preflight = preflight;
+    }
+
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
@@ -461,34 +563,43 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                     }
                 }
                 TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
+                Iterator<TaskInfo> iterator = readyQueue.iterator();
                 while (iterator.hasNext()) {
                     TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
+                    if (!taskInfo.isReady() || !taskInfo.allDependenciesComplete()) {
+                        // State has changed since the task was queued, it is queued again once its dependencies complete
+                        iterator.remove();
+                        continue;
+                    }
+                    if (canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
                         nextMatching = taskInfo;
                         iterator.remove();
                         break;
                     }
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
                 if (nextMatching == null) {
+                    if (allQueuedTasksComplete()) {
+                        signalStateChange();
+                        return null;
+                    }
+                    idleWorkers++;
                     try {
-                        condition.await();
+                        workAvailable.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        idleWorkers--;
                     }
                 } else {
+                    executionQueue.remove(nextMatching);
                     if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
                         recordTaskStarted(nextMatching);
                         return nextMatching;
                     } else {
                         nextMatching.skipExecution();
-                        condition.signalAll();
+                        dependencyComplete(nextMatching);
+                        signalStateChange();
                     }
                 }
             }
@@ -497,6 +608,172 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    /**
+     * Discards the queued tasks that have completed without being executed, and checks whether any queued tasks remain to be executed.
+     * Tasks that must not run are kept, as they may still be enforced by a finalized task.
+     */
+    private boolean allQueuedTasksComplete() {
+        boolean allTasksComplete = true;
+        Iterator<TaskInfo> iterator = executionQueue.iterator();
+        while (iterator.hasNext()) {
+            TaskInfo taskInfo = iterator.next();
+            if (!taskInfo.isComplete()) {
+                allTasksComplete = false;
+                break;
+            }
+            if (!taskInfo.isMustNotRun()) {
+                iterator.remove();
+            }
+        }
+        return allTasksComplete;
+    }
+
+    /**
+     * Adds the given task to the ready queue when it is waiting to be executed and all of its dependencies are complete.
+     */
+    private void maybeReady(TaskInfo taskInfo) {
+        if (taskInfo.isReady() && executionQueue.contains(taskInfo) && taskInfo.allDependenciesComplete()) {
+            readyQueue.add(taskInfo);
+        }
+    }
+
+    /**
+     * Checks the tasks that depend on the given task, now that it is complete. Each task keeps count of its incomplete dependencies, so this is
+     * constant time per dependent.
+     */
+    private void dependencyComplete(TaskInfo taskInfo) {
+        for (TaskInfo dependent : Iterables.concat(taskInfo.getDependencyPredecessors(), taskInfo.getMustPredecessors())) {
+            maybeReady(dependent);
+        }
+    }
+
+    /**
+     * Wakes up as many idle workers as there are tasks ready to execute, or all of them when there is nothing left to wait for.
+     */
+    private void signalStateChange() {
+        prepareReadyTasks();
+        if (runningTasks.isEmpty() && preparingTasks.isEmpty()) {
+            noTasksRunning.signalAll();
+            if (readyQueue.isEmpty()) {
+                workAvailable.signalAll();
+                return;
+            }
+        }
+        for (int i = Math.min(readyQueue.size(), idleWorkers); i > 0; i--) {
+            workAvailable.signal();
+        }
+    }
+
+    /**
+     * Hands ready tasks that no idle worker is about to pick to the preflight, as long as they could run with the currently running tasks.
+     * Tasks are prepared in the order they are expected to be picked.
+     */
+    private void prepareReadyTasks() {
+        if (preflight == null) {
+            return;
+        }
+        // Leave the tasks that the idle workers, and the worker that has just completed a task, are about to pick
+        int tasksToBePicked = idleWorkers + 1;
+        for (TaskInfo taskInfo : readyQueue) {
+            if (preparingTasks.size() >= preflight.getMaxConcurrency()) {
+                return;
+            }
+            if (tasksToBePicked > 0) {
+                tasksToBePicked--;
+                continue;
+            }
+            final TaskInternal task = taskInfo.getTask();
+            if (preparedTasks.containsKey(task) || preparingTasks.containsKey(task) || !taskInfo.allDependenciesSuccessful() || mayBeSkipped(task)
+                || projectsWithRunningTasks.contains(task.getProject().getPath()) || firstTaskWithOverlappingOutput(task) != null) {
+                continue;
+            }
+            // Reserve the project while the task is being prepared, as project state is not thread-safe
+            recordTaskPreparing(task);
+            preflight.prepare(task, new Runnable() {
+                public void run() {
+                    taskPrepared(task);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns true for tasks that may not be executed, which are not worth preparing. The onlyIf conditions are not evaluated, as they may run arbitrary build logic.
+     */
+    private static boolean mayBeSkipped(TaskInternal task) {
+        if (!task.getEnabled()) {
+            return true;
+        }
+        // The only condition of a task without onlyIf conditions is the enabled flag
+        Spec<? super TaskInternal> onlyIf = task.getOnlyIf();
+        return !(onlyIf instanceof AndSpec) || ((AndSpec<?>) onlyIf).getSpecs().size() > 1;
+    }
+
+    private void recordTaskPreparing(TaskInternal task) {
+        String projectPath = task.getProject().getPath();
+        projectsWithRunningNonParallelizableTasks.add(projectPath);
+        projectsWithRunningTasks.add(projectPath);
+        Set<TaskInternal> writingTasks = Sets.newIdentityHashSet();
+        writingTasks.addAll(runningTasks);
+        preparingTasks.put(task, writingTasks);
+    }
+
+    private void taskPrepared(TaskInternal task) {
+        // The project of the task is still reserved, so its inputs can be resolved without holding the lock
+        Set<String> inputPaths = null;
+        try {
+            inputPaths = canonicalizedInputRoots(task);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not determine the inputs of {} after preparing it.", task, e);
+        }
+
+        lock.lock();
+        try {
+            Set<TaskInternal> writingTasks = preparingTasks.remove(task);
+            if (writingTasks != null) {
+                String projectPath = task.getProject().getPath();
+                projectsWithRunningNonParallelizableTasks.remove(projectPath);
+                projectsWithRunningTasks.remove(projectPath);
+                // A task that ran during the preparation may have changed the inputs after they were snapshotted
+                if (inputPaths != null && firstOverlappingOutput(inputPaths, writingTasks) == null) {
+                    preparedTasks.put(task, inputPaths);
+                } else {
+                    preflight.discard(task);
+                }
+                signalStateChange();
+            } else {
+                // The plan has been cleared in the meantime
+                preflight.discard(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards what has been prepared for tasks whose inputs or outputs overlap the outputs of a task that is about to start, as it may change them.
+     * Tasks still being prepared are checked once their inputs are known.
+     */
+    private void discardPreparedTasksOverlapping(TaskInternal startedTask) {
+        for (Set<TaskInternal> writingTasks : preparingTasks.values()) {
+            writingTasks.add(startedTask);
+        }
+        if (preparedTasks.isEmpty()) {
+            return;
+        }
+        Set<TaskInternal> startedTasks = Collections.singleton(startedTask);
+        Iterator<Map.Entry<TaskInternal, Set<String>>> iterator = preparedTasks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TaskInternal, Set<String>> entry = iterator.next();
+            TaskInternal preparedTask = entry.getKey();
+            if (preparedTask != startedTask
+                && (firstOverlappingOutput(canonicalizedOutputPaths(preparedTask), startedTasks) != null || firstOverlappingOutput(entry.getValue(), startedTasks) != null)) {
+                iterator.remove();
+                preflight.discard(preparedTask);
+            }
+        }
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -542,14 +819,41 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return paths;
     }
 
+    /**
+     * Returns the canonical paths of the files and directory trees that make up the inputs of the given task, without visiting the trees.
+     * Returns null when the inputs cannot be determined this way.
+     */
+    @Nullable
+    private static Set<String> canonicalizedInputRoots(TaskInternal task) {
+        FileCollection inputFiles = task.getInputs().getFiles();
+        if (!(inputFiles instanceof FileCollectionInternal)) {
+            return null;
+        }
+        FileSystemSubset.Builder builder = FileSystemSubset.builder();
+        ((FileCollectionInternal) inputFiles).registerWatchPoints(builder);
+        Set<String> paths = Sets.newHashSet();
+        for (File root : builder.build().getRoots()) {
+            try {
+                paths.add(root.getCanonicalPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return paths;
+    }
+
     @Nullable
     private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
-        if (runningTasks.isEmpty()) {
+        if (runningTasks.isEmpty() && preparingTasks.isEmpty()) {
             return null;
         }
+        return firstOverlappingOutput(canonicalizedOutputPaths(candidateTask), Iterables.concat(runningTasks, preparingTasks.keySet()));
+    }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
+    @Nullable
+    private Pair<TaskInternal, String> firstOverlappingOutput(Iterable<String> candidatePaths, Iterable<TaskInternal> otherTasks) {
+        for (String candidateTaskOutputPath : candidatePaths) {
+            for (TaskInternal runningTask : otherTasks) {
                 for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
                     if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
                         return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
@@ -607,6 +911,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private void recordTaskStarted(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
+        preparedTasks.remove(task);
+        discardPreparedTasksOverlapping(task);
         String projectPath = task.getProject().getPath();
         if (!isParallelizable(task)) {
             projectsWithRunningNonParallelizableTasks.add(projectPath);
@@ -637,7 +943,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            dependencyComplete(taskInfo);
+            signalStateChange();
         } finally {
             lock.unlock();
         }
@@ -663,6 +970,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         if (node.isMustNotRun() || node.isRequired()) {
             node.enforceRun();
+            maybeReady(node);
         }
     }
 
@@ -695,15 +1003,23 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 aborted = true;
             }
         }
+        if (aborted) {
+            for (TaskInfo taskInfo : executionPlan.values()) {
+                if (taskInfo.isComplete()) {
+                    dependencyComplete(taskInfo);
+                }
+            }
+            signalStateChange();
+        }
         return aborted;
     }
 
     public void awaitCompletion() {
         lock.lock();
         try {
-            while (!allTasksComplete()) {
+            while (!allTasksComplete() || !preparingTasks.isEmpty()) {
                 try {
-                    condition.await();
+                    noTasksRunning.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Task;
+import org.gradle.api.internal.changedetection.state.TaskExecutionTimeRepository;
+import org.gradle.internal.Factory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uses the execution times recorded by previous builds as the expected execution times of tasks.
+ */
+public class HistoricalTaskExecutionTimeEstimator implements TaskExecutionTimeEstimator {
+    // This needs to be lazy, as the task history is not available when the task graph is created
+    private final Factory<? extends TaskExecutionTimeRepository> repository;
+
+    public HistoricalTaskExecutionTimeEstimator(Factory<? extends TaskExecutionTimeRepository> repository) {
+        this.repository = repository;
+    }
+
+    public Map<Task, Long> getExpectedExecutionTimes(Collection<? extends Task> tasks) {
+        Map<String, Task> tasksByPath = new HashMap<String, Task>();
+        for (Task task : tasks) {
+            tasksByPath.put(task.getPath(), task);
+        }
+        Map<Task, Long> executionTimes = new HashMap<Task, Long>();
+        for (Map.Entry<String, Long> entry : repository.create().getExecutionTimes(tasksByPath.keySet()).entrySet()) {
+            executionTimes.put(tasksByPath.get(entry.getKey()), entry.getValue());
+        }
+        return executionTimes;
+    }
+}
@@ -31,9 +31,11 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private TaskExecutionState state;
     private Throwable executionFailure;
     private boolean dependenciesProcessed;
+    private int incompleteDependencies;
     private final TreeSet<TaskInfo> dependencyPredecessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> dependencySuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
+    private final TreeSet<TaskInfo> mustPredecessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
 
@@ -86,34 +88,34 @@ public class TaskInfo implements Comparable<TaskInfo> {
 
     public void startExecution() {
         assert isReady();
-        state = TaskExecutionState.EXECUTING;
+        setState(TaskExecutionState.EXECUTING);
     }
 
     public void finishExecution() {
         assert state == TaskExecutionState.EXECUTING;
-        state = TaskExecutionState.EXECUTED;
+        setState(TaskExecutionState.EXECUTED);
     }
 
     public void skipExecution() {
         assert state == TaskExecutionState.SHOULD_RUN;
-        state = TaskExecutionState.SKIPPED;
+        setState(TaskExecutionState.SKIPPED);
     }
 
     public void require() {
-        state = TaskExecutionState.SHOULD_RUN;
+        setState(TaskExecutionState.SHOULD_RUN);
     }
 
     public void doNotRequire() {
-        state = TaskExecutionState.NOT_REQUIRED;
+        setState(TaskExecutionState.NOT_REQUIRED);
     }
 
     public void mustNotRun() {
-        state = TaskExecutionState.MUST_NOT_RUN;
+        setState(TaskExecutionState.MUST_NOT_RUN);
     }
 
     public void enforceRun() {
         assert state == TaskExecutionState.SHOULD_RUN || state == TaskExecutionState.MUST_NOT_RUN || state == TaskExecutionState.MUST_RUN;
-        state = TaskExecutionState.MUST_RUN;
+        setState(TaskExecutionState.MUST_RUN);
     }
 
     public void setExecutionFailure(Throwable failure) {
@@ -129,13 +131,38 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return this.getTask().getState().getFailure();
     }
 
+    /**
+     * Returns true when all dependencies of this task are complete. Only valid once {@link #countIncompleteDependencies()} has been called
+     * for the final task graph.
+     */
     public boolean allDependenciesComplete() {
+        return incompleteDependencies == 0;
+    }
+
+    /**
+     * Counts the dependencies of this task that are not complete yet. From then on, the count is kept up to date as the dependencies
+     * change state, so that readiness can be checked without visiting the dependencies again.
+     */
+    public void countIncompleteDependencies() {
+        incompleteDependencies = 0;
         for (TaskInfo dependency : Iterables.concat(mustSuccessors, dependencySuccessors)) {
             if (!dependency.isComplete()) {
-                return false;
+                incompleteDependencies++;
+            }
+        }
+    }
+
+    private void setState(TaskExecutionState state) {
+        boolean wasComplete = isComplete();
+        this.state = state;
+        boolean complete = isComplete();
+        if (complete != wasComplete) {
+            // A task that must not run becomes incomplete again when it is enforced by a finalized task
+            int change = complete ? -1 : 1;
+            for (TaskInfo dependent : Iterables.concat(dependencyPredecessors, mustPredecessors)) {
+                dependent.incompleteDependencies += change;
             }
         }
-        return true;
     }
 
     public boolean allDependenciesSuccessful() {
@@ -159,6 +186,10 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return mustSuccessors;
     }
 
+    public TreeSet<TaskInfo> getMustPredecessors() {
+        return mustPredecessors;
+    }
+
     public TreeSet<TaskInfo> getFinalizers() {
         return finalizers;
     }
@@ -182,6 +213,7 @@ public class TaskInfo implements Comparable<TaskInfo> {
 
     public void addMustSuccessor(TaskInfo toNode) {
         mustSuccessors.add(toNode);
+        toNode.mustPredecessors.add(this);
     }
 
     public void addFinalizer(TaskInfo finalizerNode) {
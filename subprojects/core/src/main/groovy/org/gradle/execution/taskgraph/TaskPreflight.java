@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+
+/**
+ * Prepares the execution of tasks that are ready to execute before a worker picks them up, for example by checking whether they are up-to-date.
+ */
+public interface TaskPreflight {
+    /**
+     * Returns the number of tasks that can be prepared at the same time.
+     */
+    int getMaxConcurrency();
+
+    /**
+     * Starts preparing the given task. This method is called while holding the lock of the execution plan, so it must not block.
+     * No other task of the same project, or with overlapping outputs, is started until {@code whenDone} has been run. Tasks that may be
+     * skipped because they are disabled or have onlyIf conditions are not prepared.
+     *
+     * <p>{@code whenDone} may be run from any thread. What has been prepared is discarded when a task whose outputs overlap the inputs of the
+     * given task ran during the preparation.</p>
+     */
+    void prepare(TaskInternal task, Runnable whenDone);
+
+    /**
+     * Discards whatever was prepared for the given task, as the task will not be executed or its files may have been changed by another task.
+     */
+    void discard(TaskInternal task);
+}
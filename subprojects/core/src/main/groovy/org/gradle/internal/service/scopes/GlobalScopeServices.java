@@ -24,8 +24,9 @@ import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.classpath.*;
 import org.gradle.api.internal.file.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.api.internal.initialization.loadercache.*;
+import org.gradle.api.internal.tasks.cache.ClassLoaderHasher;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.*;
@@ -64,6 +65,7 @@ import org.gradle.model.internal.manage.instance.ManagedProxyFactory;
 import org.gradle.model.internal.manage.schema.ModelSchemaStore;
 import org.gradle.model.internal.manage.schema.extract.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -144,6 +146,11 @@ public class GlobalScopeServices {
         return new DefaultClassLoaderRegistry(classPathRegistry, classLoaderFactory);
     }
 
+    ClassLoaderHasher createClassLoaderHasher(ClassLoaderRegistry classLoaderRegistry) {
+        List<ClassLoader> runtimeClassLoaders = Arrays.asList(ClassLoader.getSystemClassLoader(), classLoaderRegistry.getGradleApiClassLoader(), classLoaderRegistry.getRuntimeClassLoader(), classLoaderRegistry.getPluginsClassLoader());
+        return new ClassLoaderHasher(runtimeClassLoaders, new Murmur3Hasher());
+    }
+
     ListenerManager createListenerManager() {
         return new DefaultListenerManager();
     }
@@ -207,7 +214,7 @@ public class GlobalScopeServices {
     ClassPathSnapshotter createClassPathSnapshotter(GradleBuildEnvironment environment, StringInterner stringInterner) {
         if (environment.isLongLivingProcess()) {
             final MapBackedInMemoryStore inMemoryStore = new MapBackedInMemoryStore();
-            CachingFileSnapshotter fileSnapshotter = new CachingFileSnapshotter(new DefaultHasher(), inMemoryStore, stringInterner);
+            CachingFileSnapshotter fileSnapshotter = new CachingFileSnapshotter(new Murmur3Hasher(), inMemoryStore, stringInterner);
             return new HashClassPathSnapshotter(fileSnapshotter, inMemoryStore);
         } else {
             return new FileClassPathSnapshotter();
@@ -15,10 +15,13 @@
  */
 package org.gradle.internal.service.scopes;
 
+import org.gradle.StartParameter;
 import org.gradle.api.Action;
 import org.gradle.api.internal.DependencyInjectingInstantiator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
+import org.gradle.api.internal.changedetection.changes.TaskArtifactStatePreflight;
+import org.gradle.api.internal.changedetection.state.TaskExecutionTimeRepository;
 import org.gradle.api.internal.plugins.*;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.tasks.TaskExecuter;
@@ -28,7 +31,10 @@ import org.gradle.execution.*;
 import org.gradle.execution.commandline.CommandLineTaskConfigurer;
 import org.gradle.execution.commandline.CommandLineTaskParser;
 import org.gradle.execution.taskgraph.DefaultTaskGraphExecuter;
+import org.gradle.execution.taskgraph.HistoricalTaskExecutionTimeEstimator;
+import org.gradle.execution.taskgraph.TaskExecutionTimeEstimator;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
+import org.gradle.execution.taskgraph.TaskPreflight;
 import org.gradle.initialization.BuildCancellationToken;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TimeProvider;
@@ -99,14 +105,32 @@ public class GradleScopeServices extends DefaultServiceRegistry {
         };
     }
 
-    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
+    TaskGraphExecuter createTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor, StartParameter startParameter) {
         Factory<TaskExecuter> taskExecuterFactory = new Factory<TaskExecuter>() {
             @Override
             public TaskExecuter create() {
                 return get(TaskExecuter.class);
             }
         };
-        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, timeProvider, buildOperationExecutor);
+        TaskExecutionTimeEstimator executionTimeEstimator = null;
+        if (TaskExecutionServices.isCriticalPathSchedulingEnabled(startParameter)) {
+            executionTimeEstimator = new HistoricalTaskExecutionTimeEstimator(new Factory<TaskExecutionTimeRepository>() {
+                @Override
+                public TaskExecutionTimeRepository create() {
+                    return get(TaskExecutionTimeRepository.class);
+                }
+            });
+        }
+        Factory<TaskPreflight> preflightFactory = null;
+        if (Boolean.getBoolean(TaskArtifactStatePreflight.ENABLED_PROPERTY) && !startParameter.isRerunTasks()) {
+            preflightFactory = new Factory<TaskPreflight>() {
+                @Override
+                public TaskPreflight create() {
+                    return get(TaskArtifactStatePreflight.class);
+                }
+            };
+        }
+        return new DefaultTaskGraphExecuter(listenerManager, taskPlanExecutor, taskExecuterFactory, cancellationToken, timeProvider, buildOperationExecutor, executionTimeEstimator, preflightFactory);
     }
 
     ServiceRegistryFactory createServiceRegistryFactory(final ServiceRegistry services) {
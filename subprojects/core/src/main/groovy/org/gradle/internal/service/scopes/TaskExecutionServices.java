@@ -22,28 +22,36 @@ import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
+import org.gradle.api.internal.changedetection.changes.TaskArtifactStatePreflight;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.cache.ClassLoaderHasher;
+import org.gradle.api.internal.tasks.cache.LocalDirectoryTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheDecorator;
+import org.gradle.execution.taskgraph.DefaultTaskExecutionPlan;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.environment.GradleBuildEnvironment;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.id.RandomLongIdGenerator;
-import org.gradle.internal.operations.BuildOperationProcessor;
-import org.gradle.internal.operations.DefaultBuildOperationProcessor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.SerializerRegistry;
+import org.gradle.internal.service.ServiceRegistry;
+
+import java.io.File;
 
 public class TaskExecutionServices {
 
-    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, ListenerManager listenerManager, Gradle gradle) {
+    TaskExecuter createTaskExecuter(TaskArtifactStateRepository repository, TaskArtifactStatePreflight preflight, TaskOutputCache taskOutputCache, ListenerManager listenerManager, Gradle gradle,
+                                    StartParameter startParameter, ServiceRegistry services) {
         // TODO - need a more comprehensible way to only collect inputs for the outer build
         //      - we are trying to ignore buildSrc here, but also avoid weirdness with use of GradleBuild tasks
         boolean isOuterBuild = gradle.getParent() == null;
@@ -51,19 +59,26 @@ public class TaskExecutionServices {
             ? listenerManager.getBroadcaster(TaskInputsListener.class)
             : TaskInputsListener.NOOP;
 
+        TaskExecuter executeOutOfDateTask = new PostExecutionAnalysisTaskExecuter(
+            new ExecuteActionsTaskExecuter(
+                listenerManager.getBroadcaster(TaskActionListener.class)
+            )
+        );
+        if (isCriticalPathSchedulingEnabled(startParameter)) {
+            // only open the execution time cache when the scheduler is going to use it
+            executeOutOfDateTask = new RecordExecutionTimeTaskExecuter(services.get(TaskExecutionTimeRepository.class), executeOutOfDateTask);
+        }
+        if (Boolean.getBoolean(SkipCachedTaskExecuter.ENABLED_PROPERTY)) {
+            executeOutOfDateTask = new SkipCachedTaskExecuter(taskOutputCache, new TaskCacheKeyCalculator(services.get(ClassLoaderHasher.class)), executeOutOfDateTask);
+        }
+
         return new ExecuteAtMostOnceTaskExecuter(
             new SkipOnlyIfTaskExecuter(
                 new SkipTaskWithNoActionsExecuter(
                     new SkipEmptySourceFilesTaskExecuter(
                         taskInputsListener,
                         new ValidatingTaskExecuter(
-                            new SkipUpToDateTaskExecuter(repository,
-                                new PostExecutionAnalysisTaskExecuter(
-                                    new ExecuteActionsTaskExecuter(
-                                        listenerManager.getBroadcaster(TaskActionListener.class)
-                                    )
-                                )
-                            )
+                            new SkipUpToDateTaskExecuter(preflight.getRepository(), executeOutOfDateTask)
                         )
                     )
                 )
@@ -71,6 +86,14 @@ public class TaskExecutionServices {
         );
     }
 
+    static boolean isCriticalPathSchedulingEnabled(StartParameter startParameter) {
+        return startParameter.isParallelProjectExecutionEnabled() && Boolean.getBoolean(DefaultTaskExecutionPlan.CRITICAL_PATH_TOGGLE);
+    }
+
+    TaskArtifactStatePreflight createTaskArtifactStatePreflight(TaskArtifactStateRepository repository, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new TaskArtifactStatePreflight(repository, executorFactory, startParameter.getMaxWorkerCount());
+    }
+
     TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
         CacheDecorator decorator;
         if (environment.isLongLivingProcess()) {
@@ -82,11 +105,15 @@ public class TaskExecutionServices {
     }
 
     FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
+        return new CachingFileSnapshotter(new Murmur3Hasher(), cacheAccess, stringInterner);
+    }
+
+    ParallelFileHasher createParallelFileHasher(FileSnapshotter fileSnapshotter, StartParameter startParameter, ExecutorFactory executorFactory) {
+        return new ParallelFileHasher(fileSnapshotter, executorFactory, startParameter.getMaxWorkerCount());
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter, StringInterner stringInterner) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter, StringInterner stringInterner, ParallelFileHasher fileHasher) {
+        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, fileHasher);
         FileCollectionSnapshotter discoveredFileCollectionSnapshotter = new MinimalFileSetSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
 
         FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, stringInterner);
@@ -115,11 +142,16 @@ public class TaskExecutionServices {
         );
     }
 
-    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
+    TaskExecutionTimeRepository createTaskExecutionTimeRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CacheBackedTaskExecutionTimeRepository(cacheAccess);
     }
 
-    BuildOperationProcessor createBuildOperationProcessor(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new DefaultBuildOperationProcessor(executorFactory, startParameter.getMaxWorkerCount());
+    TaskOutputCache createTaskOutputCache(StartParameter startParameter) {
+        long maxSizeInMegabytes = Long.getLong(LocalDirectoryTaskOutputCache.MAX_SIZE_PROPERTY, LocalDirectoryTaskOutputCache.DEFAULT_MAX_SIZE_IN_MEGABYTES);
+        return new LocalDirectoryTaskOutputCache(new File(startParameter.getGradleUserHomeDir(), "caches/task-output"), maxSizeInMegabytes * 1024 * 1024);
+    }
+
+    TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
+        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
     }
 }
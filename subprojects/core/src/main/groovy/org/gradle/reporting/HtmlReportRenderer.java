@@ -85,6 +85,9 @@ public class HtmlReportRenderer {
         }
     }
 
+    /**
+     * Pages can be rendered concurrently from multiple threads.
+     */
     private static class DefaultHtmlReportContext implements HtmlReportBuilder {
         private final File outputDirectory;
         private final Map<String, Resource> resources = new HashMap<String, Resource>();
@@ -93,7 +96,7 @@ public class HtmlReportRenderer {
             this.outputDirectory = outputDirectory;
         }
 
-        Resource addResource(URL source) {
+        synchronized Resource addResource(URL source) {
             String name = StringUtils.substringAfterLast(source.getPath(), "/");
             String type = StringUtils.substringAfterLast(source.getPath(), ".");
             if (type.equalsIgnoreCase("png") || type.equalsIgnoreCase("gif")) {
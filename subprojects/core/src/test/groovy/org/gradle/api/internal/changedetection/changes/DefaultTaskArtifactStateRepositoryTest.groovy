@@ -23,6 +23,8 @@ import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.TaskArtifactState
 import org.gradle.api.internal.changedetection.state.*
 import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.tasks.cache.ClassLoaderHasher
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator
 import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.internal.CacheScopeMapping
@@ -67,6 +69,7 @@ public class DefaultTaskArtifactStateRepositoryTest extends Specification {
         }
     }
     DefaultTaskArtifactStateRepository repository
+    def keyCalculator = new TaskCacheKeyCalculator(new ClassLoaderHasher([ClassLoader.systemClassLoader], new DefaultHasher()))
 
     def setup() {
         CacheRepository cacheRepository = new DefaultCacheRepository(mapping, new InMemoryCacheFactory())
@@ -546,7 +549,70 @@ public class DefaultTaskArtifactStateRepositoryTest extends Specification {
         state2.executionHistory.outputFiles.files == [outputDirFile2] as Set
     }
 
-    private void outOfDate(TaskInternal task) {
+    def cacheKeyIsTheSameWhenInputsHaveNotChanged() {
+        expect:
+        def key = repository.getStateFor(task).calculateCacheKey(keyCalculator)
+        key != null
+        repository.getStateFor(builder.task()).calculateCacheKey(keyCalculator) == key
+    }
+
+    def cacheKeyChangesWhenAnyInputPropertyValueChanged() {
+        expect:
+        repository.getStateFor(builder.withProperty("prop", "new value").task()).calculateCacheKey(keyCalculator) != repository.getStateFor(task).calculateCacheKey(keyCalculator)
+    }
+
+    def cacheKeyChangesWhenAnyInputFileHasChangedHash() {
+        when:
+        def key = repository.getStateFor(task).calculateCacheKey(keyCalculator)
+        inputFile.write("some new content")
+
+        then:
+        repository.getStateFor(builder.task()).calculateCacheKey(keyCalculator) != key
+    }
+
+    def cacheKeyChangesWhenTaskActionsChange() {
+        when:
+        def key = repository.getStateFor(task).calculateCacheKey(keyCalculator)
+        def taskWithMoreActions = builder.task()
+        taskWithMoreActions.doFirst {}
+
+        then:
+        repository.getStateFor(taskWithMoreActions).calculateCacheKey(keyCalculator) != key
+    }
+
+    def cacheKeyDoesNotDependOnIterationOrderOfInputPropertyValues() {
+        def set1 = new LinkedHashSet(["a", "b", "c"])
+        def set2 = new LinkedHashSet(["c", "b", "a"])
+        def map1 = new LinkedHashMap([a: 1, b: [2, 3]])
+        def map2 = new LinkedHashMap([b: [2, 3], a: 1])
+
+        expect:
+        repository.getStateFor(builder.withProperty("set", set1).withProperty("map", map1).task()).calculateCacheKey(keyCalculator) ==
+            repository.getStateFor(builder.withProperty("set", set2).withProperty("map", map2).task()).calculateCacheKey(keyCalculator)
+    }
+
+    def cacheKeyDependsOnOrderOfListInputPropertyValues() {
+        expect:
+        repository.getStateFor(builder.withProperty("list", ["a", "b"]).task()).calculateCacheKey(keyCalculator) !=
+            repository.getStateFor(builder.withProperty("list", ["b", "a"]).task()).calculateCacheKey(keyCalculator)
+    }
+
+    def cacheKeyUsesPathsOfFileInputPropertiesRelativeToRootProject() {
+        def rootDir = project.rootDir
+
+        expect:
+        repository.getStateFor(builder.withProperty("file", new File(rootDir, "a/b")).task()).calculateCacheKey(keyCalculator) ==
+            repository.getStateFor(builder.withProperty("file", new File(new File(rootDir, "a"), "b")).task()).calculateCacheKey(keyCalculator)
+        repository.getStateFor(builder.withProperty("file", new File(rootDir, "a/b")).task()).calculateCacheKey(keyCalculator) !=
+            repository.getStateFor(builder.withProperty("file", new File(rootDir, "a/c")).task()).calculateCacheKey(keyCalculator)
+    }
+
+    def hasNoCacheKeyWhenInputPropertyIsNotSerializable() {
+        expect:
+        repository.getStateFor(builder.withProperty("prop", new Object()).task()).calculateCacheKey(keyCalculator) == null
+    }
+
+        private void outOfDate(TaskInternal task) {
         final state = repository.getStateFor(task)
         assert !state.upToDate
         assert !state.inputChanges.incremental
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.DefaultFileVisitDetails
 import org.gradle.api.internal.hash.Hasher
 import org.gradle.cache.PersistentIndexedCache
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -104,4 +105,48 @@ class CachingFileSnapshotterTest extends Specification {
         1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
         0 * _._
     }
+
+    def findsSnapshotOnlyWhenTimestampAndLengthHaveNotChanged() {
+        def fileDetails = new DefaultFileVisitDetails(file)
+
+        when:
+        def result = hasher.findSnapshot(fileDetails)
+
+        then:
+        result == null
+
+        and:
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        0 * _._
+
+        when:
+        result = hasher.findSnapshot(fileDetails)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        0 * _._
+    }
+
+    def storesHashCalculatedSeparately() {
+        def fileDetails = new DefaultFileVisitDetails(file)
+
+        when:
+        def calculated = hasher.hash(fileDetails)
+        def result = hasher.snapshot(fileDetails, calculated)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.getAbsolutePath(), _) >> { String key, CachingFileSnapshotter.FileInfo fileInfo ->
+            fileInfo.hash == hash
+            fileInfo.length == file.length()
+            fileInfo.timestamp == file.lastModified()
+        }
+        0 * _._
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import spock.lang.Specification
+
+class CompactFileInfoStoreTest extends Specification {
+    def store = new CompactFileInfoStore(1000)
+
+    def "returns stored file info"() {
+        given:
+        def hash = (0..15).collect { it as byte } as byte[]
+        store.put(path("a/b/file.txt"), new CachingFileSnapshotter.FileInfo(hash, 123, 456))
+
+        when:
+        def result = store.get(path("a/b/file.txt"))
+
+        then:
+        result.hash == hash
+        result.length == 123
+        result.timestamp == 456
+        store.get(path("a/b/other.txt")) == null
+        store.get(path("a/c/file.txt")) == null
+    }
+
+    def "replaces and removes entries"() {
+        given:
+        store.put(path("file1"), fileInfo(1))
+        store.put(path("file2"), fileInfo(2))
+
+        when:
+        store.put(path("file1"), fileInfo(3))
+        store.remove(path("file2"))
+
+        then:
+        store.get(path("file1")).length == 3
+        store.get(path("file2")) == null
+        store.size() == 1
+    }
+
+    def "remembers files which are missing from the backing cache"() {
+        when:
+        store.put(path("file"), CompactFileInfoStore.MISSING)
+
+        then:
+        store.get(path("file")).is(CompactFileInfoStore.MISSING)
+    }
+
+    def "does not store hashes with unexpected length"() {
+        given:
+        store.put(path("file"), fileInfo(1))
+
+        when:
+        store.put(path("file"), new CachingFileSnapshotter.FileInfo(new byte[20], 2, 2))
+
+        then:
+        store.get(path("file")) == null
+    }
+
+    def "grows to hold many entries"() {
+        when:
+        1000.times { store.put(path("dir${it % 7}/file$it"), fileInfo(it)) }
+
+        then:
+        store.size() == 1000
+        (0..<1000).every { store.get(path("dir${it % 7}/file$it")).length == it }
+    }
+
+    def "evicts entries which have not been used recently when full"() {
+        given:
+        def store = new CompactFileInfoStore(10)
+        10.times { store.put(path("file$it"), fileInfo(it)) }
+        // Clears the referenced flags of all entries
+        store.put(path("file10"), fileInfo(10))
+
+        when:
+        store.get(path("file5"))
+        5.times { store.put(path("new$it"), fileInfo(it)) }
+
+        then:
+        store.size() == 10
+        store.get(path("file5")) != null
+    }
+
+    def "discards all entries when cleared"() {
+        given:
+        store.put(path("file"), fileInfo(1))
+
+        when:
+        store.clear()
+
+        then:
+        store.get(path("file")) == null
+        store.size() == 0
+    }
+
+    private static String path(String relativePath) {
+        return new File(new File("root").absoluteFile, relativePath).absolutePath
+    }
+
+    private static CachingFileSnapshotter.FileInfo fileInfo(long length) {
+        return new CachingFileSnapshotter.FileInfo(new byte[16], length, 0)
+    }
+}
@@ -15,10 +15,13 @@
  */
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.hash.HashCode
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -53,6 +56,42 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         }
     }
 
+    def hashesFilesWhichAreNotCachedInParallel() {
+        given:
+        def fileHasher = new ParallelFileHasher(fileSnapshotter, new DefaultExecutorFactory(), 2)
+        def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new StringInterner(), fileHasher)
+        TestFile cached = tmpDir.createFile('cached')
+        TestFile file1 = tmpDir.file('file1').write("content1")
+        TestFile file2 = tmpDir.file('file2').write("content2")
+        fileSnapshotter.findSnapshot(_) >> { FileTreeElement fileTreeElement ->
+            if (fileTreeElement.file == cached) {
+                return Stub(FileSnapshot) {
+                    getHash() >> "cached".bytes
+                }
+            }
+            return null
+        }
+        fileSnapshotter.hash(_) >> { FileTreeElement fileTreeElement ->
+            return HashUtil.sha1(fileTreeElement.file).asByteArray()
+        }
+        fileSnapshotter.snapshot(_, _) >> { FileTreeElement fileTreeElement, byte[] hash ->
+            return Stub(FileSnapshot) {
+                getHash() >> hash
+            }
+        }
+
+        when:
+        def snapshot = snapshotter.snapshot(files(cached, file1, file2))
+
+        then:
+        snapshot.snapshot.findSnapshot(cached).hash == "cached".bytes
+        snapshot.snapshot.findSnapshot(file1).hash == HashUtil.sha1(file1).asByteArray()
+        snapshot.snapshot.findSnapshot(file2).hash == HashUtil.sha1(file2).asByteArray()
+
+        cleanup:
+        fileHasher?.stop()
+    }
+
     def getFilesReturnsOnlyTheFilesWhichExisted() {
         given:
         TestFile file = tmpDir.createFile('file1')
@@ -371,6 +410,42 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def snapshotsWithTheSameEntriesHaveTheSameHash() {
+        given:
+        def dir = DefaultFileCollectionSnapshotter.DirSnapshot.getInstance()
+        def file = new DefaultFileCollectionSnapshotter.FileHashSnapshot([1, 2] as byte[])
+        def otherFile = new DefaultFileCollectionSnapshotter.FileHashSnapshot([1, 3] as byte[])
+
+        expect:
+        hash(["a": dir, "a/b": file]) == hash(new LinkedHashMap(["a/b": file, "a": dir]))
+        hash(["a": dir, "a/b": file]) != hash(["a": dir, "a/b": otherFile])
+        hash(["a": dir, "a/b": file]) != hash(["a": dir, "a/c": file])
+        hash(["a": dir, "a/b": file]) != hash(["a": dir])
+        hash(["a": dir]) != hash(["a": DefaultFileCollectionSnapshotter.MissingFileSnapshot.getInstance()])
+    }
+
+    def comparesSnapshotsWithTheSameHashWithoutLookingAtTheirEntries() {
+        given:
+        TestFile file = tmpDir.createFile('file')
+        def current = snapshotter.snapshot(files(file))
+        def entries = Mock(Factory)
+        def previous = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(current.hash, entries)
+
+        when:
+        def changed = current.iterateChangesSince(previous).next(listener)
+        def merged = current.changesSince(previous).applyTo(previous)
+
+        then:
+        !changed
+        merged.is(previous)
+        0 * entries._
+        0 * listener._
+    }
+
+    private static HashCode hash(Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots) {
+        new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots).hash
+    }
+
     private FileCollection files(File... files) {
         new SimpleFileCollection(files)
     }
@@ -36,4 +36,17 @@ class DefaultFileSnapshotterSerializerTest extends SerializerSpec {
         out.snapshots['2'] instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
         ((DefaultFileCollectionSnapshotter.FileHashSnapshot) out.snapshots['3']).hash == "foo".bytes
     }
+
+    def "keeps the hash of the snapshot"() {
+        def snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl([
+                "1": DefaultFileCollectionSnapshotter.DirSnapshot.getInstance(),
+                "3": new DefaultFileCollectionSnapshotter.FileHashSnapshot("foo".bytes)])
+
+        when:
+        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl out = serialize(snapshot, serializer)
+
+        then:
+        out.hash == snapshot.hash
+        out.snapshots.keySet() == ["1", "3"] as Set
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.cache.internal.FileLock
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
 import spock.lang.Specification
 
@@ -133,4 +134,66 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "caches file hashes from backing cache"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+        def fileInfo = new CachingFileSnapshotter.FileInfo(new byte[16], 12, 34)
+
+        when:
+        def result = cache.get("/some/file")
+
+        then:
+        result == null
+
+        and:
+        1 * target.get("/some/file") >> null
+        0 * target._
+
+        when:
+        cache.put("/some/file", fileInfo)
+        result = cache.get("/some/file")
+
+        then:
+        result.hash == fileInfo.hash
+        result.length == 12
+        result.timestamp == 34
+
+        and:
+        1 * target.put("/some/file", fileInfo)
+        0 * target._
+
+        when:
+        cache.remove("/some/file")
+        result = cache.get("/some/file")
+
+        then:
+        result == null
+
+        and:
+        1 * target.remove("/some/file")
+        0 * target._
+    }
+
+    def "discards file hashes when backing cache has been updated by another process"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+        def fileInfo = new CachingFileSnapshotter.FileInfo(new byte[16], 12, 34)
+        def initialState = Stub(FileLock.State)
+        def updatedState = Stub(FileLock.State) {
+            hasBeenUpdatedSince(initialState) >> true
+        }
+        cache.onStartWork("operation", initialState)
+        cache.put("/some/file", fileInfo)
+        cache.onEndWork(initialState)
+
+        when:
+        cache.onStartWork("operation", updatedState)
+        def result = cache.get("/some/file")
+
+        then:
+        result == null
+
+        and:
+        1 * target.get("/some/file") >> null
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.FileTreeElement
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArraySet
+
+class ParallelFileHasherTest extends Specification {
+    def fileSnapshotter = Mock(FileSnapshotter)
+    def hasher = new ParallelFileHasher(fileSnapshotter, new DefaultExecutorFactory(), 3)
+
+    def cleanup() {
+        hasher.stop()
+    }
+
+    def "hashes a few files on the calling thread"() {
+        def files = elements(ParallelFileHasher.MIN_FILES_PER_BATCH)
+        def threads = new CopyOnWriteArraySet<Thread>()
+
+        when:
+        def hashes = hasher.hash(files)
+
+        then:
+        files.size() * fileSnapshotter.hash(_) >> { FileTreeElement element ->
+            threads << Thread.currentThread()
+            return element.name.bytes
+        }
+        hashes.collect { new String(it) } == files.collect { it.name }
+        threads == [Thread.currentThread()] as Set
+    }
+
+    def "hashes many files in batches and returns the hashes in order"() {
+        def files = elements(100)
+        def threads = new CopyOnWriteArraySet<Thread>()
+
+        when:
+        def hashes = hasher.hash(files)
+
+        then:
+        100 * fileSnapshotter.hash(_) >> { FileTreeElement element ->
+            threads << Thread.currentThread()
+            return element.name.bytes
+        }
+        hashes.collect { new String(it) } == files.collect { it.name }
+        threads.contains(Thread.currentThread())
+        threads.size() <= 4
+    }
+
+    def "rethrows failure to hash a file once all batches have completed"() {
+        def files = elements(100)
+        def failure = new RuntimeException("broken")
+
+        when:
+        hasher.hash(files)
+
+        then:
+        _ * fileSnapshotter.hash(_) >> { FileTreeElement element ->
+            if (element.name == "file50") {
+                throw failure
+            }
+            return element.name.bytes
+        }
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+
+    private List<FileTreeElement> elements(int count) {
+        return (0..<count).collect { i -> Stub(FileTreeElement) { getName() >> "file$i" } }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassLoaderHasherTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final runtimeClassLoader = new URLClassLoader([] as URL[], (ClassLoader) null)
+    final hasher = new ClassLoaderHasher([runtimeClassLoader], new DefaultHasher())
+
+    def "hash changes when content of class path changes"() {
+        given:
+        def dir = tmpDir.createDir("classes")
+        dir.file("org/Foo.class").text = "foo"
+        def hash = hasher.getHash(loader(dir))
+
+        when:
+        dir.file("org/Foo.class").text = "changed"
+
+        then:
+        hasher.getHash(loader(dir)) != hash
+    }
+
+    def "hash does not depend on location of class path"() {
+        given:
+        def dir1 = tmpDir.createDir("dir1")
+        dir1.file("org/Foo.class").text = "foo"
+        def dir2 = tmpDir.createDir("dir2")
+        dir2.file("org/Foo.class").text = "foo"
+
+        expect:
+        hasher.getHash(loader(dir1)) == hasher.getHash(loader(dir2))
+    }
+
+    def "hash includes class path of parent class loaders"() {
+        given:
+        def dir = tmpDir.createDir("classes")
+        def parentDir1 = tmpDir.createDir("parent1")
+        parentDir1.file("org/Foo.class").text = "foo"
+        def parentDir2 = tmpDir.createDir("parent2")
+        parentDir2.file("org/Foo.class").text = "changed"
+
+        expect:
+        hasher.getHash(loader(dir, loader(parentDir1))) != hasher.getHash(loader(dir, loader(parentDir2)))
+    }
+
+    def "keeps hash for as long as the class loader is used"() {
+        given:
+        def dir = tmpDir.createDir("classes")
+        dir.file("org/Foo.class").text = "foo"
+        def classLoader = loader(dir)
+        def hash = hasher.getHash(classLoader)
+
+        when:
+        dir.file("org/Foo.class").text = "changed"
+
+        then:
+        hasher.getHash(classLoader) == hash
+    }
+
+    def "uses the same hash for the class loaders of the Gradle runtime"() {
+        expect:
+        hasher.getHash(runtimeClassLoader) == hasher.getHash(null)
+        hasher.getHash(new URLClassLoader([tmpDir.createDir("classes").toURI().toURL()] as URL[], runtimeClassLoader)) != hasher.getHash(runtimeClassLoader)
+    }
+
+    private ClassLoader loader(File dir, ClassLoader parent = runtimeClassLoader) {
+        return new URLClassLoader([dir.toURI().toURL()] as URL[], parent)
+    }
+}
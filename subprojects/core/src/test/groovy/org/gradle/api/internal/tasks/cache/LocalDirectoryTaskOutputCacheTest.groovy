@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.cache
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class LocalDirectoryTaskOutputCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final cacheDir = tmpDir.file("cache")
+    final outputFile = tmpDir.file("output-file")
+    final outputDir = tmpDir.file("output-dir")
+    final outputs = [outputFile, outputDir]
+    final cache = new LocalDirectoryTaskOutputCache(cacheDir, 1024 * 1024)
+
+    def "restores stored output files and directories"() {
+        given:
+        outputFile.text = "file"
+        outputDir.file("a/b.txt").text = "b"
+        outputDir.file("empty").createDir()
+        cache.store("key", outputs)
+
+        and:
+        outputFile.text = "changed"
+        outputDir.file("stale.txt").text = "stale"
+        outputDir.file("a/b.txt").delete()
+
+        when:
+        def loaded = cache.load("key", outputs)
+
+        then:
+        loaded
+        outputFile.text == "file"
+        outputDir.file("a/b.txt").text == "b"
+        outputDir.file("empty").directory
+        !outputDir.file("stale.txt").exists()
+        cache.hits == 1
+        cache.stores == 1
+    }
+
+    def "does not touch outputs when key is not in cache"() {
+        given:
+        outputFile.text = "file"
+
+        expect:
+        !cache.load("unknown", outputs)
+        outputFile.text == "file"
+        cache.misses == 1
+    }
+
+    def "evicts least recently used entries when cache exceeds its maximum size"() {
+        given:
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir, 1500)
+        outputFile.bytes = randomBytes(1000)
+        cache.store("first", [outputFile])
+        cacheDir.file("first.zip").lastModified = 0
+
+        when:
+        outputFile.bytes = randomBytes(1000)
+        cache.store("second", [outputFile])
+
+        then:
+        !cacheDir.file("first.zip").exists()
+        cacheDir.file("second.zip").exists()
+        cache.evictions == 1
+    }
+
+    def "keeps track of the size of archives stored after the first one"() {
+        given:
+        def cache = new LocalDirectoryTaskOutputCache(cacheDir, 2500)
+        outputFile.bytes = randomBytes(1000)
+        cache.store("first", [outputFile])
+        cacheDir.file("first.zip").lastModified = 0
+        outputFile.bytes = randomBytes(1000)
+        cache.store("second", [outputFile])
+
+        when:
+        outputFile.bytes = randomBytes(1000)
+        cache.store("third", [outputFile])
+
+        then:
+        !cacheDir.file("first.zip").exists()
+        cacheDir.file("second.zip").exists()
+        cacheDir.file("third.zip").exists()
+        cache.evictions == 1
+    }
+
+    def "rejects archive entries which point outside of the output directory"() {
+        given:
+        outputDir.createDir()
+        writeArchive("key", ["1/../../escaped.txt"])
+
+        expect:
+        !cache.load("key", outputs)
+        !tmpDir.file("escaped.txt").exists()
+        !cacheDir.file("key.zip").exists()
+    }
+
+    def "rejects archive entries with absolute paths"() {
+        given:
+        writeArchive("key", ["1//absolute.txt", "1/a/../../absolute.txt"])
+
+        expect:
+        !cache.load("key", outputs)
+        !tmpDir.file("absolute.txt").exists()
+    }
+
+    def "ignores archives which cannot be read"() {
+        given:
+        cacheDir.file("key.zip").text = "broken"
+
+        expect:
+        !cache.load("key", outputs)
+        !cacheDir.file("key.zip").exists()
+    }
+
+    def "removes partially unpacked outputs when archive cannot be unpacked"() {
+        given:
+        outputFile.text = "file"
+        writeArchive("key", ["0", "5"])
+
+        expect:
+        !cache.load("key", outputs)
+        !outputFile.exists()
+        !cacheDir.file("key.zip").exists()
+        cache.misses == 1
+    }
+
+    private static byte[] randomBytes(int count) {
+        def bytes = new byte[count]
+        new Random().nextBytes(bytes)
+        return bytes
+    }
+
+    private void writeArchive(String key, List<String> entryNames) {
+        cacheDir.createDir()
+        def outputStream = new ZipOutputStream(new FileOutputStream(cacheDir.file("${key}.zip")))
+        try {
+            entryNames.each { name ->
+                outputStream.putNextEntry(new ZipEntry(name))
+                outputStream.write("content".bytes)
+                outputStream.closeEntry()
+            }
+        } finally {
+            outputStream.close()
+        }
+    }
+}
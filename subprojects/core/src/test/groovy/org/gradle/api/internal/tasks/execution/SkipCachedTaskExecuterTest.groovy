@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.execution
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.hash.DefaultHasher
+import org.gradle.api.internal.tasks.TaskExecuter
+import org.gradle.api.internal.tasks.TaskExecutionContext
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.internal.tasks.cache.ClassLoaderHasher
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator
+import org.gradle.api.internal.tasks.cache.TaskOutputCache
+import spock.lang.Specification
+
+class SkipCachedTaskExecuterTest extends Specification {
+    def target = Mock(TaskExecuter)
+    def cache = Mock(TaskOutputCache)
+    def task = Mock(TaskInternal)
+    def outputs = Mock(TaskOutputsInternal)
+    def outputFiles = Mock(FileCollection)
+    def state = Mock(TaskStateInternal)
+    def context = Mock(TaskExecutionContext)
+    def taskArtifactState = Mock(TaskArtifactState)
+    def keyCalculator = new TaskCacheKeyCalculator(new ClassLoaderHasher([], new DefaultHasher()))
+    def files = [new File("b"), new File("a")] as Set
+    final SkipCachedTaskExecuter executer = new SkipCachedTaskExecuter(cache, keyCalculator, target)
+
+    def skipsTaskWhenOutputsAreLoadedFromCache() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey(keyCalculator) >> "key"
+        1 * task.outputs >> outputs
+        1 * outputs.files >> outputFiles
+        1 * outputFiles.files >> files
+        1 * cache.load("key", [new File("a"), new File("b")]) >> true
+        1 * state.skipped("FROM-CACHE")
+        0 * _
+    }
+
+    def executesAndStoresOutputsWhenNotInCache() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey(keyCalculator) >> "key"
+        1 * task.outputs >> outputs
+        1 * outputs.files >> outputFiles
+        1 * outputFiles.files >> files
+        1 * cache.load("key", _) >> false
+        1 * target.execute(task, state, context)
+        1 * state.failure >> null
+        1 * state.didWork >> true
+        1 * cache.store("key", [new File("a"), new File("b")])
+        0 * _
+    }
+
+    def doesNotStoreOutputsWhenTaskFailed() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey(keyCalculator) >> "key"
+        1 * task.outputs >> outputs
+        1 * outputs.files >> outputFiles
+        1 * outputFiles.files >> files
+        1 * cache.load("key", _) >> false
+        1 * target.execute(task, state, context)
+        1 * state.failure >> new RuntimeException()
+        0 * _
+    }
+
+    def executesTaskWhenOutputsCannotBeCached() {
+        when:
+        executer.execute(task, state, context)
+
+        then:
+        1 * context.taskArtifactState >> taskArtifactState
+        1 * taskArtifactState.calculateCacheKey(keyCalculator) >> null
+        1 * target.execute(task, state, context)
+        0 * _
+    }
+}
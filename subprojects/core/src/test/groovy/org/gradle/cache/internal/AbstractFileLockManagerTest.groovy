@@ -39,7 +39,7 @@ abstract class AbstractFileLockManagerTest extends Specification {
     final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     def metaDataProvider = Mock(ProcessMetaDataProvider)
     def generator = Stub(IdGenerator)
-    def contentionHandler = Stub(FileLockContentionHandler)
+    def contentionHandler = Mock(FileLockContentionHandler)
 
     FileLockManager manager = new DefaultFileLockManager(metaDataProvider, 5000, contentionHandler, generator)
 
@@ -297,6 +297,28 @@ abstract class AbstractFileLockManagerTest extends Specification {
         lock.close()
     }
 
+    def "notifies waiting processes once the lock has been released"() {
+        given:
+        def lock = createLock(Exclusive)
+
+        when:
+        lock.close()
+
+        then:
+        1 * contentionHandler.released(678L) >> { assert lockIsReleased() }
+    }
+
+    private boolean lockIsReleased() {
+        def channel = new RandomAccessFile(testFileLock, "rw").channel
+        try {
+            def fileLock = channel.tryLock()
+            fileLock?.release()
+            return fileLock != null
+        } finally {
+            channel.close()
+        }
+    }
+
     def "cannot read from file after lock has been closed"() {
         given:
         def lock = createLock(Exclusive)
@@ -18,7 +18,6 @@ package org.gradle.cache.internal
 import org.gradle.cache.PersistentIndexedCacheParameters
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.internal.Factory
-import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -40,7 +39,7 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     private DefaultCacheAccess newAccess() {
         new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction) {
             @Override
-            def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+            def <K, V> FileBackedPersistentIndexedCache<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
                 return backingCache
             }
         }
@@ -328,6 +327,105 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         !access.owner
     }
 
+    def "several threads can use cache at the same time when concurrent access is allowed"() {
+        when:
+        access.open(mode(None).allowConcurrentAccess())
+        async {
+            start {
+                access.useCache("first operation") {
+                    instant.firstStarted
+                    thread.blockUntil.secondStarted
+                }
+            }
+            start {
+                thread.blockUntil.firstStarted
+                access.useCache("second operation") {
+                    instant.secondStarted
+                }
+            }
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive).allowConcurrentAccess(), "<display-name>", "first operation") >> lock
+        _ * lock.mode >> Exclusive
+
+        and:
+        !access.owner
+    }
+
+    def "contended lock is released when the last thread using the cache finishes"() {
+        def lastThreadFinishing = false
+
+        when:
+        access.open(mode(None).allowConcurrentAccess())
+        async {
+            start {
+                access.useCache("first operation") {
+                    instant.firstStarted
+                    thread.blockUntil.secondStarted
+                    access.whenContended().run()
+                }
+                instant.firstFinished
+            }
+            start {
+                thread.blockUntil.firstStarted
+                access.useCache("second operation") {
+                    instant.secondStarted
+                    thread.blockUntil.firstFinished
+                    lastThreadFinishing = true
+                }
+            }
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive).allowConcurrentAccess(), "<display-name>", "first operation") >> lock
+        _ * lock.mode >> Exclusive
+        1 * lock.close() >> {
+            assert lastThreadFinishing
+        }
+    }
+
+    def "threads do not start using cache once lock is contended until it has been released"() {
+        def lock2 = Mock(FileLock)
+
+        when:
+        access.open(mode(None).allowConcurrentAccess())
+        async {
+            start {
+                access.useCache("first operation") {
+                    access.whenContended().run()
+                    instant.contended
+                    thread.block()
+                    instant.firstFinishing
+                }
+            }
+            start {
+                thread.blockUntil.contended
+                access.useCache("second operation") {
+                    instant.secondStarted
+                }
+            }
+        }
+
+        then:
+        instant.secondStarted > instant.firstFinishing
+
+        and:
+        1 * lockManager.lock(lockFile, mode(Exclusive).allowConcurrentAccess(), "<display-name>", "first operation") >> lock
+        _ * lock.mode >> Exclusive
+        1 * lock.close()
+        1 * lockManager.lock(lockFile, mode(Exclusive).allowConcurrentAccess(), "<display-name>", "second operation") >> lock2
+    }
+
+    def "concurrent access requires on demand locking"() {
+        when:
+        access.open(mode(Exclusive).allowConcurrentAccess())
+
+        then:
+        thrown(UnsupportedOperationException)
+        0 * _._
+    }
+
     def "use cache operation does not allow shared locks"() {
         given:
         1 * lockManager.lock(lockFile, mode(Shared), "<display-name>") >> lock
@@ -46,7 +46,7 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
 
     def "can receive lock id"() {
         start {
-            receivedId = communicator.receive()
+            receivedId = FileLockCommunicator.decodeLockId(communicator.receive())
         }
 
         poll {
@@ -62,6 +62,66 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
         }
     }
 
+    def "can tell lock release notification from ping"() {
+        def waiter = new FileLockCommunicator(new InetAddressFactory())
+        DatagramPacket ping
+        DatagramPacket notification
+
+        start {
+            ping = communicator.receive()
+            notification = waiter.receive()
+        }
+
+        when:
+        waiter.pingOwner(communicator.getPort(), 155, "lock")
+
+        then:
+        poll {
+            assert ping != null
+        }
+        FileLockCommunicator.isTypedPing(ping)
+        !FileLockCommunicator.isReleaseNotification(ping)
+
+        when:
+        communicator.notifyReleased([ping.socketAddress], 155)
+
+        then:
+        poll {
+            assert notification != null
+        }
+        FileLockCommunicator.isReleaseNotification(notification)
+        !FileLockCommunicator.isTypedPing(notification)
+        FileLockCommunicator.decodeLockId(notification) == 155
+
+        cleanup:
+        waiter.stop()
+    }
+
+    def "a ping of an older version is not typed"() {
+        def bytes = new ByteArrayOutputStream()
+        def output = new DataOutputStream(bytes)
+        output.writeByte(1)
+        output.writeLong(155)
+        def packet = new DatagramPacket(bytes.toByteArray(), 9)
+
+        expect:
+        !FileLockCommunicator.isTypedPing(packet)
+        !FileLockCommunicator.isReleaseNotification(packet)
+        FileLockCommunicator.decodeLockId(packet) == 155
+    }
+
+    def "notifying a waiter that no longer listens is safe"() {
+        def waiter = new FileLockCommunicator(new InetAddressFactory())
+        def address = new InetSocketAddress(new InetAddressFactory().findLocalBindingAddress(), waiter.getPort())
+        waiter.stop()
+
+        when:
+        communicator.notifyReleased([address], 166)
+
+        then:
+        noExceptionThrown()
+    }
+
     def "may not receive after the stop"() {
         communicator.stop()
         when:
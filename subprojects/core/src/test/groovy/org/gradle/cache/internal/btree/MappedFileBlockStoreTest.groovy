@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+
+    def newCache(BlockStore store) {
+        new BTreePersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER, (short) 4, 100, store)
+    }
+
+    def "reads and writes entries spanning several segments"() {
+        given:
+        def cache = newCache(new MappedFileBlockStore(cacheFile, 1024))
+
+        when:
+        200.times { cache.put("key$it", "value$it" * 10) }
+        50.times { cache.remove("key${it * 2}") }
+
+        then:
+        cache.get("key1") == "value1" * 10
+        cache.get("key2") == null
+        cache.get("key199") == "value199" * 10
+
+        when:
+        cache.reset()
+
+        then:
+        cache.get("key1") == "value1" * 10
+        cache.get("key2") == null
+        cache.get("key199") == "value199" * 10
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "truncates the unused part of the last segment on close"() {
+        given:
+        def cache = newCache(new MappedFileBlockStore(cacheFile, 64 * 1024))
+        20.times { cache.put("key$it", "value$it") }
+        cache.verify()
+        cache.close()
+
+        expect:
+        cacheFile.length() < 64 * 1024
+
+        when:
+        cache = newCache(new MappedFileBlockStore(cacheFile, 64 * 1024))
+
+        then:
+        cache.get("key7") == "value7"
+        cache.verify()
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "ignores the unused part of the last segment when the store was not closed"() {
+        given:
+        def abandoned = newCache(new MappedFileBlockStore(cacheFile, 64 * 1024))
+        20.times { abandoned.put("key$it", "value$it") }
+
+        expect:
+        cacheFile.length() == 64 * 1024
+
+        when:
+        def cache = newCache(new MappedFileBlockStore(cacheFile, 64 * 1024))
+        cache.put("key20", "value20")
+
+        then:
+        cache.get("key7") == "value7"
+        cache.get("key20") == "value20"
+        cache.verify()
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.length() < 64 * 1024
+    }
+
+    def "discards a file written by the file backed store"() {
+        given:
+        def cache = newCache(new FileBackedBlockStore(cacheFile))
+        cache.put("key", "value")
+        cache.close()
+
+        when:
+        cache = newCache(new MappedFileBlockStore(cacheFile, 64 * 1024))
+
+        then:
+        cache.get("key") == null
+
+        when:
+        cache.put("key", "other")
+        cache.close()
+        cache = newCache(new FileBackedBlockStore(cacheFile))
+
+        then:
+        cache.get("key") == null
+
+        cleanup:
+        cache?.close()
+    }
+}
@@ -53,6 +53,87 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         }
     }
 
+    def "notifies processes that pinged the owner once the lock is released"() {
+        def released = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        def contended = new AtomicBoolean()
+        handler.start(10, { contended.set(true) })
+        client.reservePort()
+        client.pingOwner(port, 10, "lock 1")
+
+        then:
+        poll {
+            assert contended.get()
+        }
+
+        when:
+        start {
+            released.set(client.awaitRelease(10, 5000))
+        }
+        handler.stop(10)
+        handler.released(10)
+
+        then:
+        finished()
+        released.get()
+    }
+
+    def "does not notify processes of an older version that sent an untyped ping"() {
+        def contended = new AtomicBoolean()
+        def olderVersion = new DatagramSocket(0, addressFactory.findLocalBindingAddress())
+        olderVersion.soTimeout = 500
+
+        when:
+        int port = handler.reservePort()
+        handler.start(10, { contended.set(true) })
+        def ping = new ByteArrayOutputStream()
+        def output = new DataOutputStream(ping)
+        output.writeByte(1)
+        output.writeLong(10)
+        olderVersion.send(new DatagramPacket(ping.toByteArray(), 9, addressFactory.findLocalBindingAddress(), port))
+
+        then:
+        poll {
+            assert contended.get()
+        }
+
+        when:
+        handler.stop(10)
+        handler.released(10)
+        olderVersion.receive(new DatagramPacket(new byte[9], 9))
+
+        then:
+        thrown(SocketTimeoutException)
+
+        cleanup:
+        olderVersion?.close()
+    }
+
+    def "waiting for release of a lock times out when the owner does not notify"() {
+        client.reservePort()
+
+        expect:
+        !client.awaitRelease(10, 100)
+    }
+
+    def "waiting for release of a lock returns immediately when the release was already notified"() {
+        def contended = new AtomicBoolean()
+        int port = handler.reservePort()
+        handler.start(10, { contended.set(true) })
+        client.reservePort()
+        client.pingOwner(port, 10, "lock 1")
+        poll { assert contended.get() }
+
+        when:
+        handler.released(10)
+
+        then:
+        client.awaitRelease(10, 5000)
+        client.awaitRelease(10, 0)
+    }
+
     def "there is only one executor thread"() {
         def factory = Mock(ExecutorFactory)
         handler = new DefaultFileLockContentionHandler(factory, addressFactory)
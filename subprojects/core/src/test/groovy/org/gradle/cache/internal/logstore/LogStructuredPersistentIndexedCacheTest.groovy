@@ -0,0 +1,311 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstore
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+    LogStructuredPersistentIndexedCache<String, Long> cache = newCache()
+
+    def cleanup() {
+        cache.close()
+    }
+
+    def newCache() {
+        new LogStructuredPersistentIndexedCache<String, Long>(cacheFile, STRING_SERIALIZER, LONG_SERIALIZER)
+    }
+
+    def "returns null for unknown key"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "persists added, replaced and removed entries across reopen"() {
+        when:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.put("c", 3)
+        cache.put("b", 12)
+        cache.remove("c")
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == 12
+        cache.get("c") == null
+
+        when:
+        cache.reset()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == 12
+        cache.get("c") == null
+    }
+
+    def "discards incomplete record at the end of the file"() {
+        given:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.close()
+        def length = cacheFile.length()
+
+        when:
+        truncate(length - 3)
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == null
+        cacheFile.length() < length - 3
+
+        when:
+        cache.put("b", 3)
+        cache.reset()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == 3
+    }
+
+    def "discards records from the first record that does not match its checksum"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+        def offsetOfB = cacheFile.length()
+        cache = newCache()
+        cache.put("b", 2)
+        cache.put("c", 3)
+        cache.close()
+
+        when:
+        def bytes = cacheFile.bytes
+        bytes[offsetOfB + 12] = (byte) (bytes[offsetOfB + 12] ^ 0xff)
+        cacheFile.bytes = bytes
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == null
+        cache.get("c") == null
+        cacheFile.length() == offsetOfB
+    }
+
+    def "discards file with unknown header"() {
+        given:
+        cacheFile.text = "not a log"
+
+        when:
+        cache = newCache()
+        cache.put("a", 1)
+        cache.reset()
+
+        then:
+        cache.get("a") == 1
+    }
+
+    def "compacts the file on close when most records are stale"() {
+        given:
+        def value = "x" * 1000
+        def stringCache = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+        2000.times { stringCache.put("key${it % 10}", value + it) }
+        stringCache.close()
+
+        when:
+        stringCache = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+
+        then:
+        cacheFile.length() < 20 * 1024
+        (0..9).every { stringCache.get("key$it") == value + (1990 + it) }
+
+        cleanup:
+        stringCache?.close()
+    }
+
+    def "reopens itself when used after being closed"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+
+        expect:
+        !cache.open
+        cache.get("a") == 1
+        cache.open
+
+        when:
+        cache.put("b", 2)
+        cache.close()
+        def other = newCache()
+
+        then:
+        other.get("a") == 1
+        other.get("b") == 2
+
+        cleanup:
+        other?.close()
+    }
+
+    def "sees entries appended by another instance while closed"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+
+        when:
+        def other = newCache()
+        other.put("a", 2)
+        other.put("b", 3)
+        other.close()
+
+        then:
+        cache.get("a") == 2
+        cache.get("b") == 3
+    }
+
+    def "sees entries of a file compacted by another instance while closed"() {
+        given:
+        def value = "x" * 1000
+        def stringCache = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+        stringCache.put("key", "original")
+        stringCache.close()
+
+        when:
+        def other = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+        2000.times { other.put("key${it % 10}", value + it) }
+        other.close()
+
+        then:
+        cacheFile.length() < 20 * 1024
+        stringCache.get("key") == "original"
+        (0..9).every { stringCache.get("key$it") == value + (1990 + it) }
+
+        cleanup:
+        stringCache?.close()
+    }
+
+    def "keeps using the index after compacting the file"() {
+        given:
+        def value = "x" * 1000
+        def stringCache = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER)
+        2000.times { stringCache.put("key${it % 10}", value + it) }
+        stringCache.close()
+
+        expect:
+        cacheFile.length() < 20 * 1024
+        (0..9).every { stringCache.get("key$it") == value + (1990 + it) }
+
+        cleanup:
+        stringCache?.close()
+    }
+
+    def "compacts the file over several closes, carrying on from where the previous close stopped"() {
+        given:
+        def value = "x" * 1000
+        def stringCache = newStringCache(256 * 1024)
+        2000.times { stringCache.put("key$it", value + it) }
+        stringCache.close()
+
+        when:
+        stringCache = newStringCache(256 * 1024)
+        1500.times { stringCache.remove("key$it") }
+        stringCache.close()
+
+        then:
+        cacheFile.length() > 1024 * 1024
+        tmpDir.file("cache.log.compact-progress").file
+
+        when:
+        def other = newStringCache(256 * 1024)
+        other.put("key1999", "changed")
+        other.remove("key1998")
+        other.close()
+        def closes = 0
+        while (tmpDir.file("cache.log.compact-progress").file) {
+            stringCache.get("key0")
+            stringCache.close()
+            closes++
+        }
+
+        then:
+        closes > 1
+        cacheFile.length() < 600 * 1024
+        !tmpDir.file("cache.log.compact").exists()
+        stringCache.get("key0") == null
+        stringCache.get("key1500") == value + 1500
+        stringCache.get("key1998") == null
+        stringCache.get("key1999") == "changed"
+
+        when:
+        stringCache.close()
+        stringCache = newStringCache(256 * 1024)
+
+        then:
+        (1500..1997).every { stringCache.get("key$it") == value + it }
+        stringCache.get("key1499") == null
+        stringCache.get("key1998") == null
+        stringCache.get("key1999") == "changed"
+
+        cleanup:
+        stringCache?.close()
+        other?.close()
+    }
+
+    def "discards a compaction in progress when the file is discarded"() {
+        given:
+        def value = "x" * 1000
+        def stringCache = newStringCache(256 * 1024)
+        2000.times { stringCache.put("key$it", value + it) }
+        stringCache.close()
+        stringCache = newStringCache(256 * 1024)
+        1500.times { stringCache.remove("key$it") }
+        stringCache.close()
+
+        expect:
+        tmpDir.file("cache.log.compact-progress").file
+
+        when:
+        cacheFile.text = "not a log"
+        stringCache.put("key", "value")
+        stringCache.close()
+
+        then:
+        !tmpDir.file("cache.log.compact-progress").exists()
+        !tmpDir.file("cache.log.compact").exists()
+        stringCache.get("key") == "value"
+
+        cleanup:
+        stringCache?.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> newStringCache(long maxCompactionStep) {
+        new LogStructuredPersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER, maxCompactionStep)
+    }
+
+    private void truncate(long length) {
+        def file = new RandomAccessFile(cacheFile, "rw")
+        try {
+            file.setLength(length)
+        } finally {
+            file.close()
+        }
+    }
+}
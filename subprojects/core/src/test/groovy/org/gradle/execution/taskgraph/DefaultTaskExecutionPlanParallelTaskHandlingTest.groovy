@@ -19,6 +19,7 @@ package org.gradle.execution.taskgraph
 import org.gradle.api.DefaultTask
 import org.gradle.api.Project
 import org.gradle.api.Task
+import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.project.DefaultProject
 import org.gradle.api.tasks.Delete
 import org.gradle.api.tasks.OutputDirectory
@@ -176,6 +177,157 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "task becomes available for execution as soon as its dependencies complete"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+        Task d = root.task("d", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(c, d)
+        startTasks(2)
+
+        then:
+        startedTasks*.task == [a, b]
+
+        when:
+        executionPlan.taskComplete(startedTasks.remove(1))
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [a, d]
+    }
+
+    def "ready task with the longest remaining path is started first when prioritizing the critical path"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(b)
+        def estimator = Stub(TaskExecutionTimeEstimator) {
+            getExpectedExecutionTimes(_) >> [(a): 10L, (b): 10L, (c): 100L]
+        }
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, estimator)
+
+        when:
+        addToGraphAndPopulate(a, c)
+        startTasks(2)
+
+        then:
+        startedTasks*.task == [b, a]
+    }
+
+    def "ready task that no worker is about to pick is prepared and cannot start until it has been prepared"() {
+        given:
+        Task a = root.task("a")
+        Task b = createChildProject(root, "b").task("b")
+        Task c = createChildProject(root, "c").task("c")
+        def preflight = new RecordingPreflight()
+        executionPlan.usePreflight(preflight)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(1)
+        completeAllStartedTasks()
+
+        then:
+        preflight.prepared.keySet() as List == [c]
+
+        when:
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [b]
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        preflight.prepared[c].run()
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
+    def "ready task with onlyIf conditions is not prepared"() {
+        given:
+        Task a = root.task("a")
+        Task b = createChildProject(root, "b").task("b")
+        Task c = createChildProject(root, "c").task("c").onlyIf { true }
+        def preflight = new RecordingPreflight()
+        executionPlan.usePreflight(preflight)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(1)
+        completeAllStartedTasks()
+
+        then:
+        preflight.prepared.isEmpty()
+    }
+
+    def "prepared task is discarded when a task that writes into its inputs starts"() {
+        given:
+        Task a = root.task("a")
+        Task b = taskWithOutputFile(createChildProject(root, "b"), "b", file("inputDir/output"))
+        Task c = createChildProject(root, "c").task("c")
+        c.inputs.dir(file("inputDir").createDir())
+        def preflight = new RecordingPreflight()
+        executionPlan.usePreflight(preflight)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(1)
+        completeAllStartedTasks()
+        preflight.prepared[c].run()
+
+        then:
+        preflight.discarded.isEmpty()
+
+        when:
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [b]
+        preflight.discarded == [c]
+    }
+
+    def "task is not prepared when a task that writes into its inputs starts during its preparation"() {
+        given:
+        Task a = root.task("a")
+        Task b = taskWithOutputFile(createChildProject(root, "b"), "b", file("inputDir/output"))
+        Task c = createChildProject(root, "c").task("c")
+        c.inputs.dir(file("inputDir").createDir())
+        def preflight = new RecordingPreflight()
+        executionPlan.usePreflight(preflight)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(1)
+        completeAllStartedTasks()
+        startTasks(1)
+        preflight.prepared[c].run()
+
+        then:
+        startedTasks*.task == [b]
+        preflight.discarded == [c]
+    }
+
+    static class RecordingPreflight implements TaskPreflight {
+        final Map<Task, Runnable> prepared = [:]
+        final List<Task> discarded = []
+
+        int getMaxConcurrency() {
+            return 1
+        }
+
+        void prepare(TaskInternal task, Runnable whenDone) {
+            prepared[task] = whenDone
+        }
+
+        void discard(TaskInternal task) {
+            discarded << task
+        }
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
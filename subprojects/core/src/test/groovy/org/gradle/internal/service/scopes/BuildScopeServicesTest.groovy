@@ -35,8 +35,12 @@ import org.gradle.groovy.scripts.ScriptCompilerFactory
 import org.gradle.initialization.*
 import org.gradle.internal.Factory
 import org.gradle.internal.classloader.ClassLoaderFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
 import org.gradle.internal.event.DefaultListenerManager
 import org.gradle.internal.event.ListenerManager
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.internal.operations.logging.BuildOperationLoggerFactory
 import org.gradle.internal.operations.logging.DefaultBuildOperationLoggerFactory
 import org.gradle.internal.reflect.Instantiator
@@ -285,6 +289,15 @@ public class BuildScopeServicesTest extends Specification {
         operationLoggerFactory instanceof DefaultBuildOperationLoggerFactory
     }
 
+    def "provides a build operation processor"() {
+        setup:
+        expectParentServiceLocated(ExecutorFactory).create(_, _) >> Stub(StoppableExecutor)
+
+        expect:
+        registry.get(BuildOperationProcessor) instanceof DefaultBuildOperationProcessor
+        registry.get(BuildOperationProcessor).is(registry.get(BuildOperationProcessor))
+    }
+
     def "closes session when single use"() {
         when:
         new BuildScopeServices(sessionServices, true).close()
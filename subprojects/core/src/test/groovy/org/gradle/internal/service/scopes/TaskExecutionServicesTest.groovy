@@ -27,8 +27,6 @@ import org.gradle.cache.PersistentCache
 import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.environment.GradleBuildEnvironment
 import org.gradle.internal.event.ListenerManager
-import org.gradle.internal.operations.BuildOperationProcessor
-import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.internal.reflect.Instantiator
 import org.gradle.internal.service.DefaultServiceRegistry
 import org.gradle.internal.service.ServiceRegistry
@@ -52,6 +50,7 @@ class TaskExecutionServicesTest extends Specification {
         _ * parent.get(InMemoryTaskArtifactCache) >> Mock(InMemoryTaskArtifactCache)
         _ * parent.get(StartParameter) >> Mock(StartParameter)
         _ * parent.get(StringInterner) >> new StringInterner()
+        _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
         _ * cacheRepository.cache(gradle, 'taskArtifacts') >> cacheBuilder
         _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
         _ * cacheBuilder.withLockOptions(!null) >> cacheBuilder
@@ -61,14 +60,4 @@ class TaskExecutionServicesTest extends Specification {
         services.get(TaskExecuter) instanceof ExecuteAtMostOnceTaskExecuter
         services.get(TaskExecuter).is(services.get(TaskExecuter))
     }
-
-    def "makes a BuildOperationProcessor available"() {
-        given:
-        _ * parent.get(StartParameter) >> Mock(StartParameter)
-        _ * parent.get(ExecutorFactory) >> Mock(ExecutorFactory)
-
-        expect:
-        services.get(BuildOperationProcessor) instanceof DefaultBuildOperationProcessor
-        services.get(BuildOperationProcessor).is(services.get(BuildOperationProcessor))
-    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.SyntheticModuleGraph;
+import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.internal.component.external.model.DefaultIvyModuleResolveMetaData;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ComponentUsage;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult;
+import org.gradle.internal.resolve.result.BuildableArtifactSetResolveResult;
+import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
+import org.gradle.internal.resolve.result.BuildableModuleVersionListingResolveResult;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A repository that serves the components of a {@link SyntheticModuleGraph} from memory. Like a local repository, all requests are
+ * answered by the local access and the remote access is empty.
+ */
+public class InMemoryModuleComponentRepository implements ModuleComponentRepository {
+    private final SyntheticModuleGraph graph;
+    private final LocalAccess localAccess = new LocalAccess();
+    private final RemoteAccess remoteAccess = new RemoteAccess();
+
+    public InMemoryModuleComponentRepository(SyntheticModuleGraph graph) {
+        this.graph = graph;
+    }
+
+    public String getId() {
+        return "in-memory";
+    }
+
+    public String getName() {
+        return "in-memory";
+    }
+
+    public ModuleComponentRepositoryAccess getLocalAccess() {
+        return localAccess;
+    }
+
+    public ModuleComponentRepositoryAccess getRemoteAccess() {
+        return remoteAccess;
+    }
+
+    private class LocalAccess implements ModuleComponentRepositoryAccess {
+        @Override
+        public String toString() {
+            return "in-memory";
+        }
+
+        public void listModuleVersions(DependencyMetaData dependency, BuildableModuleVersionListingResolveResult result) {
+            ModuleVersionSelector requested = dependency.getRequested();
+            List<String> versions = graph.getVersions(requested.getGroup(), requested.getName());
+            result.listed(versions == null ? Collections.<String>emptyList() : versions);
+        }
+
+        public void resolveComponentMetaData(ModuleComponentIdentifier moduleComponentIdentifier, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
+            ModuleDescriptor descriptor = graph.getDescriptor(moduleComponentIdentifier);
+            if (descriptor == null) {
+                result.missing();
+            } else {
+                result.resolved(new DefaultIvyModuleResolveMetaData(moduleComponentIdentifier, descriptor));
+            }
+        }
+
+        public void resolveModuleArtifacts(ComponentResolveMetaData component, ArtifactType artifactType, BuildableArtifactSetResolveResult result) {
+            result.resolved(Collections.<ComponentArtifactMetaData>emptySet());
+        }
+
+        public void resolveModuleArtifacts(ComponentResolveMetaData component, ComponentUsage componentUsage, BuildableArtifactSetResolveResult result) {
+            result.resolved(component.getConfiguration(componentUsage.getConfigurationName()).getArtifacts());
+        }
+
+        public void resolveArtifact(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+            result.notFound(artifact.getId());
+        }
+    }
+
+    private static class RemoteAccess implements ModuleComponentRepositoryAccess {
+        @Override
+        public String toString() {
+            return "empty";
+        }
+
+        public void listModuleVersions(DependencyMetaData dependency, BuildableModuleVersionListingResolveResult result) {
+        }
+
+        public void resolveComponentMetaData(ModuleComponentIdentifier moduleComponentIdentifier, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
+        }
+
+        public void resolveModuleArtifacts(ComponentResolveMetaData component, ArtifactType artifactType, BuildableArtifactSetResolveResult result) {
+        }
+
+        public void resolveModuleArtifacts(ComponentResolveMetaData component, ComponentUsage componentUsage, BuildableArtifactSetResolveResult result) {
+        }
+
+        public void resolveArtifact(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        }
+    }
+}
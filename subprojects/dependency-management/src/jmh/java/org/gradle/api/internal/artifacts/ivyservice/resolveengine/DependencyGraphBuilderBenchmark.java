@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.InMemoryModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.UserResolverChain;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultComponentSelectionRules;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultResolutionResultBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultDependencyGraphVisitor;
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.LocalComponentDependencyMetaData;
+import org.gradle.internal.resolve.resolver.ResolveContextToComponentResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the phases of resolving a {@link SyntheticModuleGraph} served by an {@link InMemoryModuleComponentRepository}:
+ * selecting a component for each declared dependency, loading the meta-data of each selected component, and building the
+ * whole graph, including conflict resolution and assembly of the resolution result.
+ *
+ * <p>Run with {@code -prof gc}, as the 'jmh' task does, to get the allocation rate of each phase next to its throughput.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DependencyGraphBuilderBenchmark {
+    @Param({"10", "50"})
+    int breadth;
+
+    @Param({"3", "6"})
+    int depth;
+
+    @Param({"0.0", "0.2", "0.5"})
+    double conflictDensity;
+
+    private UserResolverChain resolverChain;
+    private DependencyGraphBuilder graphBuilder;
+    private ResolveContext resolveContext;
+    private List<DependencyMetaData> dependencies;
+    private List<ComponentIdentifier> componentIds;
+
+    @Setup
+    public void setup() {
+        SyntheticModuleGraph graph = new SyntheticModuleGraph(breadth, depth, conflictDensity, 42L);
+        DefaultVersionComparator versionComparator = new DefaultVersionComparator();
+        resolverChain = new UserResolverChain(new DefaultVersionSelectorScheme(versionComparator), versionComparator, new DefaultComponentSelectionRules());
+        resolverChain.add(new InMemoryModuleComponentRepository(graph));
+
+        final ComponentResolveMetaData root = graph.createRootComponent();
+        resolveContext = new BenchmarkResolveContext(root);
+        ResolveContextToComponentResolver rootResolver = new ResolveContextToComponentResolver() {
+            public void resolve(ResolveContext resolveContext, BuildableComponentResolveResult result) {
+                result.resolved(root);
+            }
+        };
+        graphBuilder = new DependencyGraphBuilder(resolverChain.getComponentIdResolver(), resolverChain.getComponentResolver(), rootResolver,
+                new DefaultDependencyToConfigurationResolver(), new DefaultConflictHandler(new LatestModuleConflictResolver(versionComparator), ModuleReplacementsData.NO_OP));
+
+        dependencies = new ArrayList<DependencyMetaData>();
+        Set<ComponentIdentifier> ids = new LinkedHashSet<ComponentIdentifier>();
+        for (ModuleVersionSelector selector : graph.getAllSelectors()) {
+            DependencyMetaData dependency = new LocalComponentDependencyMetaData(DefaultModuleComponentSelector.newSelector(selector), selector, "default", "default",
+                    Collections.<IvyArtifactName>emptySet(), new ExcludeRule[0], false, false, true);
+            dependencies.add(dependency);
+            DefaultBuildableComponentIdResolveResult result = new DefaultBuildableComponentIdResolveResult();
+            resolverChain.getComponentIdResolver().resolve(dependency, result);
+            ids.add(result.getId());
+        }
+        componentIds = new ArrayList<ComponentIdentifier>(ids);
+    }
+
+    @Benchmark
+    public void selectComponents(Blackhole blackhole) {
+        for (DependencyMetaData dependency : dependencies) {
+            DefaultBuildableComponentIdResolveResult result = new DefaultBuildableComponentIdResolveResult();
+            resolverChain.getComponentIdResolver().resolve(dependency, result);
+            blackhole.consume(result.getId());
+        }
+    }
+
+    @Benchmark
+    public void resolveComponentMetaData(Blackhole blackhole) {
+        for (ComponentIdentifier id : componentIds) {
+            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+            resolverChain.getComponentResolver().resolve(id, new DefaultComponentOverrideMetadata(), result);
+            blackhole.consume(result.getMetaData());
+        }
+    }
+
+    @Benchmark
+    public Object resolveGraph() {
+        DefaultResolutionResultBuilder resultBuilder = new DefaultResolutionResultBuilder();
+        graphBuilder.resolve(resolveContext, new ResolutionResultDependencyGraphVisitor(resultBuilder));
+        return resultBuilder.complete();
+    }
+
+    private static class BenchmarkResolveContext implements ResolveContext {
+        private final ComponentResolveMetaData root;
+
+        BenchmarkResolveContext(ComponentResolveMetaData root) {
+            this.root = root;
+        }
+
+        public String getName() {
+            return "default";
+        }
+
+        public String getDisplayName() {
+            return "benchmark configuration";
+        }
+
+        public ResolutionStrategyInternal getResolutionStrategy() {
+            throw new UnsupportedOperationException();
+        }
+
+        public ComponentResolveMetaData toRootComponentMetaData() {
+            return root;
+        }
+    }
+}
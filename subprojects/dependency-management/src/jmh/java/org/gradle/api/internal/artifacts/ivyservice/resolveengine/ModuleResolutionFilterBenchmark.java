@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures combining and evaluating exclude rules, as done for every node of the graph whose incoming edges carry excludes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ModuleResolutionFilterBenchmark {
+    @Param({"1", "10", "50"})
+    int rulesPerFilter;
+
+    private final List<ModuleResolutionFilter> filters = new ArrayList<ModuleResolutionFilter>();
+    private final List<ModuleIdentifier> modules = new ArrayList<ModuleIdentifier>();
+
+    @Setup
+    public void setup() {
+        for (int filter = 0; filter < 10; filter++) {
+            List<ExcludeRule> rules = new ArrayList<ExcludeRule>();
+            for (int rule = 0; rule < rulesPerFilter; rule++) {
+                String group = "org.group" + ((filter + rule) % 7);
+                String module = rule % 3 == 0 ? PatternMatcher.ANY_EXPRESSION : "module" + rule;
+                rules.add(new DefaultExcludeRule(new ArtifactId(new ModuleId(group, module), PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION),
+                        ExactPatternMatcher.INSTANCE, null));
+            }
+            filters.add(DefaultModuleResolutionFilter.excludeAny(rules));
+        }
+        for (int module = 0; module < 100; module++) {
+            modules.add(DefaultModuleIdentifier.newId("org.group" + (module % 10), "module" + module));
+        }
+    }
+
+    @Benchmark
+    public ModuleResolutionFilter unionAll() {
+        ModuleResolutionFilter result = filters.get(0);
+        for (int i = 1; i < filters.size(); i++) {
+            result = result.union(filters.get(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ModuleResolutionFilter intersectAll() {
+        ModuleResolutionFilter result = DefaultModuleResolutionFilter.all();
+        for (ModuleResolutionFilter filter : filters) {
+            result = result.intersect(filter);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void acceptModules(Blackhole blackhole) {
+        for (ModuleResolutionFilter filter : filters) {
+            for (ModuleIdentifier module : modules) {
+                blackhole.consume(filter.acceptModule(module));
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.tasks.DefaultTaskDependency;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector;
+import org.gradle.internal.component.local.model.DefaultLocalComponentMetaData;
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.LocalComponentDependencyMetaData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId;
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector;
+
+/**
+ * A generated graph of module components, used to exercise dependency resolution without touching any repository.
+ *
+ * <p>Modules are arranged in {@code depth} levels of {@code breadth} modules each. Every module is published in {@link #VERSIONS_PER_MODULE}
+ * versions and every version depends on a few modules of the next level. A dependency asks for an older version than the latest
+ * with probability {@code conflictDensity}, so that the resolver has version conflicts to settle. The graph is fully determined by its
+ * parameters and the seed.</p>
+ */
+public class SyntheticModuleGraph {
+    public static final int VERSIONS_PER_MODULE = 3;
+    private static final int FAN_OUT = 3;
+    private static final String GROUP = "org.gradle.benchmark";
+    private static final String CONFIGURATION = "default";
+
+    private final Map<ModuleComponentIdentifier, ModuleDescriptor> descriptors = new HashMap<ModuleComponentIdentifier, ModuleDescriptor>();
+    private final Map<ModuleIdentifier, List<String>> versions = new HashMap<ModuleIdentifier, List<String>>();
+    private final List<ModuleVersionSelector> rootDependencies = new ArrayList<ModuleVersionSelector>();
+    private final List<ModuleVersionSelector> allSelectors = new ArrayList<ModuleVersionSelector>();
+
+    public SyntheticModuleGraph(int breadth, int depth, double conflictDensity, long seed) {
+        Random random = new Random(seed);
+        List<String> moduleVersions = new ArrayList<String>(VERSIONS_PER_MODULE);
+        for (int version = 0; version < VERSIONS_PER_MODULE; version++) {
+            moduleVersions.add("1." + version);
+        }
+        moduleVersions = Collections.unmodifiableList(moduleVersions);
+
+        for (int level = 0; level < depth; level++) {
+            for (int module = 0; module < breadth; module++) {
+                String name = moduleName(level, module);
+                versions.put(DefaultModuleIdentifier.newId(GROUP, name), moduleVersions);
+                for (String version : moduleVersions) {
+                    DefaultModuleDescriptor descriptor = createDescriptor(name, version);
+                    if (level + 1 < depth) {
+                        for (int target : pickTargets(random, breadth)) {
+                            addDependency(descriptor, moduleName(level + 1, target), pickVersion(random, conflictDensity));
+                        }
+                    }
+                    descriptors.put(DefaultModuleComponentIdentifier.newId(GROUP, name, version), descriptor);
+                }
+            }
+        }
+
+        for (int module = 0; module < breadth; module++) {
+            rootDependencies.add(newSelector(GROUP, moduleName(0, module), latestVersion()));
+        }
+        allSelectors.addAll(rootDependencies);
+    }
+
+    /**
+     * Creates the component that declares the first level modules as its dependencies.
+     */
+    public ComponentResolveMetaData createRootComponent() {
+        DefaultLocalComponentMetaData root = new DefaultLocalComponentMetaData(newId(GROUP, "root", "1.0"), DefaultProjectComponentIdentifier.newId(":root"), "release");
+        root.addConfiguration(CONFIGURATION, "root configuration", Collections.<String>emptySet(), Collections.singleton(CONFIGURATION), true, true, new DefaultTaskDependency());
+        for (ModuleVersionSelector selector : rootDependencies) {
+            root.addDependency(new LocalComponentDependencyMetaData(DefaultModuleComponentSelector.newSelector(selector), selector, CONFIGURATION, CONFIGURATION,
+                    Collections.<IvyArtifactName>emptySet(), new ExcludeRule[0], false, false, true));
+        }
+        return root;
+    }
+
+    public ModuleDescriptor getDescriptor(ModuleComponentIdentifier id) {
+        return descriptors.get(id);
+    }
+
+    public List<String> getVersions(String group, String name) {
+        return versions.get(DefaultModuleIdentifier.newId(group, name));
+    }
+
+    /**
+     * Returns every selector that appears in the graph, in declaration order.
+     */
+    public List<ModuleVersionSelector> getAllSelectors() {
+        return allSelectors;
+    }
+
+    public int getComponentCount() {
+        return descriptors.size();
+    }
+
+    private DefaultModuleDescriptor createDescriptor(String name, String version) {
+        ModuleRevisionId id = IvyUtil.createModuleRevisionId(GROUP, name, version);
+        DefaultModuleDescriptor descriptor = new DefaultModuleDescriptor(id, "release", null);
+        descriptor.addConfiguration(new Configuration(CONFIGURATION));
+        descriptor.addArtifact(CONFIGURATION, new DefaultArtifact(id, null, name, "jar", "jar"));
+        return descriptor;
+    }
+
+    private void addDependency(DefaultModuleDescriptor descriptor, String name, String version) {
+        DefaultDependencyDescriptor dependency = new DefaultDependencyDescriptor(descriptor, IvyUtil.createModuleRevisionId(GROUP, name, version), false, false, true);
+        dependency.addDependencyConfiguration(CONFIGURATION, CONFIGURATION);
+        descriptor.addDependency(dependency);
+        allSelectors.add(newSelector(GROUP, name, version));
+    }
+
+    private static Set<Integer> pickTargets(Random random, int breadth) {
+        Set<Integer> targets = new LinkedHashSet<Integer>();
+        int count = Math.min(FAN_OUT, breadth);
+        while (targets.size() < count) {
+            targets.add(random.nextInt(breadth));
+        }
+        return targets;
+    }
+
+    private static String pickVersion(Random random, double conflictDensity) {
+        if (random.nextDouble() < conflictDensity) {
+            return "1." + random.nextInt(VERSIONS_PER_MODULE - 1);
+        }
+        return latestVersion();
+    }
+
+    private static String latestVersion() {
+        return "1." + (VERSIONS_PER_MODULE - 1);
+    }
+
+    private static String moduleName(int level, int module) {
+        return "level" + level + "-module" + module;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures version comparison and version selector matching, which dominate the cost of choosing between candidate versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class VersionSelectionBenchmark {
+    private static final String[] QUALIFIERS = {"", "-SNAPSHOT", "-rc1", "-beta-2", ".Final", "-20151012.101112-3"};
+    private static final String[] SELECTORS = {"1.+", "[1.2,2.0)", "latest.release", "1.4.2", "]1.0,)"};
+
+    @Param({"100", "1000"})
+    int versionCount;
+
+    private final DefaultVersionComparator versionComparator = new DefaultVersionComparator();
+    private final VersionSelectorScheme versionSelectorScheme = new DefaultVersionSelectorScheme(versionComparator);
+    private List<String> versions;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+        versions = new ArrayList<String>(versionCount);
+        for (int i = 0; i < versionCount; i++) {
+            versions.add(random.nextInt(3) + "." + random.nextInt(10) + "." + random.nextInt(20) + QUALIFIERS[random.nextInt(QUALIFIERS.length)]);
+        }
+    }
+
+    @Benchmark
+    public List<String> sortVersions() {
+        List<String> sorted = new ArrayList<String>(versions);
+        Comparator<String> comparator = versionComparator.asStringComparator();
+        Collections.sort(sorted, comparator);
+        return sorted;
+    }
+
+    @Benchmark
+    public void matchSelectors(Blackhole blackhole) {
+        for (String selectorString : SELECTORS) {
+            VersionSelector selector = versionSelectorScheme.parseSelector(selectorString);
+            if (selector.requiresMetadata()) {
+                continue;
+            }
+            for (String version : versions) {
+                blackhole.consume(selector.accept(version));
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
     private final ComponentArtifactIdentifier artifactId;
     private Factory<File> artifactSource;
     private File file;
+    private RuntimeException failure;
 
     public DefaultResolvedArtifact(ResolvedModuleVersion owner, IvyArtifactName artifact, ComponentArtifactIdentifier artifactId, Factory<File> artifactSource) {
         this.owner = owner;
@@ -85,7 +86,34 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return artifact.getClassifier();
     }
 
+    public boolean isResolved() {
+        return file != null || failure != null;
+    }
+
+    /**
+     * Resolves the file of this artifact ahead of {@link #getFile()}. A failure is not thrown here, but by the next call to {@link #getFile()}.
+     */
+    public void resolveFile() {
+        if (isResolved()) {
+            return;
+        }
+        try {
+            File resolved = artifactSource.create();
+            if (resolved != null) {
+                file = resolved;
+                artifactSource = null;
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
     public File getFile() {
+        if (failure != null) {
+            RuntimeException resolveFailure = failure;
+            failure = null;
+            throw resolveFailure;
+        }
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
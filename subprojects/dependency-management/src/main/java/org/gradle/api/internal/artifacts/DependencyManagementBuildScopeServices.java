@@ -24,6 +24,7 @@ import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersio
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.*;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.*;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleMetaDataCache;
@@ -36,6 +37,8 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProject
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
@@ -51,6 +54,9 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.DefaultBuildOperationProcessor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -168,6 +174,10 @@ class DependencyManagementBuildScopeServices {
         return new DefaultVersionComparator();
     }
 
+    ParsedPomCache createParsedPomCache() {
+        return new ParsedPomCache();
+    }
+
     RepositoryTransportFactory createRepositoryTransportFactory(ProgressLoggerFactory progressLoggerFactory,
                                                                 TemporaryFileProvider temporaryFileProvider,
                                                                 ByUrlCachedExternalResourceIndex externalResourceIndex,
@@ -202,11 +212,23 @@ class DependencyManagementBuildScopeServices {
             versionComparator);
     }
 
+    ParallelComponentMetaDataPrefetcher createComponentMetaDataPrefetcher(BuildOperationProcessor buildOperationProcessor, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager) {
+        return new ParallelComponentMetaDataPrefetcher(buildOperationProcessor, cacheLockingManager, ivyContextManager);
+    }
+
+    ParallelArtifactDownloader createArtifactDownloader(ExecutorFactory executorFactory, StartParameter startParameter, CacheLockingManager cacheLockingManager) {
+        int maxParallelDownloads = Integer.getInteger(ParallelArtifactDownloader.MAX_PARALLEL_DOWNLOADS_PROPERTY, startParameter.getMaxWorkerCount());
+        return new ParallelArtifactDownloader(new DefaultBuildOperationProcessor(executorFactory, Math.max(1, maxParallelDownloads)), cacheLockingManager, maxParallelDownloads);
+    }
+
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory,
                                                                 DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager,
                                                                 IvyContextManager ivyContextManager,
                                                                 VersionComparator versionComparator,
+                                                                ComponentMetaDataPrefetcher metaDataPrefetcher,
+                                                                VersionSelectorScheme versionSelectorScheme,
+                                                                StartParameter startParameter,
                                                                 ServiceRegistry serviceRegistry) {
         DefaultArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
@@ -214,7 +236,9 @@ class DependencyManagementBuildScopeServices {
             dependencyDescriptorFactory,
             cacheLockingManager,
             ivyContextManager,
-            versionComparator
+            versionComparator,
+            metaDataPrefetcher,
+            new ResolvedGraphCache(cacheLockingManager, versionSelectorScheme, startParameter.isRefreshDependencies())
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Resolves the files of a batch of artifacts using a bounded thread pool, so that downloads from remote repositories overlap. Each file is resolved
+ * through the artifact's own resolver, which takes the cache for its cache lookups and releases it again while downloading.
+ */
+public class ParallelArtifactDownloader implements Stoppable {
+    /**
+     * The maximum number of artifacts to download at the same time. Defaults to the maximum number of workers. A value of 1 disables parallel downloads.
+     */
+    public static final String MAX_PARALLEL_DOWNLOADS_PROPERTY = "org.gradle.artifacts.download.parallelism";
+
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final CacheLockingManager lockingManager;
+    private final int maxParallelDownloads;
+
+    public ParallelArtifactDownloader(BuildOperationProcessor buildOperationProcessor, CacheLockingManager lockingManager, int maxParallelDownloads) {
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.lockingManager = lockingManager;
+        this.maxParallelDownloads = maxParallelDownloads;
+    }
+
+    /**
+     * Resolves the files of the given artifacts that have not been resolved yet. Failures are not thrown, but by the next call to {@link ResolvedArtifact#getFile()}.
+     */
+    public void download(Collection<? extends ResolvedArtifact> artifacts) {
+        if (maxParallelDownloads <= 1) {
+            return;
+        }
+        final List<DefaultResolvedArtifact> pending = new ArrayList<DefaultResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact && !((DefaultResolvedArtifact) artifact).isResolved()) {
+                pending.add((DefaultResolvedArtifact) artifact);
+            }
+        }
+        if (pending.size() <= 1) {
+            return;
+        }
+        lockingManager.longRunningOperation(String.format("Download %s artifacts", pending.size()), new Runnable() {
+            public void run() {
+                BuildOperationQueue<DownloadOperation> queue = buildOperationProcessor.newQueue(new DownloadWorker(), null);
+                for (DefaultResolvedArtifact artifact : pending) {
+                    queue.add(new DownloadOperation(artifact));
+                }
+                queue.waitForCompletion();
+            }
+        });
+    }
+
+    public void stop() {
+        CompositeStoppable.stoppable(buildOperationProcessor).stop();
+    }
+
+    private static class DownloadOperation implements BuildOperation {
+        private final DefaultResolvedArtifact artifact;
+
+        private DownloadOperation(DefaultResolvedArtifact artifact) {
+            this.artifact = artifact;
+        }
+
+        public String getDescription() {
+            return "Download " + artifact.getId().getDisplayName();
+        }
+    }
+
+    private static class DownloadWorker implements BuildOperationWorker<DownloadOperation> {
+        public String getDisplayName() {
+            return "artifact downloader";
+        }
+
+        public void execute(DownloadOperation operation) {
+            operation.artifact.resolveFile();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+
+import java.util.List;
+
+/**
+ * Resolves component meta-data using the build operation thread pool. The cache is released while waiting, so that each operation can hold it for its
+ * cache lookups and release it again while talking to a remote repository.
+ */
+public class ParallelComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher {
+    private final BuildOperationProcessor buildOperationProcessor;
+    private final CacheLockingManager lockingManager;
+    private final IvyContextManager ivyContextManager;
+
+    public ParallelComponentMetaDataPrefetcher(BuildOperationProcessor buildOperationProcessor, CacheLockingManager lockingManager, IvyContextManager ivyContextManager) {
+        this.buildOperationProcessor = buildOperationProcessor;
+        this.lockingManager = lockingManager;
+        this.ivyContextManager = ivyContextManager;
+    }
+
+    public void prefetch(final List<? extends Runnable> operations) {
+        lockingManager.longRunningOperation(String.format("Resolve meta-data for %s components", operations.size()), new Runnable() {
+            public void run() {
+                BuildOperationQueue<ResolveOperation> queue = buildOperationProcessor.newQueue(new ResolveWorker(), null);
+                for (Runnable operation : operations) {
+                    queue.add(new ResolveOperation(operation));
+                }
+                queue.waitForCompletion();
+            }
+        });
+    }
+
+    private static class ResolveOperation implements BuildOperation {
+        private final Runnable action;
+
+        private ResolveOperation(Runnable action) {
+            this.action = action;
+        }
+
+        public String getDescription() {
+            return action.toString();
+        }
+    }
+
+    private class ResolveWorker implements BuildOperationWorker<ResolveOperation> {
+        public String getDisplayName() {
+            return "component meta-data resolver";
+        }
+
+        public void execute(final ResolveOperation operation) {
+            lockingManager.useCache(operation.getDescription(), new Runnable() {
+                public void run() {
+                    ivyContextManager.withIvy(new Action<Ivy>() {
+                        public void execute(Ivy ivy) {
+                            operation.action.run();
+                        }
+                    });
+                }
+            });
+        }
+    }
+}
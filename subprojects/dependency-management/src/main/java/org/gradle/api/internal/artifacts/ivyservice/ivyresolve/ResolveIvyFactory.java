@@ -42,7 +42,9 @@ import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
 import org.gradle.internal.resource.cached.CachedArtifactIndex;
 import org.gradle.util.BuildCommencedTimeProvider;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class ResolveIvyFactory {
     private final ModuleVersionsCache moduleVersionsCache;
@@ -75,7 +77,24 @@ public class ResolveIvyFactory {
     public ComponentResolvers create(ResolutionStrategyInternal resolutionStrategy,
                                   Collection<? extends ResolutionAwareRepository> repositories,
                                   ComponentMetadataProcessor metadataProcessor) {
-        if (repositories.isEmpty()) {
+        return createFromResolvers(resolutionStrategy, createResolvers(repositories), metadataProcessor);
+    }
+
+    public List<ConfiguredModuleComponentRepository> createResolvers(Collection<? extends ResolutionAwareRepository> repositories) {
+        List<ConfiguredModuleComponentRepository> resolvers = new ArrayList<ConfiguredModuleComponentRepository>(repositories.size());
+        for (ResolutionAwareRepository repository : repositories) {
+            resolvers.add(repository.createResolver());
+        }
+        return resolvers;
+    }
+
+    /**
+     * Creates the component resolvers for the given repository resolvers, as created by {@link #createResolvers(Collection)}.
+     */
+    public ComponentResolvers createFromResolvers(ResolutionStrategyInternal resolutionStrategy,
+                                                  List<? extends ConfiguredModuleComponentRepository> resolvers,
+                                                  ComponentMetadataProcessor metadataProcessor) {
+        if (resolvers.isEmpty()) {
             return new NoRepositoriesResolver();
         }
 
@@ -87,9 +106,7 @@ public class ResolveIvyFactory {
         UserResolverChain moduleResolver = new UserResolverChain(versionSelectorScheme, versionComparator, resolutionStrategy.getComponentSelection());
         ParentModuleLookupResolver parentModuleResolver = new ParentModuleLookupResolver(versionSelectorScheme, versionComparator, cacheLockingManager);
 
-        for (ResolutionAwareRepository repository : repositories) {
-            ConfiguredModuleComponentRepository baseRepository = repository.createResolver();
-
+        for (ConfiguredModuleComponentRepository baseRepository : resolvers) {
             if (baseRepository instanceof ExternalResourceResolver) {
                 ((ExternalResourceResolver) baseRepository).setComponentResolvers(parentModuleResolver);
             }
@@ -29,6 +29,7 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionS
 import org.gradle.api.internal.component.ArtifactType;
 import org.gradle.internal.component.external.model.DefaultMavenModuleResolveMetaData;
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +38,7 @@ import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -48,9 +50,15 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
     private final VersionSelectorScheme gradleVersionSelectorScheme;
     private final VersionSelectorScheme mavenVersionSelectorScheme;
+    private final ParsedPomCache parsedPomCache;
 
     public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme) {
+        this(gradleVersionSelectorScheme, new ParsedPomCache());
+    }
+
+    public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme, ParsedPomCache parsedPomCache) {
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
+        this.parsedPomCache = parsedPomCache;
         mavenVersionSelectorScheme = new MavenVersionSelectorScheme(gradleVersionSelectorScheme);
     }
 
@@ -67,7 +75,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
         PomReader pomReader = new PomReader(resource);
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
 
-        doParsePom(parserSettings, mdBuilder, pomReader);
+        doParsePom(parserSettings, mdBuilder, pomReader, new HashMap<ModuleComponentIdentifier, HashValue>());
 
         DefaultModuleDescriptor moduleDescriptor = mdBuilder.getModuleDescriptor();
         if(pomReader.getRelocation() != null) {
@@ -76,7 +84,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
         return new DefaultMavenModuleResolveMetaData(moduleDescriptor, pomReader.getPackaging(), false);
     }
 
-    private void doParsePom(DescriptorParseContext parserSettings, GradlePomModuleDescriptorBuilder mdBuilder, PomReader pomReader) throws IOException, SAXException {
+    private void doParsePom(DescriptorParseContext parserSettings, GradlePomModuleDescriptorBuilder mdBuilder, PomReader pomReader, Map<ModuleComponentIdentifier, HashValue> pomSha1s) throws IOException, SAXException {
         if (pomReader.hasParent()) {
             //Is there any other parent properties?
 
@@ -84,7 +92,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
                     pomReader.getParentGroupId(),
                     pomReader.getParentArtifactId(),
                     pomReader.getParentVersion());
-            PomReader parentPomReader = parseOtherPom(parserSettings, parentId);
+            PomReader parentPomReader = parseOtherPom(parserSettings, parentId, pomSha1s);
             pomReader.setPomParent(parentPomReader);
         }
         pomReader.resolveGAV();
@@ -108,7 +116,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
                         mdBuilder.getModuleDescriptor().getModuleRevisionId(), relocation);
                 LOGGER.warn("Please update your dependency to directly use the correct version '{}'.", relocation);
                 LOGGER.warn("Resolution will only pick dependencies of the relocated element.  Artifacts and other metadata will be ignored.");
-                PomReader relocatedModule = parseOtherPom(parserSettings, DefaultModuleComponentIdentifier.newId(relocation.getOrganisation(), relocation.getName(), relocation.getRevision()));
+                PomReader relocatedModule = parseOtherPom(parserSettings, DefaultModuleComponentIdentifier.newId(relocation.getOrganisation(), relocation.getName(), relocation.getRevision()), pomSha1s);
 
                 Collection<PomDependencyData> pomDependencyDataList = relocatedModule.getDependencies().values();
                 for(PomDependencyData pomDependencyData : pomDependencyDataList) {
@@ -131,7 +139,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
                 mdBuilder.addDependency(dd);
             }
         } else {
-            overrideDependencyMgtsWithImported(parserSettings, pomReader);
+            overrideDependencyMgtsWithImported(parserSettings, pomReader, pomSha1s);
 
             for (PomDependencyData dependency : pomReader.getDependencies().values()) {
                 mdBuilder.addDependency(dependency);
@@ -144,11 +152,12 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      *
      * @param parseContext Parse context
      * @param pomReader POM reader
+     * @param pomSha1s Collects the SHA-1 of each POM that is read
      * @throws IOException
      * @throws SAXException
      */
-    private void overrideDependencyMgtsWithImported(DescriptorParseContext parseContext, PomReader pomReader) throws IOException, SAXException {
-        Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = parseImportedDependencyMgts(parseContext, pomReader.parseDependencyMgt());
+    private void overrideDependencyMgtsWithImported(DescriptorParseContext parseContext, PomReader pomReader, Map<ModuleComponentIdentifier, HashValue> pomSha1s) throws IOException, SAXException {
+        Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = parseImportedDependencyMgts(parseContext, pomReader.parseDependencyMgt(), pomSha1s);
         pomReader.addImportedDependencyMgts(importedDependencyMgts);
     }
 
@@ -157,16 +166,17 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      *
      * @param parseContext Parse context
      * @param currentDependencyMgts Current dependency management information
+     * @param pomSha1s Collects the SHA-1 of each POM that is read
      * @return Imported dependency management information
      * @throws IOException
      * @throws SAXException
      */
-    private Map<MavenDependencyKey, PomDependencyMgt> parseImportedDependencyMgts(DescriptorParseContext parseContext, Collection<PomDependencyMgt> currentDependencyMgts) throws IOException, SAXException {
+    private Map<MavenDependencyKey, PomDependencyMgt> parseImportedDependencyMgts(DescriptorParseContext parseContext, Collection<PomDependencyMgt> currentDependencyMgts, Map<ModuleComponentIdentifier, HashValue> pomSha1s) throws IOException, SAXException {
         Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = new LinkedHashMap<MavenDependencyKey, PomDependencyMgt>();
 
         for(PomDependencyMgt currentDependencyMgt : currentDependencyMgts) {
             if(isDependencyImportScoped(currentDependencyMgt)) {
-                PomReader importDescr = parseImportedPom(parseContext, currentDependencyMgt);
+                PomReader importDescr = parseImportedPom(parseContext, currentDependencyMgt, pomSha1s);
                 importedDependencyMgts.putAll(importDescr.getDependencyMgt());
             }
         }
@@ -189,29 +199,42 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      *
      * @param parseContext Parse context
      * @param pomDependencyMgt Dependency management information
+     * @param pomSha1s Collects the SHA-1 of each POM that is read
      * @return POM reader
      * @throws IOException
      * @throws SAXException
      */
-    private PomReader parseImportedPom(DescriptorParseContext parseContext, PomDependencyMgt pomDependencyMgt) throws IOException, SAXException {
+    private PomReader parseImportedPom(DescriptorParseContext parseContext, PomDependencyMgt pomDependencyMgt, Map<ModuleComponentIdentifier, HashValue> pomSha1s) throws IOException, SAXException {
         ModuleComponentIdentifier importedId = DefaultModuleComponentIdentifier.newId(pomDependencyMgt.getGroupId(), pomDependencyMgt.getArtifactId(), pomDependencyMgt.getVersion());
-        return parseOtherPom(parseContext, importedId);
+        return parseOtherPom(parseContext, importedId, pomSha1s);
     }
 
     /**
-     * Parses other POM.
+     * Parses other POM, or reuses it if it has already been parsed during this build.
      *
      * @param parseContext Parse context
      * @param parentId Parent module revision ID
+     * @param pomSha1s Collects the SHA-1 of each POM that is read
      * @return POM reader
      * @throws IOException
      * @throws SAXException
      */
-    private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId) throws IOException, SAXException {
+    private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId, Map<ModuleComponentIdentifier, HashValue> pomSha1s) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
+        PomReader cachedPomReader = parsedPomCache.get(parentId, localResource, parseContext, pomSha1s);
+        if (cachedPomReader != null) {
+            return cachedPomReader;
+        }
+        Map<ModuleComponentIdentifier, HashValue> otherPomSha1s = new LinkedHashMap<ModuleComponentIdentifier, HashValue>();
+        otherPomSha1s.put(parentId, localResource.getLocalResource().getSha1());
         PomReader pomReader = new PomReader(localResource);
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
-        doParsePom(parseContext, mdBuilder, pomReader);
+        doParsePom(parseContext, mdBuilder, pomReader, otherPomSha1s);
+        // Resolve everything a child POM may ask for, so that the reader is not modified once shared
+        pomReader.getDependencies();
+        pomReader.getDependencyMgt();
+        parsedPomCache.put(parentId, pomReader, otherPomSha1s);
+        pomSha1s.putAll(otherPomSha1s);
         return pomReader;
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the parent and imported POMs parsed by {@link GradlePomModuleDescriptorParser} during a build, so that a POM that is the parent of many modules
+ * is parsed only once. Entries are keyed by module id, and record the SHA-1 of every POM that was read to build them: the POM itself and the POMs in
+ * its parent and import chain. An entry is only used when none of these POMs has changed since it was parsed.
+ *
+ * <p>A cached {@link PomReader} has its dependencies and dependency management resolved before it is added, and is not modified afterwards.</p>
+ */
+public class ParsedPomCache {
+    private final ConcurrentMap<ModuleComponentIdentifier, CachedPom> poms = new ConcurrentHashMap<ModuleComponentIdentifier, CachedPom>();
+
+    /**
+     * Returns the reader for the given POM, or null when it has not been parsed or any POM it was built from has changed. When the reader is returned,
+     * the SHA-1s of the POMs it was built from are added to the given map.
+     */
+    @Nullable
+    public PomReader get(ModuleComponentIdentifier id, LocallyAvailableExternalResource resource, DescriptorParseContext parseContext, Map<ModuleComponentIdentifier, HashValue> pomSha1s) {
+        CachedPom cachedPom = poms.get(id);
+        if (cachedPom == null) {
+            return null;
+        }
+        for (Map.Entry<ModuleComponentIdentifier, HashValue> entry : cachedPom.pomSha1s.entrySet()) {
+            LocallyAvailableExternalResource pomResource = entry.getKey().equals(id) ? resource : parseContext.getMetaDataArtifact(entry.getKey(), ArtifactType.MAVEN_POM);
+            if (!entry.getValue().equals(pomResource.getLocalResource().getSha1())) {
+                return null;
+            }
+        }
+        pomSha1s.putAll(cachedPom.pomSha1s);
+        return cachedPom.pomReader;
+    }
+
+    /**
+     * Adds the reader for the given POM, along with the SHA-1s of the POMs it was built from, including its own.
+     */
+    public void put(ModuleComponentIdentifier id, PomReader pomReader, Map<ModuleComponentIdentifier, HashValue> pomSha1s) {
+        poms.put(id, new CachedPom(new LinkedHashMap<ModuleComponentIdentifier, HashValue>(pomSha1s), pomReader));
+    }
+
+    private static class CachedPom {
+        private final Map<ModuleComponentIdentifier, HashValue> pomSha1s;
+        private final PomReader pomReader;
+
+        private CachedPom(Map<ModuleComponentIdentifier, HashValue> pomSha1s, PomReader pomReader) {
+            this.pomSha1s = pomSha1s;
+            this.pomReader = pomReader;
+        }
+    }
+}
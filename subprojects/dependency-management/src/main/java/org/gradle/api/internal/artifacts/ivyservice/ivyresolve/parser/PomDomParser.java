@@ -16,39 +16,117 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import com.google.common.collect.ImmutableSet;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Reads a POM into a tree of {@link PomElement}s with a streaming parser. Only the sections of the POM that are used to build the meta-data of the
+ * module are kept: sections such as {@code build}, {@code reporting} or {@code developers} are skipped without building any elements for them.
+ */
 public final class PomDomParser {
+    private static final Set<String> PROJECT_ELEMENTS = ImmutableSet.of(
+        "groupId", "artifactId", "version", "packaging", "description", "url", "licenses", "parent",
+        "distributionManagement", "properties", "dependencies", "dependencyManagement", "profiles");
+    private static final XMLResolver ENTITY_RESOLVER = new XMLResolver() {
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) throws XMLStreamException {
+            if ((systemID != null) && systemID.endsWith("m2-entities.ent")) {
+                return org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent");
+            }
+            return null;
+        }
+    };
+
+    // Looking up a factory scans the classpath, so do it once. A configured factory can be shared by concurrent parses.
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
     private PomDomParser() {}
 
-    public static String getTextContent(Element element) {
-        StringBuilder result = new StringBuilder();
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setXMLResolver(ENTITY_RESOLVER);
+        return factory;
+    }
 
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
+    /**
+     * Parses the given POM content. Returns the root element, which holds only the child elements that Gradle uses.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    return readElement(reader, true);
+                }
+            }
+            throw new XMLStreamException("No root element found in " + systemId);
+        } finally {
+            reader.close();
+        }
+    }
 
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
+    private static PomElement readElement(XMLStreamReader reader, boolean root) throws XMLStreamException {
+        String name = qualifiedName(reader);
+        StringBuilder text = new StringBuilder();
+        List<PomElement> children = new ArrayList<PomElement>();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (root && !PROJECT_ELEMENTS.contains(qualifiedName(reader))) {
+                        skipElement(reader);
+                    } else {
+                        children.add(readElement(reader, false));
+                    }
                     break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return new PomElement(name, text.toString(), children);
                 default:
                     break;
             }
         }
+        throw new XMLStreamException("Unexpected end of document in element " + name);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String qualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.length() == 0 ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+    }
 
-        return result.toString();
+    public static String getTextContent(PomElement element) {
+        return element.getText();
     }
 
-    public static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
             return getTextContent(node);
         } else {
@@ -56,30 +134,22 @@ public final class PomDomParser {
         }
     }
 
-    public static Element getFirstChildElement(Element parentElem, String name) {
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
         if (parentElem == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
             }
         }
         return null;
     }
 
-    public static List<Element> getAllChilds(Element parent) {
-        List<Element> r = new LinkedList<Element>();
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        List<PomElement> r = new LinkedList<PomElement>();
         if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add((Element) node);
-                }
-            }
+            r.addAll(parent.getChildren());
         }
         return r;
     }
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * A binary encoding of the module descriptors held in the meta-data cache, so that a cached descriptor can be loaded without parsing an ivy.xml file.
+ *
+ * <p>The encoding holds the same information as the ivy.xml written by {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}.
+ * Each string is written once per descriptor, and later occurrences refer back to it by index, as configuration names, organisations and matcher names
+ * tend to repeat many times in a descriptor.</p>
+ *
+ * <p>Ivy does not expose the raw configuration mappings of a dependency, so these are read back through the public API using '#' as the requested configuration,
+ * which leaves the '#' patterns in place. A dependency that maps the '*' configuration to itself cannot be told apart from one that maps it to every
+ * configuration this way, and such a descriptor cannot be encoded.</p>
+ */
+public class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int KNOWN_STRING_OFFSET = 2;
+    private static final String ALL_CONFIGURATIONS = "*";
+    private static final String OTHER_CONFIGURATIONS = "%";
+    private static final String SELF_CONFIGURATION = "@";
+    private static final String REQUESTED_CONFIGURATION = "#";
+
+    private final ResolverStrategy resolverStrategy;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor value) throws Exception {
+        new DescriptorWriter(encoder).write(value);
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        return new DescriptorReader(decoder).read();
+    }
+
+    private class DescriptorWriter {
+        private final Encoder encoder;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        DescriptorWriter(Encoder encoder) {
+            this.encoder = encoder;
+        }
+
+        void write(ModuleDescriptor md) throws Exception {
+            writeModuleRevisionId(md.getResolvedModuleRevisionId());
+            writeString(md.getStatus());
+            Date publicationDate = md.getResolvedPublicationDate();
+            encoder.writeBoolean(publicationDate != null);
+            if (publicationDate != null) {
+                encoder.writeLong(publicationDate.getTime());
+            }
+            encoder.writeBoolean(md.isDefault());
+            writeStringMap(md.getExtraAttributesNamespaces());
+            writeExtraInfo(md.getExtraInfo());
+
+            License[] licenses = md.getLicenses();
+            encoder.writeSmallInt(licenses.length);
+            for (License license : licenses) {
+                writeString(license.getName());
+                writeString(license.getUrl());
+            }
+            writeString(md.getHomePage());
+            writeString(md.getDescription());
+
+            Configuration[] configurations = md.getConfigurations();
+            encoder.writeSmallInt(configurations.length);
+            for (Configuration configuration : configurations) {
+                writeString(configuration.getName());
+                writeString(configuration.getVisibility().toString());
+                writeString(configuration.getDescription());
+                writeStrings(configuration.getExtends());
+                encoder.writeBoolean(configuration.isTransitive());
+                writeString(configuration.getDeprecated());
+            }
+
+            Artifact[] artifacts = md.getAllArtifacts();
+            Set<String> artifactConfigurations = new LinkedHashSet<String>(Arrays.asList(md.getConfigurationsNames()));
+            for (Artifact artifact : artifacts) {
+                artifactConfigurations.addAll(Arrays.asList(artifact.getConfigurations()));
+            }
+            Map<String, List<Artifact>> artifactsByConfiguration = new LinkedHashMap<String, List<Artifact>>();
+            for (String configuration : artifactConfigurations) {
+                artifactsByConfiguration.put(configuration, Arrays.asList(md.getArtifacts(configuration)));
+            }
+            encoder.writeSmallInt(artifacts.length);
+            for (Artifact artifact : artifacts) {
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeStrings(artifact.getConfigurations());
+                writeStrings(getRegisteredConfigurations(artifact, artifactsByConfiguration));
+                writeStringMap(artifact.getQualifiedExtraAttributes());
+            }
+
+            DependencyDescriptor[] dependencies = md.getDependencies();
+            encoder.writeSmallInt(dependencies.length);
+            for (DependencyDescriptor dependency : dependencies) {
+                writeDependency(md, dependency);
+            }
+
+            ExcludeRule[] excludeRules = md.getAllExcludeRules();
+            encoder.writeSmallInt(excludeRules.length);
+            for (ExcludeRule excludeRule : excludeRules) {
+                writeRule(excludeRule.getId(), excludeRule.getMatcher(), excludeRule.getConfigurations(), excludeRule.getQualifiedExtraAttributes());
+            }
+        }
+
+        private void writeDependency(ModuleDescriptor md, DependencyDescriptor dependency) throws Exception {
+            writeModuleRevisionId(dependency.getDependencyRevisionId());
+            boolean hasDynamicConstraint = !dependency.getDynamicConstraintDependencyRevisionId().equals(dependency.getDependencyRevisionId());
+            encoder.writeBoolean(hasDynamicConstraint);
+            if (hasDynamicConstraint) {
+                writeModuleRevisionId(dependency.getDynamicConstraintDependencyRevisionId());
+            }
+            encoder.writeBoolean(dependency.isForce());
+            encoder.writeBoolean(dependency.isChanging());
+            encoder.writeBoolean(dependency.isTransitive());
+
+            String[] moduleConfigurations = dependency.getModuleConfigurations();
+            encoder.writeSmallInt(moduleConfigurations.length);
+            for (String moduleConfiguration : moduleConfigurations) {
+                writeString(moduleConfiguration);
+                writeStrings(getDependencyConfigurations(dependency, moduleConfiguration));
+            }
+
+            DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            ExcludeRule[] excludeRules = dependency.getAllExcludeRules();
+
+            // Artifacts and rules are held against the configurations they were added to, which need not be the configurations they declare
+            Set<String> configurations = new LinkedHashSet<String>();
+            configurations.add(ALL_CONFIGURATIONS);
+            configurations.addAll(Arrays.asList(moduleConfigurations));
+            configurations.addAll(Arrays.asList(md.getConfigurationsNames()));
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                configurations.addAll(Arrays.asList(artifact.getConfigurations()));
+            }
+            for (IncludeRule includeRule : includeRules) {
+                configurations.addAll(Arrays.asList(includeRule.getConfigurations()));
+            }
+            for (ExcludeRule excludeRule : excludeRules) {
+                configurations.addAll(Arrays.asList(excludeRule.getConfigurations()));
+            }
+            Map<String, List<DependencyArtifactDescriptor>> artifactsByConfiguration = new LinkedHashMap<String, List<DependencyArtifactDescriptor>>();
+            Map<String, List<IncludeRule>> includeRulesByConfiguration = new LinkedHashMap<String, List<IncludeRule>>();
+            Map<String, List<ExcludeRule>> excludeRulesByConfiguration = new LinkedHashMap<String, List<ExcludeRule>>();
+            for (String configuration : configurations) {
+                artifactsByConfiguration.put(configuration, Arrays.asList(dependency.getDependencyArtifacts(configuration)));
+                includeRulesByConfiguration.put(configuration, Arrays.asList(dependency.getIncludeRules(configuration)));
+                excludeRulesByConfiguration.put(configuration, Arrays.asList(dependency.getExcludeRules(configuration)));
+            }
+
+            encoder.writeSmallInt(artifacts.length);
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeString(artifact.getUrl() == null ? null : artifact.getUrl().toString());
+                writeStrings(artifact.getConfigurations());
+                writeStrings(getRegisteredConfigurations(artifact, artifactsByConfiguration));
+                writeStringMap(artifact.getQualifiedExtraAttributes());
+            }
+
+            encoder.writeSmallInt(includeRules.length);
+            for (IncludeRule includeRule : includeRules) {
+                writeRule(includeRule.getId(), includeRule.getMatcher(), includeRule.getConfigurations(), includeRule.getQualifiedExtraAttributes());
+                writeStrings(getRegisteredConfigurations(includeRule, includeRulesByConfiguration));
+            }
+
+            encoder.writeSmallInt(excludeRules.length);
+            for (ExcludeRule excludeRule : excludeRules) {
+                writeRule(excludeRule.getId(), excludeRule.getMatcher(), excludeRule.getConfigurations(), excludeRule.getQualifiedExtraAttributes());
+                writeStrings(getRegisteredConfigurations(excludeRule, excludeRulesByConfiguration));
+            }
+        }
+
+        private String[] getDependencyConfigurations(DependencyDescriptor dependency, String moduleConfiguration) {
+            String[] dependencyConfigurations = dependency.getDependencyConfigurations(moduleConfiguration, REQUESTED_CONFIGURATION);
+            if (!moduleConfiguration.equals(ALL_CONFIGURATIONS) && !moduleConfiguration.equals(OTHER_CONFIGURATIONS)) {
+                // Ivy replaces '@' with the module configuration, which means the same thing for this mapping
+                return dependencyConfigurations;
+            }
+            String[] result = new String[dependencyConfigurations.length];
+            for (int i = 0; i < dependencyConfigurations.length; i++) {
+                String dependencyConfiguration = dependencyConfigurations[i];
+                if (dependencyConfiguration.startsWith(moduleConfiguration)) {
+                    String remainder = dependencyConfiguration.substring(moduleConfiguration.length());
+                    if (moduleConfiguration.equals(ALL_CONFIGURATIONS) && (remainder.length() == 0 || remainder.startsWith("!"))) {
+                        throw new IllegalArgumentException(String.format("Cannot encode configuration mapping '%s->%s' of dependency %s.", moduleConfiguration, dependencyConfiguration, dependency.getDependencyRevisionId()));
+                    }
+                    dependencyConfiguration = SELF_CONFIGURATION + remainder;
+                }
+                result[i] = dependencyConfiguration;
+            }
+            return result;
+        }
+
+        private String[] getRegisteredConfigurations(Object value, Map<String, ? extends List<?>> valuesByConfiguration) {
+            List<String> configurations = new ArrayList<String>();
+            for (Map.Entry<String, ? extends List<?>> entry : valuesByConfiguration.entrySet()) {
+                if (entry.getValue().contains(value)) {
+                    configurations.add(entry.getKey());
+                }
+            }
+            return configurations.toArray(new String[configurations.size()]);
+        }
+
+        private void writeRule(ArtifactId id, PatternMatcher matcher, String[] configurations, Map<String, String> extraAttributes) throws IOException {
+            writeString(id.getModuleId().getOrganisation());
+            writeString(id.getModuleId().getName());
+            writeString(id.getName());
+            writeString(id.getType());
+            writeString(id.getExt());
+            writeString(matcher.getName());
+            writeStrings(configurations);
+            writeStringMap(extraAttributes);
+        }
+
+        private void writeModuleRevisionId(ModuleRevisionId id) throws IOException {
+            writeString(id.getOrganisation());
+            writeString(id.getName());
+            writeString(id.getBranch());
+            writeString(id.getRevision());
+            writeStringMap(id.getQualifiedExtraAttributes());
+        }
+
+        private void writeExtraInfo(Map<?, ?> extraInfo) throws IOException {
+            int count = 0;
+            for (Object value : extraInfo.values()) {
+                if (value != null) {
+                    count++;
+                }
+            }
+            encoder.writeSmallInt(count);
+            for (Map.Entry<?, ?> entry : extraInfo.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if (entry.getKey() instanceof NamespaceId) {
+                    NamespaceId id = (NamespaceId) entry.getKey();
+                    encoder.writeBoolean(true);
+                    writeString(id.getNamespace());
+                    writeString(id.getName());
+                } else {
+                    encoder.writeBoolean(false);
+                    writeString(entry.getKey().toString());
+                }
+                writeString(entry.getValue().toString());
+            }
+        }
+
+        private void writeStringMap(Map<String, String> values) throws IOException {
+            if (values == null) {
+                encoder.writeSmallInt(0);
+                return;
+            }
+            encoder.writeSmallInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        private void writeStrings(String[] values) throws IOException {
+            encoder.writeSmallInt(values.length);
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                encoder.writeSmallInt(NULL_STRING);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                encoder.writeSmallInt(index + KNOWN_STRING_OFFSET);
+                return;
+            }
+            strings.put(value, strings.size());
+            encoder.writeSmallInt(NEW_STRING);
+            encoder.writeString(value);
+        }
+    }
+
+    private class DescriptorReader {
+        private final Decoder decoder;
+        private final List<String> strings = new ArrayList<String>();
+        private DefaultModuleDescriptor md;
+
+        DescriptorReader(Decoder decoder) {
+            this.decoder = decoder;
+        }
+
+        ModuleDescriptor read() throws Exception {
+            md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+            ModuleRevisionId id = readModuleRevisionId();
+            md.setModuleRevisionId(id);
+            md.setResolvedModuleRevisionId(id);
+            md.setStatus(readString());
+            if (decoder.readBoolean()) {
+                md.setPublicationDate(new Date(decoder.readLong()));
+            }
+            md.setDefault(decoder.readBoolean());
+            for (Map.Entry<String, String> entry : readStringMap().entrySet()) {
+                md.addExtraAttributeNamespace(entry.getKey(), entry.getValue());
+            }
+            readExtraInfo();
+
+            int licenseCount = decoder.readSmallInt();
+            for (int i = 0; i < licenseCount; i++) {
+                md.addLicense(new License(readString(), readString()));
+            }
+            md.setHomePage(readString());
+            md.setDescription(readString());
+
+            int configurationCount = decoder.readSmallInt();
+            for (int i = 0; i < configurationCount; i++) {
+                String name = readString();
+                Configuration.Visibility visibility = Configuration.Visibility.getVisibility(readString());
+                String description = readString();
+                String[] extendsFrom = readStrings();
+                boolean transitive = decoder.readBoolean();
+                String deprecated = readString();
+                md.addConfiguration(new Configuration(name, visibility, description, extendsFrom, transitive, deprecated));
+            }
+
+            int artifactCount = decoder.readSmallInt();
+            for (int i = 0; i < artifactCount; i++) {
+                String name = readString();
+                String type = readString();
+                String ext = readString();
+                String[] configurations = readStrings();
+                String[] registeredConfigurations = readStrings();
+                MDArtifact artifact = new MDArtifact(md, name, type, ext, null, readStringMap());
+                for (String configuration : configurations) {
+                    artifact.addConfiguration(configuration);
+                }
+                for (String configuration : registeredConfigurations) {
+                    md.addArtifact(configuration, artifact);
+                }
+            }
+
+            int dependencyCount = decoder.readSmallInt();
+            for (int i = 0; i < dependencyCount; i++) {
+                md.addDependency(readDependency());
+            }
+
+            int excludeRuleCount = decoder.readSmallInt();
+            for (int i = 0; i < excludeRuleCount; i++) {
+                ArtifactId artifactId = readArtifactId();
+                PatternMatcher matcher = readMatcher();
+                String[] configurations = readStrings();
+                DefaultExcludeRule excludeRule = new DefaultExcludeRule(artifactId, matcher, readStringMap());
+                for (String configuration : configurations) {
+                    excludeRule.addConfiguration(configuration);
+                }
+                md.addExcludeRule(excludeRule);
+            }
+            return md;
+        }
+
+        private DependencyDescriptor readDependency() throws Exception {
+            ModuleRevisionId id = readModuleRevisionId();
+            ModuleRevisionId dynamicId = decoder.readBoolean() ? readModuleRevisionId() : id;
+            boolean force = decoder.readBoolean();
+            boolean changing = decoder.readBoolean();
+            boolean transitive = decoder.readBoolean();
+            DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md, id, dynamicId, force, changing, transitive);
+
+            int moduleConfigurationCount = decoder.readSmallInt();
+            for (int i = 0; i < moduleConfigurationCount; i++) {
+                String moduleConfiguration = readString();
+                for (String dependencyConfiguration : readStrings()) {
+                    dd.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+                }
+            }
+
+            int artifactCount = decoder.readSmallInt();
+            for (int i = 0; i < artifactCount; i++) {
+                String name = readString();
+                String type = readString();
+                String ext = readString();
+                String url = readString();
+                String[] configurations = readStrings();
+                String[] registeredConfigurations = readStrings();
+                DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dd, name, type, ext, url == null ? null : new URL(url), readStringMap());
+                for (String configuration : configurations) {
+                    artifact.addConfiguration(configuration);
+                }
+                for (String configuration : registeredConfigurations) {
+                    dd.addDependencyArtifact(configuration, artifact);
+                }
+            }
+
+            int includeRuleCount = decoder.readSmallInt();
+            for (int i = 0; i < includeRuleCount; i++) {
+                ArtifactId artifactId = readArtifactId();
+                PatternMatcher matcher = readMatcher();
+                String[] configurations = readStrings();
+                DefaultIncludeRule includeRule = new DefaultIncludeRule(artifactId, matcher, readStringMap());
+                for (String configuration : configurations) {
+                    includeRule.addConfiguration(configuration);
+                }
+                for (String configuration : readStrings()) {
+                    dd.addIncludeRule(configuration, includeRule);
+                }
+            }
+
+            int excludeRuleCount = decoder.readSmallInt();
+            for (int i = 0; i < excludeRuleCount; i++) {
+                ArtifactId artifactId = readArtifactId();
+                PatternMatcher matcher = readMatcher();
+                String[] configurations = readStrings();
+                DefaultExcludeRule excludeRule = new DefaultExcludeRule(artifactId, matcher, readStringMap());
+                for (String configuration : configurations) {
+                    excludeRule.addConfiguration(configuration);
+                }
+                for (String configuration : readStrings()) {
+                    dd.addExcludeRule(configuration, excludeRule);
+                }
+            }
+            return dd;
+        }
+
+        private ArtifactId readArtifactId() throws IOException {
+            String org = readString();
+            String module = readString();
+            String name = readString();
+            String type = readString();
+            String ext = readString();
+            return IvyUtil.createArtifactId(org, module, name, type, ext);
+        }
+
+        private PatternMatcher readMatcher() throws IOException {
+            String name = readString();
+            PatternMatcher matcher = resolverStrategy.getPatternMatcher(name);
+            if (matcher == null) {
+                throw new IllegalArgumentException("unknown matcher " + name);
+            }
+            return matcher;
+        }
+
+        private ModuleRevisionId readModuleRevisionId() throws IOException {
+            String org = readString();
+            String name = readString();
+            String branch = readString();
+            String revision = readString();
+            return IvyUtil.createModuleRevisionId(org, name, branch, revision, readStringMap(), false);
+        }
+
+        private void readExtraInfo() throws IOException {
+            Map extraInfo = md.getExtraInfo();
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                Object key = decoder.readBoolean() ? new NamespaceId(readString(), readString()) : readString();
+                extraInfo.put(key, readString());
+            }
+        }
+
+        private Map<String, String> readStringMap() throws IOException {
+            int count = decoder.readSmallInt();
+            Map<String, String> values = new LinkedHashMap<String, String>(count);
+            for (int i = 0; i < count; i++) {
+                values.put(readString(), readString());
+            }
+            return values;
+        }
+
+        private String[] readStrings() throws IOException {
+            String[] values = new String[decoder.readSmallInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int tag = decoder.readSmallInt();
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == NEW_STRING) {
+                String value = decoder.readString();
+                strings.add(value);
+                return value;
+            }
+            return strings.get(tag - KNOWN_STRING_OFFSET);
+        }
+    }
+}
@@ -25,34 +25,59 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModu
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.io.*;
 
+/**
+ * Stores the module descriptors of the meta-data cache. Each descriptor is written as an ivy.xml file and as a binary file encoded with
+ * {@link ModuleDescriptorSerializer}. The binary file is preferred when reading, and the ivy.xml file is used when the binary file is missing
+ * or cannot be read, for example in a cache written by an earlier version. The binary file records the length and modification time of the ivy.xml
+ * file it was written alongside, and is ignored when the ivy.xml file has since been replaced, for example by an earlier version sharing the cache.
+ */
 public class ModuleDescriptorStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleDescriptorStore.class);
 
     public static final String FILE_PATH_PATTERN = "%s/%s/%s/%s/ivy.xml";
+    public static final String BINARY_FILE_PATH_PATTERN = "%s/%s/%s/%s/descriptor.bin";
+    private static final int BINARY_FORMAT_VERSION = 2;
     private final IvyXmlModuleDescriptorParser descriptorParser;
     private final PathKeyFileStore metaDataStore;
     private final IvyModuleDescriptorWriter descriptorWriter;
+    private final ModuleDescriptorSerializer descriptorSerializer;
 
-    public ModuleDescriptorStore(PathKeyFileStore metaDataStore, IvyModuleDescriptorWriter descriptorWriter, IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser) {
+    public ModuleDescriptorStore(PathKeyFileStore metaDataStore, IvyModuleDescriptorWriter descriptorWriter, IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser,
+                                 ModuleDescriptorSerializer descriptorSerializer) {
         this.metaDataStore = metaDataStore;
         this.descriptorWriter = descriptorWriter;
         this.descriptorParser = ivyXmlModuleDescriptorParser;
+        this.descriptorSerializer = descriptorSerializer;
     }
 
     public ModuleDescriptor getModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
         String filePath = getFilePath(repository, moduleComponentIdentifier);
         final LocallyAvailableResource resource = metaDataStore.get(filePath);
-        if (resource != null) {
-            return parseModuleDescriptorFile(resource.getFile());
+        if (resource == null) {
+            return null;
+        }
+        LocallyAvailableResource binaryResource = metaDataStore.get(getBinaryFilePath(repository, moduleComponentIdentifier));
+        if (binaryResource != null) {
+            ModuleDescriptor descriptor = readBinaryFile(binaryResource.getFile(), resource.getFile());
+            if (descriptor != null) {
+                return descriptor;
+            }
         }
-        return null;
+        ModuleDescriptor descriptor = parseModuleDescriptorFile(resource.getFile());
+        putBinaryFile(repository, moduleComponentIdentifier, resource.getFile(), descriptor);
+        return descriptor;
     }
 
     public LocallyAvailableResource putModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier, final ModuleDescriptor moduleDescriptor) {
         String filePath = getFilePath(repository, moduleComponentIdentifier);
-        return metaDataStore.add(filePath, new Action<File>() {
+        LocallyAvailableResource resource = metaDataStore.add(filePath, new Action<File>() {
             public void execute(File moduleDescriptorFile) {
                 try {
                     descriptorWriter.write(moduleDescriptor, moduleDescriptorFile);
@@ -61,6 +86,52 @@ public class ModuleDescriptorStore {
                 }
             }
         });
+        putBinaryFile(repository, moduleComponentIdentifier, resource.getFile(), moduleDescriptor);
+        return resource;
+    }
+
+    private void putBinaryFile(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier, final File moduleDescriptorFile, final ModuleDescriptor moduleDescriptor) {
+        try {
+            metaDataStore.add(getBinaryFilePath(repository, moduleComponentIdentifier), new Action<File>() {
+                public void execute(File binaryFile) {
+                    try {
+                        binaryFile.getParentFile().mkdirs();
+                        KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(binaryFile));
+                        try {
+                            encoder.writeSmallInt(BINARY_FORMAT_VERSION);
+                            encoder.writeLong(moduleDescriptorFile.length());
+                            encoder.writeLong(moduleDescriptorFile.lastModified());
+                            descriptorSerializer.write(encoder, moduleDescriptor);
+                        } finally {
+                            encoder.close();
+                        }
+                    } catch (Exception e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not write binary module descriptor for " + moduleComponentIdentifier + ", will use " + moduleDescriptorFile + ".", e);
+        }
+    }
+
+    private ModuleDescriptor readBinaryFile(File binaryFile, File moduleDescriptorFile) {
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new BufferedInputStream(new FileInputStream(binaryFile)));
+            try {
+                if (decoder.readSmallInt() != BINARY_FORMAT_VERSION
+                        || decoder.readLong() != moduleDescriptorFile.length()
+                        || decoder.readLong() != moduleDescriptorFile.lastModified()) {
+                    return null;
+                }
+                return descriptorSerializer.read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read cached module descriptor " + binaryFile + ", falling back to ivy.xml.", e);
+            return null;
+        }
     }
 
     private ModuleDescriptor parseModuleDescriptorFile(File moduleDescriptorFile) {
@@ -68,6 +139,10 @@ public class ModuleDescriptorStore {
         return descriptorParser.parseMetaData(parserSettings, moduleDescriptorFile, false).getDescriptor();
     }
 
+    private String getBinaryFilePath(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
+        return String.format(BINARY_FILE_PATH_PATTERN, moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule(), moduleComponentIdentifier.getVersion(), repository.getId());
+    }
+
     private String getFilePath(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
         return String.format(FILE_PATH_PATTERN, moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule(), moduleComponentIdentifier.getVersion(), repository.getId());
     }
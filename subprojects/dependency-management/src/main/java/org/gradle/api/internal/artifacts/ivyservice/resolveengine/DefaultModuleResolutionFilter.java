@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.apache.ivy.core.module.descriptor.ExcludeRule;
 import org.apache.ivy.core.module.id.ArtifactId;
 import org.apache.ivy.core.module.id.ModuleId;
@@ -26,6 +28,8 @@ import org.gradle.internal.component.model.DefaultIvyArtifactName;
 import org.gradle.internal.component.model.IvyArtifactName;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Manages sets of exclude rules, allowing union and intersection operations on the rules.
@@ -37,10 +41,18 @@ import java.util.*;
  * <p>Also, this class attempts to be quite accurate in determining if 2 specs will match exactly the same set of modules. {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder} uses this to avoid traversing the
  * dependency graph of a particular version that has already been traversed when a new incoming edge is added (eg a newly discovered dependency) and when an incoming edge is removed (eg a conflict
  * evicts a version that depends on the given version). </p>
+ *
+ * <p>Composite specs are interned, so that equal specs are usually the same instance, and each composite spec remembers the results of its union and
+ * intersection operations. The exact match rules of a spec are indexed by group, module name and module id, and each composite spec remembers its decisions
+ * for the modules it has been asked about. The interned specs are weakly referenced, so that these results are discarded along with the specs once a
+ * resolution no longer uses them.</p>
  */
 public abstract class DefaultModuleResolutionFilter implements ModuleResolutionFilter {
     private static final AcceptAllSpec ALL_SPEC = new AcceptAllSpec();
     private static final String WILDCARD = "*";
+    private static final int MERGED_MAX_SIZE = 256;
+    private static final int ACCEPTED_MODULES_MAX_SIZE = 256;
+    private static final Interner<DefaultModuleResolutionFilter> INSTANCES = Interners.newWeakInterner();
 
     /**
      * Returns a spec that accepts everything.
@@ -56,7 +68,7 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (excludeRules.length == 0) {
             return ALL_SPEC;
         }
-        return new ExcludeRuleBackedSpec(Arrays.asList(excludeRules));
+        return intern(new ExcludeRuleBackedSpec(Arrays.asList(excludeRules)));
     }
 
     /**
@@ -66,13 +78,20 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (excludeRules.isEmpty()) {
             return ALL_SPEC;
         }
-        return new ExcludeRuleBackedSpec(excludeRules);
+        return intern(new ExcludeRuleBackedSpec(excludeRules));
     }
 
     private static boolean isWildcard(String attribute) {
         return WILDCARD.equals(attribute);
     }
 
+    /**
+     * Returns the canonical instance of the given spec.
+     */
+    private static DefaultModuleResolutionFilter intern(DefaultModuleResolutionFilter spec) {
+        return INSTANCES.intern(spec);
+    }
+
     public ModuleResolutionFilter union(ModuleResolutionFilter other) {
         if (other == this) {
             return this;
@@ -83,6 +102,17 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (this == ALL_SPEC) {
             return this;
         }
+        return merge(true, (DefaultModuleResolutionFilter) other);
+    }
+
+    /**
+     * Calculates the union or the intersection of this spec and the given spec.
+     */
+    protected ModuleResolutionFilter merge(boolean union, DefaultModuleResolutionFilter other) {
+        return union ? calculateUnion(other) : calculateIntersection(other);
+    }
+
+    private ModuleResolutionFilter calculateUnion(ModuleResolutionFilter other) {
         List<DefaultModuleResolutionFilter> specs = new ArrayList<DefaultModuleResolutionFilter>();
         unpackUnion(specs);
         ((DefaultModuleResolutionFilter) other).unpackUnion(specs);
@@ -105,7 +135,7 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (specs.size() == 1) {
             return specs.get(0);
         }
-        return new UnionSpec(specs);
+        return intern(new UnionSpec(specs));
     }
 
     protected void unpackUnion(Collection<DefaultModuleResolutionFilter> specs) {
@@ -162,12 +192,14 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         if (this == ALL_SPEC) {
             return other;
         }
+        return merge(false, (DefaultModuleResolutionFilter) other);
+    }
 
+    private ModuleResolutionFilter calculateIntersection(ModuleResolutionFilter other) {
         List<DefaultModuleResolutionFilter> specs = new ArrayList<DefaultModuleResolutionFilter>();
         unpackIntersection(specs);
         ((DefaultModuleResolutionFilter) other).unpackIntersection(specs);
-
-        return new ExcludeRuleBackedSpec(specs);
+        return intern(new ExcludeRuleBackedSpec(specs));
     }
 
     protected void unpackIntersection(Collection<DefaultModuleResolutionFilter> specs) {
@@ -200,8 +232,53 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
     }
 
     private static abstract class CompositeSpec extends DefaultModuleResolutionFilter {
+        // Allocated on first use, as most specs are never merged or asked about a module that needs pattern matching.
+        // Concurrent first uses may each allocate a map, in which case some results are calculated again later.
+        private volatile ConcurrentMap<MergeKey, ModuleResolutionFilter> merged;
+        private volatile ConcurrentMap<ModuleIdentifier, Boolean> acceptedModules;
+        private int hashCode;
+
         abstract Collection<DefaultModuleResolutionFilter> getSpecs();
 
+        /**
+         * Evaluates this spec against the given module. The result is remembered by {@link #acceptModuleMemoized(ModuleIdentifier)}.
+         */
+        protected abstract boolean evaluateModule(ModuleIdentifier module);
+
+        protected boolean acceptModuleMemoized(ModuleIdentifier module) {
+            ConcurrentMap<ModuleIdentifier, Boolean> acceptedModules = this.acceptedModules;
+            Boolean accepted = acceptedModules == null ? null : acceptedModules.get(module);
+            if (accepted == null) {
+                accepted = evaluateModule(module);
+                if (acceptedModules == null) {
+                    acceptedModules = new ConcurrentHashMap<ModuleIdentifier, Boolean>();
+                    this.acceptedModules = acceptedModules;
+                }
+                if (acceptedModules.size() < ACCEPTED_MODULES_MAX_SIZE) {
+                    acceptedModules.put(module, accepted);
+                }
+            }
+            return accepted;
+        }
+
+        @Override
+        protected ModuleResolutionFilter merge(boolean union, DefaultModuleResolutionFilter other) {
+            ConcurrentMap<MergeKey, ModuleResolutionFilter> merged = this.merged;
+            MergeKey key = new MergeKey(union, other);
+            ModuleResolutionFilter result = merged == null ? null : merged.get(key);
+            if (result == null) {
+                result = super.merge(union, other);
+                if (merged == null) {
+                    merged = new ConcurrentHashMap<MergeKey, ModuleResolutionFilter>();
+                    this.merged = merged;
+                }
+                if (merged.size() < MERGED_MAX_SIZE) {
+                    merged.put(key, result);
+                }
+            }
+            return result;
+        }
+
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder();
@@ -235,7 +312,11 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
         @Override
         public int hashCode() {
-            return getSpecs().hashCode();
+            // Composite specs are not modified once constructed
+            if (hashCode == 0) {
+                hashCode = getSpecs().hashCode();
+            }
+            return hashCode;
         }
 
         /**
@@ -260,6 +341,12 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
     private static class ExcludeRuleBackedSpec extends CompositeSpec {
         private final Set<DefaultModuleResolutionFilter> excludeSpecs = new HashSet<DefaultModuleResolutionFilter>();
+        // Flattened view of the specs, used to evaluate the exact match rules with hash lookups. Each collection is null when it would be empty.
+        private Set<ModuleIdentifier> excludedModules;
+        private Set<String> excludedGroups;
+        private Set<String> excludedModuleNames;
+        private List<DefaultModuleResolutionFilter> otherModuleSpecs;
+        private boolean excludesAllModules;
 
         private ExcludeRuleBackedSpec(Iterable<ExcludeRule> excludeRules) {
             for (ExcludeRule rule : excludeRules) {
@@ -289,10 +376,40 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
                     excludeSpecs.add(new ArtifactExcludeSpec(rule));
                 }
             }
+            indexSpecs();
         }
 
         public ExcludeRuleBackedSpec(Collection<DefaultModuleResolutionFilter> specs) {
             this.excludeSpecs.addAll(specs);
+            indexSpecs();
+        }
+
+        private void indexSpecs() {
+            for (DefaultModuleResolutionFilter spec : excludeSpecs) {
+                if (spec instanceof ExcludeAllModulesSpec) {
+                    excludesAllModules = true;
+                } else if (spec instanceof ModuleIdExcludeSpec) {
+                    if (excludedModules == null) {
+                        excludedModules = new HashSet<ModuleIdentifier>();
+                    }
+                    excludedModules.add(((ModuleIdExcludeSpec) spec).moduleId);
+                } else if (spec instanceof GroupNameExcludeSpec) {
+                    if (excludedGroups == null) {
+                        excludedGroups = new HashSet<String>();
+                    }
+                    excludedGroups.add(((GroupNameExcludeSpec) spec).group);
+                } else if (spec instanceof ModuleNameExcludeSpec) {
+                    if (excludedModuleNames == null) {
+                        excludedModuleNames = new HashSet<String>();
+                    }
+                    excludedModuleNames.add(((ModuleNameExcludeSpec) spec).module);
+                } else if (!spec.acceptsAllModules()) {
+                    if (otherModuleSpecs == null) {
+                        otherModuleSpecs = new ArrayList<DefaultModuleResolutionFilter>();
+                    }
+                    otherModuleSpecs.add(spec);
+                }
+            }
         }
 
         @Override
@@ -307,17 +424,28 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
 
         @Override
         protected boolean acceptsAllModules() {
-            for (DefaultModuleResolutionFilter excludeSpec : excludeSpecs) {
-                if (!excludeSpec.acceptsAllModules()) {
-                    return false;
-                }
-            }
-            return true;
+            return !excludesAllModules && excludedModules == null && excludedGroups == null && excludedModuleNames == null && otherModuleSpecs == null;
         }
 
         public boolean acceptModule(ModuleIdentifier element) {
-            for (DefaultModuleResolutionFilter excludeSpec : excludeSpecs) {
-                if (!excludeSpec.acceptModule(element)) {
+            if (excludesAllModules) {
+                return false;
+            }
+            if (excludedGroups != null && excludedGroups.contains(element.getGroup())
+                    || excludedModuleNames != null && excludedModuleNames.contains(element.getName())
+                    || excludedModules != null && excludedModules.contains(element)) {
+                return false;
+            }
+            if (otherModuleSpecs == null) {
+                return true;
+            }
+            return acceptModuleMemoized(element);
+        }
+
+        @Override
+        protected boolean evaluateModule(ModuleIdentifier module) {
+            for (DefaultModuleResolutionFilter spec : otherModuleSpecs) {
+                if (!spec.acceptModule(module)) {
                     return false;
                 }
             }
@@ -376,7 +504,7 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
             if (merged.isEmpty()) {
                 return ALL_SPEC;
             }
-            return new ExcludeRuleBackedSpec(merged);
+            return intern(new ExcludeRuleBackedSpec(merged));
         }
 
         // Add filters to the list that will accept modules that are accepted by either of the candidate filters.
@@ -477,8 +605,13 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
         }
 
         public boolean acceptModule(ModuleIdentifier element) {
+            return acceptModuleMemoized(element);
+        }
+
+        @Override
+        protected boolean evaluateModule(ModuleIdentifier module) {
             for (DefaultModuleResolutionFilter spec : specs) {
-                if (spec.acceptModule(element)) {
+                if (spec.acceptModule(module)) {
                     return true;
                 }
             }
@@ -839,4 +972,33 @@ public abstract class DefaultModuleResolutionFilter implements ModuleResolutionF
             return matcher.getMatcher(expression).matches(input);
         }
     }
+
+    private static class MergeKey {
+        private final boolean union;
+        private final DefaultModuleResolutionFilter other;
+        private final int hashCode;
+
+        private MergeKey(boolean union, DefaultModuleResolutionFilter other) {
+            this.union = union;
+            this.other = other;
+            this.hashCode = 31 * other.hashCode() + (union ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (o == null || o.getClass() != getClass()) {
+                return false;
+            }
+            MergeKey other = (MergeKey) o;
+            return union == other.union && this.other.equals(other.other);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -17,12 +17,14 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import com.google.common.base.Joiner;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolveContext;
@@ -54,10 +56,18 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, dependencyToConfigurationResolver, conflictHandler, null);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ConflictHandler conflictHandler, @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
+        this.metaDataPrefetcher = metaDataPrefetcher;
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -93,6 +103,10 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                if (metaDataPrefetcher != null) {
+                    prefetchMetaData(resolveState, dependencies);
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -154,6 +168,26 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Fetches the meta-data of the components the given edges will be attached to, so that remote repositories are queried for all of them at once
+     * instead of one at a time while the edges are visited. Only the meta-data the traversal would fetch anyway is prefetched, and the graph is not
+     * changed, so the result of the traversal is the same.
+     */
+    private void prefetchMetaData(ResolveState resolveState, List<DependencyEdge> dependencies) {
+        List<Runnable> fetches = new ArrayList<Runnable>();
+        Set<ModuleIdentifier> modules = new HashSet<ModuleIdentifier>();
+        for (DependencyEdge dependency : dependencies) {
+            Runnable fetch = dependency.selector.createMetaDataFetch(resolveState, modules);
+            if (fetch != null) {
+                fetches.add(fetch);
+            }
+        }
+        if (fetches.size() > 1) {
+            LOGGER.debug("Prefetching meta-data for {} components.", fetches.size());
+            metaDataPrefetcher.prefetch(fetches);
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -556,8 +590,11 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            BuildableComponentResolveResult result = firstReference.prefetchedMetaData;
+            if (result == null) {
+                result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -824,6 +861,7 @@ public class DependencyGraphBuilder {
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
+        volatile BuildableComponentResolveResult prefetchedMetaData;
 
         private ModuleVersionSelectorResolveState(DependencyMetaData dependencyMetaData, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
             this.dependencyMetaData = dependencyMetaData;
@@ -864,8 +902,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetaData, idResolveResult);
+            resolveId();
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -884,6 +921,65 @@ public class DependencyGraphBuilder {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
         }
+
+        /**
+         * Resolves the selector to a component id, without adding the component to the graph.
+         */
+        private void resolveId() {
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetaData, idResolveResult);
+            }
+        }
+
+        /**
+         * Returns an operation that resolves the meta-data for the component this selector points to, or null when the traversal would not
+         * fetch it on behalf of this selector. The operation may run on another thread.
+         *
+         * @param claimedModules The modules that meta-data is already being fetched for in the current batch. At most one version of a module is
+         * prefetched, as the others will be in conflict with it.
+         */
+        @Nullable
+        public Runnable createMetaDataFetch(ResolveState resolveState, Set<ModuleIdentifier> claimedModules) {
+            if (targetModuleRevision != null || failure != null) {
+                return null;
+            }
+            resolveId();
+            if (idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null || !(idResolveResult.getId() instanceof ModuleComponentIdentifier)) {
+                return null;
+            }
+            final ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+            // When the module already has a version in the graph, either that version has been resolved through another selector, or this
+            // version will be in conflict with it and may be evicted before its meta-data is needed
+            ModuleResolveState module = resolveState.modules.get(id.getModule());
+            if (module != null && !module.versions.isEmpty()) {
+                return null;
+            }
+            if (!claimedModules.add(id.getModule())) {
+                return null;
+            }
+            final ComponentIdentifier componentId = idResolveResult.getId();
+            final ComponentOverrideMetadata overrideMetadata = DefaultComponentOverrideMetadata.forDependency(dependencyMetaData);
+            final ComponentMetaDataResolver metaDataResolver = resolveState.metaDataResolver;
+            return new Runnable() {
+                public void run() {
+                    BuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                    try {
+                        metaDataResolver.resolve(componentId, overrideMetadata, result);
+                    } catch (Throwable t) {
+                        // Leave it to the traversal to resolve the component again and report the failure
+                        LOGGER.debug("Could not prefetch meta-data for {}.", componentId, t);
+                        return;
+                    }
+                    prefetchedMetaData = result;
+                }
+
+                @Override
+                public String toString() {
+                    return "Resolve ".concat(componentId.getDisplayName());
+                }
+            };
+        }
     }
 
     private static class DirectDependencyForcingResolver implements ModuleConflictResolver {
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.Module;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A persistent cache of resolved dependency graphs, keyed on a hash of the inputs to the resolution of a configuration: the declared dependencies
+ * and excludes, the resolution strategy and the repositories.
+ *
+ * Only configurations whose graph is fully determined by these inputs are cached. Configurations with project dependencies, client modules,
+ * dynamic versions, changing modules, dependency substitution, component selection or component meta-data rules, or local repositories are always resolved. Since
+ * module meta-data for a static version in a remote repository never expires in the {@link org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy},
+ * a cached graph never expires either, and is only ignored when dependencies are being refreshed.
+ */
+public class ResolvedGraphCache {
+    // Increment when the format written by ResolvedGraphSnapshotSerializer changes
+    private static final int CACHE_VERSION = 1;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final boolean refreshDependencies;
+    private PersistentIndexedCache<String, ResolvedGraphSnapshot> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, VersionSelectorScheme versionSelectorScheme, boolean refreshDependencies) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.refreshDependencies = refreshDependencies;
+    }
+
+    private PersistentIndexedCache<String, ResolvedGraphSnapshot> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs-" + CACHE_VERSION, BaseSerializerFactory.STRING_SERIALIZER, new ResolvedGraphSnapshotSerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the cache key for the given resolve context, or returns null when the graph of the context cannot be cached.
+     */
+    @Nullable
+    public String createKey(ResolveContext resolveContext, List<? extends ConfiguredModuleComponentRepository> resolvers, GlobalDependencyResolutionRules metadataHandler) {
+        if (!(resolveContext instanceof ConfigurationInternal)) {
+            return null;
+        }
+        ConfigurationInternal configuration = (ConfigurationInternal) resolveContext;
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules() || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        List<String> parts = new ArrayList<String>();
+        Module module = configuration.getModule();
+        parts.add(configuration.getPath());
+        parts.add(module.getGroup() + ":" + module.getName() + ":" + module.getVersion() + ":" + module.getStatus());
+        for (Configuration superConfiguration : configuration.getHierarchy()) {
+            parts.add(superConfiguration.getName() + ":" + superConfiguration.isTransitive() + ":" + excludes(superConfiguration.getExcludeRules()));
+        }
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            if (dependency instanceof ProjectDependency || dependency instanceof ClientModule) {
+                return null;
+            }
+            if (!(dependency instanceof ExternalModuleDependency)) {
+                parts.add(dependency.getClass().getName());
+                continue;
+            }
+            ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+            if (moduleDependency.isChanging() || moduleDependency.getVersion() == null || versionSelectorScheme.parseSelector(moduleDependency.getVersion()).isDynamic()) {
+                return null;
+            }
+            parts.add(moduleDependency.getGroup() + ":" + moduleDependency.getName() + ":" + moduleDependency.getVersion() + ":" + moduleDependency.getConfiguration()
+                + ":" + moduleDependency.isTransitive() + ":" + moduleDependency.isForce() + ":" + artifacts(moduleDependency.getArtifacts()) + ":" + excludes(moduleDependency.getExcludeRules()));
+        }
+        parts.add(resolutionStrategy.getConflictResolution().getClass().getName());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            parts.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        for (ConfiguredModuleComponentRepository resolver : resolvers) {
+            if (resolver.isLocal()) {
+                return null;
+            }
+            parts.add(resolver.getId());
+        }
+        return HashUtil.createHash(CollectionUtils.join("::", parts), "MD5").asHexString();
+    }
+
+    /**
+     * Replays the cached graph for the given key to the visitors, if present.
+     *
+     * @return true if the graph was replayed, false if it has to be resolved.
+     */
+    public boolean replay(String key, ResolveContext resolveContext, GlobalDependencyResolutionRules metadataHandler, ArtifactResolver artifactResolver,
+                          DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        if (refreshDependencies) {
+            return false;
+        }
+        ResolvedGraphSnapshot snapshot = getCache().get(key);
+        if (snapshot == null) {
+            return false;
+        }
+        ModuleReplacementsData moduleReplacements = metadataHandler.getModuleMetadataProcessor().getModuleReplacements();
+        for (ModuleVersionIdentifier moduleVersion : snapshot.getModuleVersions()) {
+            if (moduleReplacements.getReplacementFor(moduleVersion.getModule()) != null) {
+                return false;
+            }
+        }
+        snapshot.replay(firstLevelDependencies(resolveContext), artifactResolver, graphVisitor, artifactsVisitor);
+        return true;
+    }
+
+    public ResolvedGraphRecorder createRecorder(ResolveContext resolveContext, GlobalDependencyResolutionRules metadataHandler) {
+        return new ResolvedGraphRecorder(firstLevelDependencies(resolveContext), versionSelectorScheme, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
+    }
+
+    /**
+     * Stores the graph captured by the given recorder, if it could be captured.
+     */
+    public void store(String key, ResolvedGraphRecorder recorder) {
+        ResolvedGraphSnapshot snapshot = recorder.getSnapshot();
+        if (snapshot != null) {
+            getCache().put(key, snapshot);
+        }
+    }
+
+    private static List<Dependency> firstLevelDependencies(ResolveContext resolveContext) {
+        return new ArrayList<Dependency>(((Configuration) resolveContext).getAllDependencies());
+    }
+
+    private static String excludes(Iterable<ExcludeRule> excludeRules) {
+        List<String> result = new ArrayList<String>();
+        for (ExcludeRule excludeRule : excludeRules) {
+            result.add(excludeRule.getGroup() + ":" + excludeRule.getModule());
+        }
+        return CollectionUtils.join(",", result);
+    }
+
+    private static String artifacts(Iterable<DependencyArtifact> artifacts) {
+        List<String> result = new ArrayList<String>();
+        for (DependencyArtifact artifact : artifacts) {
+            result.add(artifact.getName() + ":" + artifact.getType() + ":" + artifact.getExtension() + ":" + artifact.getClassifier() + ":" + artifact.getUrl());
+        }
+        return CollectionUtils.join(",", result);
+    }
+}
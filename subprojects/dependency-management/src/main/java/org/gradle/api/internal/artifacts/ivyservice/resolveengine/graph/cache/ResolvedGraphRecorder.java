@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records a {@link ResolvedGraphSnapshot} while the dependency graph of a configuration is visited. Must be registered as a graph visitor after the
+ * visitor that produces the artifact sets, and as an artifacts visitor.
+ *
+ * Recording is abandoned as soon as the graph contains something whose resolution may differ in a later build: a failure, a component that is not
+ * a module, a dynamic version, a changing module or a module with a replacement.
+ */
+public class ResolvedGraphRecorder implements DependencyGraphVisitor, DependencyArtifactsVisitor {
+    private final List<? extends Dependency> firstLevelDependencies;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleReplacementsData moduleReplacements;
+
+    private final Map<ResolvedConfigurationIdentifier, Integer> nodeIndexes = new HashMap<ResolvedConfigurationIdentifier, Integer>();
+    private final Map<DependencyGraphEdge, Integer> edgeIndexes = new IdentityHashMap<DependencyGraphEdge, Integer>();
+    private final List<NodeBuilder> nodes = new ArrayList<NodeBuilder>();
+    private final List<ResolvedGraphSnapshot.EdgeData> edges = new ArrayList<ResolvedGraphSnapshot.EdgeData>();
+    private final Map<Long, ResolvedGraphSnapshot.ArtifactSetData> artifactSets = new HashMap<Long, ResolvedGraphSnapshot.ArtifactSetData>();
+    private final List<ResolvedGraphSnapshot.ArtifactSetData> orderedArtifactSets = new ArrayList<ResolvedGraphSnapshot.ArtifactSetData>();
+    private final List<Long> pendingArtifactSets = new ArrayList<Long>();
+
+    private DependencyGraphNode root;
+    private int rootIndex = -1;
+    private boolean cacheable = true;
+    private ResolvedGraphSnapshot snapshot;
+
+    public ResolvedGraphRecorder(List<? extends Dependency> firstLevelDependencies, VersionSelectorScheme versionSelectorScheme, ModuleReplacementsData moduleReplacements) {
+        this.firstLevelDependencies = firstLevelDependencies;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleReplacements = moduleReplacements;
+    }
+
+    /**
+     * Returns the snapshot of the graph, or null when the graph cannot be cached.
+     */
+    @Nullable
+    public ResolvedGraphSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void start(DependencyGraphNode root) {
+        this.root = root;
+    }
+
+    public void visitNode(DependencyGraphNode node) {
+        if (!cacheable) {
+            return;
+        }
+        NodeBuilder builder = new NodeBuilder(node);
+        if (node == root) {
+            rootIndex = nodes.size();
+        } else {
+            if (!(node.getComponentId() instanceof ModuleComponentIdentifier)) {
+                abandon();
+                return;
+            }
+            ConfigurationMetaData metaData = node.getMetaData();
+            ComponentResolveMetaData component = metaData.getComponent();
+            if (component.isChanging() || moduleReplacements.getReplacementFor(node.toId().getModule()) != null) {
+                abandon();
+                return;
+            }
+            builder.moduleSource = component.getSource();
+        }
+        nodeIndexes.put(node.getNodeId(), nodes.size());
+        nodes.add(builder);
+
+        for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+            if (edge.getFailure() != null || !isStatic(edge.getRequested())) {
+                abandon();
+                return;
+            }
+            builder.outgoingEdges.add(edgeIndex(edge));
+        }
+    }
+
+    public void visitEdge(DependencyGraphNode node) {
+        if (!cacheable) {
+            return;
+        }
+        NodeBuilder builder = nodes.get(nodeIndexes.get(node.getNodeId()));
+        if (pendingArtifactSets.size() != node.getIncomingEdges().size()) {
+            abandon();
+            return;
+        }
+        int i = 0;
+        for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+            Integer edgeIndex = edgeIndexes.get(edge);
+            if (edgeIndex == null) {
+                abandon();
+                return;
+            }
+            builder.incomingEdges.add(edgeIndex);
+            builder.incomingArtifactSets.add(pendingArtifactSets.get(i++));
+        }
+        pendingArtifactSets.clear();
+    }
+
+    public void visitArtifacts(ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child, ArtifactSet artifacts) {
+        if (!cacheable) {
+            return;
+        }
+        pendingArtifactSets.add(artifacts.getId());
+        if (artifactSets.containsKey(artifacts.getId())) {
+            return;
+        }
+        List<ModuleComponentArtifactIdentifier> artifactIds = new ArrayList<ModuleComponentArtifactIdentifier>();
+        for (ResolvedArtifact artifact : artifacts.getArtifacts()) {
+            ComponentArtifactIdentifier id = artifact.getId();
+            if (!(id instanceof DefaultModuleComponentArtifactIdentifier)) {
+                abandon();
+                return;
+            }
+            artifactIds.add((ModuleComponentArtifactIdentifier) id);
+        }
+        ResolvedGraphSnapshot.ArtifactSetData artifactSet = new ResolvedGraphSnapshot.ArtifactSetData(artifacts.getId(), nodeIndexes.get(child), artifactIds);
+        artifactSets.put(artifacts.getId(), artifactSet);
+        orderedArtifactSets.add(artifactSet);
+    }
+
+    public void finish(DependencyGraphNode root) {
+    }
+
+    public void finishArtifacts() {
+        if (!cacheable || rootIndex < 0) {
+            return;
+        }
+        List<ResolvedGraphSnapshot.NodeData> nodeData = new ArrayList<ResolvedGraphSnapshot.NodeData>(nodes.size());
+        for (NodeBuilder node : nodes) {
+            nodeData.add(node.build());
+        }
+        snapshot = new ResolvedGraphSnapshot(rootIndex, nodeData, edges, orderedArtifactSets);
+    }
+
+    private int edgeIndex(DependencyGraphEdge edge) {
+        Integer index = edgeIndexes.get(edge);
+        if (index == null) {
+            index = edges.size();
+            edgeIndexes.put(edge, index);
+            int from = nodeIndexes.get(edge.getFrom().getNodeId());
+            edges.add(new ResolvedGraphSnapshot.EdgeData(from, edge.getRequested(), edge.getSelected(), firstLevelDependencyIndex(edge.getModuleDependency())));
+        }
+        return index;
+    }
+
+    private int firstLevelDependencyIndex(@Nullable ModuleDependency dependency) {
+        if (dependency == null) {
+            return -1;
+        }
+        for (int i = 0; i < firstLevelDependencies.size(); i++) {
+            if (firstLevelDependencies.get(i) == dependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isStatic(ComponentSelector requested) {
+        return requested instanceof ModuleComponentSelector
+            && !versionSelectorScheme.parseSelector(((ModuleComponentSelector) requested).getVersion()).isDynamic();
+    }
+
+    private void abandon() {
+        cacheable = false;
+        nodes.clear();
+        edges.clear();
+        edgeIndexes.clear();
+        artifactSets.clear();
+        orderedArtifactSets.clear();
+        pendingArtifactSets.clear();
+    }
+
+    private static class NodeBuilder {
+        private final ResolvedConfigurationIdentifier id;
+        private final ModuleVersionSelection selection;
+        private ModuleSource moduleSource;
+        private final List<Integer> incomingEdges = new ArrayList<Integer>();
+        private final List<Long> incomingArtifactSets = new ArrayList<Long>();
+        private final List<Integer> outgoingEdges = new ArrayList<Integer>();
+
+        private NodeBuilder(DependencyGraphNode node) {
+            ModuleVersionSelection selection = node.getSelection();
+            this.id = node.getNodeId();
+            this.selection = new DefaultModuleVersionSelection(selection.getId(), selection.getSelectionReason(), selection.getComponentId());
+        }
+
+        ResolvedGraphSnapshot.NodeData build() {
+            int[] incoming = new int[incomingEdges.size()];
+            long[] incomingSets = new long[incomingEdges.size()];
+            for (int i = 0; i < incoming.length; i++) {
+                incoming[i] = incomingEdges.get(i);
+                incomingSets[i] = incomingArtifactSets.get(i);
+            }
+            int[] outgoing = new int[outgoingEdges.size()];
+            for (int i = 0; i < outgoing.length; i++) {
+                outgoing[i] = outgoingEdges.get(i);
+            }
+            return new ResolvedGraphSnapshot.NodeData(id, selection, moduleSource, incoming, incomingSets, outgoing);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable copy of the result of traversing the dependency graph of a configuration, along with the artifacts selected for each edge.
+ * The snapshot can be replayed to the same visitors that consume the output of {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder},
+ * so that the results can be built without traversing the graph again.
+ *
+ * Only graphs made up of successfully resolved module components can be represented. Nodes do not retain their meta-data.
+ */
+public class ResolvedGraphSnapshot {
+    final int rootIndex;
+    final List<NodeData> nodes;
+    final List<EdgeData> edges;
+    final List<ArtifactSetData> artifactSets;
+
+    ResolvedGraphSnapshot(int rootIndex, List<NodeData> nodes, List<EdgeData> edges, List<ArtifactSetData> artifactSets) {
+        this.rootIndex = rootIndex;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.artifactSets = artifactSets;
+    }
+
+    public List<ModuleVersionIdentifier> getModuleVersions() {
+        List<ModuleVersionIdentifier> result = new ArrayList<ModuleVersionIdentifier>(nodes.size());
+        for (NodeData node : nodes) {
+            result.add(node.selection.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Replays the graph to the given visitors, in the same order as the graph builder visits a freshly resolved graph.
+     *
+     * @param firstLevelDependencies The declared dependencies of the configuration, in the same order as when the snapshot was recorded.
+     * @param artifactResolver The resolver to use to locate the files of the artifacts.
+     */
+    public void replay(List<? extends Dependency> firstLevelDependencies, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        List<ReplayedNode> replayedNodes = new ArrayList<ReplayedNode>(nodes.size());
+        for (NodeData node : nodes) {
+            replayedNodes.add(new ReplayedNode(node));
+        }
+        List<ReplayedEdge> replayedEdges = new ArrayList<ReplayedEdge>(edges.size());
+        for (EdgeData edge : edges) {
+            ModuleDependency moduleDependency = edge.moduleDependency < 0 ? null : (ModuleDependency) firstLevelDependencies.get(edge.moduleDependency);
+            replayedEdges.add(new ReplayedEdge(replayedNodes.get(edge.from), edge, moduleDependency));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeData node = nodes.get(i);
+            ReplayedNode replayedNode = replayedNodes.get(i);
+            for (int edge : node.incomingEdges) {
+                replayedNode.incomingEdges.add(replayedEdges.get(edge));
+            }
+            for (int edge : node.outgoingEdges) {
+                replayedNode.outgoingEdges.add(replayedEdges.get(edge));
+            }
+        }
+
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = Maps.newHashMap();
+        Map<Long, ArtifactSet> sets = Maps.newHashMap();
+        for (ArtifactSetData artifactSet : artifactSets) {
+            NodeData owner = nodes.get(artifactSet.owner);
+            Set<ComponentArtifactMetaData> artifacts = new LinkedHashSet<ComponentArtifactMetaData>();
+            for (ModuleComponentArtifactIdentifier artifact : artifactSet.artifacts) {
+                artifacts.add(new DefaultModuleComponentArtifactMetaData(artifact));
+            }
+            sets.put(artifactSet.id, new DefaultArtifactSet(owner.selection.getId(), owner.moduleSource, DefaultModuleResolutionFilter.all(), artifacts, artifactResolver, allResolvedArtifacts, artifactSet.id));
+        }
+
+        ReplayedNode root = replayedNodes.get(rootIndex);
+        graphVisitor.start(root);
+        for (ReplayedNode node : replayedNodes) {
+            graphVisitor.visitNode(node);
+        }
+        for (ReplayedNode node : replayedNodes) {
+            graphVisitor.visitEdge(node);
+            long[] incomingArtifacts = node.data.incomingArtifactSets;
+            int i = 0;
+            for (DependencyGraphEdge edge : node.incomingEdges) {
+                artifactsVisitor.visitArtifacts(edge.getFrom().getNodeId(), node.getNodeId(), sets.get(incomingArtifacts[i++]));
+            }
+        }
+        graphVisitor.finish(root);
+        artifactsVisitor.finishArtifacts();
+    }
+
+    static class NodeData {
+        final ResolvedConfigurationIdentifier id;
+        final ModuleVersionSelection selection;
+        final ModuleSource moduleSource;
+        final int[] incomingEdges;
+        final long[] incomingArtifactSets;
+        final int[] outgoingEdges;
+
+        NodeData(ResolvedConfigurationIdentifier id, ModuleVersionSelection selection, ModuleSource moduleSource, int[] incomingEdges, long[] incomingArtifactSets, int[] outgoingEdges) {
+            this.id = id;
+            this.selection = selection;
+            this.moduleSource = moduleSource;
+            this.incomingEdges = incomingEdges;
+            this.incomingArtifactSets = incomingArtifactSets;
+            this.outgoingEdges = outgoingEdges;
+        }
+    }
+
+    static class EdgeData {
+        final int from;
+        final ComponentSelector requested;
+        final ModuleVersionIdentifier selected;
+        final int moduleDependency;
+
+        EdgeData(int from, ComponentSelector requested, ModuleVersionIdentifier selected, int moduleDependency) {
+            this.from = from;
+            this.requested = requested;
+            this.selected = selected;
+            this.moduleDependency = moduleDependency;
+        }
+    }
+
+    static class ArtifactSetData {
+        final long id;
+        final int owner;
+        final List<ModuleComponentArtifactIdentifier> artifacts;
+
+        ArtifactSetData(long id, int owner, List<ModuleComponentArtifactIdentifier> artifacts) {
+            this.id = id;
+            this.owner = owner;
+            this.artifacts = artifacts;
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final NodeData data;
+        private final Set<DependencyGraphEdge> incomingEdges = new LinkedHashSet<DependencyGraphEdge>();
+        private final Set<DependencyGraphEdge> outgoingEdges = new LinkedHashSet<DependencyGraphEdge>();
+
+        private ReplayedNode(NodeData data) {
+            this.data = data;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getNodeId() {
+            return data.id;
+        }
+
+        @Override
+        public ModuleVersionIdentifier toId() {
+            return data.selection.getId();
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return data.selection.getComponentId();
+        }
+
+        @Override
+        public ModuleVersionSelection getSelection() {
+            return data.selection;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Set<DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public ConfigurationMetaData getMetaData() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", data.id.getId(), data.id.getConfiguration());
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final DependencyGraphNode from;
+        private final EdgeData data;
+        private final ModuleDependency moduleDependency;
+
+        private ReplayedEdge(DependencyGraphNode from, EdgeData data, ModuleDependency moduleDependency) {
+            this.from = from;
+            this.data = data;
+            this.moduleDependency = moduleDependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            ModuleComponentSelector requested = (ModuleComponentSelector) data.requested;
+            return new DefaultModuleVersionSelector(requested.getGroup(), requested.getModule(), requested.getVersion());
+        }
+
+        @Override
+        public ModuleResolutionFilter getSelector() {
+            return DefaultModuleResolutionFilter.all();
+        }
+
+        @Override
+        public Set<ComponentArtifactMetaData> getArtifacts(ConfigurationMetaData metaData) {
+            throw new UnsupportedOperationException("Artifacts of a replayed edge are provided by the snapshot.");
+        }
+
+        @Override
+        public ModuleDependency getModuleDependency() {
+            return moduleDependency;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return data.requested;
+        }
+
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getSelected() {
+            return data.selected;
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s", from, data.requested);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache;
+
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectorSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.metadata.ModuleVersionArtifactIdentifierSerializer;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResolvedGraphSnapshotSerializer implements Serializer<ResolvedGraphSnapshot> {
+    private final ResolvedConfigurationIdentifierSerializer nodeIdSerializer = new ResolvedConfigurationIdentifierSerializer();
+    private final ModuleVersionSelectionSerializer selectionSerializer = new ModuleVersionSelectionSerializer();
+    private final ComponentSelectorSerializer selectorSerializer = new ComponentSelectorSerializer();
+    private final ModuleVersionIdentifierSerializer idSerializer = new ModuleVersionIdentifierSerializer();
+    private final ModuleVersionArtifactIdentifierSerializer artifactIdSerializer = new ModuleVersionArtifactIdentifierSerializer();
+    private final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+
+    public ResolvedGraphSnapshot read(Decoder decoder) throws Exception {
+        int rootIndex = decoder.readSmallInt();
+
+        int nodeCount = decoder.readSmallInt();
+        List<ResolvedGraphSnapshot.NodeData> nodes = new ArrayList<ResolvedGraphSnapshot.NodeData>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            ResolvedConfigurationIdentifier id = nodeIdSerializer.read(decoder);
+            ModuleVersionSelection selection = selectionSerializer.read(decoder);
+            ModuleSource moduleSource = decoder.readBoolean() ? moduleSourceSerializer.read(decoder) : null;
+            int incomingCount = decoder.readSmallInt();
+            int[] incomingEdges = new int[incomingCount];
+            long[] incomingArtifactSets = new long[incomingCount];
+            for (int j = 0; j < incomingCount; j++) {
+                incomingEdges[j] = decoder.readSmallInt();
+                incomingArtifactSets[j] = decoder.readSmallLong();
+            }
+            int[] outgoingEdges = new int[decoder.readSmallInt()];
+            for (int j = 0; j < outgoingEdges.length; j++) {
+                outgoingEdges[j] = decoder.readSmallInt();
+            }
+            nodes.add(new ResolvedGraphSnapshot.NodeData(id, selection, moduleSource, incomingEdges, incomingArtifactSets, outgoingEdges));
+        }
+
+        int edgeCount = decoder.readSmallInt();
+        List<ResolvedGraphSnapshot.EdgeData> edges = new ArrayList<ResolvedGraphSnapshot.EdgeData>(edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int from = decoder.readSmallInt();
+            ComponentSelector requested = selectorSerializer.read(decoder);
+            ModuleVersionIdentifier selected = idSerializer.read(decoder);
+            int moduleDependency = decoder.readInt();
+            edges.add(new ResolvedGraphSnapshot.EdgeData(from, requested, selected, moduleDependency));
+        }
+
+        int setCount = decoder.readSmallInt();
+        List<ResolvedGraphSnapshot.ArtifactSetData> artifactSets = new ArrayList<ResolvedGraphSnapshot.ArtifactSetData>(setCount);
+        for (int i = 0; i < setCount; i++) {
+            long id = decoder.readSmallLong();
+            int owner = decoder.readSmallInt();
+            int artifactCount = decoder.readSmallInt();
+            List<ModuleComponentArtifactIdentifier> artifacts = new ArrayList<ModuleComponentArtifactIdentifier>(artifactCount);
+            for (int j = 0; j < artifactCount; j++) {
+                artifacts.add(artifactIdSerializer.read(decoder));
+            }
+            artifactSets.add(new ResolvedGraphSnapshot.ArtifactSetData(id, owner, artifacts));
+        }
+
+        return new ResolvedGraphSnapshot(rootIndex, nodes, edges, artifactSets);
+    }
+
+    public void write(Encoder encoder, ResolvedGraphSnapshot value) throws Exception {
+        encoder.writeSmallInt(value.rootIndex);
+
+        encoder.writeSmallInt(value.nodes.size());
+        for (ResolvedGraphSnapshot.NodeData node : value.nodes) {
+            nodeIdSerializer.write(encoder, node.id);
+            selectionSerializer.write(encoder, node.selection);
+            encoder.writeBoolean(node.moduleSource != null);
+            if (node.moduleSource != null) {
+                moduleSourceSerializer.write(encoder, node.moduleSource);
+            }
+            encoder.writeSmallInt(node.incomingEdges.length);
+            for (int j = 0; j < node.incomingEdges.length; j++) {
+                encoder.writeSmallInt(node.incomingEdges[j]);
+                encoder.writeSmallLong(node.incomingArtifactSets[j]);
+            }
+            encoder.writeSmallInt(node.outgoingEdges.length);
+            for (int edge : node.outgoingEdges) {
+                encoder.writeSmallInt(edge);
+            }
+        }
+
+        encoder.writeSmallInt(value.edges.size());
+        for (ResolvedGraphSnapshot.EdgeData edge : value.edges) {
+            encoder.writeSmallInt(edge.from);
+            selectorSerializer.write(encoder, edge.requested);
+            idSerializer.write(encoder, edge.selected);
+            encoder.writeInt(edge.moduleDependency);
+        }
+
+        encoder.writeSmallInt(value.artifactSets.size());
+        for (ResolvedGraphSnapshot.ArtifactSetData artifactSet : value.artifactSets) {
+            encoder.writeSmallLong(artifactSet.id);
+            encoder.writeSmallInt(artifactSet.owner);
+            encoder.writeSmallInt(artifactSet.artifacts.size());
+            for (ModuleComponentArtifactIdentifier artifact : artifactSet.artifacts) {
+                artifactIdSerializer.write(encoder, artifact);
+            }
+        }
+    }
+}
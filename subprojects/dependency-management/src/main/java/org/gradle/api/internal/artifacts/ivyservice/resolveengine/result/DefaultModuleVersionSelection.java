@@ -20,7 +20,7 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 
-class DefaultModuleVersionSelection implements ModuleVersionSelection {
+public class DefaultModuleVersionSelection implements ModuleVersionSelection {
     private ModuleVersionIdentifier id;
     private ComponentSelectionReason reason;
     private ComponentIdentifier componentIdentifier;
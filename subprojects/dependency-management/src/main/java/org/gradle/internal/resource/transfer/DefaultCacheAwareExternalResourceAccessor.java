@@ -34,7 +34,6 @@ import org.gradle.internal.resource.cached.CachedExternalResource;
 import org.gradle.internal.resource.cached.CachedExternalResourceIndex;
 import org.gradle.internal.resource.local.*;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
-import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 import org.gradle.internal.resource.transport.ExternalResourceRepository;
 import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.GFileUtils;
@@ -80,55 +79,61 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
         }
 
-        // Get the metadata first to see if it's there
-        final ExternalResourceMetaData remoteMetaData = delegate.getResourceMetaData(location);
-        if (remoteMetaData == null) {
+        // Fetch the resource. When there is a cached version, the content is only transferred when it has changed
+        ExternalResourceRepository repository = delegate.withProgressLogging();
+        ExternalResource resource = cached == null ? repository.getResource(location) : repository.getResource(location, cached.getExternalResourceMetaData());
+        if (resource == null) {
             return null;
         }
 
         // Is the cached version still current?
-        if (cached != null) {
-            boolean isUnchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(
-                    cached.getExternalResourceMetaData(),
-                    new Factory<ExternalResourceMetaData>() {
-                        public ExternalResourceMetaData create() {
-                            return remoteMetaData;
-                        }
-                    }
-            );
-
-            if (isUnchanged) {
-                LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", cached.getExternalLastModified(), location);
-                // TODO - update the index with the new remote meta-data
-                return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
-            }
+        if (cached != null && resource.isUnchanged()) {
+            resource.close();
+            LOGGER.info("Cached resource {} is up-to-date (lastModified: {}).", location, cached.getExternalLastModified());
+            // TODO - update the index with the new remote meta-data
+            return new DefaultLocallyAvailableExternalResource(location, new DefaultLocallyAvailableResource(cached.getCachedFile()), cached.getExternalResourceMetaData());
         }
 
-        // Either no cached, or it's changed. See if we can find something local with the same checksum
+        // Either no cached, or it's changed. See if we can find something local with the same checksum before reading the content
         boolean hasLocalCandidates = localCandidates != null && !localCandidates.isNone();
         if (hasLocalCandidates) {
             // The “remote” may have already given us the checksum
+            ExternalResourceMetaData remoteMetaData = resource.getMetaData();
             HashValue remoteChecksum = remoteMetaData.getSha1();
 
             if (remoteChecksum == null) {
-                remoteChecksum = getResourceSha1(location);
-            }
-
-            if (remoteChecksum != null) {
-                LocallyAvailableResource local = localCandidates.findByHashValue(remoteChecksum);
+                // The published checksum is fetched with a separate request, so stop the transfer and request the content again when no candidate matches
+                resource.close();
+                LocallyAvailableExternalResource local = copyMatchingCandidateToCache(location, fileStore, localCandidates, remoteMetaData, getResourceSha1(location));
                 if (local != null) {
-                    LOGGER.info("Found locally available resource with matching checksum: [{}, {}]", location, local.getFile());
-                    // TODO - should iterate over each candidate until we successfully copy into the cache
-                    LocallyAvailableExternalResource resource = copyCandidateToCache(location, fileStore, remoteMetaData, remoteChecksum, local);
-                    if (resource != null) {
-                        return resource;
-                    }
+                    return local;
                 }
+                return copyToCache(location, fileStore, repository.getResource(location));
+            }
+
+            LocallyAvailableExternalResource local = copyMatchingCandidateToCache(location, fileStore, localCandidates, remoteMetaData, remoteChecksum);
+            if (local != null) {
+                resource.close();
+                return local;
             }
         }
 
-        // All local/cached options failed, get directly
-        return copyToCache(location, fileStore, delegate.withProgressLogging().getResource(location));
+        // All local/cached options failed, use the content that the remote repository sent
+        return copyToCache(location, fileStore, resource);
+    }
+
+    @Nullable
+    private LocallyAvailableExternalResource copyMatchingCandidateToCache(URI location, ResourceFileStore fileStore, LocallyAvailableResourceCandidates localCandidates, ExternalResourceMetaData remoteMetaData, @Nullable HashValue remoteChecksum) throws IOException {
+        if (remoteChecksum == null) {
+            return null;
+        }
+        LocallyAvailableResource local = localCandidates.findByHashValue(remoteChecksum);
+        if (local == null) {
+            return null;
+        }
+        LOGGER.info("Found locally available resource with matching checksum: [{}, {}]", location, local.getFile());
+        // TODO - should iterate over each candidate until we successfully copy into the cache
+        return copyCandidateToCache(location, fileStore, remoteMetaData, remoteChecksum, local);
     }
 
     private HashValue getResourceSha1(URI location) {
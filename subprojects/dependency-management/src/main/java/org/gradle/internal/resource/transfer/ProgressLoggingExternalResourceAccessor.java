@@ -41,6 +41,15 @@ public class ProgressLoggingExternalResourceAccessor extends AbstractProgressLog
         }
     }
 
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        ExternalResourceReadResponse resource = delegate.openResource(location, cachedMetaData);
+        if (resource != null && !(resource instanceof UnchangedResourceReadResponse)) {
+            return new ProgressLoggingExternalResource(location, resource);
+        } else {
+            return resource;
+        }
+    }
+
     @Nullable
     public ExternalResourceMetaData getMetaData(URI location) {
         return delegate.getMetaData(location);
@@ -64,6 +64,11 @@ public class DefaultExternalResourceRepository implements ExternalResourceReposi
         return response == null ? null : new DefaultExternalResource(source, response);
     }
 
+    public ExternalResource getResource(URI source, ExternalResourceMetaData cachedMetaData) {
+        ExternalResourceReadResponse response = accessor.openResource(source, cachedMetaData);
+        return response == null ? null : new DefaultExternalResource(source, response);
+    }
+
     public ExternalResourceMetaData getResourceMetaData(URI source) {
         return accessor.getMetaData(source);
     }
@@ -41,6 +41,16 @@ public interface ExternalResourceRepository {
     @Nullable
     ExternalResource getResource(URI source) throws ResourceException;
 
+    /**
+     * Attempts to fetch the given resource, avoiding the transfer of its content where possible when it has not changed since the given meta-data was obtained.
+     * When the resource is known to be unchanged, the result has the given meta-data instance and no content. Otherwise, the result carries the current content.
+     *
+     * @return null if the resource is not found.
+     * @throws ResourceException On failure to fetch resource.
+     */
+    @Nullable
+    ExternalResource getResource(URI source, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
     /**
      * Transfer a resource to the repository
      *
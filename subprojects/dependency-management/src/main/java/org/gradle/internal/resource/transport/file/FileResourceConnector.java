@@ -79,6 +79,10 @@ public class FileResourceConnector implements ExternalResourceRepository {
         return new DefaultLocallyAvailableExternalResource(uri, new DefaultLocallyAvailableResource(localFile));
     }
 
+    public LocallyAvailableExternalResource getResource(URI uri, ExternalResourceMetaData cachedMetaData) {
+        return getResource(uri);
+    }
+
     public ExternalResourceMetaData getResourceMetaData(URI location) {
         ExternalResource resource = getResource(location);
         return resource == null ? null : resource.getMetaData();
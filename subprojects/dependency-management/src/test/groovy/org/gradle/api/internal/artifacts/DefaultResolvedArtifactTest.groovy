@@ -44,6 +44,53 @@ class DefaultResolvedArtifactTest extends Specification {
         artifact != differentId
     }
 
+    def "file resolved ahead of time is returned without resolving it again"() {
+        def file = new File("lib.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), artifactSource)
+
+        when:
+        artifact.resolveFile()
+
+        then:
+        1 * artifactSource.create() >> file
+        artifact.resolved
+
+        when:
+        def result = artifact.file
+
+        then:
+        result == file
+        0 * artifactSource._
+    }
+
+    def "failure to resolve file ahead of time is thrown by next call to get file"() {
+        def failure = new RuntimeException("broken")
+        def file = new File("lib.jar")
+        def artifact = new DefaultResolvedArtifact(dep("group", "module1", "1.2"), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), artifactSource)
+
+        when:
+        artifact.resolveFile()
+
+        then:
+        1 * artifactSource.create() >> { throw failure }
+        noExceptionThrown()
+
+        when:
+        artifact.file
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        0 * artifactSource._
+
+        when:
+        def result = artifact.file
+
+        then:
+        1 * artifactSource.create() >> file
+        result == file
+    }
+
     def dep(String group, String moduleName, String version) {
         ResolvedModuleVersion module = Mock()
         _ * module.id >> new DefaultModuleVersionIdentifier(group, moduleName, version)
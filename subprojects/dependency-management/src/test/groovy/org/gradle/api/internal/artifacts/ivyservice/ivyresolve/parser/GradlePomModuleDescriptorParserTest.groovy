@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
 
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.MavenModuleResolveMetaData
 import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource
 import org.gradle.internal.resource.local.DefaultLocallyAvailableResource
@@ -151,6 +153,119 @@ class GradlePomModuleDescriptorParserTest extends AbstractGradlePomModuleDescrip
         inheritedDep.moduleConfigurations == ['compile', 'runtime']
     }
 
+    def "reuses parsed parent pom until its content changes"() {
+        given:
+        def parsedPomCache = new ParsedPomCache()
+        def cachingParser = new GradlePomModuleDescriptorParser(new DefaultVersionSelectorScheme(), parsedPomCache)
+        def parent = tmpDir.file("parent.xml")
+        parent.text = parentWithDependency('1.2')
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>parent</artifactId>
+        <version>version-one</version>
+    </parent>
+</project>
+"""
+        def parentResource = { new DefaultLocallyAvailableExternalResource(parent.toURI(), new DefaultLocallyAvailableResource(parent)) }
+        parseContext.getMetaDataArtifact(_, MAVEN_POM) >> { parentResource() }
+
+        when:
+        def descriptor = cachingParser.parseMetaData(parseContext, pomFile, true).descriptor
+
+        then:
+        descriptor.dependencies*.dependencyRevisionId == [moduleId('group-two', 'artifact-two', '1.2')]
+        parsedPomCache.get(DefaultModuleComponentIdentifier.newId('group-one', 'parent', 'version-one'), parentResource(), parseContext, [:]) != null
+
+        when:
+        parent.text = parentWithDependency('1.3')
+        descriptor = cachingParser.parseMetaData(parseContext, pomFile, true).descriptor
+
+        then:
+        descriptor.dependencies*.dependencyRevisionId == [moduleId('group-two', 'artifact-two', '1.3')]
+    }
+
+    def "reparses cached parent pom when its own parent changes"() {
+        given:
+        def parsedPomCache = new ParsedPomCache()
+        def cachingParser = new GradlePomModuleDescriptorParser(new DefaultVersionSelectorScheme(), parsedPomCache)
+        def parent = tmpDir.file("parent.xml")
+        parent.text = """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>parent</artifactId>
+    <version>version-one</version>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>grandparent</artifactId>
+        <version>version-one</version>
+    </parent>
+</project>
+"""
+        def grandparent = tmpDir.file("grandparent.xml")
+        grandparent.text = parentWithDependency('1.2').replace('<artifactId>parent</artifactId>', '<artifactId>grandparent</artifactId>')
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>parent</artifactId>
+        <version>version-one</version>
+    </parent>
+</project>
+"""
+        parseContext.getMetaDataArtifact(DefaultModuleComponentIdentifier.newId('group-one', 'parent', 'version-one'), MAVEN_POM) >> {
+            new DefaultLocallyAvailableExternalResource(parent.toURI(), new DefaultLocallyAvailableResource(parent))
+        }
+        parseContext.getMetaDataArtifact(DefaultModuleComponentIdentifier.newId('group-one', 'grandparent', 'version-one'), MAVEN_POM) >> {
+            new DefaultLocallyAvailableExternalResource(grandparent.toURI(), new DefaultLocallyAvailableResource(grandparent))
+        }
+
+        when:
+        def descriptor = cachingParser.parseMetaData(parseContext, pomFile, true).descriptor
+
+        then:
+        descriptor.dependencies*.dependencyRevisionId == [moduleId('group-two', 'artifact-two', '1.2')]
+
+        when:
+        grandparent.text = grandparent.text.replace('1.2', '1.3')
+        descriptor = cachingParser.parseMetaData(parseContext, pomFile, true).descriptor
+
+        then:
+        descriptor.dependencies*.dependencyRevisionId == [moduleId('group-two', 'artifact-two', '1.3')]
+    }
+
+    private static String parentWithDependency(String version) {
+        return """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>parent</artifactId>
+    <version>version-one</version>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>${version}</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+    }
+
     def "uses dependency management section to provide default values for a dependency"() {
         given:
         pomFile << """
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.*
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.apache.ivy.plugins.matcher.PatternMatcher
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+import static org.gradle.api.internal.artifacts.ivyservice.IvyUtil.createArtifactId
+import static org.gradle.api.internal.artifacts.ivyservice.IvyUtil.createModuleRevisionId
+
+class ModuleDescriptorSerializerTest extends SerializerSpec {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    def serializer = new ModuleDescriptorSerializer(new ResolverStrategy())
+
+    def "serializes module descriptor"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org.test", "projectA", "master", "1.2", [buildNr: "815"]), "release", new Date(1345204800000L))
+        md.addExtraAttributeNamespace("m", "http://ant.apache.org/ivy/maven")
+        md.extraInfo.put(new NamespaceId("http://ant.apache.org/ivy/maven", "properties"), "a=b")
+        md.extraInfo.put("branch", "master")
+        md.addLicense(new License("Apache 2", "http://www.apache.org/licenses/LICENSE-2.0"))
+        md.homePage = "http://gradle.org"
+        md.description = "some project"
+        md.addConfiguration(new Configuration("compile"))
+        md.addConfiguration(new Configuration("runtime", Configuration.Visibility.PUBLIC, "runtime classpath", ["compile"] as String[], true, null))
+        md.addConfiguration(new Configuration("test", Configuration.Visibility.PRIVATE, null, ["runtime"] as String[], false, "do not use"))
+
+        def artifact = new MDArtifact(md, "projectA", "jar", "jar", null, [classifier: "sources"])
+        ["compile", "runtime"].each { artifact.addConfiguration(it); md.addArtifact(it, artifact) }
+
+        def dependency = new DefaultDependencyDescriptor(md, createModuleRevisionId("org.other", "lib", null, "1.0", [:]), createModuleRevisionId("org.other", "lib", null, "1.+", [:]), true, true, false)
+        dependency.addDependencyConfiguration("compile", "default")
+        dependency.addDependencyConfiguration("runtime", "runtime(*)")
+        dependency.addDependencyConfiguration("%", "@")
+        def dependencyArtifact = new DefaultDependencyArtifactDescriptor(dependency, "lib", "jar", "jar", new URL("http://repo/lib.jar"), [:])
+        dependencyArtifact.addConfiguration("compile")
+        dependency.addDependencyArtifact("compile", dependencyArtifact)
+        def includeRule = new DefaultIncludeRule(createArtifactId("org.other", "lib", "lib", "jar", "jar"), ExactPatternMatcher.INSTANCE, [:])
+        includeRule.addConfiguration("runtime")
+        dependency.addIncludeRule("runtime", includeRule)
+        dependency.addExcludeRule("compile", excludeRule("org.excluded", "*", "compile"))
+        md.addDependency(dependency)
+
+        md.addExcludeRule(excludeRule("org.unwanted", "api", "compile", "runtime"))
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.moduleRevisionId == md.moduleRevisionId
+        result.resolvedModuleRevisionId.branch == "master"
+        result.resolvedModuleRevisionId.qualifiedExtraAttributes == [buildNr: "815"]
+        result.status == "release"
+        result.resolvedPublicationDate == md.resolvedPublicationDate
+        result.extraInfo == md.extraInfo
+        result.configurationsNames as List == ["compile", "runtime", "test"]
+        result.getConfiguration("test").visibility == Configuration.Visibility.PRIVATE
+        result.getConfiguration("test").deprecated == "do not use"
+        !result.getConfiguration("test").transitive
+        result.getArtifacts("runtime")*.qualifiedExtraAttributes == [[classifier: "sources"]]
+        result.dependencies.length == 1
+        result.dependencies[0].dynamicConstraintDependencyRevisionId.revision == "1.+"
+        result.dependencies[0].force
+        result.dependencies[0].changing
+        !result.dependencies[0].transitive
+        result.dependencies[0].getDependencyArtifacts("compile")*.url == [new URL("http://repo/lib.jar")]
+        result.dependencies[0].getIncludeRules("runtime")*.matcher == [ExactPatternMatcher.INSTANCE]
+        result.dependencies[0].getExcludeRules("compile")*.id*.moduleId*.organisation == ["org.excluded"]
+        result.allExcludeRules*.configurations*.toList() == [["compile", "runtime"]]
+        writeIvyXml(result) == writeIvyXml(md)
+    }
+
+    def "serializes artifacts and rules that declare no configurations"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org.test", "projectA", "1.0"), "release", null)
+        md.addConfiguration(new Configuration("compile"))
+        md.addConfiguration(new Configuration("runtime"))
+        md.addArtifact("runtime", new MDArtifact(md, "projectA", "jar", "jar"))
+
+        def dependency = new DefaultDependencyDescriptor(md, createModuleRevisionId("org.other", "lib", "1.0"), false, false, true)
+        dependency.addDependencyConfiguration("compile", "default")
+        dependency.addDependencyConfiguration("runtime", "default")
+        dependency.addDependencyArtifact("runtime", new DefaultDependencyArtifactDescriptor(dependency, "lib", "jar", "jar", null, [:]))
+        dependency.addIncludeRule("*", new DefaultIncludeRule(createArtifactId("org.other", "lib", "lib", "jar", "jar"), ExactPatternMatcher.INSTANCE, [:]))
+        dependency.addExcludeRule("compile", excludeRule("org.excluded", "*"))
+        md.addDependency(dependency)
+
+        when:
+        def result = serialize(md, serializer)
+        def resultDependency = result.dependencies[0]
+
+        then:
+        result.getArtifacts("compile").length == 0
+        result.getArtifacts("runtime")*.name == ["projectA"]
+        result.allArtifacts*.configurations*.toList() == [[]]
+        resultDependency.getDependencyArtifacts("compile").length == 0
+        resultDependency.getDependencyArtifacts("runtime")*.name == ["lib"]
+        resultDependency.getIncludeRules("compile")*.id*.name == ["lib"]
+        resultDependency.getIncludeRules("runtime")*.id*.name == ["lib"]
+        resultDependency.getExcludeRules("compile")*.id*.moduleId*.organisation == ["org.excluded"]
+        resultDependency.getExcludeRules("runtime").length == 0
+        resultDependency.allDependencyArtifacts.length == 1
+        resultDependency.allIncludeRules.length == 1
+        resultDependency.allExcludeRules.length == 1
+    }
+
+    def "serializes configuration mappings"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org.test", "projectA", "1.0"), "release", null)
+        ["compile", "runtime", "test"].each { md.addConfiguration(new Configuration(it)) }
+        def dependency = new DefaultDependencyDescriptor(md, createModuleRevisionId("org.other", "lib", "1.0"), false, false, true)
+        dependency.addDependencyConfiguration("compile", "default")
+        dependency.addDependencyConfiguration("runtime", "@(default)")
+        dependency.addDependencyConfiguration("%", "@")
+        dependency.addDependencyConfiguration("%", "#")
+        dependency.addDependencyConfiguration("*", "@+sources")
+        dependency.addDependencyConfiguration("*", "#(docs)")
+        md.addDependency(dependency)
+
+        when:
+        def resultDependency = serialize(md, serializer).dependencies[0]
+
+        then:
+        resultDependency.moduleConfigurations as List == dependency.moduleConfigurations as List
+        ["compile", "runtime", "test", "%", "*"].each { moduleConfiguration ->
+            ["compile", "runtime", "test"].each { requested ->
+                assert resultDependency.getDependencyConfigurations(moduleConfiguration, requested) as List == dependency.getDependencyConfigurations(moduleConfiguration, requested) as List
+            }
+        }
+    }
+
+    def "cannot serialize dependency that maps all configurations to themselves"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org.test", "projectA", "1.0"), "release", null)
+        md.addConfiguration(new Configuration("default"))
+        def dependency = new DefaultDependencyDescriptor(md, createModuleRevisionId("org.other", "lib", "1.0"), false, false, true)
+        dependency.addDependencyConfiguration("*", "@")
+        md.addDependency(dependency)
+
+        when:
+        toBytes(md, serializer)
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Cannot encode configuration mapping '*->*' of dependency org.other#lib;1.0."
+    }
+
+    def "writes repeated strings once"() {
+        def md = new DefaultModuleDescriptor(createModuleRevisionId("org.test", "projectA", "1.0"), "release", null)
+        md.addConfiguration(new Configuration("default"))
+        10.times {
+            def dependency = new DefaultDependencyDescriptor(md, createModuleRevisionId("org.test", "lib" + it, "1.0"), false, false, true)
+            dependency.addDependencyConfiguration("default", "default")
+            md.addDependency(dependency)
+        }
+
+        expect:
+        serialize(md, serializer).dependencies*.dependencyRevisionId*.name == (0..9).collect { "lib" + it }
+        new String(toBytes(md, serializer), "ISO-8859-1").count("org.tes") == 1
+    }
+
+    private static ExcludeRule excludeRule(String org, String module, String... configurations) {
+        def rule = new DefaultExcludeRule(createArtifactId(org, module, PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION, PatternMatcher.ANY_EXPRESSION), ExactPatternMatcher.INSTANCE, [:])
+        configurations.each { rule.addConfiguration(it) }
+        return rule
+    }
+
+    private String writeIvyXml(ModuleDescriptor md) {
+        def file = temporaryFolder.createFile("ivy.xml")
+        new IvyXmlModuleDescriptorWriter().write(md, file)
+        return file.text
+    }
+}
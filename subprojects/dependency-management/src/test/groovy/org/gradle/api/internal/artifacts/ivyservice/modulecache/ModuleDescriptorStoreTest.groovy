@@ -21,9 +21,10 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
-
+import org.gradle.internal.component.external.model.DefaultIvyModuleResolveMetaData
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -39,9 +40,10 @@ class ModuleDescriptorStoreTest extends Specification {
     IvyModuleDescriptorWriter ivyModuleDescriptorWriter = Mock()
     IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser = Mock()
     ModuleComponentIdentifier moduleComponentIdentifier = Mock()
+    ModuleDescriptorSerializer moduleDescriptorSerializer = Mock()
 
     def setup() {
-        store = new ModuleDescriptorStore(pathKeyFileStore, ivyModuleDescriptorWriter, ivyXmlModuleDescriptorParser);
+        store = new ModuleDescriptorStore(pathKeyFileStore, ivyModuleDescriptorWriter, ivyXmlModuleDescriptorParser, moduleDescriptorSerializer);
         _ * repository.getId() >> "repositoryId"
         _ * moduleComponentIdentifier.group >> "org.test"
         _ * moduleComponentIdentifier.module >> "testArtifact"
@@ -65,6 +67,7 @@ class ModuleDescriptorStoreTest extends Specification {
     def "putModuleDescriptor uses PathKeyFileStore to write file"() {
         setup:
         File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        _ * fileStoreEntry.file >> descriptorFile
         when:
         store.putModuleDescriptor(repository, moduleComponentIdentifier, moduleDescriptor);
         then:
@@ -73,4 +76,92 @@ class ModuleDescriptorStoreTest extends Specification {
         };
         1 * ivyModuleDescriptorWriter.write(moduleDescriptor, descriptorFile)
     }
-}
\ No newline at end of file
+
+    def "getModuleDescriptor reads binary descriptor without parsing ivy.xml"() {
+        setup:
+        def ivyFile = temporaryFolder.createFile("ivy.xml")
+        def binaryFile = temporaryFolder.createFile("descriptor.bin")
+        writeBinaryFile(binaryFile, ivyFile)
+
+        when:
+        def result = store.getModuleDescriptor(repository, moduleComponentIdentifier)
+
+        then:
+        result == moduleDescriptor
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> entry(ivyFile)
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> entry(binaryFile)
+        1 * moduleDescriptorSerializer.read(_) >> moduleDescriptor
+        0 * ivyXmlModuleDescriptorParser._
+    }
+
+    def "getModuleDescriptor ignores binary descriptor when ivy.xml has been rewritten"() {
+        setup:
+        def ivyFile = temporaryFolder.createFile("ivy.xml")
+        def binaryFile = temporaryFolder.createFile("descriptor.bin")
+        writeBinaryFile(binaryFile, ivyFile)
+        ivyFile.text = "<ivy-module/>"
+        def parsed = Stub(DefaultIvyModuleResolveMetaData) {
+            getDescriptor() >> moduleDescriptor
+        }
+
+        when:
+        def result = store.getModuleDescriptor(repository, moduleComponentIdentifier)
+
+        then:
+        result == moduleDescriptor
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> entry(ivyFile)
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> entry(binaryFile)
+        0 * moduleDescriptorSerializer.read(_)
+        1 * ivyXmlModuleDescriptorParser.parseMetaData(_, ivyFile, false) >> parsed
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _)
+    }
+
+    def "putModuleDescriptor writes binary descriptor alongside ivy.xml"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        File binaryFile = temporaryFolder.file("binaryEntry")
+        _ * fileStoreEntry.file >> descriptorFile
+
+        when:
+        def result = store.putModuleDescriptor(repository, moduleComponentIdentifier, moduleDescriptor)
+
+        then:
+        result == fileStoreEntry
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/ivy.xml", _) >> { path, action ->
+            action.execute(descriptorFile); fileStoreEntry
+        }
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
+            action.execute(binaryFile); Stub(LocallyAvailableResource)
+        }
+        1 * moduleDescriptorSerializer.write(_, moduleDescriptor)
+        binaryFile.file
+    }
+
+    def "putModuleDescriptor keeps ivy.xml when binary descriptor cannot be written"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        _ * fileStoreEntry.file >> descriptorFile
+
+        when:
+        def result = store.putModuleDescriptor(repository, moduleComponentIdentifier, moduleDescriptor)
+
+        then:
+        result == fileStoreEntry
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/ivy.xml", _) >> fileStoreEntry
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { throw new IllegalArgumentException("broken") }
+    }
+
+    private LocallyAvailableResource entry(File file) {
+        return Stub(LocallyAvailableResource) {
+            getFile() >> file
+        }
+    }
+
+    private static void writeBinaryFile(File file, File ivyFile) {
+        def encoder = new KryoBackedEncoder(new FileOutputStream(file))
+        encoder.writeSmallInt(2)
+        encoder.writeLong(ivyFile.length())
+        encoder.writeLong(ivyFile.lastModified())
+        encoder.close()
+    }
+}
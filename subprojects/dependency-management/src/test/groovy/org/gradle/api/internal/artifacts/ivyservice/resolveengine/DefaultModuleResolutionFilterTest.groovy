@@ -598,6 +598,44 @@ class DefaultModuleResolutionFilterTest extends Specification {
         intersection == DefaultModuleResolutionFilter.excludeAny(rule1, rule2)
     }
 
+    def "specs with the same exclude rules are the same instance"() {
+        def rule1 = excludeRule("org", "module")
+        def rule2 = regexpExcludeRule("org", "module\\d+")
+
+        expect:
+        DefaultModuleResolutionFilter.excludeAny(rule1, rule2).is(DefaultModuleResolutionFilter.excludeAny(excludeRule("org", "module"), regexpExcludeRule("org", "module\\d+")))
+        !DefaultModuleResolutionFilter.excludeAny(rule1).is(DefaultModuleResolutionFilter.excludeAny(rule1, rule2))
+    }
+
+    def "reuses the result of union and intersection of equal specs"() {
+        def spec = DefaultModuleResolutionFilter.excludeAny(excludeRule("org", "module"))
+        def spec2 = DefaultModuleResolutionFilter.excludeAny(regexpExcludeRule("org", "module2"))
+
+        expect:
+        spec.union(spec2).is(spec.union(spec2))
+        spec.intersect(spec2).is(spec.intersect(spec2))
+        spec.intersect(spec2).is(DefaultModuleResolutionFilter.excludeAny(excludeRule("org", "module"), regexpExcludeRule("org", "module2")))
+    }
+
+    def "gives the same answer when a module is evaluated more than once"() {
+        def spec = DefaultModuleResolutionFilter.excludeAny(excludeRule("org", "module"), excludeRule("org2", "*"), excludeRule("*", "module3"), regexpExcludeRule("regexp-\\d+", "module\\d+"))
+        def union = spec.union(DefaultModuleResolutionFilter.excludeAny(regexpExcludeRule("org", "module")))
+
+        expect:
+        2.times {
+            assert !spec.acceptModule(moduleId("org", "module"))
+            assert !spec.acceptModule(moduleId("org2", "module"))
+            assert !spec.acceptModule(moduleId("other", "module3"))
+            assert !spec.acceptModule(moduleId("regexp-1", "module2"))
+            assert spec.acceptModule(moduleId("regexp-1", "other"))
+            assert spec.acceptModule(moduleId("org", "module2"))
+
+            assert union.acceptModule(moduleId("org", "module"))
+            assert !union.acceptModule(moduleId("org2", "module"))
+            assert union.acceptModule(moduleId("org", "other"))
+        }
+    }
+
     def "intersections accepts same modules when original specs accept same modules"() {
         def rule1 = regexpExcludeRule("org", "module")
         def rule2 = regexpExcludeRule("org", "module2")
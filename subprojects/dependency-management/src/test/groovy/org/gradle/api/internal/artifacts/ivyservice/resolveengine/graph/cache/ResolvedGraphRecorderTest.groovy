@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.cache
+
+import org.gradle.api.artifacts.ExternalModuleDependency
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.ConfigurationMetaData
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.internal.serialize.SerializerSpec
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+
+class ResolvedGraphRecorderTest extends SerializerSpec {
+    def firstLevelDependency = Stub(ExternalModuleDependency)
+    def recorder = new ResolvedGraphRecorder([firstLevelDependency], new DefaultVersionSelectorScheme(new DefaultVersionComparator()), ModuleReplacementsData.NO_OP)
+
+    def root = node("org", "root", "1.0", true)
+    def a = node("org", "a", "1.0")
+    def b = node("org", "b", "2.0")
+
+    def "replays recorded graph after serialization"() {
+        def rootToA = edge(root, a, "1.0", firstLevelDependency)
+        def aToB = edge(a, b, "2.0")
+        def artifactsOfA = artifacts(1, a)
+        def artifactsOfB = artifacts(2, b)
+
+        given:
+        record([rootToA, aToB], [artifactsOfA, artifactsOfB])
+        def graphVisitor = Mock(DependencyGraphVisitor)
+        def artifactsVisitor = Mock(DependencyArtifactsVisitor)
+
+        when:
+        def snapshot = serialize(recorder.snapshot, new ResolvedGraphSnapshotSerializer())
+        snapshot.replay([firstLevelDependency], Stub(ArtifactResolver), graphVisitor, artifactsVisitor)
+
+        then:
+        1 * graphVisitor.start({ it.nodeId == root.nodeId }) >> { DependencyGraphNode replayedRoot ->
+            assert replayedRoot.componentId == root.componentId
+            assert replayedRoot.outgoingEdges*.requested == [rootToA.requested]
+        }
+
+        then:
+        3 * graphVisitor.visitNode(_)
+
+        then:
+        1 * graphVisitor.visitEdge({ it.nodeId == root.nodeId })
+
+        then:
+        1 * graphVisitor.visitEdge({ it.nodeId == a.nodeId }) >> { DependencyGraphNode replayedA ->
+            def incoming = replayedA.incomingEdges as List
+            assert incoming.size() == 1
+            assert incoming[0].moduleDependency.is(firstLevelDependency)
+            assert incoming[0].selected == a.toId()
+            assert replayedA.selection.selectionReason == VersionSelectionReasons.REQUESTED
+        }
+        1 * artifactsVisitor.visitArtifacts(root.nodeId, a.nodeId, { it.id == 1 }) >> { parent, child, ArtifactSet set ->
+            assert set.artifacts*.id == artifactsOfA.artifacts*.id
+        }
+
+        then:
+        1 * graphVisitor.visitEdge({ it.nodeId == b.nodeId }) >> { DependencyGraphNode replayedB ->
+            assert (replayedB.incomingEdges as List)[0].moduleDependency == null
+        }
+        1 * artifactsVisitor.visitArtifacts(a.nodeId, b.nodeId, { it.id == 2 })
+
+        then:
+        1 * graphVisitor.finish({ it.nodeId == root.nodeId })
+
+        then:
+        1 * artifactsVisitor.finishArtifacts()
+        0 * _
+    }
+
+    def "does not record graph with dynamic version"() {
+        when:
+        record([edge(root, a, "1.0", firstLevelDependency), edge(a, b, "2.+")], [artifacts(1, a), artifacts(2, b)])
+
+        then:
+        recorder.snapshot == null
+    }
+
+    def "does not record graph with changing module"() {
+        b.metaData.component.changing >> true
+
+        when:
+        record([edge(root, a, "1.0", firstLevelDependency), edge(a, b, "2.0")], [artifacts(1, a), artifacts(2, b)])
+
+        then:
+        recorder.snapshot == null
+    }
+
+    def "does not record graph with failed dependency"() {
+        def failed = edge(a, b, "2.0")
+        failed.failure >> new ModuleVersionResolveException(newId("org", "b", "2.0"), "broken")
+
+        when:
+        record([edge(root, a, "1.0", firstLevelDependency), failed], [artifacts(1, a), artifacts(2, b)])
+
+        then:
+        recorder.snapshot == null
+    }
+
+    private void record(List<DependencyGraphEdge> edges, List<ArtifactSet> artifactSets) {
+        def nodes = [root, a, b]
+        recorder.start(root)
+        nodes.each { recorder.visitNode(it) }
+        nodes.each { node ->
+            node.incomingEdges.eachWithIndex { DependencyGraphEdge edge, int i ->
+                recorder.visitArtifacts(edge.from.nodeId, node.nodeId, artifactSets[edges.indexOf(edge)])
+            }
+            recorder.visitEdge(node)
+        }
+        recorder.finish(root)
+        recorder.finishArtifacts()
+    }
+
+    private DependencyGraphNode node(String group, String name, String version, boolean isRoot = false) {
+        def id = newId(group, name, version)
+        def componentId = isRoot ? new DefaultProjectComponentIdentifier(":") : new DefaultModuleComponentIdentifier(group, name, version)
+        def reason = isRoot ? VersionSelectionReasons.ROOT : VersionSelectionReasons.REQUESTED
+        def component = Stub(ComponentResolveMetaData) {
+            getSource() >> new TestModuleSource()
+        }
+        def metaData = Stub(ConfigurationMetaData) {
+            getComponent() >> component
+        }
+        return Stub(DependencyGraphNode) {
+            getNodeId() >> new ResolvedConfigurationIdentifier(id, "default")
+            toId() >> id
+            getComponentId() >> componentId
+            getSelection() >> new DefaultModuleVersionSelection(id, reason, componentId)
+            getIncomingEdges() >> new LinkedHashSet<DependencyGraphEdge>()
+            getOutgoingEdges() >> new LinkedHashSet<DependencyGraphEdge>()
+            getMetaData() >> metaData
+        }
+    }
+
+    private DependencyGraphEdge edge(DependencyGraphNode from, DependencyGraphNode to, String requestedVersion, ExternalModuleDependency moduleDependency = null) {
+        def edge = Stub(DependencyGraphEdge) {
+            getFrom() >> from
+            getRequested() >> DefaultModuleComponentSelector.newSelector(to.toId().group, to.toId().name, requestedVersion)
+            getSelected() >> to.toId()
+            getModuleDependency() >> moduleDependency
+        }
+        from.outgoingEdges.add(edge)
+        to.incomingEdges.add(edge)
+        return edge
+    }
+
+    private ArtifactSet artifacts(long id, DependencyGraphNode owner) {
+        def componentId = (DefaultModuleComponentIdentifier) owner.componentId
+        def artifact = Stub(ResolvedArtifact) {
+            getId() >> new DefaultModuleComponentArtifactIdentifier(componentId, componentId.module, "jar", "jar")
+        }
+        return Stub(ArtifactSet) {
+            getId() >> id
+            getArtifacts() >> ([artifact] as Set)
+        }
+    }
+
+    static class TestModuleSource implements ModuleSource {
+    }
+}
@@ -80,7 +80,8 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         and:
         1 * index.lookup("scheme:thing") >> null
         1 * localCandidates.isNone() >> false
-        1 * repository.getResourceMetaData(uri) >> null
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri) >> null
         0 * _._
     }
 
@@ -142,6 +143,122 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         0 * _._
     }
 
+    def "reuses cached resource when it has expired but is unchanged in the remote repository"() {
+        def uri = new URI("scheme:thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cached = Mock(CachedExternalResource)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == cachedMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cached.cachedFile >> cachedFile
+        cached.externalLastModified >> null
+        cachedMetaData.etag >> "abc"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> 0
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> cachedMetaData
+        remoteResource.unchanged >> true
+        1 * remoteResource.close()
+        0 * _._
+    }
+
+    def "downloads resource with a single request when it has expired and changed in the remote repository"() {
+        def uri = new URI("scheme:thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cached = Mock(CachedExternalResource)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == remoteMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> "abc"
+        cachedMetaData.lastModified >> null
+        cachedMetaData.contentLength >> 0
+        remoteMetaData.etag >> "def"
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
+        remoteResource.unchanged >> false
+        1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(), remoteMetaData)
+        }
+        1 * remoteResource.close()
+
+        and:
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("scheme:thing", cachedFile, remoteMetaData)
+        0 * _._
+    }
+
+    def "downloads resource when the remote repository ignores the conditional request"() {
+        def uri = new URI("scheme:thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def cached = Mock(CachedExternalResource)
+        def cachedMetaData = Mock(ExternalResourceMetaData)
+        def remoteMetaData = Mock(ExternalResourceMetaData)
+        def remoteResource = Mock(ExternalResource)
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+
+        when:
+        def result = cache.getResource(uri, fileStore, null)
+
+        then:
+        result.localResource.file == cachedFile
+        result.metaData == remoteMetaData
+
+        and:
+        1 * index.lookup("scheme:thing") >> cached
+        timeProvider.currentTime >> 24000L
+        cached.cachedAt >> 23999L
+        cached.externalResourceMetaData >> cachedMetaData
+        cachedMetaData.etag >> "abc"
+        remoteMetaData.etag >> "abc"
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
+        remoteResource.unchanged >> false
+        1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(), remoteMetaData)
+        }
+        1 * remoteResource.close()
+
+        and:
+        1 * cacheLockingManager.useCache(_, _) >> { String description, org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * index.store("scheme:thing", cachedFile, remoteMetaData)
+        0 * _._
+    }
+
     def "will use sha1 from metadata for finding candidates if available"() {
         given:
         def localCandidates = Mock(LocallyAvailableResourceCandidates)
@@ -152,6 +269,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         def cachedMetaData = Mock(ExternalResourceMetaData)
         def remoteMetaData = Mock(ExternalResourceMetaData)
         def localCandidate = Mock(LocallyAvailableResource)
+        def remoteResource = Mock(ExternalResource)
         def uri = new URI("scheme:thing")
         def localResource = new DefaultLocallyAvailableResource(cachedFile)
 
@@ -167,16 +285,15 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         timeProvider.currentTime >> 24000L
         cached.cachedAt >> 23999L
         cached.externalResourceMetaData >> cachedMetaData
-        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
+        remoteResource.unchanged >> false
         localCandidates.none >> false
         remoteMetaData.sha1 >> sha1
-        remoteMetaData.etag >> null
-        remoteMetaData.lastModified >> null
-        cachedMetaData.etag >> null
-        cachedMetaData.lastModified >> null
         1 * localCandidates.findByHashValue(sha1) >> localCandidate
         localCandidate.file >> candidate
-        cached.cachedFile >> cachedFile
+        1 * remoteResource.close()
         0 * _._
 
         and:
@@ -197,6 +314,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         def cachedMetaData = Mock(ExternalResourceMetaData)
         def remoteMetaData = Mock(ExternalResourceMetaData)
         def localCandidate = Mock(LocallyAvailableResource)
+        def remoteResource = Mock(ExternalResource)
         def remoteSha1 = Mock(ExternalResource)
         def uri = new URI("scheme:thing")
         def localResource = new DefaultLocallyAvailableResource(cachedFile)
@@ -210,13 +328,12 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
 
         and:
         1 * index.lookup("scheme:thing") >> null
-        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
         localCandidates.none >> false
         remoteMetaData.sha1 >> null
-        remoteMetaData.etag >> null
-        remoteMetaData.lastModified >> null
-        cachedMetaData.etag >> null
-        cachedMetaData.lastModified >> null
+        1 * remoteResource.close()
         1 * repository.getResource(new URI("scheme:thing.sha1")) >> remoteSha1
         1 * remoteSha1.withContent(_) >> { Transformer t ->
             t.transform(new ByteArrayInputStream(sha1.asZeroPaddedHexString(40).bytes))
@@ -242,6 +359,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         def cachedMetaData = Mock(ExternalResourceMetaData)
         def remoteMetaData = Mock(ExternalResourceMetaData)
         def remoteResource = Mock(ExternalResource)
+        def remoteContent = Mock(ExternalResource)
         def uri = new URI("scheme:thing")
         def localResource = new DefaultLocallyAvailableResource(cachedFile)
 
@@ -254,20 +372,18 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
 
         and:
         1 * index.lookup("scheme:thing") >> null
-        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
         localCandidates.none >> false
         remoteMetaData.sha1 >> null
-        remoteMetaData.etag >> null
-        remoteMetaData.lastModified >> null
-        cachedMetaData.etag >> null
-        cachedMetaData.lastModified >> null
+        1 * remoteResource.close()
         1 * repository.getResource(new URI("scheme:thing.sha1")) >> null
-        1 * repository.withProgressLogging() >> progressLoggingRepo
-        1 * progressLoggingRepo.getResource(uri) >> remoteResource
-        1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
+        1 * progressLoggingRepo.getResource(uri) >> remoteContent
+        1 * remoteContent.withContent(_) >> { ExternalResource.ContentAction a ->
             a.execute(new ByteArrayInputStream(), remoteMetaData)
         }
-        1 * remoteResource.close()
+        1 * remoteContent.close()
         0 * _._
 
         and:
@@ -306,18 +422,14 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         timeProvider.currentTime >> 24000L
         cached.cachedAt >> 23999L
         cached.externalResourceMetaData >> cachedMetaData
-        1 * repository.getResourceMetaData(uri) >> remoteMetaData
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.getResource(uri, cachedMetaData) >> remoteResource
+        remoteResource.metaData >> remoteMetaData
+        remoteResource.unchanged >> false
         localCandidates.none >> false
         remoteMetaData.sha1 >> sha1
-        remoteMetaData.etag >> null
-        remoteMetaData.lastModified >> null
-        cachedMetaData.etag >> null
-        cachedMetaData.lastModified >> null
         1 * localCandidates.findByHashValue(sha1) >> localCandidate
         localCandidate.file >> candidate
-        cached.cachedFile >> cachedFile
-        1 * repository.withProgressLogging() >> progressLoggingRepo
-        1 * progressLoggingRepo.getResource(uri) >> remoteResource
         1 * remoteResource.withContent(_) >> { ExternalResource.ContentAction a ->
             a.execute(new ByteArrayInputStream(), remoteMetaData)
         }
@@ -78,6 +78,20 @@ class ProgressLoggingExternalResourceAccessorTest extends Specification {
         1 * progressLogger.completed()
     }
 
+    def "does not wrap response for unchanged resource"() {
+        def unchanged = new UnchangedResourceReadResponse(metaData)
+
+        setup:
+        accessor.openResource(new URI("location"), metaData) >> unchanged
+
+        when:
+        def loadedResource = progressLoggerAccessor.openResource(new URI("location"), metaData)
+
+        then:
+        loadedResource == unchanged
+        0 * progressLoggerFactory._
+    }
+
     def "fires progress events as content is read"() {
         setup:
         accessor.openResource(new URI("location")) >> externalResource
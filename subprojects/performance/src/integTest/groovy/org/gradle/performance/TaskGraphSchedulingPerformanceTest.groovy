@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.BasicPerformanceTest
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.measure.Duration.millis
+
+@Category(BasicPerformanceTest)
+class TaskGraphSchedulingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+    @Unroll("Scheduling large task graph with #workers workers")
+    def "schedule large task graph"() {
+        given:
+        runner.testId = "schedule large task graph with $workers workers"
+        runner.testProject = "largeTaskGraph"
+        runner.tasksToRun = ['task199']
+        runner.args = ['--parallel', "--max-workers=$workers"]
+        runner.useDaemon = true
+        runner.maxExecutionTimeRegression = millis(1000)
+        runner.targetVersions = ['2.8', 'last']
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        workers << [1, 8]
+    }
+}
@@ -23,6 +23,9 @@ import javax.net.ssl.SSLContext;
 import java.util.Collection;
 
 public class DefaultHttpSettings implements HttpSettings {
+    public static final String MAX_CONNECTIONS_PER_ROUTE_PROPERTY = "org.gradle.http.maxConnectionsPerRoute";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
     private final HttpProxySettings proxySettings = new JavaSystemPropertiesHttpProxySettings();
     private final HttpProxySettings secureProxySettings = new JavaSystemPropertiesSecureHttpProxySettings();
     private final Collection<Authentication> authenticationSettings;
@@ -60,4 +63,9 @@ public class DefaultHttpSettings implements HttpSettings {
     public Factory<SSLContext> getSslContextFactory() {
         return sslContextFactory;
     }
+
+    @Override
+    public int getMaxConnectionsPerRoute() {
+        return Integer.getInteger(MAX_CONNECTIONS_PER_ROUTE_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
 }
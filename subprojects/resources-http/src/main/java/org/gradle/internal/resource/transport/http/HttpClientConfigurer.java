@@ -15,10 +15,12 @@
  */
 package org.gradle.internal.resource.transport.http;
 
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.NoHttpResponseException;
 import org.apache.http.auth.*;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpRequestRetryHandler;
@@ -71,6 +73,7 @@ public class HttpClientConfigurer {
         configureCredentials(builder, credentialsProvider, httpSettings.getAuthenticationSettings());
         configureProxy(builder, credentialsProvider, httpSettings);
         configureRetryHandler(builder);
+        configureConnectionPool(builder, httpSettings.getMaxConnectionsPerRoute());
         configureUserAgent(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
     }
@@ -158,9 +161,21 @@ public class HttpClientConfigurer {
         return Cast.uncheckedCast(credentials);
     }
 
+    private void configureConnectionPool(HttpClientBuilder builder, int maxConnectionsPerRoute) {
+        // Connections are kept alive and reused. The default pool allows only 2 connections to a host, which serializes parallel downloads.
+        if (maxConnectionsPerRoute > 0) {
+            builder.setMaxConnPerRoute(maxConnectionsPerRoute);
+            builder.setMaxConnTotal(2 * maxConnectionsPerRoute);
+        }
+    }
+
     private void configureRetryHandler(HttpClientBuilder builder) {
         builder.setRetryHandler(new HttpRequestRetryHandler() {
             public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+                // A pooled connection may have been closed by the server after its last response. Retry once, unless the request has a body
+                if (exception instanceof NoHttpResponseException && executionCount <= 1) {
+                    return !(HttpClientContext.adapt(context).getRequest() instanceof HttpEntityEnclosingRequest);
+                }
                 return false;
             }
         });
@@ -16,21 +16,28 @@
 
 package org.gradle.internal.resource.transport.http;
 
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Provides some convenience and unified logging.
@@ -39,13 +46,16 @@ public class HttpClientHelper implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final CloseableHttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    // Authentication and cookies are shared by all requests, which may be performed from several threads at once
+    private final HttpContext sharedContext = new BasicHttpContext();
 
     public HttpClientHelper(HttpSettings settings) {
         HttpClientBuilder builder = HttpClientBuilder.create();
         builder.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
         new HttpClientConfigurer(settings).configure(builder);
         this.client = builder.build();
+        sharedContext.setAttribute(HttpClientContext.AUTH_CACHE, new BasicAuthCache());
+        sharedContext.setAttribute(HttpClientContext.COOKIE_STORE, new BasicCookieStore());
     }
 
     public HttpResponse performRawHead(String source) {
@@ -64,6 +74,20 @@ public class HttpClientHelper implements Closeable {
         return processResponse(source, "GET", performRawGet(source));
     }
 
+    /**
+     * Performs a GET that the server answers with a 304 response when the resource still matches the given entity tag or has not been modified since the given date.
+     */
+    public HttpResponse performConditionalGet(String source, @Nullable String etag, @Nullable Date lastModified) {
+        HttpGet request = new HttpGet(source);
+        if (etag != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, DateUtils.formatDate(lastModified));
+        }
+        return processResponse(source, "GET", performRequest(request));
+    }
+
     public HttpResponse performRequest(HttpRequestBase request) {
         String method = request.getMethod();
 
@@ -92,16 +116,21 @@ public class HttpClientHelper implements Closeable {
         return statusCode == 404;
     }
 
+    public boolean wasNotModified(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == 304;
+    }
+
     public boolean wasSuccessful(HttpResponse response) {
         int statusCode = response.getStatusLine().getStatusCode();
         return statusCode >= 200 && statusCode < 400;
     }
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
-        // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(HttpClientContext.REDIRECT_LOCATIONS);
+        // Redirects are tracked per request, as HTTP Client prohibits multiple redirects to the same location within the same context
+        HttpContext context = new BasicHttpContext(sharedContext);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        return client.execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
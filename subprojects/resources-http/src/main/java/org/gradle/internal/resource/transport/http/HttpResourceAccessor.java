@@ -19,9 +19,13 @@ package org.gradle.internal.resource.transport.http;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
 import org.gradle.api.Nullable;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 import org.gradle.internal.resource.transfer.ExternalResourceAccessor;
+import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
+import org.gradle.internal.resource.transfer.UnchangedResourceReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +61,36 @@ public class HttpResourceAccessor implements ExternalResourceAccessor {
         return null;
     }
 
+    /**
+     * Uses a conditional GET, so that a single request either confirms that the cached copy is current or downloads the new content.
+     */
+    @Nullable
+    public ExternalResourceReadResponse openResource(final URI uri, ExternalResourceMetaData cachedMetaData) {
+        // Only ask the server to validate the cached copy when there is an ETag, or a last modified date and content length, to validate it with
+        if (!ExternalResourceMetaDataCompare.hasComparableMetaData(cachedMetaData)) {
+            return openResource(uri);
+        }
+
+        abortOpenResources();
+        String location = uri.toString();
+        LOGGER.debug("Constructing external resource if changed: {}", location);
+
+        HttpResponse response = http.performConditionalGet(location, cachedMetaData.getEtag(), cachedMetaData.getLastModified());
+        if (response == null) {
+            return null;
+        }
+        if (http.wasNotModified(response)) {
+            try {
+                EntityUtils.consume(response.getEntity());
+            } catch (IOException e) {
+                throw new HttpRequestException(String.format("Could not GET '%s'.", location), e);
+            }
+            return new UnchangedResourceReadResponse(cachedMetaData);
+        }
+        HttpResponseResource resource = wrapResponse(uri, response);
+        return recordOpenGetResource(resource);
+    }
+
     /**
      * Same as #getResource except that it always gives access to the response body,
      * irrespective of the returned HTTP status code. Never returns {@code null}.
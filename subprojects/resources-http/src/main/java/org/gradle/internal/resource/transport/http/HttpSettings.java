@@ -30,4 +30,9 @@ public interface HttpSettings {
     Collection<Authentication> getAuthenticationSettings();
 
     Factory<SSLContext> getSslContextFactory();
+
+    /**
+     * The maximum number of connections to keep open to a single host.
+     */
+    int getMaxConnectionsPerRoute();
 }
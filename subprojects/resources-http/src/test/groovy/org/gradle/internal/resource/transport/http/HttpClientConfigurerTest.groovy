@@ -15,8 +15,13 @@
  */
 package org.gradle.internal.resource.transport.http
 
+import org.apache.http.NoHttpResponseException
 import org.apache.http.auth.AuthScope
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPut
+import org.apache.http.client.protocol.HttpClientContext
 import org.apache.http.impl.client.HttpClientBuilder
+import org.apache.http.protocol.HttpCoreContext
 import org.apache.http.ssl.SSLContexts
 import org.gradle.api.artifacts.repositories.PasswordCredentials
 import org.gradle.internal.Factory
@@ -54,6 +59,23 @@ public class HttpClientConfigurerTest extends Specification {
         !httpClientBuilder.retryHandler.retryRequest(new IOException(), 1, null)
     }
 
+    def "configures http client to retry requests without a body once when the connection was closed by the server"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        def getContext = HttpClientContext.create()
+        getContext.setAttribute(HttpCoreContext.HTTP_REQUEST, new HttpGet("http://host/thing"))
+        def putContext = HttpClientContext.create()
+        putContext.setAttribute(HttpCoreContext.HTTP_REQUEST, new HttpPut("http://host/thing"))
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.retryHandler.retryRequest(new NoHttpResponseException("closed"), 1, getContext)
+        !httpClientBuilder.retryHandler.retryRequest(new NoHttpResponseException("closed"), 2, getContext)
+        !httpClientBuilder.retryHandler.retryRequest(new NoHttpResponseException("closed"), 1, putContext)
+    }
+
     def "configures http client with proxy credentials"() {
         httpSettings.authenticationSettings >> []
         httpSettings.sslContextFactory >> sslContextFactory
@@ -113,4 +135,17 @@ public class HttpClientConfigurerTest extends Specification {
         then:
         httpClientBuilder.userAgent == UriResource.userAgentString
     }
+
+    def "configures http client with connection pool"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        httpSettings.maxConnectionsPerRoute >> 8
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.maxConnPerRoute == 8
+        httpClientBuilder.maxConnTotal == 16
+    }
 }
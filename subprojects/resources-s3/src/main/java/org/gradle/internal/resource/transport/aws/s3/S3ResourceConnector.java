@@ -18,11 +18,14 @@ package org.gradle.internal.resource.transport.aws.s3;
 
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
+import org.gradle.internal.Factories;
 import org.gradle.internal.resource.local.LocalResource;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 import org.gradle.internal.resource.transfer.ExternalResourceConnector;
 import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
+import org.gradle.internal.resource.transfer.UnchangedResourceReadResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +57,15 @@ public class S3ResourceConnector implements ExternalResourceConnector {
         return new S3Resource(s3Object, location);
     }
 
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        ExternalResourceMetaData metaData = getMetaData(location);
+        if (metaData == null) {
+            return null;
+        }
+        boolean unchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(cachedMetaData, Factories.constant(metaData));
+        return unchanged ? new UnchangedResourceReadResponse(cachedMetaData) : openResource(location);
+    }
+
     public ExternalResourceMetaData getMetaData(URI location) {
         LOGGER.debug("Attempting to get resource metadata: {}", location);
         S3Object s3Object = s3Client.getMetaData(location);
@@ -19,11 +19,14 @@ package org.gradle.internal.resource.transport.sftp;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.SftpATTRS;
 import org.gradle.api.artifacts.repositories.PasswordCredentials;
+import org.gradle.internal.Factories;
 import org.gradle.internal.resource.ResourceException;
 import org.gradle.internal.resource.metadata.DefaultExternalResourceMetaData;
 import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+import org.gradle.internal.resource.metadata.ExternalResourceMetaDataCompare;
 import org.gradle.internal.resource.transfer.ExternalResourceAccessor;
 import org.gradle.internal.resource.transfer.ExternalResourceReadResponse;
+import org.gradle.internal.resource.transfer.UnchangedResourceReadResponse;
 
 import java.net.URI;
 
@@ -70,4 +73,13 @@ public class SftpResourceAccessor implements ExternalResourceAccessor {
         ExternalResourceMetaData metaData = getMetaData(location);
         return metaData != null ? new SftpResource(sftpClientFactory, metaData, location, credentials) : null;
     }
+
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        ExternalResourceMetaData metaData = getMetaData(location);
+        if (metaData == null) {
+            return null;
+        }
+        boolean unchanged = ExternalResourceMetaDataCompare.isDefinitelyUnchanged(cachedMetaData, Factories.constant(metaData));
+        return unchanged ? new UnchangedResourceReadResponse(cachedMetaData) : new SftpResource(sftpClientFactory, metaData, location, credentials);
+    }
 }
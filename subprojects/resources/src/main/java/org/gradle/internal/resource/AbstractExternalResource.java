@@ -107,6 +107,10 @@ public abstract class AbstractExternalResource implements ExternalResource {
         }
     }
 
+    public boolean isUnchanged() {
+        return false;
+    }
+
     public void close() {
     }
 }
@@ -90,6 +90,12 @@ public interface ExternalResource extends Closeable {
      */
     ExternalResourceMetaData getMetaData();
 
+    /**
+     * Returns true when this resource was opened with a conditional request and the remote repository confirmed that the previously cached copy is still current.
+     * The content of an unchanged resource is not available, and its meta-data is the meta-data of the cached copy.
+     */
+    boolean isUnchanged();
+
     interface ContentAction<T> {
         T execute(InputStream inputStream, ExternalResourceMetaData metaData) throws IOException;
     }
@@ -22,6 +22,19 @@ import org.gradle.internal.Factory;
 import java.util.Date;
 
 public abstract class ExternalResourceMetaDataCompare {
+    /**
+     * Returns true when the given meta-data has enough information to detect a change of the remote resource: either an ETag, or both a last modified date and a content length.
+     */
+    public static boolean hasComparableMetaData(@Nullable ExternalResourceMetaData local) {
+        if (local == null) {
+            return false;
+        }
+        if (local.getEtag() != null) {
+            return true;
+        }
+        return local.getLastModified() != null && local.getContentLength() > 0;
+    }
+
     public static boolean isDefinitelyUnchanged(@Nullable ExternalResourceMetaData local, Factory<ExternalResourceMetaData> remoteFactory) {
         if (local == null) {
             return false;
@@ -48,6 +48,11 @@ public class DefaultExternalResource extends AbstractExternalResource {
         return response.isLocal();
     }
 
+    @Override
+    public boolean isUnchanged() {
+        return response instanceof UnchangedResourceReadResponse;
+    }
+
     @Override
     protected InputStream openStream() throws IOException {
         return response.openStream();
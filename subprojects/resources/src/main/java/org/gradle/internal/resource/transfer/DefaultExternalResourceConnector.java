@@ -41,6 +41,12 @@ public class DefaultExternalResourceConnector implements ExternalResourceConnect
         return accessor.openResource(location);
     }
 
+    @Nullable
+    @Override
+    public ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) {
+        return accessor.openResource(location, cachedMetaData);
+    }
+
     @Nullable
     @Override
     public ExternalResourceMetaData getMetaData(URI location) {
@@ -39,6 +39,20 @@ public interface ExternalResourceAccessor {
     @Nullable
     ExternalResourceReadResponse openResource(URI location) throws ResourceException;
 
+    /**
+     * Read the resource at the given location, avoiding the transfer of its content where possible when it has not changed since the given meta-data was obtained.
+     *
+     * If the resource is known to be unchanged, the implementation returns an {@link UnchangedResourceReadResponse} carrying the given meta-data. Any other response
+     * carries the current content of the resource, which the caller should use even if its meta-data matches the given meta-data.
+     *
+     * @param location The address of the resource to obtain
+     * @param cachedMetaData The meta-data of the locally cached copy of the resource
+     * @return The resource if it exists, otherwise null. Caller is responsible for closing the result.
+     * @throws ResourceException If the resource may exist, but not could be obtained for some reason.
+     */
+    @Nullable
+    ExternalResourceReadResponse openResource(URI location, ExternalResourceMetaData cachedMetaData) throws ResourceException;
+
     /**
      * Obtains only the metadata about the resource.
      *
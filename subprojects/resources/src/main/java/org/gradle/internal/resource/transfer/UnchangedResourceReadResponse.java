@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transfer;
+
+import org.gradle.internal.resource.metadata.ExternalResourceMetaData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The response to a conditional read of a resource that has not changed since it was cached. It carries the meta-data of the cached copy, but no content.
+ */
+public class UnchangedResourceReadResponse implements ExternalResourceReadResponse {
+    private final ExternalResourceMetaData metaData;
+
+    public UnchangedResourceReadResponse(ExternalResourceMetaData metaData) {
+        this.metaData = metaData;
+    }
+
+    public InputStream openStream() throws IOException {
+        throw new IOException(String.format("Resource '%s' has not changed, its content is not available.", metaData.getLocation()));
+    }
+
+    public ExternalResourceMetaData getMetaData() {
+        return metaData;
+    }
+
+    public boolean isLocal() {
+        return false;
+    }
+
+    public void close() throws IOException {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Unchanged Resource: %s", metaData.getLocation());
+    }
+}
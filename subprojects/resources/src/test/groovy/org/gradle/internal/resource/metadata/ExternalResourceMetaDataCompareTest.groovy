@@ -139,6 +139,30 @@ class ExternalResourceMetaDataCompareTest extends Specification {
         !unchanged
     }
 
+    @Unroll
+    "local metadata with etag #etag, last modified #lastModified and content length #contentLength can be compared: #comparable"() {
+        given:
+        local.etag >> etag
+        local.lastModified >> lastModified
+        local.contentLength >> contentLength
+
+        expect:
+        ExternalResourceMetaDataCompare.hasComparableMetaData(local) == comparable
+
+        where:
+        etag  | lastModified | contentLength | comparable
+        "abc" | null         | -1            | true
+        null  | now          | 100           | true
+        null  | now          | -1            | false
+        null  | null         | 100           | false
+        null  | null         | -1            | false
+    }
+
+    def "metadata that does not exist cannot be compared"() {
+        expect:
+        !ExternalResourceMetaDataCompare.hasComparableMetaData(null)
+    }
+
     def configureMetadata(ExternalResourceMetaData metaData, String etag = "abc", Date lastModified = now, long contentLength = 100) {
         interaction {
             1 * metaData.getEtag() >> etag
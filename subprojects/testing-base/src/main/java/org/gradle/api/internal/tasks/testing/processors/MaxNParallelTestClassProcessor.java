@@ -20,6 +20,7 @@ import org.gradle.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.tasks.testing.TestExecutionException;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.actor.Actor;
@@ -27,26 +28,48 @@ import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. Test classes are queued and each processor pulls the next class as
+ * soon as it has finished with the previous one, so that an idle processor never waits behind a busy one.
+ *
+ * <p>Queued test classes are handed out longest first, using the durations recorded by a previous run. Classes without
+ * a known duration are handed out before all others, as they are likely new and there is no way to tell how long they
+ * will take.</p>
+ *
+ * <p>A processor that fails stops taking test classes. Test classes left in the queue once all processors have stopped
+ * are reported as not run.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final PriorityQueue<QueuedTestClass> queue = new PriorityQueue<QueuedTestClass>();
+    private long sequence;
+    private boolean discoveryComplete;
     private TestResultProcessor resultProcessor;
-    private int pos;
-    private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -55,26 +78,102 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
+        lock.lock();
+        try {
+            queue.add(new QueuedTestClass(testClass, previousDurations.get(testClass.getTestClassName()), sequence++));
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (actors.size() < maxProcessors) {
+            Actor actor = actorFactory.createActor(new ProcessorWorker(factory.create()));
             actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+            actor.getProxy(Runnable.class).run();
         }
-        processor.processTestClass(testClass);
     }
 
     public void stop() {
+        lock.lock();
         try {
-            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            discoveryComplete = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Throwable failure = null;
+        try {
+            CompositeStoppable.stoppable(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
-            throw UncheckedException.throwAsUncheckedException(e.getCause());
+            failure = e.getCause();
+        }
+        List<String> notRun = new ArrayList<String>();
+        QueuedTestClass next;
+        while ((next = queue.poll()) != null) {
+            notRun.add(next.testClass.getTestClassName());
+        }
+        if (!notRun.isEmpty()) {
+            throw new TestExecutionException(String.format("Could not run test classes %s, as all test processors have stopped.", notRun), failure);
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private TestClassRunInfo takeNextTestClass() {
+        lock.lock();
+        try {
+            while (queue.isEmpty() && !discoveryComplete) {
+                condition.await();
+            }
+            QueuedTestClass next = queue.poll();
+            return next == null ? null : next.testClass;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class ProcessorWorker implements Runnable {
+        private final TestClassProcessor processor;
+
+        ProcessorWorker(TestClassProcessor processor) {
+            this.processor = processor;
+        }
+
+        public void run() {
+            processor.startProcessing(resultProcessor);
+            try {
+                TestClassRunInfo testClass;
+                while ((testClass = takeNextTestClass()) != null) {
+                    processor.processTestClass(testClass);
+                }
+            } finally {
+                processor.stop();
+            }
+        }
+    }
+
+    private static class QueuedTestClass implements Comparable<QueuedTestClass> {
+        private final TestClassRunInfo testClass;
+        private final Long duration;
+        private final long sequence;
+
+        QueuedTestClass(TestClassRunInfo testClass, Long duration, long sequence) {
+            this.testClass = testClass;
+            this.duration = duration;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(QueuedTestClass other) {
+            if (duration == null || other.duration == null) {
+                if (duration != other.duration) {
+                    return duration == null ? -1 : 1;
+                }
+            } else if (!duration.equals(other.duration)) {
+                return duration > other.duration ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
         }
     }
 }
@@ -17,34 +17,76 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.tasks.testing.TestExecutionException;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ForkingTestClassProcessor implements TestClassProcessor {
+/**
+ * Runs test classes in a forked worker process. {@link #processTestClass(TestClassRunInfo)} blocks while the worker has
+ * {@value #MAX_PENDING_TEST_CLASSES} test classes that it has not yet reported as finished, so that callers can hand out
+ * test classes only to workers that are ready for them, while each worker has its next test class at hand.
+ *
+ * <p>When the worker process stops before it has finished with the test classes it has been given, the next call to
+ * {@link #processTestClass(TestClassRunInfo)} fails, naming those test classes and the given one.</p>
+ *
+ * <p>When given a {@link TestWorkerDaemonManager}, runs the test classes in a reusable worker instead of forking a new one.</p>
+ */
+public class ForkingTestClassProcessor implements TestClassProcessor, RemoteTestClassProcessorListener {
+    static final int MAX_PENDING_TEST_CLASSES = 2;
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final TestWorkerDaemonManager workerDaemonManager;
+    private final ExecHandleListener workerListener = new ExecHandleListener() {
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            onWorkerStopped();
+        }
+    };
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final LinkedList<TestClassRunInfo> pending = new LinkedList<TestClassRunInfo>();
+    private boolean workerStopped;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, null);
+    }
+
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     @Nullable TestWorkerDaemonManager workerDaemonManager) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.workerDaemonManager = workerDaemonManager;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -56,17 +98,66 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             remoteProcessor = forkProcess();
         }
 
+        lock.lock();
+        try {
+            while (pending.size() >= MAX_PENDING_TEST_CLASSES && !workerStopped) {
+                condition.await();
+            }
+            if (workerStopped) {
+                List<String> notFinished = new ArrayList<String>();
+                for (TestClassRunInfo pendingTestClass : pending) {
+                    notFinished.add(pendingTestClass.getTestClassName());
+                }
+                notFinished.add(testClass.getTestClassName());
+                throw new TestExecutionException(String.format("Test worker process stopped before it finished with test classes %s.", notFinished));
+            }
+            pending.add(testClass);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
         remoteProcessor.processTestClass(testClass);
     }
 
+    public void testClassProcessed() {
+        lock.lock();
+        try {
+            // The worker processes test classes in the order it receives them
+            pending.removeFirst();
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onWorkerStopped() {
+        lock.lock();
+        try {
+            workerStopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     RemoteTestClassProcessor forkProcess() {
         WorkerProcessBuilder builder = workerFactory.create();
         builder.setBaseName("Gradle Test Executor");
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+
+        if (workerDaemonManager != null) {
+            // The session loads the test classpath in its own classloader, see TestWorkerDaemonManager.ENABLED_PROPERTY
+            RemoteTestClassProcessor remoteProcessor = workerDaemonManager.reserveWorker(builder, classPath, processorFactory, resultProcessor, this, workerListener);
+            remoteProcessor.startProcessing();
+            return remoteProcessor;
+        }
+
         builder.applicationClasspath(classPath);
         builder.setLoadApplicationInSystemClassLoader(true);
         builder.worker(new TestWorker(processorFactory));
-        options.copyTo(builder.getJavaCommand());
-        buildConfigAction.execute(builder);
+        builder.getJavaCommand().listener(workerListener);
 
         workerProcess = builder.build();
         workerProcess.start();
@@ -74,6 +165,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(RemoteTestClassProcessorListener.class, this);
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
@@ -83,7 +175,9 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     public void stop() {
         if (remoteProcessor != null) {
             remoteProcessor.stop();
-            workerProcess.waitForStop();
+            if (workerProcess != null) {
+                workerProcess.waitForStop();
+            }
         }
     }
 }
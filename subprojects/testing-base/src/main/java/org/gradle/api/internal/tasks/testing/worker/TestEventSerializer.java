@@ -22,6 +22,12 @@ import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.serialize.*;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 public class TestEventSerializer {
     public static Serializer<Object[]> create() {
         BaseSerializerFactory factory = new BaseSerializerFactory();
@@ -37,6 +43,8 @@ public class TestEventSerializer {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, factory.getSerializerFor(Throwable.class));
+        registry.register(String.class, factory.getSerializerFor(String.class));
+        registry.register(TestWorkerSessionSpec.class, new TestWorkerSessionSpecSerializer());
         return new ObjectArraySerializer(registry.build());
     }
 
@@ -206,4 +214,35 @@ public class TestEventSerializer {
             encoder.writeString(value.getName());
         }
     }
+
+    private static class TestWorkerSessionSpecSerializer implements Serializer<TestWorkerSessionSpec> {
+        public TestWorkerSessionSpec read(Decoder decoder) throws Exception {
+            int classpathSize = decoder.readSmallInt();
+            List<File> classpath = new ArrayList<File>(classpathSize);
+            for (int i = 0; i < classpathSize; i++) {
+                classpath.add(new File(decoder.readString()));
+            }
+            int packagesSize = decoder.readSmallInt();
+            Set<String> sharedPackages = new LinkedHashSet<String>(packagesSize);
+            for (int i = 0; i < packagesSize; i++) {
+                sharedPackages.add(decoder.readString());
+            }
+            String frameworkPackage = decoder.readString();
+            byte[] serializedProcessorFactory = decoder.readBinary();
+            return new TestWorkerSessionSpec(classpath, sharedPackages, frameworkPackage, serializedProcessorFactory);
+        }
+
+        public void write(Encoder encoder, TestWorkerSessionSpec value) throws Exception {
+            encoder.writeSmallInt(value.getApplicationClasspath().size());
+            for (File file : value.getApplicationClasspath()) {
+                encoder.writeString(file.getPath());
+            }
+            encoder.writeSmallInt(value.getSharedPackages().size());
+            for (String sharedPackage : value.getSharedPackages()) {
+                encoder.writeString(sharedPackage);
+            }
+            encoder.writeString(value.getFrameworkPackage());
+            encoder.writeBinary(value.getSerializedProcessorFactory());
+        }
+    }
 }
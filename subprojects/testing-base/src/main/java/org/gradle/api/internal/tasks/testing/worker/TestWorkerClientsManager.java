@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps track of the reusable test workers, and decides whether a worker can be reused once a test task is done with it.
+ */
+public class TestWorkerClientsManager {
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerClientsManager.class);
+
+    private final Object lock = new Object();
+    private final List<TestWorkerDaemonClient> allClients = new ArrayList<TestWorkerDaemonClient>();
+    private final List<TestWorkerDaemonClient> idleClients = new ArrayList<TestWorkerDaemonClient>();
+
+    private final TestWorkerDaemonStarter workerDaemonStarter;
+    private final int maxSessionsPerWorker;
+
+    public TestWorkerClientsManager(TestWorkerDaemonStarter workerDaemonStarter, int maxSessionsPerWorker) {
+        this.workerDaemonStarter = workerDaemonStarter;
+        this.maxSessionsPerWorker = maxSessionsPerWorker;
+    }
+
+    public TestWorkerDaemonClient reserveIdleClient(TestWorkerForkOptions forkOptions) {
+        synchronized (lock) {
+            Iterator<TestWorkerDaemonClient> it = idleClients.iterator();
+            while (it.hasNext()) {
+                TestWorkerDaemonClient candidate = it.next();
+                if (candidate.isCompatibleWith(forkOptions)) {
+                    it.remove();
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+
+    public TestWorkerDaemonClient reserveNewClient(WorkerProcessBuilder builder, TestWorkerForkOptions forkOptions) {
+        //allow workers to be started concurrently
+        TestWorkerDaemonClient client = workerDaemonStarter.startDaemon(builder, forkOptions);
+        synchronized (lock) {
+            allClients.add(client);
+        }
+        return client;
+    }
+
+    public void release(TestWorkerDaemonClient client) {
+        String retireReason = getRetireReason(client);
+        if (retireReason == null) {
+            synchronized (lock) {
+                idleClients.add(client);
+            }
+            return;
+        }
+        LOGGER.info("Stopping {} as {}.", client, retireReason);
+        synchronized (lock) {
+            allClients.remove(client);
+        }
+        client.stop();
+    }
+
+    private String getRetireReason(TestWorkerDaemonClient client) {
+        if (client.isWorkerStopped()) {
+            return "it has exited";
+        }
+        if (client.getRetireReason() != null) {
+            return client.getRetireReason();
+        }
+        if (client.getSessionCount() >= maxSessionsPerWorker) {
+            return String.format("it has run %d test sessions", client.getSessionCount());
+        }
+        return null;
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            LOGGER.debug("Stopping {} reusable test worker(s).", allClients.size());
+            CompositeStoppable.stoppable(allClients).stop();
+            LOGGER.info("Stopped {} reusable test worker(s).", allClients.size());
+            allClients.clear();
+            idleClients.clear();
+        }
+    }
+}
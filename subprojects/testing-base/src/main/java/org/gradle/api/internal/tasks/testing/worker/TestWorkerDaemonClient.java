@@ -0,0 +1,210 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.WorkerProcess;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The build side of a reusable test worker. Forwards the results of the current session to the test task that owns it.
+ */
+class TestWorkerDaemonClient implements TestWorkerDaemonClientProtocol, ExecHandleListener, Stoppable {
+    private final TestWorkerForkOptions forkOptions;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private WorkerProcess workerProcess;
+    private TestWorkerDaemonServerProtocol server;
+    private TestResultProcessor resultProcessor;
+    private RemoteTestClassProcessorListener processorListener;
+    private ExecHandleListener workerListener;
+    private boolean sessionRunning;
+    private boolean workerStopped;
+    private String retireReason;
+    private int sessionCount;
+
+    public TestWorkerDaemonClient(TestWorkerForkOptions forkOptions) {
+        this.forkOptions = forkOptions;
+    }
+
+    void connected(WorkerProcess workerProcess, TestWorkerDaemonServerProtocol server) {
+        this.workerProcess = workerProcess;
+        this.server = server;
+    }
+
+    public boolean isCompatibleWith(TestWorkerForkOptions required) {
+        return forkOptions.equals(required);
+    }
+
+    public void startSession(TestWorkerSessionSpec spec, TestResultProcessor resultProcessor, RemoteTestClassProcessorListener processorListener, ExecHandleListener workerListener) {
+        lock.lock();
+        try {
+            this.resultProcessor = resultProcessor;
+            this.processorListener = processorListener;
+            this.workerListener = workerListener;
+            sessionRunning = true;
+            sessionCount++;
+        } finally {
+            lock.unlock();
+        }
+        server.startSession(spec);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        server.processTestClass(testClass);
+    }
+
+    /**
+     * Blocks until the worker has finished the current session, and all its results have been forwarded.
+     */
+    public void stopSession() {
+        server.stopSession();
+        boolean failed;
+        lock.lock();
+        try {
+            while (sessionRunning && !workerStopped) {
+                condition.await();
+            }
+            failed = sessionRunning;
+            resultProcessor = null;
+            processorListener = null;
+            workerListener = null;
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+        if (failed) {
+            // The worker went away in the middle of the session, report how it finished
+            workerProcess.waitForStop();
+        }
+    }
+
+    public int getSessionCount() {
+        lock.lock();
+        try {
+            return sessionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isWorkerStopped() {
+        lock.lock();
+        try {
+            return workerStopped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the reason the worker gave for not running any more sessions, or null.
+     */
+    public String getRetireReason() {
+        lock.lock();
+        try {
+            return retireReason;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        resultProcessor.started(test, event);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        resultProcessor.completed(testId, event);
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        resultProcessor.output(testId, event);
+    }
+
+    public void failure(Object testId, Throwable result) {
+        resultProcessor.failure(testId, result);
+    }
+
+    public void testClassProcessed() {
+        processorListener.testClassProcessed();
+    }
+
+    public void sessionStopped() {
+        lock.lock();
+        try {
+            sessionRunning = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sessionStoppedAndRetired(String reason) {
+        lock.lock();
+        try {
+            retireReason = reason;
+            sessionRunning = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void executionStarted(ExecHandle execHandle) {
+    }
+
+    public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+        ExecHandleListener listener;
+        lock.lock();
+        try {
+            workerStopped = true;
+            listener = workerListener;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (listener != null) {
+            listener.executionFinished(execHandle, execResult);
+        }
+    }
+
+    public void stop() {
+        if (isWorkerStopped()) {
+            return;
+        }
+        server.stop();
+        workerProcess.waitForStop();
+    }
+
+    public String toString() {
+        return "test worker with fork options " + forkOptions;
+    }
+}
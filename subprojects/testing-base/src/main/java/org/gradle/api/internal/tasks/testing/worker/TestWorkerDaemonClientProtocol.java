@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * The messages sent by a reusable test worker process back to the build process. Results, acknowledgements and the end
+ * of a session all travel over this single channel, so the end of a session is never received ahead of its results.
+ */
+public interface TestWorkerDaemonClientProtocol extends TestResultProcessor, RemoteTestClassProcessorListener {
+    /**
+     * Called when the worker has finished the current session and can run another one. Does not block.
+     */
+    void sessionStopped();
+
+    /**
+     * Called when the worker has finished the current session but should not be given another one. Does not block.
+     */
+    void sessionStoppedAndRetired(String reason);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.ExecHandleListener;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Controls the lifecycle of the reusable test workers and hands them out to test tasks. A worker is kept alive after a test
+ * task is done with it, and is given to the next test task that asks for the same JVM settings.
+ */
+public class TestWorkerDaemonManager implements Stoppable {
+    /**
+     * Enables reusable test workers. A reusable worker outlives the test classpath of a single test task, so the test
+     * classpath is loaded in a classloader created for each session instead of the system classloader. Tests that expect to
+     * find their classes or resources through {@link ClassLoader#getSystemClassLoader()} should not run in reusable workers.
+     */
+    public static final String ENABLED_PROPERTY = "org.gradle.test.workers.reuse";
+    public static final String MAX_SESSIONS_PROPERTY = "org.gradle.test.workers.maxSessions";
+    public static final int DEFAULT_MAX_SESSIONS = 20;
+
+    private final TestWorkerClientsManager clientsManager;
+
+    public TestWorkerDaemonManager(TestWorkerClientsManager clientsManager) {
+        this.clientsManager = clientsManager;
+    }
+
+    /**
+     * Reserves a worker with the JVM settings of the given builder, starting one if none is idle. The session starts when
+     * {@link RemoteTestClassProcessor#startProcessing()} is called, and the worker is handed back when
+     * {@link RemoteTestClassProcessor#stop()} returns. Unlike a forked worker, {@code stop()} blocks until the session is done.
+     */
+    public RemoteTestClassProcessor reserveWorker(WorkerProcessBuilder builder, Iterable<File> classPath, WorkerTestClassProcessorFactory processorFactory,
+                                                  final TestResultProcessor resultProcessor, final RemoteTestClassProcessorListener processorListener,
+                                                  final ExecHandleListener workerListener) {
+        final TestWorkerSessionSpec spec = createSessionSpec(builder, classPath, processorFactory);
+        TestWorkerForkOptions forkOptions = TestWorkerForkOptions.of(builder);
+        TestWorkerDaemonClient reserved = clientsManager.reserveIdleClient(forkOptions);
+        if (reserved == null) {
+            reserved = clientsManager.reserveNewClient(builder, forkOptions);
+        }
+        final TestWorkerDaemonClient client = reserved;
+        return new RemoteTestClassProcessor() {
+            public void startProcessing() {
+                client.startSession(spec, resultProcessor, processorListener, workerListener);
+            }
+
+            public void processTestClass(TestClassRunInfo testClass) {
+                client.processTestClass(testClass);
+            }
+
+            public void stop() {
+                try {
+                    client.stopSession();
+                } finally {
+                    clientsManager.release(client);
+                }
+            }
+        };
+    }
+
+    private TestWorkerSessionSpec createSessionSpec(WorkerProcessBuilder builder, Iterable<File> classPath, WorkerTestClassProcessorFactory processorFactory) {
+        List<File> applicationClasspath = new ArrayList<File>();
+        for (File file : classPath) {
+            applicationClasspath.add(file);
+        }
+        String factoryClassName = processorFactory.getClass().getName();
+        String frameworkPackage = factoryClassName.substring(0, factoryClassName.lastIndexOf('.'));
+        return new TestWorkerSessionSpec(applicationClasspath, new LinkedHashSet<String>(builder.getSharedPackages()), frameworkPackage, serialize(processorFactory));
+    }
+
+    private static byte[] serialize(Object object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream outstr = new ObjectOutputStream(bytes);
+            outstr.writeObject(object);
+            outstr.close();
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void stop() {
+        clientsManager.stop();
+    }
+}
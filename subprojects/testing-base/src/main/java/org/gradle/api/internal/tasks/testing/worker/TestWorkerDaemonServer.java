@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that stays alive between test tasks. Each test task gets a {@link TestWorkerSession}, which loads the
+ * test classes and the test framework in ClassLoaders of its own.
+ */
+public class TestWorkerDaemonServer implements Action<WorkerProcessContext>, TestWorkerDaemonServerProtocol, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestWorkerDaemonServer.class);
+    private CountDownLatch stopped;
+    private DefaultServiceRegistry testServices;
+    private String displayName;
+    private TestWorkerDaemonClientProtocol client;
+    private TestWorkerSession session;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        stopped = new CountDownLatch(1);
+        displayName = workerProcessContext.getDisplayName();
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializer(TestEventSerializer.create());
+        client = serverConnection.addOutgoing(TestWorkerDaemonClientProtocol.class);
+        serverConnection.addIncoming(TestWorkerDaemonServerProtocol.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+            testServices.close();
+        }
+    }
+
+    public void startSession(TestWorkerSessionSpec spec) {
+        Thread.currentThread().setName("Test worker");
+        session = new TestWorkerSession(spec, testServices, displayName, getClass().getClassLoader());
+        session.startProcessing(client);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            session.processTestClass(testClass);
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            client.testClassProcessed();
+        }
+    }
+
+    public void stopSession() {
+        Thread.currentThread().setName("Test worker");
+        String retireReason = "the previous test session failed";
+        try {
+            retireReason = session.stop();
+        } finally {
+            session = null;
+            if (retireReason == null) {
+                client.sessionStopped();
+            } else {
+                client.sessionStoppedAndRetired(retireReason);
+            }
+        }
+    }
+
+    public void stop() {
+        stopped.countDown();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.Clock;
+
+public class TestWorkerDaemonStarter {
+    private final static Logger LOG = Logging.getLogger(TestWorkerDaemonStarter.class);
+
+    /**
+     * Starts a reusable test worker using the given builder, which carries the JVM settings requested by the test task.
+     */
+    public TestWorkerDaemonClient startDaemon(WorkerProcessBuilder builder, TestWorkerForkOptions forkOptions) {
+        LOG.debug("Starting reusable test worker with fork options {}.", forkOptions);
+        Clock clock = new Clock();
+        builder.setLoadApplicationInSystemClassLoader(false);
+        builder.worker(new TestWorkerDaemonServer());
+        TestWorkerDaemonClient client = new TestWorkerDaemonClient(forkOptions);
+        builder.getJavaCommand().listener(client);
+        WorkerProcess process = builder.build();
+        process.start();
+
+        ObjectConnection connection = process.getConnection();
+        connection.useParameterSerializer(TestEventSerializer.create());
+        TestWorkerDaemonServerProtocol server = connection.addOutgoing(TestWorkerDaemonServerProtocol.class);
+        connection.addIncoming(TestWorkerDaemonClientProtocol.class, client);
+        connection.connect();
+        client.connected(process, server);
+
+        LOG.info("Started reusable test worker ({}) with fork options {}.", clock.getTime(), forkOptions);
+
+        return client;
+    }
+}
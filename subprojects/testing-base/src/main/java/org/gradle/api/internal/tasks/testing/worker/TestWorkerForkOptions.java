@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import com.google.common.base.Objects;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The settings of a test worker JVM. A reusable test worker is only handed to test tasks that ask for exactly the
+ * same settings, as tests often depend on system properties, JVM arguments or the environment.
+ */
+public class TestWorkerForkOptions {
+    private final String executable;
+    private final List<String> jvmArgs;
+    private final Map<String, String> environment;
+    private final File workingDir;
+    private final LogLevel logLevel;
+
+    public TestWorkerForkOptions(String executable, List<String> jvmArgs, Map<String, String> environment, File workingDir, LogLevel logLevel) {
+        this.executable = executable;
+        this.jvmArgs = jvmArgs;
+        this.environment = environment;
+        this.workingDir = workingDir;
+        this.logLevel = logLevel;
+    }
+
+    public static TestWorkerForkOptions of(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        Map<String, String> environment = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return new TestWorkerForkOptions(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), environment, javaCommand.getWorkingDir(), builder.getLogLevel());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        TestWorkerForkOptions other = (TestWorkerForkOptions) obj;
+        return Objects.equal(executable, other.executable)
+                && jvmArgs.equals(other.jvmArgs)
+                && environment.equals(other.environment)
+                && Objects.equal(workingDir, other.workingDir)
+                && logLevel == other.logLevel;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(executable, jvmArgs, environment, workingDir, logLevel);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("executable", executable).add("jvmArgs", jvmArgs).add("workingDir", workingDir).toString();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.CachingClassLoader;
+import org.gradle.internal.classloader.ClasspathUtil;
+import org.gradle.internal.classloader.DefaultClassLoaderFactory;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classloader.MutableURLClassLoader;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.messaging.dispatch.ContextClassLoaderProxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The tests of a single test task, run by a reusable test worker. The test classpath is loaded in an isolated
+ * ClassLoader, and the test framework integration classes are loaded again on top of it, so that nothing loaded by one
+ * session is seen by the next. System properties and the security manager are reset when the session stops.
+ */
+class TestWorkerSession {
+    private static final double MAX_HEAP_USAGE_AFTER_GC = 0.75;
+    private final Properties systemProperties;
+    private final ClassLoader applicationClassLoader;
+    private final ClassLoader implementationClassLoader;
+    private final TestClassProcessor processor;
+
+    TestWorkerSession(TestWorkerSessionSpec spec, ServiceRegistry testServices, String workerDisplayName, ClassLoader workerClassLoader) {
+        systemProperties = new Properties();
+        systemProperties.putAll(System.getProperties());
+
+        applicationClassLoader = createApplicationClassLoader(spec);
+        implementationClassLoader = createImplementationClassLoader(spec, workerClassLoader);
+
+        WorkerTestClassProcessorFactory factory = deserializeProcessorFactory(spec);
+        IdGenerator<?> idGenerator = testServices.get(IdGenerator.class);
+        TestClassProcessor targetProcessor = new WorkerTestClassProcessor(factory.create(testServices), idGenerator.generateId(),
+                workerDisplayName, testServices.get(TimeProvider.class));
+        processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, applicationClassLoader).getSource();
+    }
+
+    private ClassLoader createApplicationClassLoader(TestWorkerSessionSpec spec) {
+        List<URI> classpath = new ArrayList<URI>();
+        for (File file : spec.getApplicationClasspath()) {
+            classpath.add(file.toURI());
+        }
+        return new DefaultClassLoaderFactory().createIsolatedClassLoader(classpath);
+    }
+
+    private ClassLoader createImplementationClassLoader(TestWorkerSessionSpec spec, ClassLoader workerClassLoader) {
+        FilteringClassLoader sharedApplication = new FilteringClassLoader(applicationClassLoader);
+        for (String sharedPackage : spec.getSharedPackages()) {
+            sharedApplication.allowPackage(sharedPackage);
+        }
+
+        // Share the Gradle classes with the worker, so results can be passed back, but load the test framework
+        // integration again so that it links against the test framework of this session
+        FilteringClassLoader sharedWorker = new FilteringClassLoader(workerClassLoader);
+        sharedWorker.allowPackage("org.gradle");
+        sharedWorker.allowPackage("org.slf4j");
+        sharedWorker.disallowPackage(spec.getFrameworkPackage());
+
+        return new MutableURLClassLoader(new CachingClassLoader(new MultiParentClassLoader(sharedApplication, sharedWorker)),
+                ClasspathUtil.getClasspath(workerClassLoader));
+    }
+
+    private WorkerTestClassProcessorFactory deserializeProcessorFactory(TestWorkerSessionSpec spec) {
+        try {
+            ClassLoaderObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(spec.getSerializedProcessorFactory()), implementationClassLoader);
+            return (WorkerTestClassProcessorFactory) instr.readObject();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    void startProcessing(TestResultProcessor resultProcessor) {
+        processor.startProcessing(resultProcessor);
+    }
+
+    void processTestClass(TestClassRunInfo testClass) {
+        processor.processTestClass(testClass);
+    }
+
+    /**
+     * Stops this session, and returns the reason why the worker should not be reused, or null if it can be.
+     */
+    String stop() {
+        try {
+            processor.stop();
+        } finally {
+            // Clean out any security manager or system properties the tests might have installed
+            System.setSecurityManager(null);
+            restoreSystemProperties();
+            CompositeStoppable.stoppable(implementationClassLoader, applicationClassLoader).stop();
+        }
+        return checkHeapUsage();
+    }
+
+    private void restoreSystemProperties() {
+        Properties current = System.getProperties();
+        for (Object key : new HashSet<Object>(current.keySet())) {
+            if (!systemProperties.containsKey(key)) {
+                current.remove(key);
+            }
+        }
+        for (Map.Entry<Object, Object> entry : systemProperties.entrySet()) {
+            current.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static String checkHeapUsage() {
+        long used = 0;
+        boolean collected = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                used += usage.getUsed();
+                collected = true;
+            }
+        }
+        long max = Runtime.getRuntime().maxMemory();
+        if (!collected || max == Long.MAX_VALUE) {
+            return null;
+        }
+        double usage = (double) used / max;
+        if (usage > MAX_HEAP_USAGE_AFTER_GC) {
+            return String.format("its heap was %d%% full after the last garbage collection", Math.round(usage * 100));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes the tests that a reusable test worker should run for a test task. The test classpath is loaded in a fresh
+ * ClassLoader for each session, as are the classes of the test framework integration, which live in the package of the
+ * processor factory.
+ */
+public class TestWorkerSessionSpec {
+    private final List<File> applicationClasspath;
+    private final Set<String> sharedPackages;
+    private final String frameworkPackage;
+    private final byte[] serializedProcessorFactory;
+
+    public TestWorkerSessionSpec(List<File> applicationClasspath, Set<String> sharedPackages, String frameworkPackage, byte[] serializedProcessorFactory) {
+        this.applicationClasspath = applicationClasspath;
+        this.sharedPackages = sharedPackages;
+        this.frameworkPackage = frameworkPackage;
+        this.serializedProcessorFactory = serializedProcessorFactory;
+    }
+
+    public List<File> getApplicationClasspath() {
+        return applicationClasspath;
+    }
+
+    public Set<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    public String getFrameworkPackage() {
+        return frameworkPackage;
+    }
+
+    public byte[] getSerializedProcessorFactory() {
+        return serializedProcessorFactory;
+    }
+}
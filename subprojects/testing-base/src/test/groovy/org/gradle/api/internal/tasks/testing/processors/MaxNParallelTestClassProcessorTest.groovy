@@ -19,152 +19,143 @@ package org.gradle.api.internal.tasks.testing.processors
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
-import org.gradle.messaging.actor.Actor
-import org.gradle.messaging.actor.ActorFactory
-import spock.lang.Specification
 import org.gradle.internal.Factory
+import org.gradle.messaging.actor.internal.DefaultActorFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
-class MaxNParallelTestClassProcessorTest extends Specification {
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MaxNParallelTestClassProcessorTest extends ConcurrentSpec {
     private final Factory<TestClassProcessor> factory = Mock()
     private final TestResultProcessor resultProcessor = Mock()
-    private final TestResultProcessor asyncResultProcessor = Mock()
-    private final Actor resultProcessorActor = Mock()
-    private final ActorFactory actorFactory = Mock()
-    private final MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
-
-    def createsThreadSafeWrapperForResultProcessorOnStart() {
-        when:
-        processor.startProcessing(resultProcessor)
+    private final DefaultActorFactory actorFactory = new DefaultActorFactory(executorFactory)
 
-        then:
-        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
-        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+    def cleanup() {
+        actorFactory.stop()
     }
 
     def doesNothingWhenNoTestsProcessed() {
-        startProcessor()
-        
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+        processor.startProcessing(resultProcessor)
+
         when:
         processor.stop()
 
         then:
         0 * factory.create()
-        1 * resultProcessorActor.stop()
-    }
-
-    def startProcessor() {
-        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
-        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
-        processor.startProcessing(resultProcessor)
+        0 * resultProcessor._
     }
 
     def startsProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+        TestClassRunInfo test = testClass("a")
         TestClassProcessor processor1 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        Actor actor1 = Mock()
 
-        startProcessor()
+        processor.startProcessing(resultProcessor)
 
         when:
         processor.processTestClass(test)
-
-        then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
-        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
-
-        when:
         processor.stop()
 
         then:
-        1 * asyncProcessor1.stop()
-        1 * actor1.stop()
-        1 * resultProcessorActor.stop()
+        1 * factory.create() >> processor1
+        1 * processor1.startProcessing(!null)
+        1 * processor1.processTestClass(test)
+        1 * processor1.stop()
+        0 * factory._
     }
 
-    def startsMultipleProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
+    def startsNoMoreThanMaxProcessors() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
         TestClassProcessor processor1 = Mock()
         TestClassProcessor processor2 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
-
-        startProcessor()
-
-        when:
-        processor.processTestClass(test)
-
-        then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
-        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
 
-        when:
-        processor.processTestClass(test)
-
-        then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        processor.startProcessing(resultProcessor)
 
         when:
+        processor.processTestClass(testClass("a"))
+        processor.processTestClass(testClass("b"))
+        processor.processTestClass(testClass("c"))
         processor.stop()
 
         then:
-        1 * asyncProcessor1.stop()
-        1 * asyncProcessor2.stop()
+        2 * factory.create() >>> [processor1, processor2]
+        1 * processor1.startProcessing(!null)
+        1 * processor2.startProcessing(!null)
+        3 * _.processTestClass(_)
+        1 * processor1.stop()
+        1 * processor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
-        TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor processor2 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
+    def idleProcessorTakesNextTestClassWhileAnotherProcessorIsBusy() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+        def slowStarted = new CountDownLatch(1)
+        def releaseSlow = new CountDownLatch(1)
+        def othersProcessed = new CountDownLatch(3)
+        def processedBySlowProcessor = new CopyOnWriteArrayList<String>()
+        def slowProcessor = Mock(TestClassProcessor) {
+            processTestClass(_) >> { TestClassRunInfo test ->
+                processedBySlowProcessor << test.testClassName
+                slowStarted.countDown()
+                releaseSlow.await()
+            }
+        }
+        def fastProcessor = Mock(TestClassProcessor) {
+            processTestClass(_) >> { othersProcessed.countDown() }
+        }
+        factory.create() >>> [slowProcessor, fastProcessor]
 
-        startProcessor()
+        processor.startProcessing(resultProcessor)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(testClass("slow"))
+        slowStarted.await()
+        processor.processTestClass(testClass("b"))
+        processor.processTestClass(testClass("c"))
+        processor.processTestClass(testClass("d"))
+        def othersDone = othersProcessed.await(20, TimeUnit.SECONDS)
+        releaseSlow.countDown()
+        processor.stop()
 
         then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
-        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        othersDone
+        processedBySlowProcessor == ["slow"]
+    }
 
-        when:
-        processor.processTestClass(test)
+    def handsOutLongestTestClassesFirstAndUnknownTestClassesBeforeThat() {
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, [short: 10L, medium: 100L, long: 1000L])
+        def firstStarted = new CountDownLatch(1)
+        def releaseFirst = new CountDownLatch(1)
+        def processed = new CopyOnWriteArrayList<String>()
+        def processor1 = Mock(TestClassProcessor) {
+            processTestClass(_) >> { TestClassRunInfo test ->
+                processed << test.testClassName
+                if (test.testClassName == "first") {
+                    firstStarted.countDown()
+                    releaseFirst.await()
+                }
+            }
+        }
+        factory.create() >> processor1
 
-        then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        processor.startProcessing(resultProcessor)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(testClass("first"))
+        firstStarted.await()
+        ["short", "long", "new", "medium"].each { processor.processTestClass(testClass(it)) }
+        releaseFirst.countDown()
+        processor.stop()
 
         then:
-        1 * asyncProcessor1.processTestClass(test)
-
-        when:
-        processor.processTestClass(test)
+        processed == ["first", "new", "long", "medium", "short"]
+    }
 
-        then:
-        1 * asyncProcessor2.processTestClass(test)
+    def testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
     }
 }
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.testing.worker
 import org.gradle.api.Action
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.api.tasks.testing.TestExecutionException
 import org.gradle.internal.Factory
 import org.gradle.process.JavaForkOptions
 import spock.lang.Specification
@@ -37,10 +38,55 @@ class ForkingTestClassProcessorTest extends Specification {
         processor.processTestClass(test1)
         processor.processTestClass(test2)
 
+        then:
+        1 * processor.forkProcess() >> remoteProcessor
+        1 * remoteProcessor.processTestClass(test1) >> { processor.testClassProcessed() }
+        1 * remoteProcessor.processTestClass(test2) >> { processor.testClassProcessed() }
+        0 * remoteProcessor._
+    }
+
+    def "sends up to two test classes to worker before waiting for it to finish with one"() {
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+        def test3 = Mock(TestClassRunInfo)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+
         then:
         1 * processor.forkProcess() >> remoteProcessor
         1 * remoteProcessor.processTestClass(test1)
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
+
+        when:
+        processor.testClassProcessed()
+        processor.processTestClass(test3)
+
+        then:
+        1 * remoteProcessor.processTestClass(test3)
+        0 * processor.forkProcess()
+        0 * remoteProcessor._
+    }
+
+    def "fails test classes not finished by worker when worker stops"() {
+        def test1 = Stub(TestClassRunInfo) { getTestClassName() >> "Test1" }
+        def test2 = Stub(TestClassRunInfo) { getTestClassName() >> "Test2" }
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        given:
+        processor.forkProcess() >> remoteProcessor
+        processor.processTestClass(test1)
+
+        when:
+        processor.onWorkerStopped()
+        processor.processTestClass(test2)
+
+        then:
+        TestExecutionException e = thrown()
+        e.message == "Test worker process stopped before it finished with test classes [Test1, Test2]."
+        0 * remoteProcessor.processTestClass(test2)
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.process.internal.WorkerProcessBuilder
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class TestWorkerClientsManagerTest extends Specification {
+
+    def options = Stub(TestWorkerForkOptions)
+    def builder = Stub(WorkerProcessBuilder)
+    def starter = Stub(TestWorkerDaemonStarter)
+
+    @Subject manager = new TestWorkerClientsManager(starter, 3)
+
+    def "does not reserve idle client when no clients"() {
+        expect:
+        manager.reserveIdleClient(options) == null
+    }
+
+    def "reserves new client"() {
+        def newClient = Stub(TestWorkerDaemonClient)
+        starter.startDaemon(builder, options) >> newClient
+
+        expect:
+        manager.reserveNewClient(builder, options) == newClient
+    }
+
+    def "released client can be reserved again when compatible"() {
+        def client = Stub(TestWorkerDaemonClient) { isCompatibleWith(options) >> true }
+        starter.startDaemon(builder, options) >> client
+
+        when:
+        manager.reserveNewClient(builder, options)
+
+        then:
+        manager.reserveIdleClient(options) == null
+
+        when:
+        manager.release(client)
+
+        then:
+        manager.reserveIdleClient(Stub(TestWorkerForkOptions)) == null
+        manager.reserveIdleClient(options) == client
+        manager.reserveIdleClient(options) == null
+    }
+
+    @Unroll
+    def "stops released client when #description"() {
+        def client = Mock(TestWorkerDaemonClient)
+        starter.startDaemon(builder, options) >> client
+        client.isCompatibleWith(_) >> true
+        client.isWorkerStopped() >> stopped
+        client.getRetireReason() >> reason
+        client.getSessionCount() >> sessions
+
+        when:
+        manager.reserveNewClient(builder, options)
+        manager.release(client)
+
+        then:
+        1 * client.stop()
+        manager.reserveIdleClient(options) == null
+
+        where:
+        description                    | stopped | reason                | sessions
+        "worker has exited"            | true    | null                  | 1
+        "worker asked to be retired"   | false   | "it is low on memory" | 1
+        "max sessions have been run"   | false   | null                  | 3
+    }
+
+    def "can stop all created clients"() {
+        def client1 = Mock(TestWorkerDaemonClient)
+        def client2 = Mock(TestWorkerDaemonClient)
+        starter.startDaemon(builder, options) >>> [client1, client2]
+
+        when:
+        manager.reserveNewClient(builder, options)
+        manager.reserveNewClient(builder, options)
+        manager.stop()
+
+        then:
+        1 * client1.stop()
+        1 * client2.stop()
+    }
+}
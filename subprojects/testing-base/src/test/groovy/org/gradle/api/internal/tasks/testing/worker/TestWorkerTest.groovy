@@ -35,6 +35,7 @@ public class TestWorkerTest extends ConcurrentSpec {
     def processor = Mock(TestClassProcessor)
     def test = Mock(TestClassRunInfo)
     def resultProcessor = Mock(TestResultProcessor)
+    def processorListener = Mock(RemoteTestClassProcessorListener)
     def worker = new TestWorker(factory)
 
     def setup() {
@@ -56,6 +57,7 @@ public class TestWorkerTest extends ConcurrentSpec {
         and:
         1 * factory.create(_) >> processor
         1 * connection.addOutgoing(TestResultProcessor) >> resultProcessor
+        1 * connection.addOutgoing(RemoteTestClassProcessorListener) >> processorListener
         1 * connection.addIncoming(RemoteTestClassProcessor, worker)
         1 * connection.useParameterSerializer(_)
         1 * connection.connect() >> {
@@ -69,6 +71,7 @@ public class TestWorkerTest extends ConcurrentSpec {
         }
         1 * processor.startProcessing(_)
         1 * processor.processTestClass(test)
+        1 * processorListener.testClassProcessed()
         1 * processor.stop()
     }
 }
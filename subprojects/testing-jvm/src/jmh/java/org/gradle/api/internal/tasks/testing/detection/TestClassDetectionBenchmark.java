@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
+import org.gradle.api.internal.changedetection.state.DefaultTaskArtifactStateCacheAccess;
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.NoOpDecorator;
+import org.gradle.api.internal.hash.Murmur3Hasher;
+import org.gradle.api.internal.tasks.testing.junit.JUnitDetector;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.internal.CacheDecorator;
+import org.gradle.cache.internal.DefaultCacheFactory;
+import org.gradle.cache.internal.DefaultCacheRepository;
+import org.gradle.cache.internal.DefaultCacheScopeMapping;
+import org.gradle.cache.internal.DefaultFileLockManager;
+import org.gradle.cache.internal.ProcessMetaDataProvider;
+import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
+import org.gradle.util.GradleVersion;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the detection of the test classes in a large, unchanged test classes directory, by reading every class file or by using the
+ * persistent detection cache. The class files have already been snapshotted, as they are when the inputs of the test task have been checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class TestClassDetectionBenchmark {
+    @Param({"1000", "10000"})
+    int classCount;
+
+    @Param({"20"})
+    int methodCount;
+
+    /**
+     * Reads every class file with ASM ("none"), or looks up the results in the detection cache, with the in-memory cache of the daemon
+     * in front of the persistent cache ("daemon-cache") or without it ("cache").
+     */
+    @Param({"none", "cache", "daemon-cache"})
+    String detection;
+
+    private File tempDir;
+    private File classesDir;
+    private final List<File> classFiles = new ArrayList<File>();
+    private DefaultTaskArtifactStateCacheAccess cacheAccess;
+    private DefaultTestClassDetectionCache detectionCache;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tempDir = Files.createTempDir();
+        classesDir = new File(tempDir, "classes");
+        for (int i = 0; i < classCount; i++) {
+            // Every other class is a test, with a @Test method after the other methods, so that the detector visits all of them
+            String className = "org/gradle/benchmark/p" + (i % 100) + "/SomeClass" + i;
+            File classFile = new File(classesDir, className + ".class");
+            Files.createParentDirs(classFile);
+            Files.write(classFile(className, i % 2 == 0), classFile);
+            classFiles.add(classFile);
+        }
+
+        CacheRepository cacheRepository = new DefaultCacheRepository(new DefaultCacheScopeMapping(new File(tempDir, "user-home"), null, GradleVersion.current()),
+            new DefaultCacheFactory(new DefaultFileLockManager(new BenchmarkProcess(), new NoContentionHandler())));
+        CacheDecorator decorator = detection.equals("daemon-cache") ? new InMemoryTaskArtifactCache() : new NoOpDecorator();
+        cacheAccess = new DefaultTaskArtifactStateCacheAccess(null, cacheRepository, decorator);
+        final CachingFileSnapshotter fileSnapshotter = new CachingFileSnapshotter(new Murmur3Hasher(), cacheAccess, new StringInterner());
+        cacheAccess.useCache("snapshot test classes", new Runnable() {
+            public void run() {
+                for (File classFile : classFiles) {
+                    fileSnapshotter.snapshot(classFile);
+                }
+            }
+        });
+        detectionCache = new DefaultTestClassDetectionCache(fileSnapshotter, cacheAccess);
+
+        // Populate the detection cache, as a previous build would have
+        detectTestClasses(detectionCache);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cacheAccess.close();
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Benchmark
+    public int detect() {
+        return detectTestClasses(detection.equals("none") ? null : detectionCache);
+    }
+
+    private int detectTestClasses(TestClassDetectionCache detectionCache) {
+        JUnitDetector detector = new JUnitDetector(new JarClassFileIndex());
+        detector.setTestClassesDirectory(classesDir);
+        detector.setDetectionCache(detectionCache);
+        int testCount = 0;
+        for (File classFile : classFiles) {
+            if (detector.detectTestClass(classFile) != null) {
+                testCount++;
+            }
+        }
+        return testCount;
+    }
+
+    private byte[] classFile(String className, boolean test) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        for (int i = 0; i < methodCount; i++) {
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "method" + i, "()V", null, null);
+            if (test && i == methodCount - 1) {
+                method.visitAnnotation("Lorg/junit/Test;", true).visitEnd();
+            }
+            method.visitCode();
+            for (int j = 0; j < 5; j++) {
+                method.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+                method.visitLdcInsn(className + " method " + i + " step " + j);
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+            }
+            method.visitInsn(Opcodes.RETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static class BenchmarkProcess implements ProcessMetaDataProvider {
+        public String getProcessIdentifier() {
+            return "benchmark";
+        }
+
+        public String getProcessDisplayName() {
+            return "benchmark";
+        }
+    }
+
+    private static class NoContentionHandler implements FileLockContentionHandler {
+        public void start(long lockId, Runnable whenContended) {
+        }
+
+        public void stop(long lockId) {
+        }
+
+        public int reservePort() {
+            return -1;
+        }
+
+        public void pingOwner(int port, long lockId, String displayName) {
+        }
+
+        public void released(long lockId) {
+        }
+
+        public boolean awaitRelease(long lockId, long timeoutMs) {
+            return false;
+        }
+    }
+}
@@ -16,71 +16,114 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
-import org.apache.commons.io.IOUtils;
+import com.google.common.io.Files;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.Factory;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
 
     private List<File> testClassDirectories;
-    private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
-    private TestClassProcessor testClassProcessor;
+    private final JarClassFileIndex libraryClassFiles;
+    private final ConcurrentMap<String, Boolean> superClasses;
     private final List<String> knownTestCaseClassNames;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
+    private TestClassDetectionCache detectionCache;
 
-    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
-        assert classFileExtractionManager != null;
-        this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+    protected AbstractTestFrameworkDetector(JarClassFileIndex libraryClassFiles) {
+        assert libraryClassFiles != null;
+        this.libraryClassFiles = libraryClassFiles;
+        this.superClasses = new ConcurrentHashMap<String, Boolean>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
-        if (StringUtils.isEmpty(superClassName)) {
-            throw new IllegalArgumentException("superClassName is empty!");
+    /**
+     * Returns true when every class that extends the given super class is a test, without looking at the super class file.
+     */
+    protected boolean isKnownTestSuperClass(String superClassName) {
+        return false;
+    }
+
+    public TestClassRunInfo detectTestClass(File testClassFile) {
+        ClassFileInfo classInfo = readClassFile(testClassFile);
+        if (classInfo.isAbstract() || !isTest(classInfo)) {
+            return null;
         }
+        return new DefaultTestClassRunInfo(Type.getObjectType(classInfo.getClassName()).getClassName());
+    }
 
-        final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
+    /**
+     * A class is a test when it is marked as a test itself, or when one of its super classes is a test. The result for each
+     * super class is remembered, as many test classes share the same super classes.
+     */
+    private boolean isTest(ClassFileInfo classInfo) {
+        if (classInfo.isTest()) {
+            return true;
+        }
+        String superClassName = classInfo.getSuperClassName();
+        if (superClassName == null) {
+            return false;
+        }
+        if (isKnownTestSuperClass(superClassName)) {
+            return true;
+        }
 
-        File superTestClassFile = null;
-        while (superTestClassFile == null && testClassDirectoriesIt.hasNext()) {
-            final File testClassDirectory = testClassDirectoriesIt.next();
-            final File superTestClassFileCandidate = new File(testClassDirectory, superClassName + ".class");
-            if (superTestClassFileCandidate.exists()) {
-                superTestClassFile = superTestClassFileCandidate;
+        Boolean isSuperTest = superClasses.get(superClassName);
+        if (isSuperTest == null) {
+            ClassFileInfo superClassInfo = readSuperClass(superClassName);
+            if (superClassInfo == null) {
+                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file", superClassName);
+                isSuperTest = false;
+            } else {
+                isSuperTest = isTest(superClassInfo);
+            }
+            superClasses.put(superClassName, isSuperTest);
+        }
+        return isSuperTest;
+    }
+
+    @Nullable
+    private ClassFileInfo readSuperClass(String superClassName) {
+        for (File testClassDirectory : getTestClassDirectories()) {
+            File superTestClassFile = new File(testClassDirectory, superClassName + ".class");
+            if (superTestClassFile.exists()) {
+                return readClassFile(superTestClassFile);
             }
         }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+        // super test class file not in test class directories
+        byte[] superTestClass = libraryClassFiles.getClassFile(superClassName);
+        if (superTestClass == null) {
+            return null;
         }
+        return readClassFile(superTestClass, superClassName + " from the test runtime classpath");
     }
 
-    private void prepareClasspath() {
+    private synchronized List<File> getTestClassDirectories() {
         if (testClassDirectories != null) {
-            return;
+            return testClassDirectories;
         }
 
         testClassDirectories = new ArrayList<File>();
@@ -93,10 +136,11 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 if (file.isDirectory()) {
                     testClassDirectories.add(file);
                 } else if (file.isFile() && file.getName().endsWith(".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
+                    libraryClassFiles.addLibraryJar(file);
                 }
             }
         }
+        return testClassDirectories;
     }
 
     public void setTestClassesDirectory(File testClassesDirectory) {
@@ -107,58 +151,44 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
-
-        InputStream classStream = null;
-        try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(classStream);
-            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
-        } catch (Throwable e) {
-            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(classStream);
-        }
-
-        return classVisitor;
+    public void setDetectionCache(TestClassDetectionCache detectionCache) {
+        this.detectionCache = detectionCache;
     }
 
-    public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+    private ClassFileInfo readClassFile(final File classFile) {
+        if (detectionCache == null) {
+            return visitClassFile(classFile);
+        }
+        // Different detectors look for different things, so the detector is part of the key
+        return detectionCache.get(classFile, getClass().getName(), new Factory<ClassFileInfo>() {
+            public ClassFileInfo create() {
+                return visitClassFile(classFile);
+            }
+        });
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
-
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
-
-        Boolean isSuperTest = superClasses.get(testClassFile);
-
-        if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
-
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+    private ClassFileInfo visitClassFile(File classFile) {
+        byte[] content;
+        try {
+            content = Files.toByteArray(classFile);
+        } catch (IOException e) {
+            throw new GradleException("failed to read class file " + classFile.getAbsolutePath(), e);
         }
-
-        return isTest;
+        return readClassFile(content, classFile.getAbsolutePath());
     }
 
     /**
-     * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
-     * times (for each extending class).
+     * Reads a class file that is not a file of its own, such as a class file from a library jar. These are not cached, as there is no file snapshot to key them by.
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
-            testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
+    private ClassFileInfo readClassFile(byte[] content, String displayName) {
+        final TestClassVisitor classVisitor = createClassVisitor();
+        try {
+            final ClassReader classReader = new ClassReader(content);
+            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + displayName, e);
         }
-    }
-
-    public void startDetection(TestClassProcessor testClassProcessor) {
-        this.testClassProcessor = testClassProcessor;
+        return new ClassFileInfo(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isAbstract(), classVisitor.isTest());
     }
 
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.specs.Spec;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * The test classes to run after a change, or the reason why all of the test classes have to run. Matches the class files of the selected test
+ * classes, including the class files of their inner classes.
+ */
+public class AffectedTestClasses implements Spec<FileTreeElement> {
+
+    private final Collection<String> classNames = new LinkedHashSet<String>();
+    private String fullRunCause;
+
+    /**
+     * Returns the names of the selected top level classes.
+     */
+    public Collection<String> getClassNames() {
+        return classNames;
+    }
+
+    public void addClassName(String className) {
+        classNames.add(topLevelClassName(className));
+    }
+
+    public boolean isFullRunNeeded() {
+        return fullRunCause != null;
+    }
+
+    public String getFullRunCause() {
+        return fullRunCause;
+    }
+
+    public void setFullRunCause(String fullRunCause) {
+        this.fullRunCause = fullRunCause;
+    }
+
+    public boolean isSatisfiedBy(FileTreeElement element) {
+        if (element.isDirectory()) {
+            return true;
+        }
+        String path = element.getRelativePath().getPathString();
+        if (!path.endsWith(".class")) {
+            return true;
+        }
+        String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+        return classNames.contains(topLevelClassName(className));
+    }
+
+    private static String topLevelClassName(String className) {
+        int innerClassSeparator = className.indexOf('$');
+        return innerClassSeparator < 0 ? className : className.substring(0, innerClassSeparator);
+    }
+}
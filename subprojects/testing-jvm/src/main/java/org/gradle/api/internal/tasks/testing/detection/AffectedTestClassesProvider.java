@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Works out which test classes can see the classes changed since the previous test run, using the class dependencies found by the incremental
+ * Java compiler. Any change that cannot be traced to a class in one of the class directories, such as a changed jar or resource, means that all
+ * of the test classes have to run.
+ */
+public class AffectedTestClassesProvider {
+
+    private final FileOperations fileOperations;
+    private final ClassDependenciesAnalyzer analyzer;
+
+    public AffectedTestClassesProvider(FileOperations fileOperations, ClassDependenciesAnalyzer analyzer) {
+        this.fileOperations = fileOperations;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * @param previouslyFailedTestClasses the test classes that failed in the previous run, or null when the results of the previous run are not known.
+     */
+    public AffectedTestClasses provideAffectedTestClasses(IncrementalTaskInputs inputs, File testClassesDir, Iterable<File> classpath, @Nullable Set<String> previouslyFailedTestClasses) {
+        AffectedTestClasses affected = new AffectedTestClasses();
+        if (!inputs.isIncremental()) {
+            affected.setFullRunCause("the changes since the previous run are not known");
+            return affected;
+        }
+        if (previouslyFailedTestClasses == null) {
+            affected.setFullRunCause("the results of the previous run are not available");
+            return affected;
+        }
+
+        Set<File> classesDirs = new LinkedHashSet<File>();
+        classesDirs.add(testClassesDir);
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                classesDirs.add(file);
+            }
+        }
+
+        InputChangeAction action = new InputChangeAction(affected, classesDirs);
+        inputs.outOfDate(action);
+        if (affected.isFullRunNeeded()) {
+            //short circuit in case we already know that a full run is needed
+            return affected;
+        }
+        inputs.removed(action);
+        if (affected.isFullRunNeeded()) {
+            return affected;
+        }
+
+        if (!action.changedClasses.isEmpty()) {
+            ClassSetAnalysis analysis = analyze(classesDirs);
+            for (String changedClass : action.changedClasses) {
+                DependentsSet dependents = analysis.getRelevantDependents(changedClass);
+                if (dependents.isDependencyToAll()) {
+                    String description = dependents.getDescription();
+                    affected.setFullRunCause(description != null ? description : "'" + changedClass + "' was changed");
+                    return affected;
+                }
+                affected.addClassName(changedClass);
+                for (String dependent : dependents.getDependentClasses()) {
+                    affected.addClassName(dependent);
+                }
+            }
+        }
+
+        for (String failedTestClass : previouslyFailedTestClasses) {
+            affected.addClassName(failedTestClass);
+        }
+        return affected;
+    }
+
+    private ClassSetAnalysis analyze(Iterable<File> classesDirs) {
+        ClassFilesAnalyzer classFilesAnalyzer = new ClassFilesAnalyzer(analyzer);
+        for (File classesDir : classesDirs) {
+            fileOperations.fileTree(classesDir).visit(classFilesAnalyzer);
+        }
+        return new ClassSetAnalysis(classFilesAnalyzer.getAnalysis());
+    }
+
+    private static class InputChangeAction implements Action<InputFileDetails> {
+        private final AffectedTestClasses affected;
+        private final Collection<File> classesDirs;
+        private final Collection<String> changedClasses = new LinkedHashSet<String>();
+
+        public InputChangeAction(AffectedTestClasses affected, Collection<File> classesDirs) {
+            this.affected = affected;
+            this.classesDirs = classesDirs;
+        }
+
+        public void execute(InputFileDetails input) {
+            if (affected.isFullRunNeeded()) {
+                return;
+            }
+            File file = input.getFile();
+            if (file.isDirectory()) {
+                return;
+            }
+            String path = relativePath(file);
+            if (path == null || !path.endsWith(".class")) {
+                affected.setFullRunCause("'" + file.getName() + "' was changed");
+                return;
+            }
+            changedClasses.add(path.substring(0, path.length() - ".class".length()).replace(File.separatorChar, '.'));
+        }
+
+        private String relativePath(File file) {
+            String filePath = file.getAbsolutePath();
+            for (File classesDir : classesDirs) {
+                String dirPath = classesDir.getAbsolutePath() + File.separator;
+                if (filePath.startsWith(dirPath)) {
+                    return filePath.substring(dirPath.length());
+                }
+            }
+            return null;
+        }
+    }
+}
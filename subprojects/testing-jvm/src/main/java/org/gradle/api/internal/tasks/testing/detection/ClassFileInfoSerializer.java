@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+public class ClassFileInfoSerializer implements Serializer<ClassFileInfo> {
+
+    public ClassFileInfo read(Decoder decoder) throws Exception {
+        String className = decoder.readString();
+        String superClassName = decoder.readNullableString();
+        boolean isAbstract = decoder.readBoolean();
+        boolean test = decoder.readBoolean();
+        return new ClassFileInfo(className, superClassName, isAbstract, test);
+    }
+
+    public void write(Encoder encoder, ClassFileInfo value) throws Exception {
+        encoder.writeString(value.getClassName());
+        encoder.writeNullableString(value.getSuperClassName());
+        encoder.writeBoolean(value.isAbstract());
+        encoder.writeBoolean(value.isTest());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.internal.changedetection.state.FileSnapshotter;
+import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashValue;
+
+import java.io.File;
+
+/**
+ * Persistent cache of test class detection results, shared by the test tasks of a build. The results only depend on the content of a
+ * class file, so a class that has been scanned once does not need to be read again until it changes.
+ *
+ * <p>The key is the content hash that the file snapshotter holds for the class file, rather than a hash of the file content read here.
+ * The test classes directory is an input of the test task, so its class files have been hashed when the task's inputs were checked,
+ * and a cache hit does not read the class file at all. The results are kept with the file hashes in the task history cache, which the
+ * daemon also keeps in memory.</p>
+ */
+public class DefaultTestClassDetectionCache implements TestClassDetectionCache {
+    private final FileSnapshotter fileSnapshotter;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final PersistentIndexedCache<String, ClassFileInfo> cache;
+
+    public DefaultTestClassDetectionCache(FileSnapshotter fileSnapshotter, TaskArtifactStateCacheAccess cacheAccess) {
+        this.fileSnapshotter = fileSnapshotter;
+        this.cacheAccess = cacheAccess;
+        this.cache = cacheAccess.createCache("testClassDetection", String.class, new ClassFileInfoSerializer());
+    }
+
+    public ClassFileInfo get(final File classFile, final String detectorName, Factory<ClassFileInfo> factory) {
+        ClassFileInfo cached = cacheAccess.useCache("Load test class detection result", new Factory<ClassFileInfo>() {
+            public ClassFileInfo create() {
+                return cache.get(key(classFile, detectorName));
+            }
+        });
+        if (cached != null) {
+            return cached;
+        }
+
+        final ClassFileInfo classFileInfo = factory.create();
+        cacheAccess.useCache("Store test class detection result", new Runnable() {
+            public void run() {
+                cache.put(key(classFile, detectorName), classFileInfo);
+            }
+        });
+        return classFileInfo;
+    }
+
+    private String key(File classFile, String detectorName) {
+        return detectorName + ":" + new HashValue(fileSnapshotter.snapshot(classFile).getHash()).asHexString();
+    }
+}
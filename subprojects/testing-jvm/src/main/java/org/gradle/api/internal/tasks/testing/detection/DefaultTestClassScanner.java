@@ -16,48 +16,117 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.EmptyFileVisitor;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 
 import java.io.File;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
  * a detection or filename scan is performed to find test classes.
+ *
+ * <p>A detection scan can read the class files on several threads. The test classes are still passed to the test class processor
+ * one at a time, in the order in which the class files are visited.</p>
  */
 public class DefaultTestClassScanner implements Runnable {
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, null, 1);
+    }
+
+    /**
+     * @param executorFactory used to read class files in parallel, or null to read them on the calling thread.
+     * @param maxThreads the maximum number of threads to read class files with.
+     */
+    public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor, @Nullable ExecutorFactory executorFactory, int maxThreads) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
     }
 
     public void run() {
         if (testFrameworkDetector == null) {
             filenameScan();
-        } else {
+        } else if (executorFactory == null || maxThreads <= 1) {
             detectionScan();
+        } else {
+            parallelDetectionScan();
         }
     }
 
     private void detectionScan() {
-        testFrameworkDetector.startDetection(testClassProcessor);
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+                publishTestClass(testFrameworkDetector.detectTestClass(fileDetails.getFile()));
             }
         });
     }
 
+    private void parallelDetectionScan() {
+        final StoppableExecutor executor = executorFactory.create("Test class detection", maxThreads);
+        final Queue<Future<TestClassRunInfo>> pending = new LinkedList<Future<TestClassRunInfo>>();
+        try {
+            candidateClassFiles.visit(new ClassFileVisitor() {
+                public void visitClassFile(FileVisitDetails fileDetails) {
+                    final File testClassFile = fileDetails.getFile();
+                    pending.add(executor.submit(new Callable<TestClassRunInfo>() {
+                        public TestClassRunInfo call() {
+                            return testFrameworkDetector.detectTestClass(testClassFile);
+                        }
+                    }));
+                    // Hand over what has been detected so far, so that test execution can start while scanning
+                    publishDetectedTestClasses(pending, false);
+                }
+            });
+            publishDetectedTestClasses(pending, true);
+        } finally {
+            for (Future<TestClassRunInfo> future : pending) {
+                future.cancel(false);
+            }
+            executor.stop();
+        }
+    }
+
+    private void publishDetectedTestClasses(Queue<Future<TestClassRunInfo>> pending, boolean waitForAll) {
+        while (!pending.isEmpty() && (waitForAll || pending.peek().isDone())) {
+            try {
+                publishTestClass(pending.remove().get());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    private void publishTestClass(@Nullable TestClassRunInfo testClass) {
+        if (testClass != null) {
+            testClassProcessor.processTestClass(testClass);
+        }
+    }
+
     private void filenameScan() {
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
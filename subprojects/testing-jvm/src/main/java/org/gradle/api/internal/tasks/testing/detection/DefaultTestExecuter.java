@@ -16,7 +16,9 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -25,32 +27,68 @@ import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassPro
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerDaemonManager;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final TestWorkerDaemonManager workerDaemonManager;
+    private final ExecutorFactory executorFactory;
+    private final TestClassDetectionCache detectionCache;
+    private final Spec<FileTreeElement> testClassFilesSpec;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory) {
+        this(workerFactory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @param previousDurations the duration of each test class in the previous run, keyed by class name. Used to schedule the longest test classes first.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
+        this(workerFactory, actorFactory, previousDurations, null, null, null, null);
+    }
+
+    /**
+     * @param workerDaemonManager provides reusable test workers, or null to fork a new worker for each batch of test classes.
+     * @param executorFactory used to scan the test class files in parallel, or null to scan them one at a time.
+     * @param detectionCache remembers what the test framework detector found out about class files, or null to read every class file.
+     * @param testClassFilesSpec selects the candidate class files to run, or null to run all of them.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, Map<String, Long> previousDurations, @Nullable TestWorkerDaemonManager workerDaemonManager,
+                               @Nullable ExecutorFactory executorFactory, @Nullable TestClassDetectionCache detectionCache, @Nullable Spec<FileTreeElement> testClassFilesSpec) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        this.workerDaemonManager = workerDaemonManager;
+        this.executorFactory = executorFactory;
+        this.detectionCache = detectionCache;
+        this.testClassFilesSpec = testClassFilesSpec;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final TestWorkerDaemonManager reusableWorkers = canReuseWorkers(testTask) ? workerDaemonManager : null;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), reusableWorkers);
             }
         };
         Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -60,16 +98,19 @@ public class DefaultTestExecuter implements TestExecuter {
         };
 
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactory);
+            reforkingProcessorFactory, actorFactory, previousDurations);
 
-        final FileTree testClassFiles = testTask.getCandidateClassFiles();
+        FileTree candidateClassFiles = testTask.getCandidateClassFiles();
+        final FileTree testClassFiles = testClassFilesSpec == null ? candidateClassFiles : candidateClassFiles.matching(new PatternSet().include(testClassFilesSpec));
 
         Runnable detector;
         if (testTask.isScanForTestClasses()) {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            testFrameworkDetector.setDetectionCache(detectionCache);
+            int maxThreads = executorFactory == null ? 1 : testTask.getProject().getGradle().getStartParameter().getMaxWorkerCount();
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, executorFactory, maxThreads);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
@@ -78,4 +119,9 @@ public class DefaultTestExecuter implements TestExecuter {
 
         new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider(), testTaskOperationId, testTask.getPath(), String.format("Gradle Test Run %s", testTask.getPath())).run();
     }
+
+    private boolean canReuseWorkers(Test testTask) {
+        // forkEvery asks for a fresh JVM, and a debugger waits for a single JVM to start
+        return workerDaemonManager != null && testTask.getForkEvery() == 0 && !testTask.getDebug();
+    }
 }
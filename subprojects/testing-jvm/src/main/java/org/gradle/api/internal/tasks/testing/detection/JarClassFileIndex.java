@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds class files in library jars and reads them straight out of the jar. The jars are indexed by package the first time a class
+ * is looked up, so a lookup only opens the jars that contain classes of the requested package. Can be used by several threads.
+ */
+public class JarClassFileIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JarClassFileIndex.class);
+    private final List<File> libraryJars = new ArrayList<File>();
+    private Map<String, List<File>> packageJarFiles;
+
+    /**
+     * Adds a jar to search. Jars are searched in the order they are added.
+     */
+    public synchronized void addLibraryJar(File libraryJar) {
+        libraryJars.add(libraryJar);
+        packageJarFiles = null;
+    }
+
+    /**
+     * Reads a class file from the first library jar that contains it.
+     *
+     * @param className Internal name of the class, for example {@code org/gradle/SomeClass}.
+     * @return The content of the class file, or null when none of the library jars contains the class.
+     */
+    @Nullable
+    public byte[] getClassFile(String className) {
+        String classFileName = className + ".class";
+        for (File jarFile : getPackageJarFiles(packageName(classFileName))) {
+            byte[] content = readEntry(jarFile, classFileName);
+            if (content != null) {
+                LOGGER.debug("read class {} from {}", className, jarFile.getName());
+                return content;
+            }
+        }
+        return null;
+    }
+
+    private synchronized List<File> getPackageJarFiles(String packageName) {
+        if (packageJarFiles == null) {
+            packageJarFiles = indexPackages();
+        }
+        List<File> jarFiles = packageJarFiles.get(packageName);
+        return jarFiles == null ? Collections.<File>emptyList() : jarFiles;
+    }
+
+    private Map<String, List<File>> indexPackages() {
+        Map<String, List<File>> index = new HashMap<String, List<File>>();
+        for (File libraryJar : libraryJars) {
+            try {
+                ZipFile zipFile = new ZipFile(libraryJar);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        String entryName = entries.nextElement().getName();
+                        if (!entryName.endsWith(".class")) {
+                            continue;
+                        }
+                        String packageName = packageName(entryName);
+                        List<File> jarFiles = index.get(packageName);
+                        if (jarFiles == null) {
+                            jarFiles = new ArrayList<File>(1);
+                            index.put(packageName, jarFiles);
+                        }
+                        if (jarFiles.isEmpty() || jarFiles.get(jarFiles.size() - 1) != libraryJar) {
+                            jarFiles.add(libraryJar);
+                        }
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            } catch (IOException e) {
+                throw new GradleException("failed to scan jar file for packages (" + libraryJar.getAbsolutePath() + ")", e);
+            }
+        }
+        return index;
+    }
+
+    private static byte[] readEntry(File jarFile, String entryName) {
+        try {
+            ZipFile zipFile = new ZipFile(jarFile);
+            try {
+                ZipEntry entry = zipFile.getEntry(entryName);
+                if (entry == null) {
+                    return null;
+                }
+                InputStream inputStream = zipFile.getInputStream(entry);
+                try {
+                    return IOUtils.toByteArray(inputStream);
+                } finally {
+                    inputStream.close();
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to read class file from jar (" + jarFile.getAbsolutePath() + ")", e);
+        }
+    }
+
+    private static String packageName(String entryName) {
+        return entryName.substring(0, entryName.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.internal.Factory;
+
+import java.io.File;
+
+/**
+ * Caches the {@link ClassFileInfo} of class files, keyed by the hash of the class file content and the detector that read it.
+ */
+public interface TestClassDetectionCache {
+    /**
+     * Returns what the given detector found out about the given class file. Uses the factory to read the class file when its current content has not been seen before.
+     */
+    ClassFileInfo get(File classFile, String detectorName, Factory<ClassFileInfo> factory);
+}
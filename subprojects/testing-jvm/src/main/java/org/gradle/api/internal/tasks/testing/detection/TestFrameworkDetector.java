@@ -15,17 +15,24 @@
  */
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 
 import java.io.File;
 
 public interface TestFrameworkDetector {
-    void startDetection(TestClassProcessor testClassProcessor);
-
-    boolean processTestClass(File testClassFile);
+    /**
+     * Determines whether the given class file contains a test class to execute. Can be called by several threads at the same time.
+     *
+     * @return The test class, or null when the class file does not contain a concrete test class.
+     */
+    @Nullable
+    TestClassRunInfo detectTestClass(File testClassFile);
 
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
+
+    void setDetectionCache(@Nullable TestClassDetectionCache detectionCache);
 }
@@ -77,4 +77,12 @@ public class ClassTestResults extends CompositeTestResults {
         results.add(test);
         return addTest(test);
     }
+
+    /**
+     * Discards the results of the individual tests of this class, once the page of this class has been rendered. The counts and
+     * the failed and ignored tests are kept.
+     */
+    public void discardTestResults() {
+        results.clear();
+    }
 }
@@ -17,12 +17,17 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -31,63 +36,183 @@ import org.gradle.util.Clock;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
+/**
+ * Generates the HTML test report. Each class page is rendered as soon as the results of the class have been read, after which the
+ * report model drops its copy of the results of the individual tests of the class, as the package pages and the overview page only refer
+ * to the failed and ignored tests. With a provider that reads the results from file one class at a time, only the classes waiting for or being
+ * rendered are held in memory.
+ */
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    // The number of pages that can be waiting for or being rendered at the same time, so that only a bounded part of the results is held in memory
+    private static final int MAX_PENDING_PAGES = 64;
+
+    private final BuildOperationProcessor buildOperationProcessor;
+
+    public DefaultTestReport() {
+        this(null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to render several pages at the same time. When null, the pages are rendered one at a time.
+     */
+    public DefaultTestReport(@Nullable BuildOperationProcessor buildOperationProcessor) {
+        this.buildOperationProcessor = buildOperationProcessor;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        generateFiles(resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getTime(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
+    private static ClassTestResults addClassToModel(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(final TestResultsProvider resultsProvider, File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
-            htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
+            htmlRenderer.render(new AllTestResults(), new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
-                public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
+                public void render(final AllTestResults model, final HtmlReportBuilder output) throws IOException {
+                    final PageQueue classPages = new PageQueue();
+                    resultsProvider.visitClasses(new Action<TestClassResult>() {
+                        public void execute(TestClassResult classResult) {
+                            classPages.add(new ClassPageOperation(addClassToModel(model, classResult), resultsProvider, output));
+                        }
+                    });
+                    classPages.waitForCompletion();
 
-                    output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
+                    PageQueue packagePages = new PageQueue();
                     for (PackageTestResults packageResults : model.getPackages()) {
-                        output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
-                        }
+                        packagePages.add(new PackagePageOperation(packageResults, output));
                     }
+                    packagePages.waitForCompletion();
+
+                    output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
                 }
             }, reportDir);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    /**
+     * Renders pages on the build operation processor when there is one, or else straight away on the calling thread.
+     */
+    private class PageQueue {
+        private final Semaphore pendingPages = new Semaphore(MAX_PENDING_PAGES);
+        private final BuildOperationQueue<PageOperation> queue;
+
+        PageQueue() {
+            queue = buildOperationProcessor == null ? null : buildOperationProcessor.newQueue(new PageWorker(pendingPages), null);
+        }
+
+        void add(PageOperation operation) {
+            if (queue == null) {
+                operation.render();
+                return;
+            }
+            pendingPages.acquireUninterruptibly();
+            boolean queued = false;
+            try {
+                queue.add(operation);
+                queued = true;
+            } finally {
+                if (!queued) {
+                    pendingPages.release();
+                }
+            }
+        }
+
+        void waitForCompletion() {
+            if (queue != null) {
+                queue.waitForCompletion();
+            }
+        }
+    }
+
+    private static class PageWorker implements BuildOperationWorker<PageOperation> {
+        private final Semaphore pendingPages;
+
+        private PageWorker(Semaphore pendingPages) {
+            this.pendingPages = pendingPages;
+        }
+
+        public String getDisplayName() {
+            return "HTML test report renderer";
+        }
+
+        public void execute(PageOperation operation) {
+            try {
+                operation.render();
+            } finally {
+                pendingPages.release();
+            }
+        }
+    }
+
+    private abstract static class PageOperation implements BuildOperation {
+        abstract void render();
+    }
+
+    private static class ClassPageOperation extends PageOperation {
+        private final ClassTestResults classResults;
+        private final TestResultsProvider resultsProvider;
+        private final HtmlReportBuilder output;
+
+        private ClassPageOperation(ClassTestResults classResults, TestResultsProvider resultsProvider, HtmlReportBuilder output) {
+            this.classResults = classResults;
+            this.resultsProvider = resultsProvider;
+            this.output = output;
+        }
+
+        public String getDescription() {
+            return classResults.getTitle();
+        }
+
+        void render() {
+            // Page renderers hold the state of the page being rendered, so each page gets its own
+            output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+            classResults.discardTestResults();
+        }
+    }
+
+    private static class PackagePageOperation extends PageOperation {
+        private final PackageTestResults packageResults;
+        private final HtmlReportBuilder output;
+
+        private PackagePageOperation(PackageTestResults packageResults, HtmlReportBuilder output) {
+            this.packageResults = packageResults;
+            this.output = output;
+        }
+
+        public String getDescription() {
+            return packageResults.getTitle();
+        }
+
+        void render() {
+            output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer());
+        }
+    }
 }
@@ -28,6 +28,7 @@ import org.gradle.internal.concurrent.CompositeStoppable;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
@@ -42,27 +43,55 @@ public class AggregateTestResultsProvider implements TestResultsProvider {
         this.providers = providers;
     }
 
+    /**
+     * Visits the providers twice, so that only the classes that are reported by several providers are held in memory while their parts are collected.
+     * The first pass assigns the new class ids and counts the parts of each class, the second pass visits each class as soon as all of its parts have been read.
+     */
     public void visitClasses(final Action<? super TestClassResult> visitor) {
-        final Map<String, OverlayedIdProxyingTestClassResult> aggregatedTestResults = new LinkedHashMap<String, OverlayedIdProxyingTestClassResult>();
-        classOutputProviders = ArrayListMultimap.create();
+        final Map<String, AggregatedClass> aggregatedClasses = new HashMap<String, AggregatedClass>();
+        final Multimap<Long, DelegateProvider> classOutputProviders = ArrayListMultimap.create();
         final AtomicLong newIdCounter = new AtomicLong(0L);
         for (final TestResultsProvider provider : providers) {
             provider.visitClasses(new Action<TestClassResult>() {
-                public void execute(final TestClassResult classResult) {
-                    OverlayedIdProxyingTestClassResult newTestResult = aggregatedTestResults.get(classResult.getClassName());
-                    if (newTestResult != null) {
-                        newTestResult.addTestClassResult(classResult);
+                public void execute(TestClassResult classResult) {
+                    AggregatedClass aggregatedClass = aggregatedClasses.get(classResult.getClassName());
+                    if (aggregatedClass == null) {
+                        aggregatedClass = new AggregatedClass(newIdCounter.incrementAndGet());
+                        aggregatedClasses.put(classResult.getClassName(), aggregatedClass);
+                    }
+                    aggregatedClass.remainingParts++;
+                    classOutputProviders.put(aggregatedClass.id, new DelegateProvider(classResult.getId(), provider));
+                }
+            });
+        }
+        // Output is written from other threads as soon as a class has been visited, so the mapping is complete before the first class is visited
+        this.classOutputProviders = classOutputProviders;
+
+        for (TestResultsProvider provider : providers) {
+            provider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    AggregatedClass aggregatedClass = aggregatedClasses.get(classResult.getClassName());
+                    if (aggregatedClass.result == null) {
+                        aggregatedClass.result = new OverlayedIdProxyingTestClassResult(aggregatedClass.id, classResult);
                     } else {
-                        long newId = newIdCounter.incrementAndGet();
-                        newTestResult = new OverlayedIdProxyingTestClassResult(newId, classResult);
-                        aggregatedTestResults.put(classResult.getClassName(), newTestResult);
+                        aggregatedClass.result.addTestClassResult(classResult);
+                    }
+                    if (--aggregatedClass.remainingParts == 0) {
+                        visitor.execute(aggregatedClass.result);
+                        aggregatedClass.result = null;
                     }
-                    classOutputProviders.put(newTestResult.getId(), new DelegateProvider(classResult.getId(), provider));
                 }
             });
         }
-        for (OverlayedIdProxyingTestClassResult classResult : aggregatedTestResults.values()) {
-            visitor.execute(classResult);
+    }
+
+    private static class AggregatedClass {
+        private final long id;
+        private int remainingParts;
+        private OverlayedIdProxyingTestClassResult result;
+
+        private AggregatedClass(long id) {
+            this.id = id;
         }
     }
 
@@ -19,8 +19,13 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.util.Clock;
 import org.gradle.internal.FileUtils;
 
@@ -30,40 +35,76 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.Semaphore;
 
 public class Binary2JUnitXmlReportGenerator {
+    // The number of classes that can be waiting for or being written at the same time, so that only a bounded part of the results is held in memory
+    private static final int MAX_PENDING_CLASSES = 64;
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final BuildOperationProcessor buildOperationProcessor;
     JUnitXmlResultWriter saxWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
     public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+        this(testResultsDir, testResultsProvider, outputAssociation, null);
+    }
+
+    /**
+     * @param buildOperationProcessor used to write the files of several test classes at the same time. When null, the files are written one at a time.
+     */
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.buildOperationProcessor = buildOperationProcessor;
         this.saxWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, getReportFileName(result));
-                OutputStream output = null;
-                try {
-                    output = new BufferedOutputStream(new FileOutputStream(file));
-                    saxWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
+        if (buildOperationProcessor == null) {
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    writeResults(result);
                 }
-            }
-        });
+            });
+        } else {
+            final Semaphore pendingClasses = new Semaphore(MAX_PENDING_CLASSES);
+            final BuildOperationQueue<WriteResultsOperation> queue = buildOperationProcessor.newQueue(new WriteResultsWorker(pendingClasses), null);
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    pendingClasses.acquireUninterruptibly();
+                    boolean queued = false;
+                    try {
+                        queue.add(new WriteResultsOperation(result));
+                        queued = true;
+                    } finally {
+                        if (!queued) {
+                            pendingClasses.release();
+                        }
+                    }
+                }
+            });
+            queue.waitForCompletion();
+        }
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getTime(), testResultsDir);
     }
 
+    private void writeResults(TestClassResult result) {
+        File file = new File(testResultsDir, getReportFileName(result));
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(file));
+            saxWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
@@ -75,4 +116,36 @@ public class Binary2JUnitXmlReportGenerator {
             return "localhost";
         }
     }
-}
\ No newline at end of file
+
+    private static class WriteResultsOperation implements BuildOperation {
+        private final TestClassResult result;
+
+        private WriteResultsOperation(TestClassResult result) {
+            this.result = result;
+        }
+
+        public String getDescription() {
+            return String.format("XML test results for %s", result.getClassName());
+        }
+    }
+
+    private class WriteResultsWorker implements BuildOperationWorker<WriteResultsOperation> {
+        private final Semaphore pendingClasses;
+
+        private WriteResultsWorker(Semaphore pendingClasses) {
+            this.pendingClasses = pendingClasses;
+        }
+
+        public String getDisplayName() {
+            return "JUnit XML report writer";
+        }
+
+        public void execute(WriteResultsOperation operation) {
+            try {
+                writeResults(operation.result);
+            } finally {
+                pendingClasses.release();
+            }
+        }
+    }
+}
@@ -21,15 +21,20 @@ import com.esotericsoftware.kryo.io.Output;
 import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.*;
 
 public class TestOutputStore {
 
@@ -216,9 +221,14 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Reads the test outputs back. A reader can be used by multiple threads at the same time, each concurrent read uses its own
+     * handle on the outputs file. Messages are decoded and written in chunks, so a read never holds a whole message in memory.
+     */
     public class Reader implements Closeable {
         private final Index index;
-        private final RandomAccessFile dataFile;
+        private final List<RandomAccessFile> dataFiles = new ArrayList<RandomAccessFile>();
+        private final Deque<RandomAccessFile> idleDataFiles = new ArrayDeque<RandomAccessFile>();
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -262,7 +272,7 @@ public class TestOutputStore {
                 index = rootBuilder.build();
 
                 try {
-                    dataFile = new RandomAccessFile(getOutputsFile(), "r");
+                    releaseDataFile(acquireDataFile());
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
@@ -272,18 +282,38 @@ public class TestOutputStore {
                 }
 
                 index = null;
-                dataFile = null;
             }
         }
 
         public void close() throws IOException {
-            if (dataFile != null) {
-                dataFile.close();
+            synchronized (idleDataFiles) {
+                CompositeStoppable.stoppable(dataFiles).stop();
+                dataFiles.clear();
+                idleDataFiles.clear();
+            }
+        }
+
+        private RandomAccessFile acquireDataFile() throws FileNotFoundException {
+            synchronized (idleDataFiles) {
+                if (!idleDataFiles.isEmpty()) {
+                    return idleDataFiles.pop();
+                }
+            }
+            RandomAccessFile dataFile = new RandomAccessFile(getOutputsFile(), "r");
+            synchronized (idleDataFiles) {
+                dataFiles.add(dataFile);
+            }
+            return dataFile;
+        }
+
+        private void releaseDataFile(RandomAccessFile dataFile) {
+            synchronized (idleDataFiles) {
+                idleDataFiles.push(dataFile);
             }
         }
 
         public boolean hasOutput(long classId, TestOutputEvent.Destination destination) {
-            if (dataFile == null) {
+            if (index == null) {
                 return false;
             }
 
@@ -309,7 +339,7 @@ public class TestOutputStore {
         }
 
         private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            if (dataFile == null) {
+            if (index == null) {
                 return;
             }
 
@@ -333,47 +363,46 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
-                while (decoder.getReadPosition() <= maxPos) {
-                    boolean readStdout = decoder.readBoolean();
-                    long readClassId = decoder.readSmallLong();
-                    long readTestId = decoder.readSmallLong();
-                    int readLength = decoder.readSmallInt();
-
-                    boolean isClassLevel = readTestId == 0;
-
-                    if (stdout != readStdout || classId != readClassId) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
-
-                    if (ignoreClassLevel && isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
+                RandomAccessFile dataFile = acquireDataFile();
+                try {
+                    dataFile.seek(region.start);
+                    long maxPos = region.stop - region.start;
+                    KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
+                    MessageCopier copier = null;
+                    while (decoder.getReadPosition() <= maxPos) {
+                        boolean readStdout = decoder.readBoolean();
+                        long readClassId = decoder.readSmallLong();
+                        long readTestId = decoder.readSmallLong();
+                        int readLength = decoder.readSmallInt();
+
+                        boolean isClassLevel = readTestId == 0;
+
+                        if (stdout != readStdout || classId != readClassId) {
+                            decoder.skipBytes(readLength);
+                            continue;
+                        }
 
-                    if (ignoreTestLevel && !isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
+                        if (ignoreClassLevel && isClassLevel) {
+                            decoder.skipBytes(readLength);
+                            continue;
+                        }
 
-                    if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
+                        if (ignoreTestLevel && !isClassLevel) {
+                            decoder.skipBytes(readLength);
+                            continue;
                         }
 
-                        writer.write(message);
-                    } else {
-                        decoder.skipBytes(readLength);
+                        if (testId == 0 || testId == readTestId) {
+                            if (copier == null) {
+                                copier = new MessageCopier();
+                            }
+                            copier.copy(decoder, readLength, writer);
+                        } else {
+                            decoder.skipBytes(readLength);
+                        }
                     }
+                } finally {
+                    releaseDataFile(dataFile);
                 }
             } catch (IOException e1) {
                 throw new UncheckedIOException(e1);
@@ -381,6 +410,52 @@ public class TestOutputStore {
         }
     }
 
+    /**
+     * Decodes a stored message and writes it to a {@link java.io.Writer} one buffer at a time. Malformed input is replaced, as {@link String#String(byte[], Charset)} does.
+     */
+    private class MessageCopier {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final CharsetDecoder charsetDecoder = messageStorageCharset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+        void copy(KryoBackedDecoder decoder, int length, java.io.Writer writer) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            charsetDecoder.reset();
+            bytes.clear();
+            int remaining = length;
+            while (remaining > 0) {
+                int count = Math.min(remaining, bytes.remaining());
+                decoder.readBytes(bytes.array(), bytes.position(), count);
+                bytes.position(bytes.position() + count);
+                remaining -= count;
+
+                bytes.flip();
+                CoderResult result;
+                do {
+                    result = charsetDecoder.decode(bytes, chars, remaining == 0);
+                    writeChars(writer);
+                } while (result.isOverflow());
+                // keep any partial character for the next chunk
+                bytes.compact();
+            }
+            while (charsetDecoder.flush(chars).isOverflow()) {
+                writeChars(writer);
+            }
+            writeChars(writer);
+        }
+
+        private void writeChars(java.io.Writer writer) throws IOException {
+            writer.write(chars.array(), 0, chars.position());
+            chars.clear();
+        }
+    }
+
     // IMPORTANT: return must be closed when done with.
     public Reader reader() {
         return new Reader();
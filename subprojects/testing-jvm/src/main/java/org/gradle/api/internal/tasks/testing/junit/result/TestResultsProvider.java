@@ -22,9 +22,12 @@ import org.gradle.api.tasks.testing.TestOutputEvent;
 import java.io.Closeable;
 import java.io.Writer;
 
+/**
+ * Provides the results of a test run. The output of a class can be written as soon as the class has been visited, from any thread and concurrently with other reads.
+ */
 public interface TestResultsProvider extends Closeable {
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
      *
      * Writes all output for the test class.
      */
@@ -33,7 +36,7 @@ public interface TestResultsProvider extends Closeable {
     void writeNonTestOutput(long id, TestOutputEvent.Destination destination, Writer writer);
 
     /**
-     * Writes the output of the given test to the given writer. This method must be called only after {@link #visitClasses(org.gradle.api.Action)}.
+     * Writes the output of the given test to the given writer. This method must be called only after the class has been visited by {@link #visitClasses(org.gradle.api.Action)}.
      *
      * Write all output for the given test case name of the test class.
      */
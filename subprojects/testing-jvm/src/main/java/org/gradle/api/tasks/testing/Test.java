@@ -20,8 +20,11 @@ import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Incubating;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.FileTreeElementComparator;
 import org.gradle.api.internal.file.FileTreeElementHasher;
@@ -31,7 +34,13 @@ import org.gradle.api.internal.tasks.testing.DefaultTestTaskReports;
 import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
+import org.gradle.api.internal.tasks.testing.detection.AffectedTestClasses;
+import org.gradle.api.internal.tasks.testing.detection.AffectedTestClassesProvider;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -43,19 +52,24 @@ import org.gradle.api.internal.tasks.testing.results.StateTrackingTestResultProc
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.results.TestListenerInternal;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerDaemonManager;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.*;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.api.tasks.testing.logging.TestLogging;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.environment.GradleBuildEnvironment;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationProcessor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.logging.ConsoleRenderer;
@@ -67,6 +81,7 @@ import org.gradle.process.ProcessForkOptions;
 import org.gradle.process.internal.DefaultJavaForkOptions;
 import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.ConfigureUtil;
+import org.gradle.util.SingleMessageLogger;
 
 import javax.inject.Inject;
 import java.io.File;
@@ -138,6 +153,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
     private FileCollection classpath;
     private TestFramework testFramework;
     private boolean scanForTestClasses = true;
+    private boolean runOnlyAffectedTests;
     private long forkEvery;
     private int maxParallelForks = 1;
     private TestReporter testReporter;
@@ -189,6 +205,36 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected TestWorkerDaemonManager getTestWorkerDaemonManager() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected TestClassDetectionCache getTestClassDetectionCache() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected GradleBuildEnvironment getBuildEnvironment() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected BuildOperationProcessor getBuildOperationProcessor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected GeneralCompileCaches getGeneralCompileCaches() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected FileResolver getFileResolver() {
         throw new UnsupportedOperationException();
@@ -490,8 +536,63 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         return this;
     }
 
+    /**
+     * Reads the duration of each test class and the names of the failed test classes from the results of the previous run.
+     *
+     * @return true when the results of the previous run could be read.
+     */
+    private boolean readPreviousResults(File binaryResultsDir, final Map<String, Long> durations, final Set<String> failedClasses) {
+        TestResultSerializer serializer = new TestResultSerializer(binaryResultsDir);
+        if (!serializer.isHasResults()) {
+            return false;
+        }
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                    if (result.getFailuresCount() > 0) {
+                        failedClasses.add(result.getClassName());
+                    }
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            // Results written by another Gradle version, or a partially written file. Scheduling works without durations.
+            getLogger().debug("Could not read test results from previous run in {}.", binaryResultsDir, e);
+            durations.clear();
+            failedClasses.clear();
+            return false;
+        }
+    }
+
+    @Nullable
+    private Spec<FileTreeElement> selectAffectedTestClasses(IncrementalTaskInputs inputs, @Nullable Set<String> previouslyFailedClasses) {
+        SingleMessageLogger.incubatingFeatureUsed("Running only affected tests");
+        CachingClassDependenciesAnalyzer analyzer = new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(), new DefaultHasher(), getGeneralCompileCaches().getClassAnalysisCache());
+        AffectedTestClassesProvider provider = new AffectedTestClassesProvider((FileOperations) getProject(), analyzer);
+        AffectedTestClasses affectedTestClasses = provider.provideAffectedTestClasses(inputs, getTestClassesDir(), getClasspath(), previouslyFailedClasses);
+        if (affectedTestClasses.isFullRunNeeded()) {
+            getLogger().lifecycle("Running all tests because {}.", affectedTestClasses.getFullRunCause());
+            return null;
+        }
+        getLogger().lifecycle("Running only the tests in {} classes affected by changes or that failed in the previous run.", affectedTestClasses.getClassNames().size());
+        return affectedTestClasses;
+    }
+
     @TaskAction
+    protected void executeTests(IncrementalTaskInputs inputs) {
+        if (!isRunOnlyAffectedTests()) {
+            executeTests();
+            return;
+        }
+        runTests(inputs);
+    }
+
     public void executeTests() {
+        runTests(null);
+    }
+
+    private void runTests(@Nullable IncrementalTaskInputs inputs) {
         LogLevel currentLevel = getCurrentLogLevel();
         TestLogging levelLogging = testLogging.get(currentLevel);
         TestExceptionFormatter exceptionFormatter = getExceptionFormatter(levelLogging);
@@ -503,6 +604,10 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousDurations = new HashMap<String, Long>();
+        Set<String> previouslyFailedClasses = new HashSet<String>();
+        boolean hasPreviousResults = readPreviousResults(binaryResultsDir, previousDurations, previouslyFailedClasses);
+        Spec<FileTreeElement> testClassFilesSpec = inputs == null ? null : selectAffectedTestClasses(inputs, hasPreviousResults ? previouslyFailedClasses : null);
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -523,7 +628,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            TestWorkerDaemonManager workerDaemonManager = Boolean.getBoolean(TestWorkerDaemonManager.ENABLED_PROPERTY) ? getTestWorkerDaemonManager() : null;
+            // Looking up detection results on disk is slower than reading the class files, so only the daemon, which keeps the results in memory, uses the cache
+            TestClassDetectionCache detectionCache = getBuildEnvironment().isLongLivingProcess() ? getTestClassDetectionCache() : null;
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), previousDurations, workerDaemonManager, getExecutorFactory(), detectionCache,
+                testClassFilesSpec);
         }
 
         try {
@@ -537,12 +646,14 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         new TestResultSerializer(binaryResultsDir).write(results.values());
+        // The reports read the results back one class at a time, so that they do not have to hold all of the results in memory
+        results.clear();
 
-        TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore.reader());
+        TestResultsProvider testResultsProvider = new BinaryResultBackedTestResultsProvider(binaryResultsDir);
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getBuildOperationProcessor());
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -550,7 +661,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBuildOperationProcessor());
                 binary2JUnitXmlReportGenerator.generate();
             }
 
@@ -968,6 +1079,34 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.scanForTestClasses = scanForTestClasses;
     }
 
+    /**
+     * Specifies whether only the test classes affected by changes since the previous run should be executed. When {@code true}, a test class is
+     * executed when it failed in the previous run, or when it refers to a changed class, directly or through other classes in the test classes
+     * directory or the class directories of the classpath. All of the test classes are executed when a change cannot be traced to such a class,
+     * for example when a jar or a resource changes, or when the task configuration changes. The default value is {@code false}.
+     *
+     * <p>Changes are found by looking at the class dependencies in the byte code, so classes that are only used through reflection or from
+     * resources are not taken into account. The test reports only contain the executed test classes.</p>
+     *
+     * @since 2.11
+     */
+    @Incubating
+    @Input
+    public boolean isRunOnlyAffectedTests() {
+        return runOnlyAffectedTests;
+    }
+
+    /**
+     * Sets whether only the test classes affected by changes since the previous run should be executed.
+     *
+     * @see #isRunOnlyAffectedTests()
+     * @since 2.11
+     */
+    @Incubating
+    public void setRunOnlyAffectedTests(boolean runOnlyAffectedTests) {
+        this.runOnlyAffectedTests = runOnlyAffectedTests;
+    }
+
     /**
      * Returns the maximum number of test classes to execute in a forked test process. The forked test process will be restarted when this limit is reached. The default value is 0 (no maximum).
      *
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.Action
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.TestUtil
+import org.junit.Rule
+import spock.lang.Specification
+
+class AffectedTestClassesProviderTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def dependencies = [:]
+    def analyzer = Stub(ClassDependenciesAnalyzer) {
+        getClassAnalysis(_, _) >> { String className, File file -> new ClassAnalysis(dependencies[className] as Set ?: [] as Set, className == "org.Constants") }
+    }
+    def provider = new AffectedTestClassesProvider(TestUtil.createRootProject(tmp.testDirectory), analyzer)
+
+    TestFile testClassesDir = tmp.createDir("classes/test")
+    TestFile mainClassesDir = tmp.createDir("classes/main")
+    TestFile jar = tmp.createFile("lib.jar")
+
+    def setup() {
+        classFile(mainClassesDir, "org.Foo")
+        classFile(mainClassesDir, "org.Bar")
+        classFile(mainClassesDir, "org.Constants")
+        classFile(testClassesDir, "org.FooTest", "org.Foo")
+        classFile(testClassesDir, "org.BarTest", "org.BarTest\$1")
+        classFile(testClassesDir, "org.BarTest\$1", "org.Bar")
+        classFile(testClassesDir, "org.TestHelper", "org.Foo")
+        classFile(testClassesDir, "org.HelperTest", "org.TestHelper")
+    }
+
+    def "selects test classes that depend on changed classes"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Foo.class")]))
+
+        then:
+        !affected.fullRunNeeded
+        affected.classNames as Set == ["org.Foo", "org.FooTest", "org.TestHelper", "org.HelperTest"] as Set
+    }
+
+    def "selects test classes whose inner classes depend on changed classes"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Bar.class")]))
+
+        then:
+        affected.classNames as Set == ["org.Bar", "org.BarTest"] as Set
+        affected.isSatisfiedBy(classFileElement("org/BarTest.class"))
+        affected.isSatisfiedBy(classFileElement("org/BarTest\$1.class"))
+        !affected.isSatisfiedBy(classFileElement("org/FooTest.class"))
+    }
+
+    def "selects changed and removed test classes"() {
+        when:
+        def affected = provide(changed([testClassesDir.file("org/BarTest\$1.class")], [testClassesDir.file("org/RemovedTest.class")]))
+
+        then:
+        affected.classNames as Set == ["org.BarTest", "org.RemovedTest"] as Set
+    }
+
+    def "selects test classes that failed in the previous run"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Bar.class")]), ["org.FooTest"] as Set)
+
+        then:
+        affected.classNames as Set == ["org.Bar", "org.BarTest", "org.FooTest"] as Set
+    }
+
+    def "matches directories and files other than class files"() {
+        def affected = new AffectedTestClasses()
+
+        expect:
+        affected.isSatisfiedBy(Stub(FileTreeElement) { isDirectory() >> true })
+        affected.isSatisfiedBy(classFileElement("org/foo.properties"))
+        !affected.isSatisfiedBy(classFileElement("org/FooTest.class"))
+    }
+
+    def "runs all tests when changes are not known"() {
+        def inputs = Stub(IncrementalTaskInputs) { isIncremental() >> false }
+
+        when:
+        def affected = provide(inputs)
+
+        then:
+        affected.fullRunNeeded
+        affected.fullRunCause == "the changes since the previous run are not known"
+    }
+
+    def "runs all tests when the results of the previous run are not known"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Foo.class")]), null)
+
+        then:
+        affected.fullRunNeeded
+        affected.fullRunCause == "the results of the previous run are not available"
+    }
+
+    def "runs all tests when a jar changes"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Foo.class"), jar]))
+
+        then:
+        affected.fullRunNeeded
+        affected.fullRunCause == "'lib.jar' was changed"
+    }
+
+    def "runs all tests when a resource is removed"() {
+        when:
+        def affected = provide(changed([], [testClassesDir.file("org/test.properties")]))
+
+        then:
+        affected.fullRunNeeded
+        affected.fullRunCause == "'test.properties' was changed"
+    }
+
+    def "runs all tests when a class that may be inlined changes"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org/Constants.class")]))
+
+        then:
+        affected.fullRunNeeded
+        affected.fullRunCause == "'org.Constants' was changed"
+    }
+
+    def "ignores changed directories"() {
+        when:
+        def affected = provide(changed([mainClassesDir.file("org"), mainClassesDir.file("org/Bar.class")]))
+
+        then:
+        affected.classNames as Set == ["org.Bar", "org.BarTest"] as Set
+    }
+
+    private AffectedTestClasses provide(IncrementalTaskInputs inputs, Set<String> previouslyFailed = [] as Set) {
+        provider.provideAffectedTestClasses(inputs, testClassesDir, [mainClassesDir, jar], previouslyFailed)
+    }
+
+    private IncrementalTaskInputs changed(List<File> outOfDateFiles, List<File> removedFiles = []) {
+        Stub(IncrementalTaskInputs) {
+            isIncremental() >> true
+            outOfDate(_) >> { Action<InputFileDetails> action -> outOfDateFiles.each { file -> action.execute([getFile: { file }] as InputFileDetails) } }
+            removed(_) >> { Action<InputFileDetails> action -> removedFiles.each { file -> action.execute([getFile: { file }] as InputFileDetails) } }
+        }
+    }
+
+    private void classFile(TestFile dir, String className, String... classDependencies) {
+        dir.file(className.replace('.', '/') + ".class").createFile()
+        dependencies[className] = classDependencies as List
+    }
+
+    private FileTreeElement classFileElement(String path) {
+        Stub(FileTreeElement) {
+            isDirectory() >> false
+            getRelativePath() >> RelativePath.parse(true, path)
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.changedetection.state.FileSnapshot
+import org.gradle.api.internal.changedetection.state.FileSnapshotter
+import org.gradle.api.internal.changedetection.state.TaskArtifactStateCacheAccess
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class DefaultTestClassDetectionCacheTest extends Specification {
+    def persistentCache = Mock(PersistentIndexedCache)
+    def fileSnapshotter = Mock(FileSnapshotter)
+    def cacheAccess = Mock(TaskArtifactStateCacheAccess)
+    def classFile = new File("SomeTest.class")
+    def snapshot = Stub(FileSnapshot) {
+        getHash() >> ([1, 171] as byte[])
+    }
+    def info = new ClassFileInfo("SomeTest", "java/lang/Object", false, true)
+    def factory = Mock(Factory)
+    DefaultTestClassDetectionCache cache
+
+    def setup() {
+        1 * cacheAccess.createCache("testClassDetection", String, _ as ClassFileInfoSerializer) >> persistentCache
+        cache = new DefaultTestClassDetectionCache(fileSnapshotter, cacheAccess)
+    }
+
+    def "looks up the class file by the detector and the hash held by the file snapshotter"() {
+        when:
+        def result = cache.get(classFile, "SomeDetector", factory)
+
+        then:
+        result == info
+        1 * cacheAccess.useCache(_, _ as Factory) >> { String operation, Factory action -> action.create() }
+        1 * fileSnapshotter.snapshot(classFile) >> snapshot
+        1 * persistentCache.get("SomeDetector:1ab") >> info
+        0 * _
+    }
+
+    def "reads the class file and stores the result when it is not cached"() {
+        when:
+        def result = cache.get(classFile, "SomeDetector", factory)
+
+        then:
+        result == info
+        1 * cacheAccess.useCache(_, _ as Factory) >> { String operation, Factory action -> action.create() }
+        1 * persistentCache.get("SomeDetector:1ab") >> null
+        1 * factory.create() >> info
+        1 * cacheAccess.useCache(_, _ as Runnable) >> { String operation, Runnable action -> action.run() }
+        1 * persistentCache.put("SomeDetector:1ab", info)
+        2 * fileSnapshotter.snapshot(classFile) >> snapshot
+        0 * _
+    }
+
+    def "the same class file read by different detectors has different keys"() {
+        cacheAccess.useCache(_, _ as Factory) >> { String operation, Factory action -> action.create() }
+        fileSnapshotter.snapshot(classFile) >> snapshot
+
+        when:
+        cache.get(classFile, "A", factory)
+        cache.get(classFile, "B", factory)
+
+        then:
+        1 * persistentCache.get("A:1ab") >> info
+        1 * persistentCache.get("B:1ab") >> info
+    }
+}
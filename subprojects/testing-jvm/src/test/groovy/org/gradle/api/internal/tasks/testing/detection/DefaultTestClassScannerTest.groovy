@@ -22,10 +22,14 @@ import org.jmock.integration.junit4.JMock
 import org.junit.runner.RunWith
 import org.junit.Test
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.jmock.Sequence
 import org.gradle.api.file.FileTree
 import static org.hamcrest.Matchers.*
+import static org.junit.Assert.assertThat
 import org.gradle.api.file.FileVisitDetails
 
 @RunWith(JMock.class)
@@ -38,6 +42,7 @@ public class DefaultTestClassScannerTest {
     @Test
     public void passesEachClassFileToTestClassDetector() {
         DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
+        TestClassRunInfo testClass = new DefaultTestClassRunInfo('class1')
 
         context.checking {
             Sequence sequence = context.sequence('seq')
@@ -46,13 +51,40 @@ public class DefaultTestClassScannerTest {
                 visitor.visitFile({new File('class1.class')} as FileVisitDetails)
                 visitor.visitFile({new File('class2.class')} as FileVisitDetails)
             }
-            one(detector).startDetection(processor)
+            one(detector).detectTestClass(new File('class1.class'))
+            will(returnValue(testClass))
             inSequence(sequence)
-            one(detector).processTestClass(new File('class1.class'))
-            one(detector).processTestClass(new File('class2.class'))
+            one(processor).processTestClass(testClass)
+            inSequence(sequence)
+            one(detector).detectTestClass(new File('class2.class'))
+            will(returnValue(null))
             inSequence(sequence)
         }
         
         scanner.run()
     }
+
+    @Test
+    public void detectsTestClassesInParallelAndPassesThemOnInVisitOrder() {
+        List<String> detected = []
+        TestFrameworkDetector parallelDetector = [detectTestClass: { File file ->
+            if (file.name == 'class1.class') {
+                Thread.sleep(200)
+            }
+            file.name == 'class3.class' ? null : new DefaultTestClassRunInfo(file.name)
+        }] as TestFrameworkDetector
+        TestClassProcessor recordingProcessor = [processTestClass: { TestClassRunInfo testClass -> detected << testClass.testClassName }] as TestClassProcessor
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, parallelDetector, recordingProcessor, new DefaultExecutorFactory(), 4)
+
+        context.checking {
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                (1..4).each { visitor.visitFile({new File("class${it}.class")} as FileVisitDetails) }
+            }
+        }
+
+        scanner.run()
+
+        assertThat(detected, equalTo(['class1.class', 'class2.class', 'class4.class']))
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class JarClassFileIndexTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def index = new JarClassFileIndex()
+
+    def "reads class file from jar that contains the class"() {
+        index.addLibraryJar(jar("first.jar", "org/gradle/A.class": "a", "org/gradle/other/B.class": "b"))
+        index.addLibraryJar(jar("second.jar", "org/gradle/C.class": "c"))
+
+        expect:
+        new String(index.getClassFile("org/gradle/A")) == "a"
+        new String(index.getClassFile("org/gradle/other/B")) == "b"
+        new String(index.getClassFile("org/gradle/C")) == "c"
+    }
+
+    def "reads class file from the first jar when several jars contain the class"() {
+        index.addLibraryJar(jar("first.jar", "org/gradle/A.class": "first"))
+        index.addLibraryJar(jar("second.jar", "org/gradle/A.class": "second"))
+
+        expect:
+        new String(index.getClassFile("org/gradle/A")) == "first"
+    }
+
+    def "returns null for class that is not in any jar"() {
+        index.addLibraryJar(jar("first.jar", "org/gradle/A.class": "a"))
+
+        expect:
+        index.getClassFile("org/gradle/Missing") == null
+        index.getClassFile("org/other/A") == null
+        index.getClassFile("A") == null
+    }
+
+    def "finds classes in jars added after the first lookup"() {
+        index.addLibraryJar(jar("first.jar", "org/gradle/A.class": "a"))
+
+        when:
+        index.getClassFile("org/gradle/A")
+        index.addLibraryJar(jar("second.jar", "org/gradle/B.class": "b"))
+
+        then:
+        new String(index.getClassFile("org/gradle/B")) == "b"
+    }
+
+    private TestFile jar(Map<String, String> entries, String name) {
+        def contents = tmp.testDirectory.createDir(name + "-contents")
+        entries.each { path, text -> contents.file(path).write(text) }
+        def jar = tmp.testDirectory.file(name)
+        contents.zipTo(jar)
+        return jar
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.tasks.testing.detection.ClassFileInfo
+import org.gradle.api.internal.tasks.testing.detection.JarClassFileIndex
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class JUnitDetectorTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def detector = new JUnitDetector(new JarClassFileIndex())
+    TestFile classesDir
+
+    def setup() {
+        classesDir = tmp.createDir("classes")
+        detector.testClassesDirectory = classesDir
+    }
+
+    def "detects class annotated with RunWith"() {
+        def test = classFile(classesDir, "org/gradle/SomeTest", "java/lang/Object", Opcodes.ACC_PUBLIC, true)
+
+        expect:
+        detector.detectTestClass(test).testClassName == "org.gradle.SomeTest"
+    }
+
+    def "ignores class that is not a test"() {
+        def other = classFile(classesDir, "org/gradle/Other", "java/lang/Object")
+
+        expect:
+        detector.detectTestClass(other) == null
+    }
+
+    def "ignores abstract test class"() {
+        def test = classFile(classesDir, "org/gradle/AbstractTest", "java/lang/Object", Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, true)
+
+        expect:
+        detector.detectTestClass(test) == null
+    }
+
+    def "detects class that extends a known test case class without reading it"() {
+        def test = classFile(classesDir, "org/gradle/SomeTest", "junit/framework/TestCase")
+        def customTest = classFile(classesDir, "org/gradle/CustomTest", "org/gradle/CustomTestCase")
+
+        given:
+        detector.addKnownTestCaseClassNames("org.gradle.CustomTestCase")
+
+        expect:
+        detector.detectTestClass(test).testClassName == "org.gradle.SomeTest"
+        detector.detectTestClass(customTest).testClassName == "org.gradle.CustomTest"
+    }
+
+    def "detects class whose super class in the test classes directory is a test"() {
+        classFile(classesDir, "org/gradle/BaseTest", "java/lang/Object", Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, true)
+        def test = classFile(classesDir, "org/gradle/SomeTest", "org/gradle/BaseTest")
+
+        expect:
+        detector.detectTestClass(test).testClassName == "org.gradle.SomeTest"
+    }
+
+    def "detects class whose super class in a jar on the test classpath is a test"() {
+        def libClasses = tmp.createDir("lib")
+        classFile(libClasses, "org/lib/BaseTest", "org/lib/Base", Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, true)
+        classFile(libClasses, "org/lib/Base", "java/lang/Object")
+        classFile(libClasses, "org/lib/NotATest", "java/lang/Object")
+        def jar = tmp.file("lib.jar")
+        libClasses.zipTo(jar)
+        def test = classFile(classesDir, "org/gradle/SomeTest", "org/lib/BaseTest")
+        def other = classFile(classesDir, "org/gradle/Other", "org/lib/NotATest")
+
+        given:
+        detector.testClasspath = new SimpleFileCollection(classesDir, jar)
+
+        expect:
+        detector.detectTestClass(test).testClassName == "org.gradle.SomeTest"
+        detector.detectTestClass(other) == null
+    }
+
+    def "ignores class whose super class cannot be found"() {
+        def test = classFile(classesDir, "org/gradle/SomeTest", "org/gradle/Missing")
+
+        expect:
+        detector.detectTestClass(test) == null
+    }
+
+    def "reads each super class once"() {
+        def baseTest = classFile(classesDir, "org/gradle/BaseTest", "java/lang/Object", Opcodes.ACC_PUBLIC, true)
+        def test1 = classFile(classesDir, "org/gradle/SomeTest", "org/gradle/BaseTest")
+        def test2 = classFile(classesDir, "org/gradle/OtherTest", "org/gradle/BaseTest")
+
+        when:
+        def first = detector.detectTestClass(test1)
+        baseTest.delete()
+        def second = detector.detectTestClass(test2)
+
+        then:
+        first.testClassName == "org.gradle.SomeTest"
+        second.testClassName == "org.gradle.OtherTest"
+    }
+
+    def "uses the detection cache for class files in the test classes directory"() {
+        def cache = Mock(TestClassDetectionCache)
+        def baseTest = classFile(classesDir, "org/gradle/BaseTest", "java/lang/Object")
+        def test = classFile(classesDir, "org/gradle/SomeTest", "org/gradle/BaseTest")
+
+        given:
+        detector.detectionCache = cache
+
+        when:
+        def result = detector.detectTestClass(test)
+
+        then:
+        result.testClassName == "org.gradle.SomeTest"
+        1 * cache.get(test, JUnitDetector.name, _) >> { File file, String detectorName, Factory factory -> factory.create() }
+        // The cached result wins over the content of the class file
+        1 * cache.get(baseTest, JUnitDetector.name, _) >> new ClassFileInfo("org/gradle/BaseTest", "java/lang/Object", false, true)
+        0 * cache._
+    }
+
+    def "does not use the detection cache for class files from a jar"() {
+        def cache = Mock(TestClassDetectionCache)
+        def libClasses = tmp.createDir("lib")
+        classFile(libClasses, "org/lib/BaseTest", "java/lang/Object", Opcodes.ACC_PUBLIC, true)
+        def jar = tmp.file("lib.jar")
+        libClasses.zipTo(jar)
+        def test = classFile(classesDir, "org/gradle/SomeTest", "org/lib/BaseTest")
+
+        given:
+        detector.testClasspath = new SimpleFileCollection(classesDir, jar)
+        detector.detectionCache = cache
+
+        when:
+        def result = detector.detectTestClass(test)
+
+        then:
+        result.testClassName == "org.gradle.SomeTest"
+        1 * cache.get(test, JUnitDetector.name, _) >> { File file, String detectorName, Factory factory -> factory.create() }
+        0 * cache._
+    }
+
+    private static TestFile classFile(TestFile dir, String name, String superName, int access = Opcodes.ACC_PUBLIC, boolean runWith = false) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, access, name, null, superName, null)
+        if (runWith) {
+            writer.visitAnnotation("Lorg/junit/runner/RunWith;", true).visitEnd()
+        }
+        writer.visitEnd()
+        def file = dir.file(name + ".class")
+        file.parentFile.mkdirs()
+        file.bytes = writer.toByteArray()
+        return file
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.testing.junit.report
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -477,6 +479,41 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def generatesSameReportWhenRenderingPagesInParallel() {
+        given:
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+        def parallelReport = new DefaultTestReport(buildOperationProcessor)
+        def parallelReportDir = tmpDir.file('parallel-report')
+
+        when:
+        report.generateReport(failingBuildResults(), reportDir)
+        parallelReport.generateReport(failingBuildResults(), parallelReportDir)
+
+        then:
+        def pages = relativePaths(reportDir)
+        pages.contains('classes/org.gradle.failing.SomeIgnoredSomePassedSomeFailed.html')
+        pages.contains('packages/org.gradle.failing.html')
+        relativePaths(parallelReportDir) == pages
+        pages.every { withoutTimestamp(parallelReportDir.file(it).text) == withoutTimestamp(reportDir.file(it).text) }
+
+        cleanup:
+        buildOperationProcessor?.stop()
+    }
+
+    Set<String> relativePaths(TestFile dir) {
+        def paths = new TreeSet<String>()
+        dir.eachFileRecurse { File file ->
+            if (file.isFile()) {
+                paths << dir.toURI().relativize(file.toURI()).path
+            }
+        }
+        return paths
+    }
+
+    String withoutTimestamp(String html) {
+        return html.replaceAll(/ at [^<]*<\/p>/, '</p>')
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
@@ -39,8 +39,8 @@ class AggregateTestResultsProviderTest extends Specification {
         provider.visitClasses(action)
 
         then:
-        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
-        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        2 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        2 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
         // TODO(radimk): should not assume order
         1 * action.execute(_) >> { TestClassResult r ->
             assert r.id == 1
@@ -53,6 +53,34 @@ class AggregateTestResultsProviderTest extends Specification {
         0 * action._
     }
 
+    def "visits a class reported by a single provider before reading the later providers"() {
+        def visited = []
+        def class1 = Stub(TestClassResult) {
+            getClassName() >> 'class-1'
+        }
+        def class2 = Stub(TestClassResult) {
+            getClassName() >> 'class-2'
+        }
+        def class3 = Stub(TestClassResult) {
+            getClassName() >> 'class-2'
+        }
+        provider1.visitClasses(_) >> { Action a ->
+            visited << 'provider-1'
+            a.execute(class1)
+            a.execute(class2)
+        }
+        provider2.visitClasses(_) >> { Action a ->
+            visited << 'provider-2'
+            a.execute(class3)
+        }
+
+        when:
+        provider.visitClasses({ TestClassResult r -> visited << r.className } as Action)
+
+        then:
+        visited == ['provider-1', 'provider-2', 'provider-1', 'class-1', 'provider-2', 'class-2']
+    }
+
     def "maps class id to original id when fetching test output"() {
         def writer = Stub(Writer)
         def class1 = Stub(TestClassResult) {
@@ -68,8 +96,8 @@ class AggregateTestResultsProviderTest extends Specification {
         provider.visitClasses(Stub(Action))
 
         then:
-        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
-        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        2 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        2 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
 
         when:
         provider.hasOutput(1, TestOutputEvent.Destination.StdOut)
@@ -105,8 +133,8 @@ class AggregateTestResultsProviderTest extends Specification {
         provider.visitClasses(action)
 
         then:
-        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
-        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        2 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        2 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
         1 * action.execute(_) >> { TestClassResult r ->
             assert r.id == 1
             assert r.className == 'class-1'
@@ -133,8 +161,8 @@ class AggregateTestResultsProviderTest extends Specification {
         provider.visitClasses(action)
 
         then:
-        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
-        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        2 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        2 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
         1 * action.execute(_) >> { TestClassResult r ->
             assert r.id == 1
             assert r.className == 'class-1'
@@ -164,8 +192,8 @@ class AggregateTestResultsProviderTest extends Specification {
         provider.visitClasses(Stub(Action))
 
         then:
-        1 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
-        1 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
+        2 * provider1.visitClasses(_) >> { Action a -> a.execute(class1) }
+        2 * provider2.visitClasses(_) >> { Action a -> a.execute(class2) }
 
         when:
         provider.hasOutput(1, TestOutputEvent.Destination.StdOut)
@@ -18,9 +18,14 @@ package org.gradle.api.internal.tasks.testing.junit.result
 
 import org.gradle.api.Action
 import org.gradle.api.GradleException
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.BuildOperationProcessor
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
+import spock.lang.Timeout
 
 class Binary2JUnitXmlReportGeneratorSpec extends Specification {
 
@@ -54,6 +59,56 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         0 * generator.saxWriter._
     }
 
+    @Timeout(10)
+    def "releases the slot of a class that could not be queued"() {
+        def queue = Stub(BuildOperationQueue) {
+            add(_) >> { throw new RuntimeException("broken") }
+        }
+        def buildOperationProcessor = Stub(BuildOperationProcessor) {
+            newQueue(_, _) >> queue
+        }
+        generator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationProcessor)
+        def failures = 0
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            (1..100).each {
+                try {
+                    action.execute(new TestClassResult(it, "FooTest$it", 100))
+                } catch (RuntimeException e) {
+                    failures++
+                }
+            }
+        }
+
+        when:
+        generator.generate()
+
+        then:
+        failures == 100
+    }
+
+    def "writes results of several classes at the same time"() {
+        def buildOperationProcessor = new DefaultBuildOperationProcessor(new DefaultExecutorFactory(), 4)
+        generator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationProcessor)
+        generator.saxWriter = Mock(JUnitXmlResultWriter)
+        def classResults = (1..100).collect { new TestClassResult(it, "FooTest$it", 100).add(new TestMethodResult(it, "foo")) }
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            classResults.each { action.execute(it) }
+        }
+
+        when:
+        generator.generate()
+
+        then:
+        100 * generator.saxWriter.write({ it in classResults }, _)
+        0 * generator.saxWriter._
+        temp.testDirectory.list().size() == 100
+
+        cleanup:
+        buildOperationProcessor?.stop()
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         def fooTest = new TestClassResult(1, 'FooTest', 100)
                 .add(new TestMethodResult(1, "foo"))
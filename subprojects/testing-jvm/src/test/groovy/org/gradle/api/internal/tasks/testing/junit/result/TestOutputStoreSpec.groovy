@@ -145,6 +145,48 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "output can be larger than the read buffer and contain multi-byte characters"() {
+        def message = "[\u00e9\u20ac\ud83d\ude00]" * 5000
+
+        when:
+        def writer = output.writer()
+        writer.onOutput(1, 1, output(StdOut, message))
+        writer.onOutput(1, 1, output(StdOut, ""))
+        writer.onOutput(1, 1, output(StdOut, "[out]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == message + "[out]"
+
+        cleanup:
+        reader.close()
+    }
+
+    def "output can be read from multiple threads at the same time"() {
+        when:
+        def writer = output.writer()
+        (1..20).each { classId ->
+            writer.onOutput(classId, 1, output(StdOut, classOutput(classId)))
+        }
+        writer.close()
+        def reader = output.reader()
+        def results = Collections.synchronizedMap([:])
+        def threads = (1..20).collect { classId ->
+            Thread.start {
+                results[classId] = collectAllOutput(reader, classId, StdOut)
+            }
+        }
+        threads*.join()
+
+        then:
+        results.size() == 20
+        results.every { classId, text -> text == classOutput(classId) }
+
+        cleanup:
+        reader.close()
+    }
+
     def "can open empty reader"() {
         // neither file
         expect:
@@ -169,6 +211,10 @@ class TestOutputStoreSpec extends WorkspaceTest {
         thrown(IllegalStateException)
     }
 
+    String classOutput(int classId) {
+        return ("[out-" + classId + "]") * 1000
+    }
+
     String collectAllOutput(TestOutputStore.Reader reader, long classId, TestOutputEvent.Destination destination) {
         def writer = new StringWriter()
         reader.writeAllOutput(classId, destination, writer)